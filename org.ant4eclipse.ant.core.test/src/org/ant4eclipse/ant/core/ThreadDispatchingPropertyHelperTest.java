@@ -0,0 +1,114 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.ant.core;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.ant4eclipse.ant.core.ThreadDispatchingPropertyHelper.PropertyScope;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.PropertyHelper;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ThreadDispatchingPropertyHelperTest {
+
+  private Project                         _project;
+
+  private ThreadDispatchingPropertyHelper _propertyHelper;
+
+  @Before
+  public void setUp() {
+    this._project = new Project();
+    this._propertyHelper = new ThreadDispatchingPropertyHelper(this._project);
+    PropertyHelper.getPropertyHelper(this._project).setNext(this._propertyHelper);
+    this._project.setProperty("test", "initial");
+  }
+
+  @Test
+  public void nestedScopes() {
+    PropertyScope outer = this._propertyHelper.pushScope(Collections.singletonMap("test", "outer"));
+    Assert.assertEquals("outer", this._project.getProperty("test"));
+    PropertyScope inner = this._propertyHelper.pushScope(Collections.singletonMap("test", "inner"));
+    Assert.assertEquals("inner", this._project.getProperty("test"));
+    this._propertyHelper.popScope(inner);
+    Assert.assertEquals("outer", this._project.getProperty("test"));
+    this._propertyHelper.popScope(outer);
+    Assert.assertEquals("initial", this._project.getProperty("test"));
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void popOuterScope() {
+    PropertyScope outer = this._propertyHelper.pushScope(Collections.singletonMap("test", "outer"));
+    PropertyScope inner = this._propertyHelper.pushScope(Collections.singletonMap("test", "inner"));
+    try {
+      this._propertyHelper.popScope(outer);
+    } finally {
+      this._propertyHelper.popScope(inner);
+      this._propertyHelper.popScope(outer);
+    }
+  }
+
+  @Test
+  public void concurrentScopes() throws Exception {
+    final CountDownLatch pushed = new CountDownLatch(2);
+    final AtomicReference<String> failure = new AtomicReference<String>();
+    Thread[] threads = new Thread[2];
+    for (int i = 0; i < threads.length; i++) {
+      final String value = "pool-" + i;
+      threads[i] = new Thread(new Runnable() {
+        public void run() {
+          PropertyScope scope = ThreadDispatchingPropertyHelperTest.this._propertyHelper.pushScope(Collections
+              .singletonMap("test", value));
+          try {
+            pushed.countDown();
+            pushed.await();
+            if (!value.equals(ThreadDispatchingPropertyHelperTest.this._project.getProperty("test"))) {
+              failure.set(ThreadDispatchingPropertyHelperTest.this._project.getProperty("test"));
+            }
+          } catch (InterruptedException ex) {
+            failure.set(ex.toString());
+          } finally {
+            ThreadDispatchingPropertyHelperTest.this._propertyHelper.popScope(scope);
+          }
+        }
+      }, value);
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    Assert.assertNull(failure.get());
+    Assert.assertEquals("initial", this._project.getProperty("test"));
+  }
+
+  @Test
+  public void inheritedScope() throws Exception {
+    PropertyScope scope = this._propertyHelper.pushScope(Collections.singletonMap("test", "outer"));
+    final AtomicReference<String> value = new AtomicReference<String>();
+    try {
+      Thread thread = new Thread(new Runnable() {
+        public void run() {
+          value.set(ThreadDispatchingPropertyHelperTest.this._project.getProperty("test"));
+        }
+      });
+      thread.start();
+      thread.join();
+    } finally {
+      this._propertyHelper.popScope(scope);
+    }
+    Assert.assertEquals("outer", value.get());
+  }
+
+} /* ENDCLASS */
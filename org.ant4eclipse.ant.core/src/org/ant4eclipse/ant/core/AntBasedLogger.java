@@ -11,7 +11,10 @@
  **********************************************************************/
 package org.ant4eclipse.ant.core;
 
+import java.lang.reflect.Field;
+import java.util.HashMap;
 import java.util.IllegalFormatException;
+import java.util.Map;
 
 import org.ant4eclipse.lib.core.Assure;
 import org.ant4eclipse.lib.core.logging.Ant4EclipseLogger;
@@ -22,15 +25,32 @@ import org.apache.tools.ant.Target;
 import org.apache.tools.ant.Task;
 
 /**
+ * <p>
+ * Logger that passes the messages to the ant project. Messages are only formatted if at least one of the build
+ * listeners of the project accepts their level. The level of a build listener is taken from it's
+ * <code>msgOutputLevel</code> field (which is declared by ant's loggers); all other listeners are assumed to accept
+ * every message. As listeners might be added or reconfigured by tasks, the level is recalculated whenever a target or
+ * a task is started.
+ * </p>
+ * 
  * @author Daniel Kasmeroglu (daniel.kasmeroglu@kasisoft.net)
  */
 public class AntBasedLogger implements Ant4EclipseLogger, BuildListener {
 
+  /** the name of the field that holds the message output level of ant's loggers */
+  private static final String               MSG_OUTPUT_LEVEL = "msgOutputLevel";
+
+  /** the message output level fields per listener class (<code>null</code> if the class doesn't have one) */
+  private static final Map<Class<?>, Field> _levelFields     = new HashMap<Class<?>, Field>();
+
   /** the ant project */
-  private Project             _project = null;
+  private Project                           _project         = null;
 
   /** the (thread local) context */
-  private ThreadLocal<Object> _context = new ThreadLocal<Object>();
+  private ThreadLocal<Object>               _context         = new ThreadLocal<Object>();
+
+  /** the most verbose message level accepted by a build listener of the project */
+  private volatile int                      _messageOutputLevel;
 
   /**
    * <p>
@@ -43,6 +63,7 @@ public class AntBasedLogger implements Ant4EclipseLogger, BuildListener {
 
     this._project = project;
     this._project.addBuildListener(this);
+    updateMessageOutputLevel();
   }
 
   /**
@@ -56,14 +77,14 @@ public class AntBasedLogger implements Ant4EclipseLogger, BuildListener {
    * {@inheritDoc}
    */
   public boolean isDebuggingEnabled() {
-    return true;
+    return this._messageOutputLevel >= Project.MSG_VERBOSE;
   }
 
   /**
    * {@inheritDoc}
    */
   public boolean isTraceingEnabled() {
-    return true;
+    return this._messageOutputLevel >= Project.MSG_DEBUG;
   }
 
   /**
@@ -106,6 +127,7 @@ public class AntBasedLogger implements Ant4EclipseLogger, BuildListener {
    */
   public void taskStarted(BuildEvent event) {
     setContext(event.getTask());
+    updateMessageOutputLevel();
   }
 
   /**
@@ -120,6 +142,7 @@ public class AntBasedLogger implements Ant4EclipseLogger, BuildListener {
    */
   public void targetStarted(BuildEvent event) {
     setContext(event.getTarget());
+    updateMessageOutputLevel();
   }
 
   /**
@@ -161,6 +184,11 @@ public class AntBasedLogger implements Ant4EclipseLogger, BuildListener {
    *          The arguments used to format the message.
    */
   private void log(int msgLevel, String msg, Object... args) {
+    // none of the listeners would accept the message
+    if (msgLevel > this._messageOutputLevel) {
+      return;
+    }
+
     // retrieve the context
     Object ctx = this._context.get();
     String message;
@@ -185,4 +213,76 @@ public class AntBasedLogger implements Ant4EclipseLogger, BuildListener {
     }
   }
 
+  /**
+   * <p>
+   * Recalculates the most verbose message level that is accepted by a build listener of the project.
+   * </p>
+   */
+  private void updateMessageOutputLevel() {
+    int result = Project.MSG_ERR;
+    for (Object listener : this._project.getBuildListeners()) {
+      if (listener != this) {
+        result = Math.max(result, getMessageOutputLevel(listener));
+        if (result == Project.MSG_DEBUG) {
+          break;
+        }
+      }
+    }
+    this._messageOutputLevel = result;
+  }
+
+  /**
+   * <p>
+   * Returns the message output level of the given build listener.
+   * </p>
+   * 
+   * @param listener
+   *          the build listener
+   * @return the message output level of the given build listener or {@link Project#MSG_DEBUG} if it's unknown.
+   */
+  private static int getMessageOutputLevel(Object listener) {
+    Field field = getLevelField(listener.getClass());
+    if (field != null) {
+      try {
+        return field.getInt(listener);
+      } catch (IllegalAccessException ex) {
+        // fall through
+      }
+    }
+    return Project.MSG_DEBUG;
+  }
+
+  /**
+   * <p>
+   * Returns the (accessible) message output level field of the given listener class.
+   * </p>
+   * 
+   * @param listenerClass
+   *          the class of a build listener
+   * @return the message output level field or <code>null</code> if the class doesn't declare or inherit one.
+   */
+  private static Field getLevelField(Class<?> listenerClass) {
+    synchronized (_levelFields) {
+      if (_levelFields.containsKey(listenerClass)) {
+        return _levelFields.get(listenerClass);
+      }
+      Field result = null;
+      for (Class<?> current = listenerClass; (current != null) && (result == null); current = current.getSuperclass()) {
+        for (Field field : current.getDeclaredFields()) {
+          if (MSG_OUTPUT_LEVEL.equals(field.getName()) && (field.getType() == Integer.TYPE)) {
+            try {
+              field.setAccessible(true);
+              result = field;
+            } catch (SecurityException ex) {
+              // the level is unknown
+            }
+            break;
+          }
+        }
+      }
+      _levelFields.put(listenerClass, result);
+      return result;
+    }
+  }
+
 } /* ENDCLASS */
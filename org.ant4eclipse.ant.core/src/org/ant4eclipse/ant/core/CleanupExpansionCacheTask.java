@@ -0,0 +1,67 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.ant.core;
+
+import org.ant4eclipse.lib.core.util.JarExpansionCache;
+import org.apache.tools.ant.BuildException;
+
+/**
+ * <p>
+ * Removes the least recently used jar files from the persistent jar expansion cache until the cache doesn't exceed the
+ * given maximum size.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class CleanupExpansionCacheTask extends AbstractAnt4EclipseTask {
+
+  /** the maximum size of the cache in megabytes */
+  private long _maxSize = Long.getLong(JarExpansionCache.PROP_MAXSIZE, JarExpansionCache.DEFAULT_MAXSIZE).longValue();
+
+  /**
+   * <p>
+   * Sets the maximum size of the cache in megabytes.
+   * </p>
+   *
+   * @param maxSize
+   *          the maximum size of the cache in megabytes.
+   */
+  public void setMaxSize(long maxSize) {
+    this._maxSize = maxSize;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void preconditions() throws BuildException {
+    if (this._maxSize < 0) {
+      throw new BuildException("The attribute 'maxSize' must not be negative.");
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void doExecute() {
+    JarExpansionCache expansionCache = JarExpansionCache.getDefault(this._maxSize);
+    if (expansionCache == null) {
+      log("Persistent caches are disabled.");
+      return;
+    }
+    int removed = expansionCache.cleanup();
+    log(String.format("Removed %d jar files from the jar expansion cache '%s'.", Integer.valueOf(removed),
+        expansionCache.getDirectory()));
+  }
+
+} /* ENDCLASS */
@@ -1,23 +1,42 @@
 package org.ant4eclipse.ant.core;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Hashtable;
 import java.util.Map;
 import java.util.Properties;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.ant4eclipse.lib.core.Assure;
+import org.apache.tools.ant.BuildEvent;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.PropertyHelper;
+import org.apache.tools.ant.SubBuildListener;
 
 /**
  * <p>
+ * Property helper that provides thread local properties:
+ * <ul>
+ * <li>Each thread has a stack of scopes. A scope is an immutable map of properties that is pushed before a macro is
+ * executed and popped afterwards. The properties of the scopes are visible to the current thread only and hide the
+ * properties of the ant project. Threads that are started within a scope inherit the scope of their creator.</li>
+ * <li>The scope stack of a thread is shared by all projects, so the scoped properties are visible in the projects
+ * created by <code>&lt;ant&gt;</code> and <code>&lt;antcall&gt;</code> as well. Within these projects the user
+ * properties (e.g. the nested <code>&lt;param&gt;</code> elements) hide the scoped properties of the calling
+ * project.</li>
+ * <li>The properties that are set by ant4eclipse threads (<code>A4E-</code>) are stored separately for each of
+ * these threads.</li>
+ * </ul>
  * </p>
  * 
  * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
  */
 public class ThreadDispatchingPropertyHelper extends PropertyHelper {
 
-  /** the property helper */
-  private Map<Thread, Properties> _propertiesMap;
+  /** the innermost scope of each thread */
+  private static final InheritableThreadLocal<PropertyScope> SCOPES = new InheritableThreadLocal<PropertyScope>();
+
+  /** the properties of the registered threads */
+  private ThreadLocal<Properties>                            _threadProperties;
 
   /**
    * <p>
@@ -52,6 +71,32 @@ public class ThreadDispatchingPropertyHelper extends PropertyHelper {
     return getInstance(project) != null;
   }
 
+  /**
+   * <p>
+   * Installs a {@link ThreadDispatchingPropertyHelper} on the given project. The same is done for all projects that are
+   * created by <code>&lt;ant&gt;</code> and <code>&lt;antcall&gt;</code> within the given project.
+   * </p>
+   * 
+   * @param project
+   *          the ant project
+   */
+  public static void install(Project project) {
+    Assure.notNull("project", project);
+
+    //
+    if (!hasInstance(project)) {
+      PropertyHelper.getPropertyHelper(project).setNext(new ThreadDispatchingPropertyHelper(project));
+    }
+
+    // the listener is passed to the sub projects by ant
+    for (Object listener : project.getBuildListeners()) {
+      if (listener instanceof SubBuildScopeListener) {
+        return;
+      }
+    }
+    project.addBuildListener(new SubBuildScopeListener());
+  }
+
   /**
    * <p>
    * Creates a new instance of type {@link ThreadDispatchingPropertyHelper}.
@@ -66,7 +111,7 @@ public class ThreadDispatchingPropertyHelper extends PropertyHelper {
     setProject(project);
 
     //
-    this._propertiesMap = new ConcurrentHashMap<Thread, Properties>();
+    this._threadProperties = new ThreadLocal<Properties>();
   }
 
   /**
@@ -79,7 +124,7 @@ public class ThreadDispatchingPropertyHelper extends PropertyHelper {
   public boolean isThreadRegistered(Thread thread) {
 
     //
-    return this._propertiesMap.containsKey(thread);
+    return (thread == Thread.currentThread()) && (this._threadProperties.get() != null);
   }
 
   /**
@@ -92,8 +137,9 @@ public class ThreadDispatchingPropertyHelper extends PropertyHelper {
   public boolean removeProperty(String name) {
 
     //
-    if (isThreadRegistered(Thread.currentThread())) {
-      return this._propertiesMap.get(Thread.currentThread()).remove(name) != null;
+    Properties properties = this._threadProperties.get();
+    if (properties != null) {
+      return properties.remove(name) != null;
     }
 
     // return false
@@ -102,12 +148,15 @@ public class ThreadDispatchingPropertyHelper extends PropertyHelper {
 
   /**
    * <p>
+   * Registers the given thread, so that all properties set by this thread are stored separately. The thread must be the
+   * current thread.
    * </p>
    * 
    * @param thread
    */
   public void registerThread(Thread thread) {
     Assure.notNull("thread", thread);
+    Assure.assertTrue(thread == Thread.currentThread(), "Only the current thread can be registered!");
 
     //
     if (!isAnt4EclipseThread(thread)) {
@@ -115,8 +164,8 @@ public class ThreadDispatchingPropertyHelper extends PropertyHelper {
     }
 
     //
-    if (!this._propertiesMap.containsKey(thread)) {
-      this._propertiesMap.put(thread, new Properties());
+    if (this._threadProperties.get() == null) {
+      this._threadProperties.set(new Properties());
     }
   }
 
@@ -131,60 +180,59 @@ public class ThreadDispatchingPropertyHelper extends PropertyHelper {
     return thread.getName().startsWith("A4E-");
   }
 
-  // /**
-  // * <p>
-  // * </p>
-  // *
-  // * @param thread
-  // */
-  // public void unregisterThread(Thread thread) {
-  //
-  // //
-  // this._propertiesMap.remove(thread);
-  // }
-
   /**
-   * {@inheritDoc}
+   * <p>
+   * Pushes a new scope with the given properties onto the scope stack of the current thread. The properties hide all
+   * properties with the same name until the scope is popped.
+   * </p>
+   * 
+   * @param properties
+   *          the properties of the scope. The map must not be modified afterwards.
+   * @return the new scope, which has to be passed to {@link #popScope(PropertyScope)}.
    */
-  @Override
-  public boolean setPropertyHook(String ns, String name, Object value, boolean inherited, boolean user, boolean isNew) {
-
-    // if (name.startsWith("buildPlugin.project.directory")) {
-    // System.out.println(String.format("~~~ [%s] 1 - setPropertyHook(%s ,%s )", Thread.currentThread(), name, value));
-    // }
+  public PropertyScope pushScope(Map<String, ?> properties) {
+    Assure.notNull("properties", properties);
 
     //
-    final Thread currentThread = Thread.currentThread();
+    PropertyScope result = new PropertyScope(properties, SCOPES.get());
+    SCOPES.set(result);
+    return result;
+  }
 
-    if (!this._propertiesMap.containsKey(currentThread)) {
-      return false;
-    }
+  /**
+   * <p>
+   * Pops the given scope from the scope stack of the current thread.
+   * </p>
+   * 
+   * @param scope
+   *          the scope as returned by {@link #pushScope(Map)}. It must be the innermost scope of the current thread.
+   */
+  public void popScope(PropertyScope scope) {
+    Assure.notNull("scope", scope);
+    Assure.assertTrue(SCOPES.get() == scope, "The scope is not the innermost scope of the current thread!");
 
     //
-    Properties properties = this._propertiesMap.get(currentThread);
+    if (scope._parent == null) {
+      SCOPES.remove();
+    } else {
+      SCOPES.set(scope._parent);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean setPropertyHook(String ns, String name, Object value, boolean inherited, boolean user, boolean isNew) {
 
+    //
+    Properties properties = this._threadProperties.get();
     if (properties == null) {
-      throw new IllegalStateException("_propertiesMap.containsKey(" + currentThread.getId()
-          + ") returned 'true', but _propertiesMap.get() returned null");
+      return false;
     }
 
     properties.put(name, value);
 
-    //
-    // if (!inherited && user && !isNew) {
-    // System.out.println(String.format("[%s] 1a - setPropertyHook(%s ,%s )", Thread.currentThread(), name, value));
-    // propertyHelper.setUserProperty(ns, name, value);
-    // } else if (!inherited && !user && isNew) {
-    // System.out.println(String.format("[%s] 1b - setPropertyHook(%s ,%s )", Thread.currentThread(), name, value));
-    // propertyHelper.setNewProperty(ns, name, value);
-    // } else if (inherited && !user && !isNew) {
-    // System.out.println(String.format("[%s] 1c - setPropertyHook(%s ,%s )", Thread.currentThread(), name, value));
-    // propertyHelper.setInheritedProperty(ns, name, value);
-    // } else if (!inherited && !user && !isNew) {
-    // System.out.println(String.format("[%s] 1d - setPropertyHook(%s ,%s )", Thread.currentThread(), name, value));
-    // propertyHelper.setProperty(ns, name, value, false);
-    // }
-
     //
     return true;
   }
@@ -195,22 +243,22 @@ public class ThreadDispatchingPropertyHelper extends PropertyHelper {
   @Override
   public Object getPropertyHook(String ns, String name, boolean user) {
 
-    //
-    if (!this._propertiesMap.containsKey(Thread.currentThread())) {
-      return null;
+    // the scoped properties hide all other properties
+    for (PropertyScope scope = SCOPES.get(); scope != null; scope = scope._parent) {
+      Object value = scope._properties.get(name);
+      if (value != null) {
+        return value;
+      }
     }
 
     //
-    Properties properties = this._propertiesMap.get(Thread.currentThread());
-    Object value = properties.get(name);
-
-    // if (name.startsWith("executeProjectSet")) {
-    // System.out.println(String.format("[%s] %s getPropertyHook(%s)", Thread.currentThread().hashCode(), value, name));
-    // System.out.println(String.format("[%s] %s", Thread.currentThread().hashCode(), properties));
-    // }
+    Properties properties = this._threadProperties.get();
+    if (properties == null) {
+      return null;
+    }
 
     //
-    return value;
+    return properties.get(name);
   }
 
   /**
@@ -218,7 +266,7 @@ public class ThreadDispatchingPropertyHelper extends PropertyHelper {
    * </p>
    */
   public void dump() {
-    Properties properties = this._propertiesMap.get(Thread.currentThread());
+    Properties properties = this._threadProperties.get();
     System.out.println(String.format("[%s] %s", Thread.currentThread().hashCode(), properties));
   }
 
@@ -229,7 +277,138 @@ public class ThreadDispatchingPropertyHelper extends PropertyHelper {
    * @return
    */
   public Properties getThreadProperties() {
-    // System.out.println(hashCode() + " :::: " + this._propertiesMap);
-    return this._propertiesMap.get(Thread.currentThread());
+    return this._threadProperties.get();
+  }
+
+  /**
+   * <p>
+   * An immutable scope on the scope stack of a thread.
+   * </p>
+   * 
+   * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+   */
+  public static final class PropertyScope {
+
+    /** the properties of this scope */
+    private Map<String, ?> _properties;
+
+    /** the enclosing scope */
+    private PropertyScope  _parent;
+
+    /**
+     * <p>
+     * Creates a new instance of type {@link PropertyScope}.
+     * </p>
+     */
+    private PropertyScope(Map<String, ?> properties, PropertyScope parent) {
+      this._properties = properties;
+      this._parent = parent;
+    }
+  }
+
+  /**
+   * <p>
+   * Listener that installs the property helper on the projects created by
+   * <code>&lt;ant&gt;</code> and <code>&lt;antcall&gt;</code>. The scoped properties of the calling project are
+   * hidden by the user properties of the new project for the duration of the sub build.
+   * </p>
+   * 
+   * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+   */
+  private static final class SubBuildScopeListener implements SubBuildListener {
+
+    /** the scopes that contain the user properties of the running sub builds */
+    private Map<Project, PropertyScope> _subBuildScopes;
+
+    /**
+     * <p>
+     * Creates a new instance of type {@link SubBuildScopeListener}.
+     * </p>
+     */
+    private SubBuildScopeListener() {
+      this._subBuildScopes = Collections.synchronizedMap(new HashMap<Project, PropertyScope>());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void subBuildStarted(BuildEvent event) {
+      Project project = event.getProject();
+      install(project);
+
+      // the user properties of the sub project (e.g. the params of an antcall) hide the scoped properties
+      Hashtable<?, ?> userProperties = PropertyHelper.getPropertyHelper(project).getUserProperties();
+      Map<String, Object> hidingProperties = new HashMap<String, Object>();
+      for (PropertyScope scope = SCOPES.get(); scope != null; scope = scope._parent) {
+        for (String name : scope._properties.keySet()) {
+          Object value = userProperties.get(name);
+          if ((value != null) && !hidingProperties.containsKey(name)) {
+            hidingProperties.put(name, value);
+          }
+        }
+      }
+      if (!hidingProperties.isEmpty()) {
+        this._subBuildScopes.put(project, getInstance(project).pushScope(hidingProperties));
+      }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void subBuildFinished(BuildEvent event) {
+      PropertyScope scope = this._subBuildScopes.remove(event.getProject());
+      if (scope != null) {
+        getInstance(event.getProject()).popScope(scope);
+      }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void buildStarted(BuildEvent event) {
+      // nothing to do
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void buildFinished(BuildEvent event) {
+      // nothing to do
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void targetStarted(BuildEvent event) {
+      // nothing to do
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void targetFinished(BuildEvent event) {
+      // nothing to do
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void taskStarted(BuildEvent event) {
+      // nothing to do
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void taskFinished(BuildEvent event) {
+      // nothing to do
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void messageLogged(BuildEvent event) {
+      // nothing to do
+    }
   }
 }
@@ -17,7 +17,9 @@ import org.ant4eclipse.ant.jdt.ClasspathVariablesTest;
 import org.ant4eclipse.ant.jdt.ExecuteJdtProjectTest;
 import org.ant4eclipse.ant.jdt.GetJdtClassPathTest;
 import org.ant4eclipse.ant.jdt.GetJdtClassPath_UnkownContainerTest;
+import org.ant4eclipse.ant.jdt.JdtCompilerTaskTest;
 import org.ant4eclipse.ant.jdt.UserLibrariesTest;
+import org.ant4eclipse.ant.jdt.ecj.A4ECompilerAdapterTest;
 import org.ant4eclipse.lib.jdt.tools.BuildOrderResolverTest;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
@@ -25,6 +27,7 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses( { GetJdtClassPathTest.class, GetJdtClassPath_UnkownContainerTest.class,
     ExecuteJdtProjectTest.class, ClasspathVariablesTest.class, ClasspathContainersTest.class,
-    BuildOrderResolverTest.class, UserLibrariesTest.class })
+    BuildOrderResolverTest.class, UserLibrariesTest.class, A4ECompilerAdapterTest.class,
+    JdtCompilerTaskTest.class })
 public class AllTests {
 }
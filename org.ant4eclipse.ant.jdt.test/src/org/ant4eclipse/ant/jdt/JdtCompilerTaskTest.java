@@ -0,0 +1,110 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.ant.jdt;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.ant4eclipse.ant.jdt.ecj.A4ECompilerAdapter;
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.ant4eclipse.testframework.TestDirectory;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.types.Path;
+import org.junit.Test;
+
+public class JdtCompilerTaskTest extends ConfigurableAnt4EclipseTestCase {
+
+  private TestDirectory _testDirectory;
+
+  private File          _upstreamSource;
+
+  private File          _upstreamOutput;
+
+  private File          _source;
+
+  private File          _output;
+
+  private Project       _project;
+
+  @Override
+  public void setup() {
+    super.setup();
+
+    this._testDirectory = new TestDirectory();
+    this._upstreamSource = this._testDirectory.createSubDirectory("upstream/src");
+    this._upstreamOutput = this._testDirectory.createSubDirectory("upstream/bin");
+    this._source = this._testDirectory.createSubDirectory("project/src");
+    this._output = this._testDirectory.createSubDirectory("project/bin");
+
+    this._project = new Project();
+    this._project.init();
+    this._project.setProperty(A4ECompilerAdapter.ANT4ECLIPSE_COMPILE_INCREMENTAL, "true");
+  }
+
+  @Override
+  public void dispose() {
+    this._testDirectory.dispose();
+
+    super.dispose();
+  }
+
+  @Test
+  public void changedUpstreamSignature() {
+    writeSource(this._upstreamSource, "up/Up.java", "package up; public class Up { public int foo() { return 1; } }");
+    compile(this._upstreamSource, this._upstreamOutput);
+    writeSource(this._source, "p/A.java", "package p; public class A { Object a() { return new up.Up().foo(); } }");
+    compile(this._source, this._output);
+    assertTrue(containsClassName(new File(this._output, "p/A.class"), "java/lang/Integer"));
+
+    // only the signature of the upstream type changes, the source file of the project is untouched (so its class
+    // file is up to date for the javac task)
+    writeSource(this._upstreamSource, "up/Up.java", "package up; public class Up { public long foo() { return 1; } }");
+    compile(this._upstreamSource, this._upstreamOutput);
+    File upstreamClassFile = new File(this._upstreamOutput, "up/Up.class");
+    upstreamClassFile.setLastModified(upstreamClassFile.lastModified() + 10000);
+
+    compile(this._source, this._output);
+    assertTrue(containsClassName(new File(this._output, "p/A.class"), "java/lang/Long"));
+    assertFalse(containsClassName(new File(this._output, "p/A.class"), "java/lang/Integer"));
+  }
+
+  private void compile(File source, File output) {
+    JdtCompilerTask task = new JdtCompilerTask();
+    task.setProject(this._project);
+    task.setSrcdir(new Path(this._project, source.getAbsolutePath()));
+    task.setDestdir(output);
+    task.setSource("1.5");
+    task.setTarget("1.5");
+    task.setBootclasspath(new Path(this._project, new File(System.getProperty("java.home"), "lib/rt.jar")
+        .getAbsolutePath()));
+    task.setClasspath(new Path(this._project, this._upstreamOutput.getAbsolutePath()));
+    task.execute();
+  }
+
+  private boolean containsClassName(File classFile, String className) {
+    return Utilities.readTextContent(classFile, "ISO-8859-1", true).indexOf(className) != -1;
+  }
+
+  private void writeSource(File sourceFolder, String name, String content) {
+    File file = new File(sourceFolder, name);
+    long lastModified = file.lastModified();
+    Utilities.mkdirs(file.getParentFile());
+    Utilities.writeFile(file, content, Utilities.ENCODING);
+    if (lastModified != 0) {
+      // make sure that the modification is detected
+      file.setLastModified(lastModified + 10000);
+    }
+  }
+}
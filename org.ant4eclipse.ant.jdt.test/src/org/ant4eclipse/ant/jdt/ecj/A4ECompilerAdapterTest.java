@@ -0,0 +1,153 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.ant.jdt.ecj;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+
+import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.lib.jdt.ecj.CompileJobDescription;
+import org.ant4eclipse.lib.jdt.ecj.CompileJobResult;
+import org.ant4eclipse.lib.jdt.ecj.EcjExceptionCodes;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.ant4eclipse.testframework.TestDirectory;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.taskdefs.Javac;
+import org.apache.tools.ant.types.Path;
+import org.eclipse.jdt.core.compiler.CategorizedProblem;
+import org.junit.Test;
+
+public class A4ECompilerAdapterTest extends ConfigurableAnt4EclipseTestCase {
+
+  private TestDirectory _testDirectory;
+
+  private File          _output;
+
+  private File          _destdir;
+
+  private Javac         _javac;
+
+  @Override
+  public void setup() {
+    super.setup();
+
+    this._testDirectory = new TestDirectory();
+    File source = this._testDirectory.createSubDirectory("src");
+    this._output = this._testDirectory.createSubDirectory("bin");
+    this._destdir = this._testDirectory.createSubDirectory("destdir");
+
+    Project project = new Project();
+    project.init();
+    this._javac = new Javac();
+    this._javac.setProject(project);
+    this._javac.setSrcdir(new Path(project, source.getAbsolutePath()));
+  }
+
+  @Override
+  public void dispose() {
+    this._testDirectory.dispose();
+
+    super.dispose();
+  }
+
+  @Test
+  public void copiesClassFilesToDestdir() {
+    this._javac.setDestdir(this._destdir);
+
+    assertTrue(compile(true));
+    assertTrue(new File(this._destdir, "p/A.class").isFile());
+  }
+
+  @Test
+  public void unchangedClassFilesAreNotTouched() {
+    this._javac.setDestdir(this._destdir);
+
+    assertTrue(compile(true));
+    File classFile = new File(this._destdir, "p/A.class");
+    assertTrue(classFile.setLastModified(1000000000000L));
+    long lastModified = classFile.lastModified();
+
+    assertTrue(compile(true));
+    assertEquals(lastModified, classFile.lastModified());
+  }
+
+  @Test
+  public void failedCompilationDoesNotTouchDestdir() {
+    this._javac.setDestdir(this._destdir);
+
+    try {
+      compile(false);
+      fail();
+    } catch (Ant4EclipseException ex) {
+      assertEquals(EcjExceptionCodes.COMPILATION_WAS_NOT_SUCCESFUL, ex.getExceptionCode());
+    }
+    assertFalse(new File(this._destdir, "p/A.class").exists());
+  }
+
+  @Test
+  public void noDestdir() {
+    assertTrue(compile(true));
+    assertFalse(new File(this._destdir, "p/A.class").exists());
+  }
+
+  private boolean compile(boolean succeeded) {
+    TestCompilerAdapter compilerAdapter = new TestCompilerAdapter(this._output, succeeded);
+    compilerAdapter.setJavac(this._javac);
+    return compilerAdapter.execute();
+  }
+
+  /**
+   * <p>
+   * Compiler adapter that 'compiles' the class file <code>p/A.class</code> into the given output folder.
+   * </p>
+   */
+  private static class TestCompilerAdapter extends A4ECompilerAdapter {
+
+    private File    _outputFolder;
+
+    private boolean _succeeded;
+
+    public TestCompilerAdapter(File outputFolder, boolean succeeded) {
+      this._outputFolder = outputFolder;
+      this._succeeded = succeeded;
+    }
+
+    @Override
+    protected CompileJobResult compile(CompileJobDescription description) {
+      File classFile = new File(this._outputFolder, "p/A.class");
+      Utilities.mkdirs(classFile.getParentFile());
+      Utilities.writeFile(classFile, new byte[] { 1, 2, 3 });
+      final Map<String, File> compiledClassFiles = Collections.singletonMap("p/A.class", classFile);
+      return new CompileJobResult() {
+
+        public boolean succeeded() {
+          return TestCompilerAdapter.this._succeeded;
+        }
+
+        public CategorizedProblem[] getCategorizedProblems() {
+          return new CategorizedProblem[0];
+        }
+
+        public Map<String, File> getCompiledClassFiles() {
+          return compiledClassFiles;
+        }
+      };
+    }
+  }
+}
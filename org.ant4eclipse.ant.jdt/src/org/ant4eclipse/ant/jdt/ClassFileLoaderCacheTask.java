@@ -0,0 +1,143 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.ant.jdt;
+
+import org.ant4eclipse.ant.core.AbstractAnt4EclipseTask;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.loader.ClassFileLoaderCache;
+import org.apache.tools.ant.BuildException;
+
+/**
+ * <p>
+ * The {@link ClassFileLoaderCacheTask} can be used to inspect and configure the cache of class file loaders that is
+ * used by the ant4eclipse compiler. Supported commands are:
+ * <ul>
+ * <li><code>dump</code> - logs the statistics and the content of the cache</li>
+ * <li><code>statistics</code> - logs the statistics of the cache. If the <code>prefix</code> attribute is set, the
+ * statistics are additionally stored in the properties <code>&lt;prefix&gt;.hits</code>,
+ * <code>&lt;prefix&gt;.misses</code>, <code>&lt;prefix&gt;.evictions</code>, <code>&lt;prefix&gt;.size</code>,
+ * <code>&lt;prefix&gt;.weight</code> and <code>&lt;prefix&gt;.loadTime</code></li>
+ * <li><code>clear</code> - removes all entries from the cache and resets the statistics</li>
+ * <li><code>configure</code> - sets the limits of the cache (<code>maxEntries</code> and <code>maxWeight</code>)</li>
+ * </ul>
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class ClassFileLoaderCacheTask extends AbstractAnt4EclipseTask {
+
+  /** the command */
+  private String _command;
+
+  /** the prefix for the statistic properties */
+  private String _prefix;
+
+  /** the maximum number of entries */
+  private int    _maxEntries = -1;
+
+  /** the maximum total weight */
+  private long   _maxWeight  = -1;
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void preconditions() throws BuildException {
+    if (isCommand("configure") && ((this._maxEntries < 0) || (this._maxWeight < 0))) {
+      throw new BuildException("The attributes 'maxEntries' and 'maxWeight' are required for the command 'configure'");
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void doExecute() throws BuildException {
+
+    ClassFileLoaderCache cache = ClassFileLoaderCache.getInstance();
+
+    if (isCommand("dump")) {
+      cache.dump();
+    } else if (isCommand("statistics")) {
+      cache.dumpStatistics();
+      if (this._prefix != null) {
+        getProject().setProperty(this._prefix + ".hits", String.valueOf(cache.getHits()));
+        getProject().setProperty(this._prefix + ".misses", String.valueOf(cache.getMisses()));
+        getProject().setProperty(this._prefix + ".evictions", String.valueOf(cache.getEvictions()));
+        getProject().setProperty(this._prefix + ".size", String.valueOf(cache.getSize()));
+        getProject().setProperty(this._prefix + ".weight", String.valueOf(cache.getWeight()));
+        getProject().setProperty(this._prefix + ".loadTime", String.valueOf(cache.getLoadTime()));
+      }
+    } else if (isCommand("clear")) {
+      cache.clear();
+    } else if (isCommand("configure")) {
+      cache.setLimits(this._maxEntries, this._maxWeight);
+    } else {
+      throw new BuildException("Unkown command: '" + this._command + "'");
+    }
+  }
+
+  public String getCommand() {
+    return this._command;
+  }
+
+  /**
+   * Set the command (dump, statistics, clear or configure)
+   *
+   * @param command
+   */
+  public void setCommand(String command) {
+    this._command = command;
+  }
+
+  public String getPrefix() {
+    return this._prefix;
+  }
+
+  /**
+   * Set the prefix of the properties that receive the statistics
+   *
+   * @param prefix
+   */
+  public void setPrefix(String prefix) {
+    this._prefix = prefix;
+  }
+
+  public int getMaxEntries() {
+    return this._maxEntries;
+  }
+
+  /**
+   * Set the maximum number of cached class file loaders (<code>0</code> means unbounded)
+   *
+   * @param maxEntries
+   */
+  public void setMaxEntries(int maxEntries) {
+    this._maxEntries = maxEntries;
+  }
+
+  public long getMaxWeight() {
+    return this._maxWeight;
+  }
+
+  /**
+   * Set the maximum total weight of the cached class file loaders (<code>0</code> means unbounded)
+   *
+   * @param maxWeight
+   */
+  public void setMaxWeight(long maxWeight) {
+    this._maxWeight = maxWeight;
+  }
+
+  private boolean isCommand(String expected) {
+    return (this._command != null && expected.equalsIgnoreCase(this._command.trim()));
+  }
+}
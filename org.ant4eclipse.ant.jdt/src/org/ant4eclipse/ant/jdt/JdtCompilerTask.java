@@ -13,12 +13,16 @@ package org.ant4eclipse.ant.jdt;
 
 import java.io.File;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.ant4eclipse.ant.jdt.ecj.A4ECompilerAdapter;
 import org.ant4eclipse.ant.jdt.ecj.EcjCompilerAdapter;
 import org.ant4eclipse.ant.jdt.ecj.JavacCompilerAdapter;
 import org.ant4eclipse.lib.core.logging.A4ELogging;
 import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
 import org.apache.tools.ant.taskdefs.Javac;
 import org.apache.tools.ant.taskdefs.compilers.CompilerAdapter;
 
@@ -110,6 +114,39 @@ public class JdtCompilerTask extends Javac {
     return this._a4eCompilerAdapter;
   }
 
+  /**
+   * <p>
+   * Returns <code>true</code> if the incremental compilation has been enabled using the ant property
+   * <code>ant4eclipse.compile.incremental</code>.
+   * </p>
+   * 
+   * @return <code>true</code> if the incremental compilation has been enabled.
+   */
+  private boolean isIncremental() {
+    return Project.toBoolean(getProject().getProperty(A4ECompilerAdapter.ANT4ECLIPSE_COMPILE_INCREMENTAL));
+  }
+
+  /**
+   * In incremental mode all source files are passed to the compiler adapter, as the incremental compiler determines
+   * the source files to compile (including the ones that depend on changed types of other projects) itself.
+   * 
+   * {@inheritDoc}
+   */
+  @Override
+  protected void scanDir(File srcDir, File destDir, String[] files) {
+    if (!isIncremental()) {
+      super.scanDir(srcDir, destDir, files);
+      return;
+    }
+    List<File> compileList = new ArrayList<File>(Arrays.asList(this.compileList));
+    for (String file : files) {
+      if (file.endsWith(".java")) {
+        compileList.add(new File(srcDir, file));
+      }
+    }
+    this.compileList = compileList.toArray(new File[compileList.size()]);
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -118,11 +155,17 @@ public class JdtCompilerTask extends Javac {
 
     File destdir = super.getDestdir();
 
-    if (this.compileList.length > 0) {
+    // the incremental compiler has to run even if no source file has been changed
+    boolean incremental = isIncremental();
+
+    if ((this.compileList.length > 0) || incremental) {
 
       File current = new File(".");
       String dest = destdir != null ? String.valueOf(destdir) : String.valueOf(current);
-      if (this.compileList.length == 1) {
+      if (incremental) {
+        A4ELogging.info("Checking %d source files for incremental compilation to '%s' !", Integer
+            .valueOf(this.compileList.length), dest);
+      } else if (this.compileList.length == 1) {
         A4ELogging.info("Compiling 1 source file '%s' to '%s' !", this.compileList[0], dest);
       } else {
         A4ELogging.info("Compiling %d source files to '%s' !", Integer.valueOf(this.compileList.length), dest);
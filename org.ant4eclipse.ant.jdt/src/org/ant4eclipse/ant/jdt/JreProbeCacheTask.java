@@ -0,0 +1,114 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.ant.jdt;
+
+import java.io.File;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.ant4eclipse.ant.core.AbstractAnt4EclipseTask;
+import org.ant4eclipse.lib.core.logging.A4ELogging;
+import org.ant4eclipse.lib.jdt.internal.model.jre.JavaRuntimeProbeCache;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.DirectoryScanner;
+import org.apache.tools.ant.types.DirSet;
+
+/**
+ * <p>
+ * The {@link JreProbeCacheTask} probes java runtimes and stores the results in the persistent probe cache, so later
+ * builds can register these java runtimes (using <code>installedJREs</code>) without starting a java process. The java
+ * runtimes are specified using the <code>dir</code> attribute and/or nested <code>dirset</code> elements. If the
+ * <code>refresh</code> attribute is set, the java runtimes are probed even if the cache contains up-to-date results.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class JreProbeCacheTask extends AbstractAnt4EclipseTask {
+
+  /** the location of a java runtime */
+  private File         _dir;
+
+  /** the locations of java runtimes */
+  private List<DirSet> _dirSets = new LinkedList<DirSet>();
+
+  /** indicates whether the java runtimes should be probed regardless of the cached results */
+  private boolean      _refresh;
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void preconditions() throws BuildException {
+    if ((this._dir == null) && this._dirSets.isEmpty()) {
+      throw new BuildException("Either the attribute 'dir' or a nested 'dirset' is required");
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void doExecute() throws BuildException {
+
+    List<File> locations = new LinkedList<File>();
+    if (this._dir != null) {
+      locations.add(this._dir);
+    }
+    for (DirSet dirSet : this._dirSets) {
+      DirectoryScanner scanner = dirSet.getDirectoryScanner(getProject());
+      for (String includedDir : scanner.getIncludedDirectories()) {
+        locations.add(new File(dirSet.getDir(), includedDir));
+      }
+    }
+
+    JavaRuntimeProbeCache cache = JavaRuntimeProbeCache.getInstance();
+    for (File location : locations) {
+      String[] values = cache.getProbeResult(location, this._refresh);
+      A4ELogging.info("Probed JRE '%s' (%s).", location.getAbsolutePath(), values.length > 0 ? values[0] : "?");
+    }
+  }
+
+  public File getDir() {
+    return this._dir;
+  }
+
+  /**
+   * Set the location of a java runtime
+   *
+   * @param dir
+   */
+  public void setDir(File dir) {
+    this._dir = dir;
+  }
+
+  /**
+   * Adds a set of java runtime locations
+   *
+   * @param dirSet
+   */
+  public void addDirSet(DirSet dirSet) {
+    this._dirSets.add(dirSet);
+  }
+
+  public boolean isRefresh() {
+    return this._refresh;
+  }
+
+  /**
+   * Set whether the java runtimes are probed even if the cache contains up-to-date results
+   *
+   * @param refresh
+   */
+  public void setRefresh(boolean refresh) {
+    this._refresh = refresh;
+  }
+}
@@ -39,7 +39,9 @@ import org.ant4eclipse.lib.jdt.ecj.EcjAdapter;
 import org.ant4eclipse.lib.jdt.ecj.EcjExceptionCodes;
 import org.ant4eclipse.lib.jdt.ecj.SourceFile;
 import org.ant4eclipse.lib.jdt.ecj.SourceFileFactory;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.ClassFileWriter;
 import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
 import org.apache.tools.ant.taskdefs.compilers.DefaultCompilerAdapter;
 import org.apache.tools.ant.taskdefs.condition.Os;
 import org.apache.tools.ant.types.Path;
@@ -60,6 +62,9 @@ public abstract class A4ECompilerAdapter extends DefaultCompilerAdapter {
 
   private static final String ANT4ECLIPSE_COMPILE_ERRORS_FILE   = "ant4eclipse.compile.errors.file";
 
+  /** the ant property that enables the incremental compilation */
+  public static final String  ANT4ECLIPSE_COMPILE_INCREMENTAL   = "ant4eclipse.compile.incremental";
+
   /** format of the compile problem message */
   private static final String COMPILE_PROBLEM_MESSAGE           = "----------\n%s. %s in %s (at line %s)\n%s\n%s\n%s\n";
 
@@ -154,8 +159,10 @@ public abstract class A4ECompilerAdapter extends DefaultCompilerAdapter {
       CategorizedProblem categorizedProblem = categorizedProblems[i];
       if (categorizedProblem.isError() || (categorizedProblem.isWarning() && !getJavac().getNowarn())) {
         String fileName = String.valueOf(categorizedProblem.getOriginatingFileName());
+        boolean reported = false;
         for (SourceFile sourceFile : sourceFiles) {
           if (fileName.equals(sourceFile.getSourceFileName())) {
+            reported = true;
             if (!categorizedProblem.isError()) {
               if (!this._warnings) {
                 continue;
@@ -176,6 +183,14 @@ public abstract class A4ECompilerAdapter extends DefaultCompilerAdapter {
             }
           }
         }
+        // errors in source files that have been recompiled because of changed dependencies (incremental compilation)
+        if (!reported && categorizedProblem.isError()) {
+          builder.append(String.format(COMPILE_PROBLEM_MESSAGE, Integer.valueOf(i + 1), "ERROR", fileName, Integer
+              .valueOf(categorizedProblem.getSourceLineNumber()), "", "", categorizedProblem.getMessage()));
+          if (i + 1 == categorizedProblems.length) {
+            builder.append("----------\n");
+          }
+        }
       }
     }
 
@@ -219,7 +234,8 @@ public abstract class A4ECompilerAdapter extends DefaultCompilerAdapter {
   }
 
   /**
-   * Clones all generated class files while copying them into the user specified directory.
+   * Clones all generated class files while copying them into the user specified directory. Class files that already
+   * exist with the same content are left untouched (see {@link ClassFileWriter}).
    * 
    * @param destdir
    *          The destination director to save the classes to. Not <code>null</code>.
@@ -230,12 +246,21 @@ public abstract class A4ECompilerAdapter extends DefaultCompilerAdapter {
     if (!destdir.isAbsolute()) {
       destdir = destdir.getAbsoluteFile();
     }
-    for (Map.Entry<String, File> entry : compiledclasses.entrySet()) {
-      File destfile = Utilities.getCanonicalFile(new File(destdir, entry.getKey()));
-      Utilities.mkdirs(destfile.getParentFile());
-      if (!destfile.equals(entry.getValue())) {
-        Utilities.copy(entry.getValue(), destfile);
+    ClassFileWriter classFileWriter = new ClassFileWriter();
+    boolean written = false;
+    try {
+      for (Map.Entry<String, File> entry : compiledclasses.entrySet()) {
+        File destfile = Utilities.getCanonicalFile(new File(destdir, entry.getKey()));
+        if (!destfile.equals(entry.getValue())) {
+          classFileWriter.copy(entry.getValue(), destfile);
+        }
       }
+    } finally {
+      written = classFileWriter.close();
+    }
+    // the class files that couldn't be written have been logged by the writer
+    if (!written) {
+      throw new Ant4EclipseException(EcjExceptionCodes.COMPILATION_WAS_NOT_SUCCESFUL);
     }
   }
 
@@ -249,6 +274,19 @@ public abstract class A4ECompilerAdapter extends DefaultCompilerAdapter {
    */
   protected abstract CompileJobResult compile(CompileJobDescription description);
 
+  /**
+   * <p>
+   * Returns <code>true</code> if the incremental compilation has been enabled using the ant property
+   * <code>ant4eclipse.compile.incremental</code>. In this case only the changed source files and the source files
+   * that depend on types whose structure has been changed are recompiled.
+   * </p>
+   * 
+   * @return <code>true</code> if the incremental compilation has been enabled.
+   */
+  protected boolean isIncremental() {
+    return Project.toBoolean(getProject().getProperty(ANT4ECLIPSE_COMPILE_INCREMENTAL));
+  }
+
   /**
    * <p>
    * Returns an array with all the source files to compile.
@@ -40,7 +40,8 @@ public class EcjCompilerAdapter extends A4ECompilerAdapter {
     CompileJobResult result = null;
 
     try {
-      result = EcjAdapter.Factory.create().compile(description);
+      EcjAdapter ecjAdapter = EcjAdapter.Factory.create();
+      result = isIncremental() ? ecjAdapter.compileIncrementally(description) : ecjAdapter.compile(description);
     } finally {
       long duration = PerformanceLogging.stop(EcjCompilerAdapter.class, "compile");
       if (duration > 0) {
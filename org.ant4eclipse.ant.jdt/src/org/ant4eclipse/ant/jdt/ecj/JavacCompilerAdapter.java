@@ -271,6 +271,10 @@ public class JavacCompilerAdapter extends A4ECompilerAdapter {
   @Override
   protected CompileJobResult compile(CompileJobDescription description) {
 
+    if (isIncremental()) {
+      A4ELogging.warn("Incremental compilation is not supported by the javac compiler adapter.");
+    }
+
     try {
 
       List<CategorizedProblem> problems = new ArrayList<CategorizedProblem>();
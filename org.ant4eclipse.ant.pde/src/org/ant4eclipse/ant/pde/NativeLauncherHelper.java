@@ -14,6 +14,7 @@ package org.ant4eclipse.ant.pde;
 import java.io.File;
 
 import org.ant4eclipse.lib.core.Assure;
+import org.ant4eclipse.lib.core.util.JarExpansionCache;
 import org.ant4eclipse.lib.core.util.Utilities;
 import org.ant4eclipse.lib.pde.internal.tools.ExpansionDirectory;
 import org.ant4eclipse.lib.pde.internal.tools.FeatureDescription;
@@ -112,10 +113,18 @@ public class NativeLauncherHelper {
     // case 2: feature 'org.eclipse.equinox.executable' is a jar file
     else if (featureDescription.isJarFile()) {
 
-      File expansionDir = ExpansionDirectory.getExpansionDir();
-
       File jaredFeature = (File) featureDescription.getSource();
 
+      // the persistent expansion cache contains the whole feature
+      JarExpansionCache expansionCache = JarExpansionCache.getDefault();
+      if (expansionCache != null) {
+        File rootDir = new File(expansionCache.expand(jaredFeature), EXECUTABLE_ROOT + File.separatorChar + ws
+            + File.separatorChar + os + File.separatorChar + arch);
+        return getAllChildren(rootDir);
+      }
+
+      File expansionDir = ExpansionDirectory.getExpansionDir();
+
       Expand expand = new Expand();
       expand.setProject(new Project());
       expand.setSrc(jaredFeature);
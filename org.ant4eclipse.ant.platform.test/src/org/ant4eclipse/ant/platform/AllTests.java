@@ -13,11 +13,15 @@ package org.ant4eclipse.ant.platform;
 
 
 import org.ant4eclipse.ant.platform.delegate.MacroExecutionDelegateTest;
+import org.ant4eclipse.ant.platform.delegate.ScopedReferencesTest;
+import org.ant4eclipse.ant.platform.team.CvsGetProjectSetTaskTest;
+import org.ant4eclipse.ant.platform.team.SvnGetProjectSetTaskTest;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses( { ExecuteProjectBuildersTaskTest.class, HasNatureTest.class, HasBuildCommandTest.class,
-    GetProjectDirecoryTest.class, MacroExecutionDelegateTest.class })
+    GetProjectDirecoryTest.class, MacroExecutionDelegateTest.class, SvnGetProjectSetTaskTest.class,
+    CvsGetProjectSetTaskTest.class, ScopedReferencesTest.class })
 public class AllTests {
 }
@@ -41,6 +41,12 @@ public class MacroExecutionDelegateTest extends AbstractAnt4EclipseBuildFileTest
     expectLog("testMacroExecute", "initial!0.test!1.test!0.test!initial!2.test!initial");
   }
 
+  public void testMacroAntCall() {
+    MacroExecuteTask.counter = 0;
+    expectLog("testMacroAntCall", "0.test!0.ref!0.test!param!0.ref!initial!initial!");
+    assertNull(getProject().getReference("hurz.test"));
+  }
+
   /**
    * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
    */
@@ -71,6 +77,7 @@ public class MacroExecutionDelegateTest extends AbstractAnt4EclipseBuildFileTest
 
               public MacroExecutionValues provideMacroExecutionValues(MacroExecutionValues values) {
                 values.getProperties().put("test", counter + ".test");
+                values.getReferences().put("test", counter + ".ref");
                 counter++;
                 return values;
               }
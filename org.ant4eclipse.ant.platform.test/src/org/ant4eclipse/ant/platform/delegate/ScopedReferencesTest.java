@@ -0,0 +1,67 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.ant.platform.delegate;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.ant4eclipse.ant.platform.core.delegate.helper.ScopedReferences;
+import org.apache.tools.ant.Project;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ScopedReferencesTest {
+
+  private Project          _project;
+
+  private ScopedReferences _scopedReferences;
+
+  @Before
+  public void setUp() {
+    this._project = new Project();
+    this._project.addReference("test", "initial");
+    this._scopedReferences = ScopedReferences.getInstance(this._project);
+  }
+
+  @Test
+  public void nestedOverlays() {
+    Map<String, String> outer = Collections.singletonMap("test", "outer");
+    Map<String, String> inner = Collections.singletonMap("test", "inner");
+    this._scopedReferences.pushOverlay(this._project, outer);
+    Assert.assertEquals("outer", this._project.getReference("test"));
+    this._scopedReferences.pushOverlay(this._project, inner);
+    Assert.assertEquals("inner", this._project.getReference("test"));
+    this._scopedReferences.popOverlay(this._project, inner);
+    Assert.assertEquals("outer", this._project.getReference("test"));
+    this._scopedReferences.popOverlay(this._project, outer);
+    Assert.assertEquals("initial", this._project.getReference("test"));
+  }
+
+  @Test
+  public void interleavedOverlays() {
+    Map<String, String> first = Collections.singletonMap("test", "first");
+    Map<String, String> second = Collections.singletonMap("test", "second");
+    Map<String, String> other = Collections.singletonMap("other", "other");
+    this._scopedReferences.pushOverlay(this._project, first);
+    this._scopedReferences.pushOverlay(this._project, second);
+    this._scopedReferences.pushOverlay(this._project, other);
+    this._scopedReferences.popOverlay(this._project, first);
+    Assert.assertEquals("second", this._project.getReference("test"));
+    this._scopedReferences.popOverlay(this._project, second);
+    Assert.assertEquals("initial", this._project.getReference("test"));
+    Assert.assertEquals("other", this._project.getReference("other"));
+    this._scopedReferences.popOverlay(this._project, other);
+    Assert.assertNull(this._project.getReference("other"));
+  }
+
+} /* ENDCLASS */
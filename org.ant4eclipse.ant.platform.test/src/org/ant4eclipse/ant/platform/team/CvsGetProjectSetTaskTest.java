@@ -0,0 +1,124 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.ant.platform.team;
+
+import org.ant4eclipse.platform.test.AbstractWorkspaceBasedBuildFileTest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * <p>
+ * Tests the {@link CvsGetProjectSetTask} against a local (<code>:local:</code>) cvs repository, so no network access
+ * is required. If no <code>cvs</code> executable is available, the tests are left out of the suite (so they are neither
+ * executed nor reported as passed).
+ * </p>
+ * 
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class CvsGetProjectSetTaskTest extends AbstractWorkspaceBasedBuildFileTest {
+
+  private static final String[] PROJECTNAMES = new String[] { "project_1", "project_2", "project_3", "project_4" };
+
+  private File                  _destination;
+
+  /**
+   * <p>
+   * Returns the tests of this class or an empty suite if no <code>cvs</code> executable is available.
+   * </p>
+   * 
+   * @return the tests of this class.
+   */
+  public static Test suite() throws InterruptedException {
+    if (!cvs(new File("."), "--version")) {
+      return new TestSuite(CvsGetProjectSetTaskTest.class.getName());
+    }
+    return new TestSuite(CvsGetProjectSetTaskTest.class);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+
+    this._destination = getTestWorkspace().createSubDirectory("destination");
+
+    setupBuildFile("cvsGetProjectSet.xml");
+    getProject().setProperty("destination", this._destination.getAbsolutePath());
+
+    // create the repository and import the projects
+    File repository = new File(getTestWorkspaceDirectory(), "repository");
+    assertTrue(cvs(getTestWorkspaceDirectory(), "-d", repository.getAbsolutePath(), "init"));
+    StringBuffer buffer = new StringBuffer();
+    buffer.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+    buffer.append("<psf version=\"2.0\">");
+    buffer.append("<provider id=\"org.eclipse.team.cvs.core.cvsnature\">");
+    for (String projectName : PROJECTNAMES) {
+      File projectDir = getTestWorkspace().createSubDirectory(projectName);
+      getTestWorkspace().createFile(projectName + "/.project", projectName);
+      assertTrue(cvs(projectDir, "-d", ":local:" + repository.getAbsolutePath(), "import", "-m", "import",
+          projectName, "a4e", "start"));
+      buffer.append(String.format("<project reference=\"1.0,:local:%s,%s,%s\"/>", repository.getAbsolutePath(),
+          projectName, projectName));
+    }
+    buffer.append("</provider>");
+    buffer.append("</psf>");
+    getProject().setProperty("projectSet",
+        getTestWorkspace().createFile("projectSet.psf", buffer.toString()).getAbsolutePath());
+  }
+
+  public void testCheckout() {
+    executeTarget("checkout");
+    for (String projectName : PROJECTNAMES) {
+      assertTrue(new File(this._destination, projectName + "/.project").isFile());
+      assertTrue(new File(this._destination, projectName + "/CVS").isDirectory());
+    }
+  }
+
+  public void testExport() {
+    executeTarget("export");
+    for (String projectName : PROJECTNAMES) {
+      assertTrue(new File(this._destination, projectName + "/.project").isFile());
+      assertFalse(new File(this._destination, projectName + "/CVS").exists());
+    }
+  }
+
+  /**
+   * <p>
+   * Executes the cvs executable with the given arguments.
+   * </p>
+   * 
+   * @return <code>true</code> if the command has been executed successfully.
+   */
+  private static boolean cvs(File directory, String... args) throws InterruptedException {
+    String[] command = new String[args.length + 1];
+    command[0] = "cvs";
+    System.arraycopy(args, 0, command, 1, args.length);
+    try {
+      Process process = new ProcessBuilder(command).directory(directory).redirectErrorStream(true).start();
+      InputStream output = process.getInputStream();
+      while (output.read() != -1) {
+        // consume the output
+      }
+      return process.waitFor() == 0;
+    } catch (IOException ex) {
+      return false;
+    }
+  }
+
+}
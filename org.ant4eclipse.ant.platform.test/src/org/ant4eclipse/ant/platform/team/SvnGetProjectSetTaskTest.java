@@ -0,0 +1,139 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.ant.platform.team;
+
+import org.ant4eclipse.platform.test.AbstractWorkspaceBasedBuildFileTest;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.internal.io.fs.FSRepositoryFactory;
+import org.tmatesoft.svn.core.io.SVNRepositoryFactory;
+import org.tmatesoft.svn.core.wc.SVNClientManager;
+
+import java.io.File;
+
+/**
+ * <p>
+ * Tests the {@link SvnGetProjectSetTask} against a local (<code>file://</code>) subversion repository, so no network
+ * access is required.
+ * </p>
+ * 
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class SvnGetProjectSetTaskTest extends AbstractWorkspaceBasedBuildFileTest {
+
+  private static final String[] PROJECTNAMES = new String[] { "project_1", "project_2", "project_3", "project_4",
+      "project_5", "project_6"                };
+
+  private SVNURL                _repositoryUrl;
+
+  private File                  _destination;
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+
+    // create the repository and import the projects
+    FSRepositoryFactory.setup();
+    File repository = new File(getTestWorkspaceDirectory(), "repository");
+    this._repositoryUrl = SVNRepositoryFactory.createLocalRepository(repository, true, false);
+    SVNClientManager clientManager = SVNClientManager.newInstance();
+    for (String projectName : PROJECTNAMES) {
+      createFile("import/" + projectName + "/.project", projectName);
+      createFile("import/" + projectName + "/src/Test.java", "class Test {}");
+      clientManager.getCommitClient().doImport(new File(getTestWorkspaceDirectory(), "import/" + projectName),
+          this._repositoryUrl.appendPath(projectName, false), "import " + projectName, true);
+    }
+
+    this._destination = getTestWorkspace().createSubDirectory("destination");
+
+    setupBuildFile("svnGetProjectSet.xml");
+    getProject().setProperty("destination", this._destination.getAbsolutePath());
+  }
+
+  public void testCheckout() {
+    getProject().setProperty("projectSet", createProjectSet(PROJECTNAMES).getAbsolutePath());
+    executeTarget("checkout");
+    for (String projectName : PROJECTNAMES) {
+      assertTrue(new File(this._destination, projectName + "/src/Test.java").isFile());
+      assertTrue(new File(this._destination, projectName + "/.svn").isDirectory());
+    }
+    assertLogContaining(String.format("[%d/%d] Finished checkout of project", Integer.valueOf(PROJECTNAMES.length),
+        Integer.valueOf(PROJECTNAMES.length)));
+  }
+
+  public void testUpdate() throws Exception {
+    getProject().setProperty("projectSet", createProjectSet(PROJECTNAMES).getAbsolutePath());
+    executeTarget("checkout");
+
+    // add a file to the repository
+    createFile("added/Added.java", "class Added {}");
+    SVNClientManager.newInstance().getCommitClient().doImport(new File(getTestWorkspaceDirectory(), "added"),
+        this._repositoryUrl.appendPath(PROJECTNAMES[0], false).appendPath("src", false), "add file", true);
+    assertFalse(new File(this._destination, PROJECTNAMES[0] + "/src/Added.java").exists());
+
+    executeTarget("update");
+    assertTrue(new File(this._destination, PROJECTNAMES[0] + "/src/Added.java").isFile());
+  }
+
+  public void testExport() {
+    getProject().setProperty("projectSet", createProjectSet(PROJECTNAMES).getAbsolutePath());
+    executeTarget("export");
+    for (String projectName : PROJECTNAMES) {
+      assertTrue(new File(this._destination, projectName + "/src/Test.java").isFile());
+      assertFalse(new File(this._destination, projectName + "/.svn").exists());
+    }
+  }
+
+  public void testRetryFailedCheckout() {
+    getProject().setProperty("projectSet", createProjectSet(new String[] { "project_1", "missing" }).getAbsolutePath());
+    try {
+      executeTarget("checkout");
+      fail("The checkout of a missing project must fail.");
+    } catch (RuntimeException ex) {
+      // expected
+    }
+    assertTrue(new File(this._destination, "project_1/src/Test.java").isFile());
+    assertLogContaining("Attempt 1 of 2 to checkout project 'missing' failed");
+  }
+
+  /**
+   * <p>
+   * Creates the given file (and its parent directories) in the test workspace.
+   * </p>
+   */
+  private File createFile(String path, String content) {
+    new File(getTestWorkspaceDirectory(), path).getParentFile().mkdirs();
+    return getTestWorkspace().createFile(path, content);
+  }
+
+  /**
+   * <p>
+   * Creates a team project set file that contains the given projects.
+   * </p>
+   */
+  private File createProjectSet(String[] projectNames) {
+    StringBuffer buffer = new StringBuffer();
+    buffer.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+    buffer.append("<psf version=\"2.0\">");
+    buffer.append("<provider id=\"org.tigris.subversion.subclipse.core.svnnature\">");
+    for (String projectName : projectNames) {
+      buffer.append(String.format("<project reference=\"0.9.3,%s/%s,%s\"/>", this._repositoryUrl, projectName,
+          projectName));
+    }
+    buffer.append("</provider>");
+    buffer.append("</psf>");
+    return getTestWorkspace().createFile("projectSet.psf", buffer.toString());
+  }
+
+}
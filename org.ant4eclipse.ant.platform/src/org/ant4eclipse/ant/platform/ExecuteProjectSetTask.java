@@ -15,9 +15,6 @@ import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.FutureTask;
 
 import org.ant4eclipse.ant.platform.core.MacroExecutionComponent;
 import org.ant4eclipse.ant.platform.core.MacroExecutionValues;
@@ -29,6 +26,10 @@ import org.ant4eclipse.ant.platform.core.delegate.MacroExecutionValuesProvider;
 import org.ant4eclipse.ant.platform.core.delegate.ProjectReferenceAwareDelegate;
 import org.ant4eclipse.ant.platform.core.delegate.SubElementAndAttributesDelegate;
 import org.ant4eclipse.ant.platform.core.task.AbstractProjectSetPathBasedTask;
+import org.ant4eclipse.lib.core.dependencygraph.DependencyGraph;
+import org.ant4eclipse.lib.core.dependencygraph.DependencyGraphExecutor;
+import org.ant4eclipse.lib.core.dependencygraph.VertexProcessor;
+import org.ant4eclipse.lib.core.dependencygraph.VertexRenderer;
 import org.ant4eclipse.lib.core.logging.A4ELogging;
 import org.ant4eclipse.lib.core.service.ServiceRegistryAccess;
 import org.ant4eclipse.lib.core.util.StopWatchService;
@@ -62,6 +63,9 @@ public class ExecuteProjectSetTask extends AbstractProjectSetPathBasedTask imple
   /** indicates the number of concurrent threads */
   private int                             _threadCount       = 1;
 
+  /** indicates if the independent projects should be executed after a failure */
+  private boolean                         _keepGoing         = false;
+
   /**
    * <p>
    * Creates a new instance of type {@link ExecuteProjectSetTask}.
@@ -161,21 +165,58 @@ public class ExecuteProjectSetTask extends AbstractProjectSetPathBasedTask imple
     return this._macroExecutionDelegate.getScopedMacroDefinitions();
   }
 
+  /**
+   * <p>
+   * Returns the number of concurrent threads.
+   * </p>
+   * 
+   * @return the number of concurrent threads.
+   */
   public int getThreadCount() {
     return this._threadCount;
   }
 
+  /**
+   * <p>
+   * Sets the number of concurrent threads. If the build order is resolved, a project is executed as soon as all the
+   * projects it depends on have been executed.
+   * </p>
+   * 
+   * @param threads
+   *          the number of concurrent threads
+   */
   public void setThreadCount(int threads) {
     this._threadCount = threads;
   }
 
+  /**
+   * <p>
+   * Returns if the projects that don't depend on a failed project should be executed after a failure.
+   * </p>
+   * 
+   * @return the keepGoing
+   */
+  public boolean isKeepGoing() {
+    return this._keepGoing;
+  }
+
+  /**
+   * <p>
+   * Sets if the projects that don't depend on a failed project should be executed after a failure. Otherwise no
+   * further projects are started after a failure.
+   * </p>
+   * 
+   * @param keepGoing
+   *          the keepGoing to set
+   */
+  public void setKeepGoing(boolean keepGoing) {
+    this._keepGoing = keepGoing;
+  }
+
   @Override
   protected void preconditions() throws BuildException {
     super.preconditions();
 
-    if (this._resolveBuildOrder && this._threadCount > 1) {
-      throw new BuildException("In parallel mode (threadCount>1) build order can not be resolved");
-    }
     if (this._threadCount < 1) {
       throw new BuildException("ThreadCount must at least be 1");
     }
@@ -193,155 +234,99 @@ public class ExecuteProjectSetTask extends AbstractProjectSetPathBasedTask imple
     requireAllWorkspaceProjectsOrProjectSetOrProjectNamesSet();
     requireWorkspaceDirectoryOrWorkspaceIdSet();
 
-    // get all eclipse projects and calculate the build order if necessary
+    // get all eclipse projects and resolve their dependencies if necessary
     List<EclipseProject> projects = null;
+    DependencyGraph<EclipseProject> dependencyGraph = null;
     if (this._resolveBuildOrder) {
 
-      // resolve the build order
-      projects = BuildOrderResolver.resolveBuildOrder(getWorkspace(), getProjectNames(),
+      // resolve the dependency graph
+      projects = Arrays.asList(getWorkspace().getProjects(getProjectNames(), true));
+      dependencyGraph = BuildOrderResolver.resolveDependencyGraph(getWorkspace(), getProjectNames(),
           this._projectReferenceAwareDelegate.getProjectReferenceTypes(),
           this._subElementAndAttributeDelegate.getSubElements());
     } else {
       // only get the specified projects
       projects = Arrays.asList(getWorkspace().getProjects(getProjectNames(), false));
-    }
-
-    final BuildCallable[] buildCallables = new BuildCallable[this._threadCount];
-    for (int i = 0; i < buildCallables.length; i++) {
-      buildCallables[i] = new BuildCallable();
-    }
-
-    int callableIndex = 0;
-    for (final EclipseProject eclipseProject : projects) {
-      buildCallables[callableIndex].addProject(eclipseProject);
-      callableIndex++;
-      if (callableIndex >= buildCallables.length) {
-        callableIndex = 0;
+      dependencyGraph = new DependencyGraph<EclipseProject>(new VertexRenderer<EclipseProject>() {
+        public String renderVertex(EclipseProject eclipseProject) {
+          return eclipseProject.getSpecifiedName();
+        }
+      });
+      for (EclipseProject eclipseProject : projects) {
+        dependencyGraph.addVertex(eclipseProject);
       }
     }
 
-    // execute the macro definitions
-    for (ScopedMacroDefinition<Scope> scopedMacroDefinition : getScopedMacroDefinitions()) {
-
-      //
-      for (BuildCallable buildCallable : buildCallables) {
-        buildCallable.setScopedMacroDefinition(scopedMacroDefinition);
-      }
-
-      if (buildCallables.length > 1) {
-
-        // create the future tasks
-        @SuppressWarnings("unchecked")
-        FutureTask<Void>[] futureTasks = new FutureTask[this._threadCount];
-        for (int i = 0; i < futureTasks.length; i++) {
-          futureTasks[i] = new FutureTask<Void>(buildCallables[i]);
-
-          Thread thread = new Thread(futureTasks[i]);
-          thread.setName("A4E-" + thread.getName());
-          thread.start();
-        }
-
-        // collect the result
-
-        BuildException buildException = null;
+    // the projects are executed as soon as all the projects they depend on have been executed
+    DependencyGraphExecutor<EclipseProject> executor = new DependencyGraphExecutor<EclipseProject>(dependencyGraph,
+        this._threadCount, this._keepGoing);
 
-        for (FutureTask<Void> futureTask : futureTasks) {
-          if (buildException != null) {
-            // At least one task crashed: cancel all others
-            try {
-              A4ELogging.debug("One task crashed, canceling task " + futureTask);
-              futureTask.cancel(true);
-            } catch (Exception ex) {
-              // ignore
-            }
-
-            continue;
-          }
+    // execute the macro definitions
+    for (final ScopedMacroDefinition<Scope> scopedMacroDefinition : getScopedMacroDefinitions()) {
 
-          // Wait for task to complete
-          try {
-            futureTask.get();
-          } catch (Exception e) {
-            Throwable t = e;
-            if (e instanceof ExecutionException) {
-              t = ((ExecutionException) e).getCause();
-            }
-            if (t instanceof BuildException) {
-              buildException = (BuildException) t;
-            }
-            buildException = new BuildException(e);
-          }
+      Map<EclipseProject, Throwable> failures = executor.execute(projects, new VertexProcessor<EclipseProject>() {
+        public void process(EclipseProject eclipseProject) {
+          executeMacroInstance(scopedMacroDefinition, eclipseProject);
         }
+      });
 
-        if (buildException != null) {
-          throw buildException;
-        }
-      } else {
-        try {
-          buildCallables[0].call();
-        } catch (Exception e) {
-          Throwable t = e;
-          if (e instanceof ExecutionException) {
-            t = ((ExecutionException) e).getCause();
-          }
-          if (t instanceof BuildException) {
-            throw (BuildException) t;
-          }
-          throw new BuildException(e);
-
-        }
+      if (!failures.isEmpty()) {
+        throw createBuildException(failures);
       }
-
     }
 
     stopWatchService.getOrCreateStopWatch("executeProjectSet").stop();
 
   }
 
-  class BuildCallable implements Callable<Void> {
-    private final List<EclipseProject>   _projects = new LinkedList<EclipseProject>();
+  /**
+   * <p>
+   * Executes the given macro definition for the given project.
+   * </p>
+   * 
+   * @param scopedMacroDefinition
+   *          the macro definition
+   * @param eclipseProject
+   *          the project
+   */
+  private void executeMacroInstance(ScopedMacroDefinition<Scope> scopedMacroDefinition,
+      final EclipseProject eclipseProject) {
 
-    private ScopedMacroDefinition<Scope> _scopedMacroDefinition;
+    this._macroExecutionDelegate.executeMacroInstance(scopedMacroDefinition.getMacroDef(),
+        new MacroExecutionValuesProvider() {
 
-    public void addProject(EclipseProject project) {
-      this._projects.add(project);
+          public MacroExecutionValues provideMacroExecutionValues(MacroExecutionValues values) {
+            // set the values
+            ExecuteProjectSetTask.this._platformExecutorValuesProvider.provideExecutorValues(eclipseProject, values);
 
-    }
-
-    public void setScopedMacroDefinition(ScopedMacroDefinition<Scope> scopedMacroDefinition) {
-      this._scopedMacroDefinition = scopedMacroDefinition;
+            // return result
+            return values;
+          }
+        });
+  }
 
+  /**
+   * <p>
+   * Creates the {@link BuildException} for the given failures. A single {@link BuildException} is rethrown as is.
+   * </p>
+   * 
+   * @param failures
+   *          the failed projects and their failures
+   * @return the {@link BuildException}
+   */
+  private BuildException createBuildException(Map<EclipseProject, Throwable> failures) {
+    List<String> projectNames = new LinkedList<String>();
+    for (Map.Entry<EclipseProject, Throwable> failure : failures.entrySet()) {
+      A4ELogging.error("Execution of project '%s' failed: %s", failure.getKey().getSpecifiedName(), failure
+          .getValue());
+      projectNames.add(failure.getKey().getSpecifiedName());
     }
-
-    public Void call() throws Exception {
-
-      // System.out.println(String.format("ExecuteProjectSetTask[%s] 1: %s", Thread.currentThread(), this._projects));
-
-      for (final EclipseProject eclipseProject : this._projects) {
-
-        // System.out.println(String.format("ExecuteProjectSetTask[%s] 2: %s", Thread.currentThread(),
-        // eclipseProject.getSpecifiedName()));
-
-        // execute macro instance
-        ExecuteProjectSetTask.this._macroExecutionDelegate.executeMacroInstance(
-            this._scopedMacroDefinition.getMacroDef(), new MacroExecutionValuesProvider() {
-
-              public MacroExecutionValues provideMacroExecutionValues(MacroExecutionValues values) {
-                // set the values
-                ExecuteProjectSetTask.this._platformExecutorValuesProvider
-                    .provideExecutorValues(eclipseProject, values);
-
-                // System.out.println(String.format("ExecuteProjectSetTask[%s] 3: %s", Thread.currentThread(),
-                // values.getProperties()));
-
-                // return result
-                return values;
-              }
-            });
-
-      }
-      return null;
+    Throwable first = failures.values().iterator().next();
+    if (failures.size() == 1) {
+      return first instanceof BuildException ? (BuildException) first : new BuildException(first);
     }
+    return new BuildException(String.format("Execution failed for %d projects: %s", Integer.valueOf(failures.size()),
+        projectNames), first);
   }
 
   /**
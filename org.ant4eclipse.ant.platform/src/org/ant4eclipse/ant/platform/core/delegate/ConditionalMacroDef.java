@@ -11,13 +11,11 @@
  **********************************************************************/
 package org.ant4eclipse.ant.platform.core.delegate;
 
-import java.io.StringReader;
 import java.lang.reflect.Field;
-import java.util.HashMap;
 import java.util.List;
 
 import org.ant4eclipse.lib.core.Assure;
-import org.ant4eclipse.lib.core.ldapfilter.LdapFilter;
+import org.ant4eclipse.lib.core.ldapfilter.LdapFilterCache;
 import org.ant4eclipse.lib.core.ldapfilter.ParseException;
 import org.ant4eclipse.lib.core.logging.A4ELogging;
 import org.ant4eclipse.lib.core.util.StringMap;
@@ -174,7 +172,7 @@ public class ConditionalMacroDef extends MacroDef {
 
       // try to parse the filter
       try {
-        new LdapFilter(new HashMap<String, String>(), new StringReader(filter)).validate();
+        LdapFilterCache.compile(filter);
       }
       // in case of an exception we have create an useful BuildException
       catch (ParseException e) {
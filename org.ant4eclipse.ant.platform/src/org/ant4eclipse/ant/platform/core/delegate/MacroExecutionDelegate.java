@@ -11,11 +11,9 @@
  **********************************************************************/
 package org.ant4eclipse.ant.platform.core.delegate;
 
-import java.io.StringReader;
 import java.util.LinkedList;
 import java.util.List;
 
-import org.ant4eclipse.ant.core.ThreadDispatchingPropertyHelper;
 import org.ant4eclipse.ant.core.delegate.AbstractAntDelegate;
 import org.ant4eclipse.ant.platform.core.MacroExecutionComponent;
 import org.ant4eclipse.ant.platform.core.MacroExecutionValues;
@@ -23,11 +21,11 @@ import org.ant4eclipse.ant.platform.core.ScopedMacroDefinition;
 import org.ant4eclipse.ant.platform.core.delegate.helper.AntPropertiesRaper;
 import org.ant4eclipse.ant.platform.core.delegate.helper.AntReferencesRaper;
 import org.ant4eclipse.lib.core.Assure;
-import org.ant4eclipse.lib.core.ldapfilter.LdapFilter;
+import org.ant4eclipse.lib.core.ldapfilter.LdapFilterCache;
 import org.ant4eclipse.lib.core.ldapfilter.ParseException;
+import org.ant4eclipse.lib.core.ldapfilter.PropertyLookup;
 import org.ant4eclipse.lib.core.util.StringMap;
 import org.apache.tools.ant.BuildException;
-import org.apache.tools.ant.PropertyHelper;
 import org.apache.tools.ant.Task;
 import org.apache.tools.ant.taskdefs.MacroDef;
 import org.apache.tools.ant.taskdefs.MacroDef.NestedSequential;
@@ -143,9 +141,15 @@ public class MacroExecutionDelegate<E> extends AbstractAntDelegate implements Ma
 
       String filter = conditionalMacroDef.getFilter();
       if (filter != null) {
-        StringMap properties = macroExecutionValues.getProperties(getPrefix());
+        // the filter refers to the scoped properties ('<prefix>.<name>')
+        final StringMap properties = macroExecutionValues.getProperties();
+        final String prefix = getPrefix() + ".";
         try {
-          if (!(new LdapFilter(properties, new StringReader(filter)).validate())) {
+          if (!LdapFilterCache.compile(filter).evaluate(new PropertyLookup() {
+            public String getProperty(String key) {
+              return key.startsWith(prefix) ? properties.get(key.substring(prefix.length())) : null;
+            }
+          })) {
             return;
           }
         } catch (ParseException e) {
@@ -168,17 +172,16 @@ public class MacroExecutionDelegate<E> extends AbstractAntDelegate implements Ma
     antPropertiesRaper.setScopedValues(macroExecutionValues.getProperties(), this._prefix);
     antReferencesRaper.setScopedValues(macroExecutionValues.getReferences(), this._prefix);
 
-    // ******
-    PropertyHelper propertyHelper = PropertyHelper.getPropertyHelper(getAntProject());
-    // System.out.println("*-*-* " + ((ThreadDispatchingPropertyHelper) propertyHelper.getNext()).getThreadProperties());
-    // System.out.println(macroExecutionValues);
-    // ******
+    try {
 
-    // execute macro instance
-    instance.execute();
+      // execute macro instance
+      instance.execute();
 
-    // unset scoped values
-    antPropertiesRaper.unsetScopedValues();
-    antReferencesRaper.unsetScopedValues();
+    } finally {
+
+      // unset scoped values (in reverse order, so the scopes of the current thread are popped correctly)
+      antReferencesRaper.unsetScopedValues();
+      antPropertiesRaper.unsetScopedValues();
+    }
   }
 }
@@ -12,8 +12,8 @@
 package org.ant4eclipse.ant.platform.core.delegate.helper;
 
 import java.lang.reflect.Field;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -23,10 +23,14 @@ import org.apache.tools.ant.Project;
 
 /**
  * <p>
- * Helper class that provides access to some internal ant project fields. During macro execution with the
+ * Helper class that manages the scoped values of an ant project. During macro execution with the
  * {@link MacroExecutionDelegate} several properties and references are (temporarily) set. Once the execution has
  * finished, all properties and references have to be reset.
  * </p>
+ * <p>
+ * The scoped values of a macro execution are passed as an immutable map to {@link #pushScope(Map)} and are removed
+ * with {@link #popScope(Map)}, so subclasses can implement the scoping without copying the values.
+ * </p>
  * 
  * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
  * 
@@ -35,22 +39,13 @@ import org.apache.tools.ant.Project;
 public abstract class AbstractAntProjectRaper<V> {
 
   /** the ant project */
-  private Project                    _antProject;
-
-  /** the prefix used for the scoped values */
-  private String                     _prefix;
-
-  /** the scoped values */
-  private Map<String, V>             _scopedValues;
-
-  /** the overridden values */
-  private Map<String, V>             _overriddenValues;
+  private Project        _antProject;
 
-  /** the value accessor */
-  private AntProjectValueAccessor<V> _valueAccessor;
+  /** the scoped values (with the prefix) */
+  private Map<String, V> _scopedValues;
 
   /** - */
-  private Thread                     _currentThread;
+  private Thread         _currentThread;
 
   /**
    * <p>
@@ -100,54 +95,54 @@ public abstract class AbstractAntProjectRaper<V> {
     Assure.assertTrue(this._scopedValues == null, "Scoped values are already set!");
     Assure.notNull("scopedValues", scopedValues);
 
-    // set the scoped values
-    this._scopedValues = scopedValues;
-    this._overriddenValues = new HashMap<String, V>();
+    // get the prefix
+    String keyPrefix = (prefix != null && prefix.trim().length() > 0) ? prefix + "." : "";
 
-    // set the prefix
-    this._prefix = (prefix != null && prefix.trim().length() > 0) ? prefix + "." : "";
-
-    // iterate over all scoped properties
-    Iterator<Entry<String, V>> iterator = this._scopedValues.entrySet().iterator();
-    while (iterator.hasNext()) {
-
-      Map.Entry<String, V> entry = iterator.next();
-      String key = (this._prefix + entry.getKey());
-
-      // store the property if it already exists
-      V existingValue = this._valueAccessor.getValue(key);
-      if (existingValue != null) {
-        this._overriddenValues.put(key, existingValue);
+    // create the immutable scope
+    Map<String, V> values = new HashMap<String, V>(Math.max(16, scopedValues.size() * 2));
+    for (Entry<String, V> entry : scopedValues.entrySet()) {
+      if (entry.getValue() != null) {
+        values.put(keyPrefix + entry.getKey(), entry.getValue());
       }
-
-      V newValue = entry.getValue();
-      this._valueAccessor.setValue(key, newValue);
     }
+    this._scopedValues = Collections.unmodifiableMap(values);
+
+    pushScope(this._scopedValues);
   }
 
   /**
    * <p>
-   * Unsets all
+   * Unsets all scoped values.
    * </p>
    */
   public final void unsetScopedValues() {
     Assure.assertTrue(this._scopedValues != null, "Scoped values must be set!");
 
-    // unset scopes value
-    Iterator<String> keyIterator = this._scopedValues.keySet().iterator();
-    while (keyIterator.hasNext()) {
-      String key = (this._prefix + keyIterator.next());
-      this._valueAccessor.unsetValue(key);
-
-      // reset the property if it existed before executing the macro
-      if (this._overriddenValues.containsKey(key)) {
-        this._valueAccessor.setValue(key, this._overriddenValues.get(key));
-      }
-    }
+    popScope(this._scopedValues);
 
     this._scopedValues = null;
   }
 
+  /**
+   * <p>
+   * Makes the given scoped values visible.
+   * </p>
+   * 
+   * @param scopedValues
+   *          the immutable scoped values (with the prefix).
+   */
+  protected abstract void pushScope(Map<String, V> scopedValues);
+
+  /**
+   * <p>
+   * Removes the given scoped values and restores the values that have been hidden by them.
+   * </p>
+   * 
+   * @param scopedValues
+   *          the scoped values that have been passed to {@link #pushScope(Map)}.
+   */
+  protected abstract void popScope(Map<String, V> scopedValues);
+
   /**
    * Object rape: fondle the private parts of an object without it's permission.
    * 
@@ -188,33 +183,4 @@ public abstract class AbstractAntProjectRaper<V> {
       return getField(thisClass.getSuperclass(), fieldName);
     }
   }
-
-  public void setValueAccessor(AntProjectValueAccessor<V> valueAccessor) {
-    this._valueAccessor = valueAccessor;
-  }
-
-  /**
-   * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
-   * 
-   * @param <V>
-   */
-  public interface AntProjectValueAccessor<V> {
-
-    /**
-     * @param key
-     * @return
-     */
-    V getValue(String key);
-
-    /**
-     * @param key
-     * @param value
-     */
-    void setValue(String key, V value);
-
-    /**
-     * @param key
-     */
-    void unsetValue(String key);
-  }
 }
@@ -11,25 +11,41 @@
  **********************************************************************/
 package org.ant4eclipse.ant.platform.core.delegate.helper;
 
+import java.util.HashMap;
 import java.util.Hashtable;
-import java.util.Properties;
+import java.util.Map;
+import java.util.Map.Entry;
 
 import org.ant4eclipse.ant.core.ThreadDispatchingPropertyHelper;
+import org.ant4eclipse.ant.core.ThreadDispatchingPropertyHelper.PropertyScope;
 import org.ant4eclipse.ant.platform.core.delegate.MacroExecutionDelegate;
 import org.apache.tools.ant.Project;
-import org.apache.tools.ant.PropertyHelper;
 
 /**
  * <p>
- * Helper class that provides access to the ant project's property field. During macro execution with the
+ * Helper class that provides access to the ant project's properties. During macro execution with the
  * {@link MacroExecutionDelegate} several properties are (temporarily) set. Once the execution has finished, all
  * properties have to be reset.
  * </p>
+ * <p>
+ * The properties are pushed as a scope onto the scope stack of the {@link ThreadDispatchingPropertyHelper}, so they
+ * are only visible to the current thread (and the threads started by it). Without a property helper the properties
+ * are set in the ant project and removed afterwards.
+ * </p>
  * 
  * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
  */
 public class AntPropertiesRaper extends AbstractAntProjectRaper<String> {
 
+  /** the property helper (might be <code>null</code>) */
+  private ThreadDispatchingPropertyHelper _propertyHelper;
+
+  /** the pushed scope */
+  private PropertyScope                   _scope;
+
+  /** the overridden properties (only used without a property helper) */
+  private Map<String, String>             _overriddenValues;
+
   /**
    * <p>
    * Creates a new instance of type {@link AntPropertiesRaper}.
@@ -41,87 +57,58 @@ public class AntPropertiesRaper extends AbstractAntProjectRaper<String> {
   public AntPropertiesRaper(Project antProject, Thread thread) {
     super(antProject, thread);
 
-    registerThread();
-
-    // set the value accessor
-    setValueAccessor(new AntProjectValueAccessor<String>() {
-
-      /**
-       * <p>
-       * Returns the ant project property with the given key
-       * </p>
-       * 
-       * @param key
-       *          the key
-       */
-      public String getValue(String key) {
-        return getAntProject().getProperty(key);
-      }
-
-      /**
-       * <p>
-       * Sets the given value as a ant project property with the given key.
-       * </p>
-       * 
-       * @param key
-       *          the key
-       * @param value
-       *          the value to set
-       */
-      public void setValue(String key, String value) {
-        getAntProject().setProperty(key, value);
-      }
+    this._propertyHelper = ThreadDispatchingPropertyHelper.getInstance(antProject);
 
-      /**
-       * <p>
-       * Removes the given value from the ant project properties.
-       * </p>
-       * 
-       * @param key
-       *          the key
-       */
-      public void unsetValue(String key) {
-        removeProperty(key);
-      }
-    });
+    //
+    if (this._propertyHelper != null) {
+      this._propertyHelper.registerThread(thread);
+    }
   }
 
   /**
-   * <p>
-   * </p>
+   * {@inheritDoc}
    */
-  private void registerThread() {
+  @Override
+  protected void pushScope(Map<String, String> scopedValues) {
 
     //
-    PropertyHelper propertyHelper = PropertyHelper.getPropertyHelper(getAntProject()).getNext();
+    if (this._propertyHelper != null) {
+      this._scope = this._propertyHelper.pushScope(scopedValues);
+      return;
+    }
 
-    //
-    if (propertyHelper instanceof ThreadDispatchingPropertyHelper) {
-      ((ThreadDispatchingPropertyHelper) propertyHelper).registerThread(Thread.currentThread());
+    // no property helper: set the properties
+    this._overriddenValues = new HashMap<String, String>();
+    for (Entry<String, String> entry : scopedValues.entrySet()) {
+      String existingValue = getAntProject().getProperty(entry.getKey());
+      if (existingValue != null) {
+        this._overriddenValues.put(entry.getKey(), existingValue);
+      }
+      getAntProject().setProperty(entry.getKey(), entry.getValue());
     }
   }
 
   /**
-   * <p>
-   * </p>
-   * 
-   * @param name
+   * {@inheritDoc}
    */
-  private void removeProperty(String name) {
-    //
-    PropertyHelper propertyHelper = PropertyHelper.getPropertyHelper(getAntProject()).getNext();
+  @Override
+  protected void popScope(Map<String, String> scopedValues) {
 
     //
-    if (propertyHelper instanceof ThreadDispatchingPropertyHelper) {
-      // System.out.println(String.format(" - - - removeProperty(%s)", name));
-      ThreadDispatchingPropertyHelper threadDispatchingPropertyHelper = (ThreadDispatchingPropertyHelper) propertyHelper;
-      Properties threadProperties = threadDispatchingPropertyHelper.getThreadProperties();
-      if (threadProperties != null) {
-        threadProperties.remove(name);
-      } else {
-        _removeProperty(name);
-      }
+    if (this._propertyHelper != null) {
+      this._propertyHelper.popScope(this._scope);
+      this._scope = null;
+      return;
     }
+
+    // remove the properties and reset the properties that existed before executing the macro
+    for (String key : scopedValues.keySet()) {
+      removeProperty(key);
+    }
+    for (Entry<String, String> entry : this._overriddenValues.entrySet()) {
+      getAntProject().setProperty(entry.getKey(), entry.getValue());
+    }
+    this._overriddenValues = null;
   }
 
   /**
@@ -129,11 +116,11 @@ public class AntPropertiesRaper extends AbstractAntProjectRaper<String> {
    * Removes the given value from the ant project properties.
    * </p>
    * 
-   * @param key
-   *          the key
+   * @param name
+   *          the name of the property
    */
   @SuppressWarnings("rawtypes")
-  private void _removeProperty(String name) {
+  private void removeProperty(String name) {
     Hashtable properties = null;
     // Ant 1.5 stores properties in Project
     try {
@@ -156,13 +143,9 @@ public class AntPropertiesRaper extends AbstractAntProjectRaper<String> {
     // Ant 1.6 uses a PropertyHelper, can check for it by checking for a
     // reference to "ant.PropertyHelper"
     try {
-
-      // MULTITHREADING!!
       Object property_helper = getAntProject().getReference("ant.PropertyHelper");
       if (property_helper != null) {
         try {
-
-          // MULTITHREADING!!
           properties = (Hashtable) AbstractAntProjectRaper.getValue(property_helper, "properties");
           if (properties != null) {
             properties.remove(name);
@@ -171,8 +154,6 @@ public class AntPropertiesRaper extends AbstractAntProjectRaper<String> {
           // ignore
         }
         try {
-
-          // MULTITHREADING!!
           properties = (Hashtable) AbstractAntProjectRaper.getValue(property_helper, "userProperties");
           if (properties != null) {
             properties.remove(name);
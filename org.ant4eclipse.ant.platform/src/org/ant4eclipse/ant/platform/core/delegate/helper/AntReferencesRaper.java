@@ -11,22 +11,54 @@
  **********************************************************************/
 package org.ant4eclipse.ant.platform.core.delegate.helper;
 
-import java.util.Hashtable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
 
+import org.ant4eclipse.ant.core.ThreadDispatchingPropertyHelper;
+import org.ant4eclipse.ant.core.ThreadDispatchingPropertyHelper.PropertyScope;
 import org.ant4eclipse.ant.platform.core.delegate.MacroExecutionDelegate;
 import org.apache.tools.ant.Project;
 
 /**
  * <p>
- * Helper class that provides access to the ant project's reference field. During macro execution with the
+ * Helper class that provides access to the ant project's references. During macro execution with the
  * {@link MacroExecutionDelegate} several references are (temporarily) set. Once the execution has finished, all
  * references have to be reset.
  * </p>
+ * <p>
+ * Each reference is set with the id of the current thread as an additional prefix (e.g.
+ * <code>${currentThreadId}.executeProjectSet.project.classpath</code>), so concurrently executed macros don't
+ * interfere. The property <code>currentThreadId</code> is pushed as a scoped property of the current thread.
+ * </p>
+ * <p>
+ * The references of a macro execution are pushed as an immutable overlay onto the {@link ScopedReferences} of the ant
+ * project, so the references that are hidden by the macro execution are published again afterwards.
+ * </p>
  * 
  * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
  */
 public class AntReferencesRaper extends AbstractAntProjectRaper<Object> {
 
+  /** the name of the property that contains the id of the current thread */
+  public static final String              CURRENT_THREAD_ID = "currentThreadId";
+
+  /** the prefix for the thread specific references */
+  private String                          _threadPrefix;
+
+  /** the property helper (might be <code>null</code>) */
+  private ThreadDispatchingPropertyHelper _propertyHelper;
+
+  /** the scope that contains the thread id */
+  private PropertyScope                   _scope;
+
+  /** the scoped references of the ant project */
+  private ScopedReferences                _scopedReferences;
+
+  /** the pushed overlay */
+  private Map<String, Object>             _overlay;
+
   /**
    * <p>
    * Creates a new instance of type {@link AntReferencesRaper}.
@@ -38,102 +70,51 @@ public class AntReferencesRaper extends AbstractAntProjectRaper<Object> {
   public AntReferencesRaper(Project antProject, Thread currentThread) {
     super(antProject, currentThread);
 
-    //
-    final String threadPrefix = Long.toString(currentThread.getId());
-
-    //
-    antProject.setProperty("currentThreadId", threadPrefix);
-
-    // set the value accessor
-    setValueAccessor(new AntProjectValueAccessor<Object>() {
-
-      /**
-       * <p>
-       * Returns the ant project reference with the given key
-       * </p>
-       * 
-       * @param key
-       *          the key
-       */
-      public Object getValue(String key) {
-        return getAntProject().getReference(key);
-      }
-
-      /**
-       * <p>
-       * Sets the given value as a ant project reference with the given key.
-       * </p>
-       * 
-       * @param key
-       *          the key
-       * @param value
-       *          the value to set
-       */
-      public void setValue(String key, Object value) {
-
-        //
-        setReference(threadPrefix + "." + key, value);
-
-        // unsafe! Only for backward compatibility
-        setReference(key, value);
-      }
-
-      /**
-       * <p>
-       * Removes the given value from the ant project references.
-       * </p>
-       * 
-       * @param key
-       *          the key
-       */
-      public void unsetValue(String key) {
-        removeReference(threadPrefix + "." + key);
-
-        // unsafe! Only for backward compatibility
-        removeReference(key);
-      }
-    });
+    this._threadPrefix = Long.toString(currentThread.getId()) + ".";
+    this._propertyHelper = ThreadDispatchingPropertyHelper.getInstance(antProject);
+    this._scopedReferences = ScopedReferences.getInstance(antProject);
   }
 
   /**
-   * <p>
-   * Removes the value with the given key from the ant project references.
-   * </p>
-   * 
-   * @param key
-   *          the key
+   * {@inheritDoc}
    */
-  @SuppressWarnings("rawtypes")
-  private void removeReference(String key) {
-    try {
-      Hashtable references = (Hashtable) AbstractAntProjectRaper.getValue(getAntProject(), "references");
-      if (references != null) {
-        references.remove(key);
-      }
-    } catch (Exception e) {
-      // ignore
+  @Override
+  protected void pushScope(Map<String, Object> scopedValues) {
+
+    // set the thread id
+    String threadId = Long.toString(getCurrentThread().getId());
+    if (this._propertyHelper != null) {
+      this._scope = this._propertyHelper.pushScope(Collections.singletonMap(CURRENT_THREAD_ID, threadId));
+    } else {
+      getAntProject().setProperty(CURRENT_THREAD_ID, threadId);
+    }
+
+    // push the references
+    Map<String, Object> overlay = new HashMap<String, Object>(Math.max(16, scopedValues.size() * 4));
+    for (Entry<String, Object> entry : scopedValues.entrySet()) {
+      overlay.put(this._threadPrefix + entry.getKey(), entry.getValue());
+
+      // unsafe! Only for backward compatibility
+      overlay.put(entry.getKey(), entry.getValue());
     }
+    this._overlay = Collections.unmodifiableMap(overlay);
+    this._scopedReferences.pushOverlay(getAntProject(), this._overlay);
   }
 
   /**
-   * <p>
-   * Sets the given value as an ant project references.
-   * </p>
-   * 
-   * @param key
-   *          the key
-   * @param value
-   *          the value
+   * {@inheritDoc}
    */
-  @SuppressWarnings({ "unchecked", "rawtypes" })
-  private void setReference(String key, Object value) {
-    try {
-      Hashtable references = (Hashtable) AbstractAntProjectRaper.getValue(getAntProject(), "references");
-      if (references != null) {
-        references.put(key, value);
-      }
-    } catch (Exception e) {
-      // ignore
+  @Override
+  protected void popScope(Map<String, Object> scopedValues) {
+
+    // reset the references
+    this._scopedReferences.popOverlay(getAntProject(), this._overlay);
+    this._overlay = null;
+
+    // reset the thread id
+    if (this._propertyHelper != null) {
+      this._propertyHelper.popScope(this._scope);
+      this._scope = null;
     }
   }
 }
@@ -0,0 +1,206 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.ant.platform.core.delegate.helper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.Map.Entry;
+
+import org.ant4eclipse.lib.core.Assure;
+import org.apache.tools.ant.Project;
+
+/**
+ * <p>
+ * Manages the scoped references of the macro invocations of an ant project. Each invocation pushes an immutable overlay
+ * of references, which is removed when the invocation has finished.
+ * </p>
+ * <p>
+ * Ant resolves references from the reference table of the project only (and doesn't allow to replace this table), so
+ * the reference table always contains the value of the innermost overlay that defines a key. When an overlay is
+ * removed, the value of the next overlay that defines the key (or the value that existed before the first overlay) is
+ * published again. Overlays of concurrent invocations can be removed in any order without leaving stale values behind.
+ * </p>
+ * 
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class ScopedReferences {
+
+  /** the scoped references of all ant projects */
+  private static final Map<Project, ScopedReferences> INSTANCES = new WeakHashMap<Project, ScopedReferences>();
+
+  /** the overlays that define a key (in the order they have been pushed) */
+  private Map<String, Overlays>                       _overlays;
+
+  /**
+   * <p>
+   * Returns the {@link ScopedReferences} of the given ant project.
+   * </p>
+   * 
+   * @param project
+   *          the ant project
+   * @return the {@link ScopedReferences} of the given ant project.
+   */
+  public static ScopedReferences getInstance(Project project) {
+    Assure.notNull("project", project);
+
+    synchronized (INSTANCES) {
+      ScopedReferences result = INSTANCES.get(project);
+      if (result == null) {
+        result = new ScopedReferences();
+        INSTANCES.put(project, result);
+      }
+      return result;
+    }
+  }
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link ScopedReferences}.
+   * </p>
+   */
+  private ScopedReferences() {
+    this._overlays = new HashMap<String, Overlays>();
+  }
+
+  /**
+   * <p>
+   * Pushes the given overlay. The references of the overlay hide all references with the same key until the overlay is
+   * popped.
+   * </p>
+   * 
+   * @param project
+   *          the ant project
+   * @param overlay
+   *          the immutable overlay
+   */
+  public void pushOverlay(Project project, Map<String, ?> overlay) {
+    Assure.notNull("project", project);
+    Assure.notNull("overlay", overlay);
+
+    //
+    Hashtable<String, Object> references = getReferences(project);
+    synchronized (references) {
+      for (Entry<String, ?> entry : overlay.entrySet()) {
+        Overlays overlays = this._overlays.get(entry.getKey());
+        if (overlays == null) {
+          overlays = new Overlays(references.get(entry.getKey()));
+          this._overlays.put(entry.getKey(), overlays);
+        }
+        overlays._overlays.add(overlay);
+        references.put(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Pops the given overlay and publishes the references that have been hidden by it.
+   * </p>
+   * 
+   * @param project
+   *          the ant project
+   * @param overlay
+   *          the overlay as passed to {@link #pushOverlay(Project, Map)}
+   */
+  public void popOverlay(Project project, Map<String, ?> overlay) {
+    Assure.notNull("project", project);
+    Assure.notNull("overlay", overlay);
+
+    //
+    Hashtable<String, Object> references = getReferences(project);
+    synchronized (references) {
+      for (String key : overlay.keySet()) {
+        Overlays overlays = this._overlays.get(key);
+        Assure.notNull("overlays", overlays);
+        overlays.remove(overlay);
+
+        // publish the value of the innermost remaining overlay
+        if (!overlays._overlays.isEmpty()) {
+          references.put(key, overlays._overlays.get(overlays._overlays.size() - 1).get(key));
+          continue;
+        }
+
+        // publish the original value
+        this._overlays.remove(key);
+        if (overlays._hiddenValue != null) {
+          references.put(key, overlays._hiddenValue);
+        } else {
+          references.remove(key);
+        }
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the (synchronized) table of the ant project's references.
+   * </p>
+   * 
+   * @param project
+   *          the ant project
+   * @return the references of the ant project
+   */
+  @SuppressWarnings("unchecked")
+  private Hashtable<String, Object> getReferences(Project project) {
+    return project.getReferences();
+  }
+
+  /**
+   * <p>
+   * The overlays that define a key.
+   * </p>
+   * 
+   * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+   */
+  private static final class Overlays {
+
+    /** the value that existed before the first overlay has been pushed */
+    private Object               _hiddenValue;
+
+    /** the overlays (in the order they have been pushed) */
+    private List<Map<String, ?>> _overlays;
+
+    /**
+     * <p>
+     * Creates a new instance of type {@link Overlays}.
+     * </p>
+     * 
+     * @param hiddenValue
+     *          the value that existed before the first overlay has been pushed
+     */
+    private Overlays(Object hiddenValue) {
+      this._hiddenValue = hiddenValue;
+      this._overlays = new ArrayList<Map<String, ?>>();
+    }
+
+    /**
+     * <p>
+     * Removes the given overlay (identified by identity).
+     * </p>
+     * 
+     * @param overlay
+     *          the overlay
+     */
+    private void remove(Map<String, ?> overlay) {
+      for (int i = this._overlays.size() - 1; i >= 0; i--) {
+        if (this._overlays.get(i) == overlay) {
+          this._overlays.remove(i);
+          return;
+        }
+      }
+    }
+  }
+}
@@ -190,6 +190,18 @@ public class CvsAdapter extends VcsAdapter {
     }
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String getRepositoryHost(TeamProjectDescription projectDescription) {
+    Assure.instanceOf("projectDescription", projectDescription, CvsTeamProjectDescription.class);
+
+    // a local repository doesn't have a host
+    String host = ((CvsTeamProjectDescription) projectDescription).getCvsRoot().getHost();
+    return host == null ? "localhost" : host.toLowerCase();
+  }
+
   /**
    * <p>
    * Creates a CVS task using the supplied workspace and projects.
@@ -185,6 +185,26 @@ public class SvnAdapter extends VcsAdapter {
     }
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String getRepositoryHost(TeamProjectDescription projectDescription) {
+    Assure.instanceOf("projectDescription", projectDescription, SvnTeamProjectDescription.class);
+
+    // e.g. svn+ssh://user@host:port/path or file:///path
+    String url = ((SvnTeamProjectDescription) projectDescription).getUrl();
+    int start = url.indexOf("://");
+    if (start == -1) {
+      return url;
+    }
+    start = start + 3;
+    int end = url.indexOf('/', start);
+    String host = end == -1 ? url.substring(start) : url.substring(start, end);
+    host = host.substring(host.lastIndexOf('@') + 1).toLowerCase();
+    return host.length() == 0 ? "localhost" : host;
+  }
+
   /**
    * <p>
    * Creates a Subversion task using the supplied workspace and projects.
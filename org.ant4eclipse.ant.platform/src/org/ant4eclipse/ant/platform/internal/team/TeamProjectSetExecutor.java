@@ -0,0 +1,299 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.ant.platform.internal.team;
+
+import org.ant4eclipse.lib.core.Assure;
+import org.ant4eclipse.lib.core.dependencygraph.DependencyGraph;
+import org.ant4eclipse.lib.core.dependencygraph.DependencyGraphExecutor;
+import org.ant4eclipse.lib.core.dependencygraph.VertexProcessor;
+import org.ant4eclipse.lib.core.dependencygraph.VertexRenderer;
+import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
+import org.ant4eclipse.lib.core.logging.A4ELogging;
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.lib.platform.PlatformExceptionCode;
+import org.ant4eclipse.lib.platform.model.team.projectset.TeamProjectDescription;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * Executes a version control command for all projects of a team project set. The projects are processed concurrently
+ * by the given number of threads, but the number of concurrent connections to a single repository host is limited.
+ * Commands that fail while talking to the repository are retried with an exponentially growing delay.
+ * </p>
+ * <p>
+ * With a single thread the projects are processed by the calling thread in the order of the team project set. If the
+ * processing of a project fails, no further projects are started.
+ * </p>
+ * 
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class TeamProjectSetExecutor {
+
+  /** the version control adapter */
+  private VcsAdapter                           _vcsAdapter;
+
+  /** the maximum number of threads */
+  private int                                  _threadCount;
+
+  /** the maximum number of concurrent connections per repository host (<code>0</code> means unlimited) */
+  private int                                  _maxConnectionsPerHost;
+
+  /** the number of retries of a failed command */
+  private int                                  _retryCount;
+
+  /** the delay before the first retry in milliseconds (doubled for each further retry) */
+  private long                                 _retryDelay;
+
+  /** the connections per repository host */
+  private ConcurrentHashMap<String, Semaphore> _connections;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link TeamProjectSetExecutor}.
+   * </p>
+   * 
+   * @param vcsAdapter
+   *          the version control adapter
+   * @param threadCount
+   *          the maximum number of threads
+   * @param maxConnectionsPerHost
+   *          the maximum number of concurrent connections per repository host (<code>0</code> means unlimited)
+   * @param retryCount
+   *          the number of retries of a failed command
+   * @param retryDelay
+   *          the delay before the first retry in milliseconds (doubled for each further retry)
+   */
+  public TeamProjectSetExecutor(VcsAdapter vcsAdapter, int threadCount, int maxConnectionsPerHost, int retryCount,
+      long retryDelay) {
+    Assure.notNull("vcsAdapter", vcsAdapter);
+    Assure.assertTrue(threadCount > 0, "threadCount must be at least 1");
+    Assure.assertTrue(maxConnectionsPerHost >= 0, "maxConnectionsPerHost must not be negative");
+    Assure.assertTrue(retryCount >= 0, "retryCount must not be negative");
+    Assure.assertTrue(retryDelay >= 0, "retryDelay must not be negative");
+
+    this._vcsAdapter = vcsAdapter;
+    this._threadCount = threadCount;
+    this._maxConnectionsPerHost = maxConnectionsPerHost;
+    this._retryCount = retryCount;
+    this._retryDelay = retryDelay;
+    this._connections = new ConcurrentHashMap<String, Semaphore>();
+  }
+
+  /**
+   * <p>
+   * Checks out the given projects.
+   * </p>
+   * 
+   * @param destination
+   *          the directory in which the projects will be checked out.
+   * @param descriptions
+   *          the descriptions of the shared projects.
+   * @param deleteExisting
+   *          indicates if existing projects should be deleted.
+   * @return the failures (in the order of their occurrence). Empty if all projects have been checked out.
+   */
+  public Map<TeamProjectDescription, Throwable> checkoutProjects(final File destination,
+      TeamProjectDescription[] descriptions, final boolean deleteExisting) {
+    return execute("checkout", destination, descriptions, new VcsOperation() {
+      public void execute(TeamProjectDescription description, boolean cleanup) {
+        TeamProjectSetExecutor.this._vcsAdapter.checkoutProject(destination, description, deleteExisting || cleanup);
+      }
+    });
+  }
+
+  /**
+   * <p>
+   * Updates the given projects.
+   * </p>
+   * 
+   * @param destination
+   *          the directory in which the projects will be updated.
+   * @param descriptions
+   *          the descriptions of the shared projects.
+   * @return the failures (in the order of their occurrence). Empty if all projects have been updated.
+   */
+  public Map<TeamProjectDescription, Throwable> updateProjects(final File destination,
+      TeamProjectDescription[] descriptions) {
+    return execute("update", destination, descriptions, new VcsOperation() {
+      public void execute(TeamProjectDescription description, boolean cleanup) {
+        TeamProjectSetExecutor.this._vcsAdapter.updateProject(destination, description);
+      }
+    });
+  }
+
+  /**
+   * <p>
+   * Exports the given projects.
+   * </p>
+   * 
+   * @param destination
+   *          the directory in which the projects will be exported.
+   * @param descriptions
+   *          the descriptions of the shared projects.
+   * @param deleteExisting
+   *          indicates if existing projects should be deleted.
+   * @return the failures (in the order of their occurrence). Empty if all projects have been exported.
+   */
+  public Map<TeamProjectDescription, Throwable> exportProjects(final File destination,
+      TeamProjectDescription[] descriptions, final boolean deleteExisting) {
+    return execute("export", destination, descriptions, new VcsOperation() {
+      public void execute(TeamProjectDescription description, boolean cleanup) {
+        TeamProjectSetExecutor.this._vcsAdapter.exportProject(destination, description, deleteExisting || cleanup);
+      }
+    });
+  }
+
+  /**
+   * <p>
+   * Executes the given operation for all given projects.
+   * </p>
+   */
+  private Map<TeamProjectDescription, Throwable> execute(final String command, final File destination,
+      TeamProjectDescription[] descriptions, final VcsOperation operation) {
+    Assure.isDirectory("destination", destination);
+    Assure.notNull("descriptions", descriptions);
+
+    // the projects don't depend on each other
+    DependencyGraph<TeamProjectDescription> graph = new DependencyGraph<TeamProjectDescription>(
+        new VertexRenderer<TeamProjectDescription>() {
+          public String renderVertex(TeamProjectDescription description) {
+            return description.getProjectName();
+          }
+        });
+    List<TeamProjectDescription> projects = new ArrayList<TeamProjectDescription>(descriptions.length);
+    for (TeamProjectDescription description : descriptions) {
+      if (!graph.containsVertex(description)) {
+        graph.addVertex(description);
+        projects.add(description);
+      }
+    }
+
+    final int total = projects.size();
+    final AtomicInteger finished = new AtomicInteger();
+    A4ELogging.debug("Executing %s for %d projects using %d threads.", command, Integer.valueOf(total), Integer
+        .valueOf(this._threadCount));
+
+    DependencyGraphExecutor<TeamProjectDescription> executor = new DependencyGraphExecutor<TeamProjectDescription>(
+        graph, this._threadCount, false);
+    return executor.execute(projects, new VertexProcessor<TeamProjectDescription>() {
+      public void process(TeamProjectDescription description) {
+        execute(command, destination, description, operation);
+        A4ELogging.info("[%d/%d] Finished %s of project '%s'.", Integer.valueOf(finished.incrementAndGet()), Integer
+            .valueOf(total), command, description.getProjectName());
+      }
+    });
+  }
+
+  /**
+   * <p>
+   * Executes the given operation for the given project and retries it if it fails.
+   * </p>
+   */
+  private void execute(String command, File destination, TeamProjectDescription description, VcsOperation operation) {
+
+    // a partially created project is removed before the command is retried
+    boolean existing = Utilities.hasChild(destination, description.getProjectName());
+    Semaphore connections = getConnections(description);
+
+    for (int attempt = 0;; attempt++) {
+      Ant4EclipseException failure = null;
+      long delay = 0;
+      if (connections != null) {
+        connections.acquireUninterruptibly();
+      }
+      try {
+        operation.execute(description, (attempt > 0) && !existing);
+        return;
+      } catch (Ant4EclipseException ex) {
+        if ((attempt >= this._retryCount) || !isRetryable(ex)) {
+          throw ex;
+        }
+        failure = ex;
+        delay = this._retryDelay << Math.min(attempt, 20);
+        A4ELogging.warn("Attempt %d of %d to %s project '%s' failed, retrying in %d ms: %s", Integer
+            .valueOf(attempt + 1), Integer.valueOf(this._retryCount + 1), command, description.getProjectName(), Long
+            .valueOf(delay), ex.getMessage());
+      } finally {
+        if (connections != null) {
+          connections.release();
+        }
+      }
+      try {
+        Thread.sleep(delay);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw failure;
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the semaphore that limits the connections to the repository of the given project.
+   * </p>
+   * 
+   * @return the semaphore or <code>null</code> if the number of connections is unlimited.
+   */
+  private Semaphore getConnections(TeamProjectDescription description) {
+    if (this._maxConnectionsPerHost == 0) {
+      return null;
+    }
+    String host = this._vcsAdapter.getRepositoryHost(description);
+    Semaphore result = this._connections.get(host);
+    if (result == null) {
+      Semaphore semaphore = new Semaphore(this._maxConnectionsPerHost, true);
+      result = this._connections.putIfAbsent(host, semaphore);
+      if (result == null) {
+        result = semaphore;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * <p>
+   * Returns <code>true</code> if the given failure occurred while executing a version control command (and not e.g.
+   * because of an invalid project description).
+   * </p>
+   */
+  private boolean isRetryable(Ant4EclipseException ex) {
+    return (ex.getExceptionCode() == PlatformExceptionCode.ERROR_WHILE_EXECUTING_CVS_COMMAND)
+        || (ex.getExceptionCode() == PlatformExceptionCode.ERROR_WHILE_EXECUTING_SVN_COMMAND);
+  }
+
+  /**
+   * <p>
+   * A version control command for a single project.
+   * </p>
+   */
+  private static interface VcsOperation {
+
+    /**
+     * <p>
+     * Executes the command for the given project.
+     * </p>
+     * 
+     * @param description
+     *          the description of the shared project
+     * @param cleanup
+     *          <code>true</code> if the project directory has been created by a failed attempt and has to be removed.
+     */
+    void execute(TeamProjectDescription description, boolean cleanup);
+  }
+}
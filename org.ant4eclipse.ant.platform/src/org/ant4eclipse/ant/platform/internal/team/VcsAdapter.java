@@ -125,6 +125,18 @@ public abstract class VcsAdapter {
   protected abstract void checkout(File destination, TeamProjectDescription projectDescription)
       throws Ant4EclipseException;
 
+  /**
+   * <p>
+   * Returns the host of the repository of the given project. It's used to limit the number of concurrent connections
+   * to a single host.
+   * </p>
+   * 
+   * @param projectDescription
+   *          the description of the shared project.
+   * @return the host of the repository (<code>localhost</code> for a local repository).
+   */
+  public abstract String getRepositoryHost(TeamProjectDescription projectDescription);
+
   protected Project getAntProject() {
     return this._antProject;
   }
@@ -12,6 +12,7 @@
 package org.ant4eclipse.ant.platform.team;
 
 import org.ant4eclipse.ant.platform.core.task.AbstractTeamProjectSetBasedTask;
+import org.ant4eclipse.ant.platform.internal.team.TeamProjectSetExecutor;
 import org.ant4eclipse.ant.platform.internal.team.VcsAdapter;
 import org.ant4eclipse.lib.core.Assure;
 import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
@@ -22,6 +23,9 @@ import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.types.EnumeratedAttribute;
 
 import java.io.File;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 
 public abstract class AbstractGetProjectSetTask extends AbstractTeamProjectSetBasedTask {
 
@@ -49,6 +53,18 @@ public abstract class AbstractGetProjectSetTask extends AbstractTeamProjectSetBa
 
   private boolean             _deleteExistingProjects = true;
 
+  /** the number of concurrent threads */
+  private int                 _threadCount            = 1;
+
+  /** the maximum number of concurrent connections per repository host (<code>0</code> means unlimited) */
+  private int                 _maxConnectionsPerHost  = 4;
+
+  /** the number of retries of a failed command */
+  private int                 _retryCount             = 0;
+
+  /** the delay before the first retry in milliseconds */
+  private long                _retryDelay             = 1000;
+
   public String getPassword() {
     return this._password;
   }
@@ -86,6 +102,101 @@ public abstract class AbstractGetProjectSetTask extends AbstractTeamProjectSetBa
     this._deleteExistingProjects = deleteExistingProjects;
   }
 
+  /**
+   * <p>
+   * Returns the number of concurrent threads.
+   * </p>
+   * 
+   * @return the number of concurrent threads.
+   */
+  public int getThreadCount() {
+    return this._threadCount;
+  }
+
+  /**
+   * <p>
+   * Sets the number of concurrent threads, i.e. the number of projects that are checked out, updated or exported at
+   * the same time. Defaults to <code>1</code>.
+   * </p>
+   * 
+   * @param threadCount
+   *          the number of concurrent threads
+   */
+  public void setThreadCount(int threadCount) {
+    this._threadCount = threadCount;
+  }
+
+  /**
+   * <p>
+   * Returns the maximum number of concurrent connections per repository host.
+   * </p>
+   * 
+   * @return the maximum number of concurrent connections per repository host.
+   */
+  public int getMaxConnectionsPerHost() {
+    return this._maxConnectionsPerHost;
+  }
+
+  /**
+   * <p>
+   * Sets the maximum number of concurrent connections per repository host. <code>0</code> means unlimited. Defaults to
+   * <code>4</code>.
+   * </p>
+   * 
+   * @param maxConnectionsPerHost
+   *          the maximum number of concurrent connections per repository host
+   */
+  public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+    this._maxConnectionsPerHost = maxConnectionsPerHost;
+  }
+
+  /**
+   * <p>
+   * Returns the number of retries of a failed command.
+   * </p>
+   * 
+   * @return the number of retries of a failed command.
+   */
+  public int getRetryCount() {
+    return this._retryCount;
+  }
+
+  /**
+   * <p>
+   * Sets the number of retries of a command that failed while talking to the repository. Defaults to <code>0</code>.
+   * </p>
+   * 
+   * @param retryCount
+   *          the number of retries of a failed command
+   */
+  public void setRetryCount(int retryCount) {
+    this._retryCount = retryCount;
+  }
+
+  /**
+   * <p>
+   * Returns the delay before the first retry in milliseconds.
+   * </p>
+   * 
+   * @return the delay before the first retry in milliseconds.
+   */
+  public long getRetryDelay() {
+    return this._retryDelay;
+  }
+
+  /**
+   * <p>
+   * Sets the delay before the first retry in milliseconds. The delay is doubled for each further retry. Defaults to
+   * <code>1000</code>.
+   * </p>
+   * 
+   * @param retryDelay
+   *          the delay before the first retry in milliseconds
+   */
+  public void setRetryDelay(long retryDelay) {
+    this._retryDelay = retryDelay;
+  }
+
   /**
    * @return Returns the command.
    */
@@ -117,6 +228,7 @@ public abstract class AbstractGetProjectSetTask extends AbstractTeamProjectSetBa
     requireDestinationSet();
     requireProjectSetSet();
     requireCommandSet();
+    requireConcurrencySettingsValid();
     checkPrereqs();
 
     this._vcsAdapter = createVcsAdapter();
@@ -146,6 +258,21 @@ public abstract class AbstractGetProjectSetTask extends AbstractTeamProjectSetBa
     }
   }
 
+  /**
+   * Ensures that the settings for the concurrent execution are valid
+   */
+  private void requireConcurrencySettingsValid() {
+    if (getThreadCount() < 1) {
+      throw new BuildException("ThreadCount must at least be 1");
+    }
+    if (getMaxConnectionsPerHost() < 0) {
+      throw new BuildException("MaxConnectionsPerHost must not be negative");
+    }
+    if ((getRetryCount() < 0) || (getRetryDelay() < 0)) {
+      throw new BuildException("RetryCount and retryDelay must not be negative");
+    }
+  }
+
   /**
    * 
    */
@@ -170,9 +297,7 @@ public abstract class AbstractGetProjectSetTask extends AbstractTeamProjectSetBa
 
     TeamProjectDescription[] _teamProjectDescription = projectSet.getTeamProjectDescriptions();
 
-    for (TeamProjectDescription teamProjectDescription : _teamProjectDescription) {
-      this._vcsAdapter.checkoutProject(destination, teamProjectDescription, deleteExisting);
-    }
+    checkFailures(createExecutor().checkoutProjects(destination, _teamProjectDescription, deleteExisting));
   }
 
   /**
@@ -187,9 +312,7 @@ public abstract class AbstractGetProjectSetTask extends AbstractTeamProjectSetBa
 
     TeamProjectDescription[] descriptions = projectSet.getTeamProjectDescriptions();
 
-    for (TeamProjectDescription description : descriptions) {
-      this._vcsAdapter.exportProject(destination, description, deleteExisting);
-    }
+    checkFailures(createExecutor().exportProjects(destination, descriptions, deleteExisting));
   }
 
   /**
@@ -200,9 +323,42 @@ public abstract class AbstractGetProjectSetTask extends AbstractTeamProjectSetBa
     Assure.isDirectory("destination", destination);
     Assure.notNull("projectSet", projectSet);
     TeamProjectDescription[] descriptions = projectSet.getTeamProjectDescriptions();
-    for (TeamProjectDescription description : descriptions) {
-      this._vcsAdapter.updateProject(destination, description);
+    checkFailures(createExecutor().updateProjects(destination, descriptions));
+  }
+
+  /**
+   * Creates the executor that runs the version control commands for the projects
+   */
+  private TeamProjectSetExecutor createExecutor() {
+    return new TeamProjectSetExecutor(this._vcsAdapter, getThreadCount(), getMaxConnectionsPerHost(), getRetryCount(),
+        getRetryDelay());
+  }
+
+  /**
+   * Throws an exception if the version control command failed for at least one project. A single failure is rethrown
+   * as is.
+   * 
+   * @param failures
+   *          the failed projects and their failures
+   */
+  private void checkFailures(Map<TeamProjectDescription, Throwable> failures) {
+    if (failures.isEmpty()) {
+      return;
+    }
+    List<String> projectNames = new LinkedList<String>();
+    for (Map.Entry<TeamProjectDescription, Throwable> failure : failures.entrySet()) {
+      A4ELogging.error("Processing of project '%s' failed: %s", failure.getKey().getProjectName(), failure.getValue());
+      projectNames.add(failure.getKey().getProjectName());
+    }
+    Throwable first = failures.values().iterator().next();
+    if (failures.size() == 1) {
+      if (first instanceof RuntimeException) {
+        throw (RuntimeException) first;
+      }
+      throw new BuildException(first);
     }
+    throw new BuildException(String.format("Processing failed for %d projects: %s", Integer.valueOf(failures.size()),
+        projectNames), first);
   }
 
   /**
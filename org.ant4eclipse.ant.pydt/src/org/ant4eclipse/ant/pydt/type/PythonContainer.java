@@ -31,6 +31,8 @@ public class PythonContainer extends AbstractAnt4EclipseDataType {
 
   private boolean _sitepackages;
 
+  private String  _probe;
+
   /**
    * Initialises this container using the supplied ant project.
    * 
@@ -41,6 +43,7 @@ public class PythonContainer extends AbstractAnt4EclipseDataType {
     super(project);
     this._defaultid = null;
     this._sitepackages = true;
+    this._probe = PythonRuntimeRegistry.PROBE_CACHED;
   }
 
   /**
@@ -63,6 +66,21 @@ public class PythonContainer extends AbstractAnt4EclipseDataType {
     this._sitepackages = enable;
   }
 
+  /**
+   * Changes the policy used to determine the description of the python runtimes. The interpreter of a runtime is only
+   * launched if the persistent cache doesn't contain an up-to-date description (<code>cached</code>). Stale
+   * descriptions can be used while the interpreter is launched in the background (<code>background</code>). The
+   * interpreter can be launched for each build (<code>always</code>) or the cached descriptions are used without
+   * launching the interpreter at all (<code>never</code>).
+   * 
+   * @param probe
+   *          The new probe policy. One of <code>cached</code>, <code>background</code>, <code>always</code> or
+   *          <code>never</code>.
+   */
+  public void setProbe(String probe) {
+    this._probe = probe;
+  }
+
   /**
    * Creates the entry for a python runtime environment.
    * 
@@ -88,9 +106,16 @@ public class PythonContainer extends AbstractAnt4EclipseDataType {
       throw new BuildException("Missing parameter 'id' on jre!");
     }
 
+    if (!PythonRuntimeRegistry.PROBE_CACHED.equals(this._probe)
+        && !PythonRuntimeRegistry.PROBE_BACKGROUND.equals(this._probe)
+        && !PythonRuntimeRegistry.PROBE_ALWAYS.equals(this._probe)
+        && !PythonRuntimeRegistry.PROBE_NEVER.equals(this._probe)) {
+      throw new BuildException(String.format("Invalid parameter 'probe' '%s' on pythonContainer!", this._probe));
+    }
+
     PythonRuntimeRegistry registry = ServiceRegistryAccess.instance().getService(PythonRuntimeRegistry.class);
 
-    registry.registerRuntime(runtime._id, runtime._location, this._sitepackages);
+    registry.registerRuntime(runtime._id, runtime._location, this._sitepackages, this._probe);
 
     if (runtime._id.equals(this._defaultid)) {
       registry.setDefaultRuntime(this._defaultid);
@@ -0,0 +1,147 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.benchmarks;
+
+import java.io.File;
+
+/**
+ * <p>
+ * Base class of all benchmarks. A benchmark is set up for a given size (f.e. the number of projects of a synthetic
+ * workspace) using a scratch directory. Afterwards the {@link BenchmarkRunner} invokes {@link #run()} repeatedly, so one
+ * call of {@link #run()} is one operation of the benchmark.
+ * </p>
+ * 
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public abstract class AbstractBenchmark {
+
+  /** the name of the benchmark */
+  private String _name;
+
+  /** the sizes that are used if no sizes are specified */
+  private int[]  _defaultSizes;
+
+  /** the size of the current setup */
+  private int    _size;
+
+  /** the scratch directory of the current setup */
+  private File   _directory;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link AbstractBenchmark}.
+   * </p>
+   * 
+   * @param name
+   *          the name of the benchmark
+   * @param defaultSizes
+   *          the sizes that are used if no sizes are specified
+   */
+  protected AbstractBenchmark(String name, int... defaultSizes) {
+    this._name = name;
+    this._defaultSizes = defaultSizes;
+  }
+
+  /**
+   * <p>
+   * Returns the name of the benchmark.
+   * </p>
+   * 
+   * @return the name of the benchmark.
+   */
+  public String getName() {
+    return this._name;
+  }
+
+  /**
+   * <p>
+   * Returns the sizes that are used if no sizes are specified.
+   * </p>
+   * 
+   * @return the default sizes.
+   */
+  public int[] getDefaultSizes() {
+    return this._defaultSizes;
+  }
+
+  /**
+   * <p>
+   * Returns the size of the current setup.
+   * </p>
+   * 
+   * @return the size of the current setup.
+   */
+  protected int getSize() {
+    return this._size;
+  }
+
+  /**
+   * <p>
+   * Returns the scratch directory of the current setup. The directory is deleted after the benchmark has been torn
+   * down.
+   * </p>
+   * 
+   * @return the scratch directory of the current setup.
+   */
+  protected File getDirectory() {
+    return this._directory;
+  }
+
+  /**
+   * <p>
+   * Sets up the benchmark for the given size.
+   * </p>
+   * 
+   * @param size
+   *          the size
+   * @param directory
+   *          an empty scratch directory
+   * @throws Exception
+   */
+  public final void setUp(int size, File directory) throws Exception {
+    this._size = size;
+    this._directory = directory;
+    setUp();
+  }
+
+  /**
+   * <p>
+   * Creates the data of the benchmark (which is not measured).
+   * </p>
+   * 
+   * @throws Exception
+   */
+  protected abstract void setUp() throws Exception;
+
+  /**
+   * <p>
+   * Executes one operation. The result is consumed by the {@link BenchmarkRunner}, so the operation can't be optimized
+   * away.
+   * </p>
+   * 
+   * @return the result of the operation.
+   * @throws Exception
+   */
+  public abstract Object run() throws Exception;
+
+  /**
+   * <p>
+   * Releases the resources of the current setup.
+   * </p>
+   * 
+   * @throws Exception
+   */
+  public void tearDown() throws Exception {
+    // nothing to do by default
+  }
+
+} /* ENDCLASS */
@@ -0,0 +1,179 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.benchmarks;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * <p>
+ * Stores benchmark results as a properties file and compares them with the results of a previous run (the baseline).
+ * For each result the properties <code>&lt;name&gt;.&lt;size&gt;.time</code> (nanoseconds per operation) and
+ * <code>&lt;name&gt;.&lt;size&gt;.allocation</code> (bytes per operation) are stored. A result is considered to be a
+ * regression if the time or the allocation exceeds the baseline by more than the threshold (differences of less than 64
+ * bytes per operation are ignored).
+ * </p>
+ * 
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class BenchmarkReport {
+
+  /** the suffix of the time properties */
+  private static final String SUFFIX_TIME       = ".time";
+
+  /** the suffix of the allocation properties */
+  private static final String SUFFIX_ALLOCATION = ".allocation";
+
+  /** allocation differences below this number of bytes per operation are considered to be noise */
+  private static final double MIN_ALLOCATION    = 64;
+
+  /** the results */
+  private List<BenchmarkResult> _results;
+
+  /** the baseline (may be empty) */
+  private Properties            _baseline;
+
+  /** the threshold in percent */
+  private double                _threshold;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link BenchmarkReport}.
+   * </p>
+   * 
+   * @param results
+   *          the results
+   * @param baseline
+   *          the baseline file (may be <code>null</code>)
+   * @param threshold
+   *          the threshold in percent
+   * @throws IOException
+   */
+  public BenchmarkReport(List<BenchmarkResult> results, File baseline, double threshold) throws IOException {
+    this._results = results;
+    this._baseline = new Properties();
+    this._threshold = threshold;
+    if (baseline != null) {
+      InputStream input = new FileInputStream(baseline);
+      try {
+        this._baseline.load(input);
+      } finally {
+        input.close();
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Stores the results, so they can be used as a baseline later.
+   * </p>
+   * 
+   * @param file
+   *          the destination file
+   * @throws IOException
+   */
+  public void store(File file) throws IOException {
+    Properties properties = new Properties();
+    for (BenchmarkResult result : this._results) {
+      properties.setProperty(result.getKey() + SUFFIX_TIME, String.valueOf(result.getTime()));
+      if (result.getAllocation() >= 0) {
+        properties.setProperty(result.getKey() + SUFFIX_ALLOCATION, String.valueOf(result.getAllocation()));
+      }
+    }
+    OutputStream output = new FileOutputStream(file);
+    try {
+      properties.store(output, "ant4eclipse benchmark results");
+    } finally {
+      output.close();
+    }
+  }
+
+  /**
+   * <p>
+   * Prints the results together with the differences to the baseline.
+   * </p>
+   * 
+   * @param printer
+   *          the destination
+   * @return the number of regressions.
+   */
+  public int print(PrintStream printer) {
+    int regressions = 0;
+    printer.println(String.format("%-32s %8s %16s %12s %16s %10s %10s", "Benchmark", "Size", "Time [ns/op]",
+        "Error [%]", "Alloc [B/op]", "Time [%]", "Alloc [%]"));
+    for (BenchmarkResult result : this._results) {
+      double time = getBaseline(result.getKey() + SUFFIX_TIME);
+      double allocation = getBaseline(result.getKey() + SUFFIX_ALLOCATION);
+      double timeDelta = getDelta(result.getTime(), time);
+      double allocationDelta = result.getAllocation() >= 0 ? getDelta(result.getAllocation(), allocation) : Double.NaN;
+      boolean regression = (timeDelta > this._threshold)
+          || ((allocationDelta > this._threshold) && (result.getAllocation() - allocation > MIN_ALLOCATION));
+      if (regression) {
+        regressions++;
+      }
+      double error = result.getTime() > 0 ? 100 * result.getDeviation() / result.getTime() : 0;
+      printer.println(String.format("%-32s %8d %16.1f %12.1f %16s %10s %10s%s", result.getName(), Integer
+          .valueOf(result.getSize()), Double.valueOf(result.getTime()), Double.valueOf(error), format(result
+          .getAllocation()), formatDelta(timeDelta), formatDelta(allocationDelta), regression ? "  REGRESSION" : ""));
+    }
+    if (!this._baseline.isEmpty()) {
+      printer.println(String.format("%d regressions (threshold: %.1f%%)", Integer.valueOf(regressions), Double
+          .valueOf(this._threshold)));
+    }
+    return regressions;
+  }
+
+  /**
+   * <p>
+   * Returns the baseline value of the given property or {@link Double#NaN}.
+   * </p>
+   */
+  private double getBaseline(String key) {
+    String value = this._baseline.getProperty(key);
+    if (value == null) {
+      return Double.NaN;
+    }
+    try {
+      return Double.parseDouble(value);
+    } catch (NumberFormatException ex) {
+      return Double.NaN;
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the difference between the value and the baseline in percent or {@link Double#NaN}.
+   * </p>
+   */
+  private double getDelta(double value, double baseline) {
+    if (Double.isNaN(baseline) || (baseline <= 0)) {
+      return Double.NaN;
+    }
+    return 100 * (value - baseline) / baseline;
+  }
+
+  private String format(double value) {
+    return value < 0 ? "-" : String.format("%.1f", Double.valueOf(value));
+  }
+
+  private String formatDelta(double delta) {
+    return Double.isNaN(delta) ? "-" : String.format("%+.1f", Double.valueOf(delta));
+  }
+
+} /* ENDCLASS */
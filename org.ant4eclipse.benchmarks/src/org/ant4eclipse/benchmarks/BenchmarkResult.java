@@ -0,0 +1,93 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.benchmarks;
+
+/**
+ * <p>
+ * The result of a benchmark for a specific size.
+ * </p>
+ * 
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class BenchmarkResult {
+
+  /** the name of the benchmark */
+  private String _name;
+
+  /** the size */
+  private int    _size;
+
+  /** the average time of an operation in nanoseconds */
+  private double _time;
+
+  /** the standard deviation of the time of an operation in nanoseconds */
+  private double _deviation;
+
+  /** the average number of bytes allocated by an operation or -1 if not supported by the vm */
+  private double _allocation;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link BenchmarkResult}.
+   * </p>
+   * 
+   * @param name
+   *          the name of the benchmark
+   * @param size
+   *          the size
+   * @param time
+   *          the average time of an operation in nanoseconds
+   * @param deviation
+   *          the standard deviation of the time of an operation in nanoseconds
+   * @param allocation
+   *          the average number of bytes allocated by an operation or -1 if not supported by the vm
+   */
+  public BenchmarkResult(String name, int size, double time, double deviation, double allocation) {
+    this._name = name;
+    this._size = size;
+    this._time = time;
+    this._deviation = deviation;
+    this._allocation = allocation;
+  }
+
+  public String getName() {
+    return this._name;
+  }
+
+  public int getSize() {
+    return this._size;
+  }
+
+  public double getTime() {
+    return this._time;
+  }
+
+  public double getDeviation() {
+    return this._deviation;
+  }
+
+  public double getAllocation() {
+    return this._allocation;
+  }
+
+  /**
+   * <p>
+   * Returns the key of this result which is used to compare it with a baseline.
+   * </p>
+   * 
+   * @return the key of this result.
+   */
+  public String getKey() {
+    return this._name + "." + this._size;
+  }
+
+} /* ENDCLASS */
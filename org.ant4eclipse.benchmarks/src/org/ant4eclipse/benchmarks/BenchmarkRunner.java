@@ -0,0 +1,315 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.benchmarks;
+
+import org.ant4eclipse.benchmarks.core.DependencyGraphBenchmark;
+import org.ant4eclipse.benchmarks.core.DisabledTraceBenchmark;
+import org.ant4eclipse.benchmarks.core.XQueryBenchmark;
+import org.ant4eclipse.benchmarks.ecj.ClasspathClassFileLoaderBenchmark;
+import org.ant4eclipse.benchmarks.ecj.CompoundClassFileLoaderBenchmark;
+import org.ant4eclipse.benchmarks.ecj.FilteringClassFileLoaderBenchmark;
+import org.ant4eclipse.benchmarks.ecj.NameEnvironmentBenchmark;
+import org.ant4eclipse.benchmarks.jdt.JdtResolverBenchmark;
+import org.ant4eclipse.benchmarks.pde.TargetPlatformBenchmark;
+import org.ant4eclipse.lib.core.configuration.Ant4EclipseConfigurationImpl;
+import org.ant4eclipse.lib.core.logging.DefaultAnt4EclipseLogger;
+import org.ant4eclipse.lib.core.service.DefaultServiceRegistryConfiguration;
+import org.ant4eclipse.lib.core.service.ServiceRegistryAccess;
+import org.ant4eclipse.lib.core.util.Utilities;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Executes the benchmarks of the hot paths of ant4eclipse. Each benchmark is set up for each of it's sizes, warmed up
+ * and measured in several iterations of a fixed duration. The average time and the average number of allocated bytes
+ * (if supported by the vm) per operation are reported. The results can be stored and compared with a baseline:
+ * </p>
+ * 
+ * <pre>
+ * java org.ant4eclipse.benchmarks.BenchmarkRunner [options] [benchmark...]
+ * 
+ *   -warmup &lt;count&gt;        number of warmup iterations (default: 3)
+ *   -iterations &lt;count&gt;    number of measured iterations (default: 5)
+ *   -time &lt;ms&gt;             duration of an iteration (default: 1000)
+ *   -sizes &lt;size,...&gt;      sizes that replace the default sizes of the benchmarks
+ *   -result &lt;file&gt;         stores the results in the given properties file
+ *   -baseline &lt;file&gt;       compares the results with the given properties file
+ *   -threshold &lt;percent&gt;   regression threshold (default: 10)
+ * </pre>
+ * <p>
+ * The benchmarks are selected by their names (all benchmarks are executed by default). The exit code is 2 if a
+ * regression has been detected. The persistent caches of ant4eclipse are disabled unless the system property
+ * <code>ant4eclipse.cache</code> is set, so the benchmarks measure the actual work.
+ * </p>
+ * 
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class BenchmarkRunner {
+
+  /** the number of warmup iterations */
+  private int    _warmup     = 3;
+
+  /** the number of measured iterations */
+  private int    _iterations = 5;
+
+  /** the duration of an iteration in milliseconds */
+  private long   _time       = 1000;
+
+  /** the sizes that replace the default sizes (may be <code>null</code>) */
+  private int[]  _sizes;
+
+  /** consumes the results of the operations */
+  private int    _sink;
+
+  /** the method to determine the allocated bytes of a thread (<code>null</code> if not supported) */
+  private Method _allocatedBytes;
+
+  /**
+   * <p>
+   * Returns all benchmarks.
+   * </p>
+   * 
+   * @return all benchmarks.
+   */
+  public static AbstractBenchmark[] getBenchmarks() {
+    return new AbstractBenchmark[] { new ClasspathClassFileLoaderBenchmark(), new CompoundClassFileLoaderBenchmark(),
+        new FilteringClassFileLoaderBenchmark(), new NameEnvironmentBenchmark(), new XQueryBenchmark(),
+        new JdtResolverBenchmark(false), new JdtResolverBenchmark(true), new TargetPlatformBenchmark(),
+        new DependencyGraphBenchmark(), new DisabledTraceBenchmark() };
+  }
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link BenchmarkRunner}.
+   * </p>
+   */
+  public BenchmarkRunner() {
+    ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    try {
+      // com.sun.management.ThreadMXBean is not available on all vms
+      Method method = threadBean.getClass().getMethod("getThreadAllocatedBytes", long.class);
+      method.setAccessible(true);
+      method.invoke(threadBean, Long.valueOf(Thread.currentThread().getId()));
+      this._allocatedBytes = method;
+    } catch (Exception ex) {
+      System.err.println("Allocation profiling is not supported by this vm.");
+    }
+  }
+
+  public void setWarmup(int warmup) {
+    this._warmup = warmup;
+  }
+
+  public void setIterations(int iterations) {
+    this._iterations = iterations;
+  }
+
+  public void setTime(long time) {
+    this._time = time;
+  }
+
+  public void setSizes(int[] sizes) {
+    this._sizes = sizes;
+  }
+
+  /**
+   * <p>
+   * Executes the given benchmark for all sizes.
+   * </p>
+   * 
+   * @param benchmark
+   *          the benchmark
+   * @return the results (one per size).
+   * @throws Exception
+   */
+  public List<BenchmarkResult> execute(AbstractBenchmark benchmark) throws Exception {
+    List<BenchmarkResult> results = new ArrayList<BenchmarkResult>();
+    int[] sizes = this._sizes != null ? this._sizes : benchmark.getDefaultSizes();
+    for (int size : sizes) {
+      File directory = Utilities.createTempDir();
+      try {
+        System.out.println(String.format("# %s (size %d)", benchmark.getName(), Integer.valueOf(size)));
+        benchmark.setUp(size, directory);
+        try {
+          results.add(measure(benchmark, size));
+        } finally {
+          benchmark.tearDown();
+        }
+      } finally {
+        Utilities.delete(directory);
+      }
+    }
+    return results;
+  }
+
+  /**
+   * <p>
+   * Warms up and measures the given benchmark which has been set up for the given size.
+   * </p>
+   */
+  private BenchmarkResult measure(AbstractBenchmark benchmark, int size) throws Exception {
+    for (int i = 0; i < this._warmup; i++) {
+      double[] iteration = iterate(benchmark);
+      System.out.println(String.format("  warmup %d: %.1f ns/op", Integer.valueOf(i + 1), Double.valueOf(iteration[0])));
+    }
+    double[] times = new double[this._iterations];
+    double allocation = 0;
+    for (int i = 0; i < this._iterations; i++) {
+      double[] iteration = iterate(benchmark);
+      times[i] = iteration[0];
+      allocation += iteration[1];
+      System.out.println(String.format("  iteration %d: %.1f ns/op", Integer.valueOf(i + 1), Double.valueOf(times[i])));
+    }
+    double mean = 0;
+    for (double time : times) {
+      mean += time;
+    }
+    mean /= times.length;
+    double variance = 0;
+    for (double time : times) {
+      variance += (time - mean) * (time - mean);
+    }
+    double deviation = times.length > 1 ? Math.sqrt(variance / (times.length - 1)) : 0;
+    return new BenchmarkResult(benchmark.getName(), size, mean, deviation, this._allocatedBytes != null ? allocation
+        / times.length : -1);
+  }
+
+  /**
+   * <p>
+   * Executes the operation of the benchmark until the duration of an iteration has been exceeded.
+   * </p>
+   * 
+   * @return the time and the allocated bytes per operation.
+   */
+  private double[] iterate(AbstractBenchmark benchmark) throws Exception {
+    System.gc();
+    long operations = 0;
+    long allocated = getAllocatedBytes();
+    long start = System.nanoTime();
+    long end = start + (this._time * 1000000L);
+    long now = start;
+    do {
+      Object result = benchmark.run();
+      this._sink += System.identityHashCode(result);
+      operations++;
+      now = System.nanoTime();
+    } while (now < end);
+    allocated = getAllocatedBytes() - allocated;
+    return new double[] { (double) (now - start) / operations, (double) allocated / operations };
+  }
+
+  /**
+   * <p>
+   * Returns the number of bytes allocated by the current thread or 0 if not supported.
+   * </p>
+   */
+  private long getAllocatedBytes() {
+    if (this._allocatedBytes == null) {
+      return 0;
+    }
+    try {
+      return ((Long) this._allocatedBytes.invoke(ManagementFactory.getThreadMXBean(), Long.valueOf(Thread
+          .currentThread().getId()))).longValue();
+    } catch (Exception ex) {
+      return 0;
+    }
+  }
+
+  /**
+   * <p>
+   * Returns a value which depends on all results, so the operations can't be optimized away.
+   * </p>
+   * 
+   * @return a value which depends on all results.
+   */
+  public int getSink() {
+    return this._sink;
+  }
+
+  /**
+   * <p>
+   * Executes the benchmarks.
+   * </p>
+   * 
+   * @param args
+   *          the command line arguments
+   * @throws Exception
+   */
+  public static void main(String[] args) throws Exception {
+
+    if (System.getProperty(Utilities.PROP_A4ECACHEDIR) == null) {
+      System.setProperty(Utilities.PROP_A4ECACHEDIR, Utilities.CACHEDIR_NONE);
+    }
+
+    BenchmarkRunner runner = new BenchmarkRunner();
+    File result = null;
+    File baseline = null;
+    double threshold = 10;
+    List<String> names = new ArrayList<String>();
+    for (int i = 0; i < args.length; i++) {
+      if ("-warmup".equals(args[i])) {
+        runner.setWarmup(Integer.parseInt(args[++i]));
+      } else if ("-iterations".equals(args[i])) {
+        runner.setIterations(Integer.parseInt(args[++i]));
+      } else if ("-time".equals(args[i])) {
+        runner.setTime(Long.parseLong(args[++i]));
+      } else if ("-sizes".equals(args[i])) {
+        String[] values = args[++i].split(",");
+        int[] sizes = new int[values.length];
+        for (int j = 0; j < values.length; j++) {
+          sizes[j] = Integer.parseInt(values[j].trim());
+        }
+        runner.setSizes(sizes);
+      } else if ("-result".equals(args[i])) {
+        result = new File(args[++i]);
+      } else if ("-baseline".equals(args[i])) {
+        baseline = new File(args[++i]);
+      } else if ("-threshold".equals(args[i])) {
+        threshold = Double.parseDouble(args[++i]);
+      } else {
+        names.add(args[i]);
+      }
+    }
+
+    // the benchmarks must not be slowed down by logging
+    DefaultAnt4EclipseLogger logger = new DefaultAnt4EclipseLogger();
+    logger.setLogLevel(DefaultAnt4EclipseLogger.Priority.warn);
+    ServiceRegistryAccess.configure(new DefaultServiceRegistryConfiguration(logger,
+        new Ant4EclipseConfigurationImpl()));
+
+    List<BenchmarkResult> results = new ArrayList<BenchmarkResult>();
+    try {
+      for (AbstractBenchmark benchmark : getBenchmarks()) {
+        if (names.isEmpty() || names.contains(benchmark.getName())) {
+          results.addAll(runner.execute(benchmark));
+        }
+      }
+    } finally {
+      ServiceRegistryAccess.reset();
+    }
+
+    BenchmarkReport report = new BenchmarkReport(results, baseline, threshold);
+    System.out.println();
+    int regressions = report.print(System.out);
+    if (result != null) {
+      report.store(result);
+    }
+    System.exit(regressions > 0 ? 2 : 0);
+  }
+
+} /* ENDCLASS */
@@ -0,0 +1,65 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.benchmarks.core;
+
+import org.ant4eclipse.benchmarks.AbstractBenchmark;
+import org.ant4eclipse.benchmarks.generator.SyntheticWorkspace;
+import org.ant4eclipse.lib.core.dependencygraph.DependencyGraph;
+
+/**
+ * <p>
+ * Measures {@link DependencyGraph#calculateOrder()} for a graph with the given number of vertices. The edges are the
+ * project dependencies of the synthetic workspace (see {@link SyntheticWorkspace#getDependencies(int)}).
+ * </p>
+ * 
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class DependencyGraphBenchmark extends AbstractBenchmark {
+
+  /** the dependency graph */
+  private DependencyGraph<String> _graph;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link DependencyGraphBenchmark}.
+   * </p>
+   */
+  public DependencyGraphBenchmark() {
+    super("DependencyGraph", 100, 1000, 10000);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void setUp() throws Exception {
+    this._graph = new DependencyGraph<String>();
+    for (int i = 0; i < getSize(); i++) {
+      this._graph.addVertex(SyntheticWorkspace.getProjectName(i));
+    }
+    for (int i = 0; i < getSize(); i++) {
+      for (Integer dependency : SyntheticWorkspace.getDependencies(i)) {
+        this._graph.addEdge(SyntheticWorkspace.getProjectName(i), SyntheticWorkspace.getProjectName(dependency
+            .intValue()));
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Object run() throws Exception {
+    return this._graph.calculateOrder();
+  }
+
+} /* ENDCLASS */
@@ -0,0 +1,77 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.benchmarks.core;
+
+import org.ant4eclipse.benchmarks.AbstractBenchmark;
+import org.ant4eclipse.lib.core.logging.A4ELogging;
+
+/**
+ * <p>
+ * Measures the cost of disabled trace messages (the benchmarks are executed with log level <code>warn</code>). One
+ * operation issues 100 trace messages with the given number of arguments: one or two arguments use the
+ * non-varargs overloads of {@link A4ELogging#trace(String, Object)}, more arguments use
+ * {@link A4ELogging#trace(String, Object...)}.
+ * </p>
+ * 
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class DisabledTraceBenchmark extends AbstractBenchmark {
+
+  /** the arguments of the messages */
+  private Object[] _arguments;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link DisabledTraceBenchmark}.
+   * </p>
+   */
+  public DisabledTraceBenchmark() {
+    super("DisabledTrace", 1, 2, 3);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void setUp() throws Exception {
+    this._arguments = new Object[100];
+    for (int i = 0; i < this._arguments.length; i++) {
+      this._arguments[i] = "argument" + i;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Object run() throws Exception {
+    Object[] arguments = this._arguments;
+    switch (getSize()) {
+    case 1:
+      for (int i = 0; i < arguments.length; i++) {
+        A4ELogging.trace("Resolving '%s'.", arguments[i]);
+      }
+      break;
+    case 2:
+      for (int i = 0; i < arguments.length; i++) {
+        A4ELogging.trace("Resolving '%s' in '%s'.", arguments[i], arguments[0]);
+      }
+      break;
+    default:
+      for (int i = 0; i < arguments.length; i++) {
+        A4ELogging.trace("Resolving '%s' in '%s' (%s).", arguments[i], arguments[0], arguments[1]);
+      }
+    }
+    return arguments;
+  }
+
+} /* ENDCLASS */
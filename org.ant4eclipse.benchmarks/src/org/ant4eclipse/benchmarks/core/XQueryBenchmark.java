@@ -0,0 +1,95 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.benchmarks.core;
+
+import org.ant4eclipse.benchmarks.AbstractBenchmark;
+import org.ant4eclipse.lib.core.xquery.XQuery;
+import org.ant4eclipse.lib.core.xquery.XQueryHandler;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * <p>
+ * Measures {@link XQueryHandler#queryFile(File, XQueryHandler)} with the queries of the <code>.classpath</code> parser
+ * for a <code>.classpath</code> file with the given number of entries.
+ * </p>
+ * 
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class XQueryBenchmark extends AbstractBenchmark {
+
+  /** the queried attributes of the class path entries */
+  private static final String[] ATTRIBUTES = new String[] { "kind", "path", "output", "exported", "including",
+      "excluding"                         };
+
+  /** the <code>.classpath</code> file */
+  private File                  _classpathFile;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link XQueryBenchmark}.
+   * </p>
+   */
+  public XQueryBenchmark() {
+    super("XQuery", 10, 100, 1000);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void setUp() throws Exception {
+    this._classpathFile = new File(getDirectory(), ".classpath");
+    Writer writer = new OutputStreamWriter(new FileOutputStream(this._classpathFile), "UTF-8");
+    try {
+      writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<classpath>\n");
+      writer.write("\t<classpathentry kind=\"src\" path=\"src\" excluding=\"**/internal/\"/>\n");
+      for (int i = 0; i < getSize(); i++) {
+        switch (i % 3) {
+        case 0:
+          writer.write(String.format("\t<classpathentry exported=\"true\" kind=\"lib\" path=\"lib/library%d.jar\"/>\n",
+              Integer.valueOf(i)));
+          break;
+        case 1:
+          writer.write(String.format("\t<classpathentry combineaccessrules=\"false\" kind=\"src\" "
+              + "path=\"/project%d\">\n\t\t<accessrules>\n\t\t\t<accessrule kind=\"accessible\" "
+              + "pattern=\"org/example/**\"/>\n\t\t</accessrules>\n\t</classpathentry>\n", Integer.valueOf(i)));
+          break;
+        default:
+          writer.write(String.format("\t<classpathentry kind=\"src\" output=\"bin%d\" path=\"src%d\"/>\n", Integer
+              .valueOf(i), Integer.valueOf(i)));
+        }
+      }
+      writer.write("\t<classpathentry kind=\"output\" path=\"bin\"/>\n</classpath>\n");
+    } finally {
+      writer.close();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Object run() throws Exception {
+    XQueryHandler queryhandler = new XQueryHandler();
+    XQuery[] queries = new XQuery[ATTRIBUTES.length];
+    for (int i = 0; i < ATTRIBUTES.length; i++) {
+      queries[i] = queryhandler.createQuery("/classpath/classpathentry/@" + ATTRIBUTES[i]);
+    }
+    XQueryHandler.queryFile(this._classpathFile, queryhandler);
+    return queries[0].getResult();
+  }
+
+} /* ENDCLASS */
@@ -0,0 +1,94 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.benchmarks.ecj;
+
+import org.ant4eclipse.benchmarks.AbstractBenchmark;
+import org.ant4eclipse.benchmarks.generator.SyntheticClassFiles;
+import org.ant4eclipse.lib.core.ClassName;
+import org.ant4eclipse.lib.jdt.ecj.ClassFile;
+import org.ant4eclipse.lib.jdt.ecj.EcjAdapter;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.loader.ClasspathClassFileLoaderImpl;
+
+import java.io.File;
+
+/**
+ * <p>
+ * Measures {@link ClasspathClassFileLoaderImpl#loadClass(ClassName)} for a jar file with the given number of classes.
+ * One operation looks up 100 classes: 50 existing classes, 25 missing classes in existing packages and 25 classes in
+ * missing packages.
+ * </p>
+ * 
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class ClasspathClassFileLoaderBenchmark extends AbstractBenchmark {
+
+  /** the class file loader */
+  private ClasspathClassFileLoaderImpl _classFileLoader;
+
+  /** the classes that are looked up by an operation */
+  private ClassName[]                  _classNames;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link ClasspathClassFileLoaderBenchmark}.
+   * </p>
+   */
+  public ClasspathClassFileLoaderBenchmark() {
+    super("ClasspathClassFileLoader", 100, 1000, 10000);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void setUp() throws Exception {
+    int packages = Math.max(1, getSize() / 50);
+    String[] classNames = SyntheticClassFiles.getClassNames("org.example", packages, getSize() / packages);
+    File jarFile = new File(getDirectory(), "classes.jar");
+    SyntheticClassFiles.createJarFile(jarFile, classNames);
+    this._classFileLoader = new ClasspathClassFileLoaderImpl(jarFile, EcjAdapter.LIBRARY);
+    this._classNames = new ClassName[100];
+    for (int i = 0; i < 50; i++) {
+      this._classNames[i] = ClassName.fromQualifiedClassName(classNames[(i * 7919) % classNames.length]);
+    }
+    for (int i = 50; i < 75; i++) {
+      this._classNames[i] = ClassName.fromQualifiedClassName("org.example.p" + (i % packages) + ".Missing" + i);
+    }
+    for (int i = 75; i < 100; i++) {
+      this._classNames[i] = ClassName.fromQualifiedClassName("org.missing.p" + i + ".Type" + i);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Object run() throws Exception {
+    ClassFile result = null;
+    for (ClassName className : this._classNames) {
+      ClassFile classFile = this._classFileLoader.loadClass(className);
+      if (classFile != null) {
+        result = classFile;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void tearDown() throws Exception {
+    this._classFileLoader.dispose();
+  }
+
+} /* ENDCLASS */
@@ -0,0 +1,127 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.benchmarks.ecj;
+
+import org.ant4eclipse.benchmarks.AbstractBenchmark;
+import org.ant4eclipse.benchmarks.generator.SyntheticClassFiles;
+import org.ant4eclipse.lib.core.ClassName;
+import org.ant4eclipse.lib.jdt.ecj.ClassFile;
+import org.ant4eclipse.lib.jdt.ecj.ClassFileLoader;
+import org.ant4eclipse.lib.jdt.ecj.EcjAdapter;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.loader.ClasspathClassFileLoaderImpl;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.loader.CompoundClassFileLoaderImpl;
+
+import java.io.File;
+
+/**
+ * <p>
+ * Measures {@link CompoundClassFileLoaderImpl#loadClass(ClassName)} for the given number of jar files (with 20
+ * classes each). One operation looks up 100 classes: 75 existing classes (spread over all jar files) and 25 missing
+ * classes.
+ * </p>
+ * 
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class CompoundClassFileLoaderBenchmark extends AbstractBenchmark {
+
+  /** the class file loaders of the jar files */
+  private ClasspathClassFileLoaderImpl[] _classFileLoaders;
+
+  /** the compound class file loader */
+  private ClassFileLoader                _classFileLoader;
+
+  /** the classes that are looked up by an operation */
+  private ClassName[]                    _classNames;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link CompoundClassFileLoaderBenchmark}.
+   * </p>
+   */
+  public CompoundClassFileLoaderBenchmark() {
+    super("CompoundClassFileLoader", 10, 100, 1000);
+  }
+
+  /**
+   * <p>
+   * Creates the given number of jar files and returns their class file loaders.
+   * </p>
+   * 
+   * @param directory
+   *          the directory of the jar files
+   * @param jarFiles
+   *          the number of jar files
+   * @param classNames
+   *          receives 75 existing and 25 missing class names
+   * @return the class file loaders of the jar files.
+   * @throws Exception
+   */
+  static ClasspathClassFileLoaderImpl[] createClassFileLoaders(File directory, int jarFiles, String[] classNames)
+      throws Exception {
+    ClasspathClassFileLoaderImpl[] result = new ClasspathClassFileLoaderImpl[jarFiles];
+    for (int i = 0; i < jarFiles; i++) {
+      String[] names = SyntheticClassFiles.getClassNames("org.example.jar" + i, 2, 10);
+      File jarFile = new File(directory, "jar" + i + ".jar");
+      SyntheticClassFiles.createJarFile(jarFile, names);
+      result[i] = new ClasspathClassFileLoaderImpl(jarFile, EcjAdapter.LIBRARY);
+    }
+    for (int i = 0; i < 75; i++) {
+      classNames[i] = String.format("org.example.jar%d.p%d.Type%d", Integer.valueOf((i * 7919) % jarFiles), Integer
+          .valueOf(i % 2), Integer.valueOf(i % 10));
+    }
+    for (int i = 75; i < 100; i++) {
+      classNames[i] = String.format("org.example.jar%d.p0.Missing%d", Integer.valueOf(i % jarFiles), Integer
+          .valueOf(i));
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void setUp() throws Exception {
+    String[] classNames = new String[100];
+    this._classFileLoaders = createClassFileLoaders(getDirectory(), getSize(), classNames);
+    this._classFileLoader = new CompoundClassFileLoaderImpl(this._classFileLoaders);
+    this._classNames = new ClassName[classNames.length];
+    for (int i = 0; i < classNames.length; i++) {
+      this._classNames[i] = ClassName.fromQualifiedClassName(classNames[i]);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Object run() throws Exception {
+    ClassFile result = null;
+    for (ClassName className : this._classNames) {
+      ClassFile classFile = this._classFileLoader.loadClass(className);
+      if (classFile != null) {
+        result = classFile;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void tearDown() throws Exception {
+    for (ClasspathClassFileLoaderImpl classFileLoader : this._classFileLoaders) {
+      classFileLoader.dispose();
+    }
+  }
+
+} /* ENDCLASS */
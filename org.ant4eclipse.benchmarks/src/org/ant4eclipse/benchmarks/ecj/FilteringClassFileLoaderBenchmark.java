@@ -0,0 +1,103 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.benchmarks.ecj;
+
+import org.ant4eclipse.benchmarks.AbstractBenchmark;
+import org.ant4eclipse.benchmarks.generator.SyntheticClassFiles;
+import org.ant4eclipse.lib.core.ClassName;
+import org.ant4eclipse.lib.jdt.ecj.ClassFile;
+import org.ant4eclipse.lib.jdt.ecj.ClassFileLoader;
+import org.ant4eclipse.lib.jdt.ecj.EcjAdapter;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.loader.ClasspathClassFileLoaderImpl;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.loader.FilteringClassFileLoader;
+
+import java.io.File;
+
+/**
+ * <p>
+ * Measures {@link FilteringClassFileLoader#loadClass(ClassName)} for a jar file with the given number of packages
+ * (10 classes each). The filter exports half of the packages, hides a quarter of them explicitly and excludes all other
+ * packages (as the access rules of a bundle do). One operation looks up 100 existing classes.
+ * </p>
+ * 
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class FilteringClassFileLoaderBenchmark extends AbstractBenchmark {
+
+  /** the underlying class file loader */
+  private ClasspathClassFileLoaderImpl _classFileLoader;
+
+  /** the filtering class file loader */
+  private ClassFileLoader              _filteringClassFileLoader;
+
+  /** the classes that are looked up by an operation */
+  private ClassName[]                  _classNames;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link FilteringClassFileLoaderBenchmark}.
+   * </p>
+   */
+  public FilteringClassFileLoaderBenchmark() {
+    super("FilteringClassFileLoader", 10, 100, 1000);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void setUp() throws Exception {
+    String[] classNames = SyntheticClassFiles.getClassNames("org.example", getSize(), 10);
+    File jarFile = new File(getDirectory(), "classes.jar");
+    SyntheticClassFiles.createJarFile(jarFile, classNames);
+    this._classFileLoader = new ClasspathClassFileLoaderImpl(jarFile, EcjAdapter.LIBRARY);
+
+    StringBuilder filter = new StringBuilder();
+    for (int i = 0; i < getSize() / 2; i++) {
+      filter.append("+org/example/p").append(i).append("/*;");
+    }
+    for (int i = getSize() / 2; i < (getSize() * 3) / 4; i++) {
+      filter.append("-org/example/p").append(i).append("/*;");
+    }
+    filter.append("-**/*");
+    this._filteringClassFileLoader = new FilteringClassFileLoader(this._classFileLoader, filter.toString());
+
+    this._classNames = new ClassName[100];
+    for (int i = 0; i < this._classNames.length; i++) {
+      this._classNames[i] = ClassName.fromQualifiedClassName(classNames[(i * 7919) % classNames.length]);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Object run() throws Exception {
+    ClassFile result = null;
+    for (ClassName className : this._classNames) {
+      ClassFile classFile = this._filteringClassFileLoader.loadClass(className);
+      if (classFile != null) {
+        result = classFile;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void tearDown() throws Exception {
+    this._classFileLoader.dispose();
+  }
+
+} /* ENDCLASS */
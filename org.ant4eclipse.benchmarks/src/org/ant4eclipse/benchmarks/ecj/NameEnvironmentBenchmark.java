@@ -0,0 +1,95 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.benchmarks.ecj;
+
+import org.ant4eclipse.benchmarks.AbstractBenchmark;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.NameEnvironmentImpl;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.loader.ClasspathClassFileLoaderImpl;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.loader.CompoundClassFileLoaderImpl;
+import org.eclipse.jdt.core.compiler.CharOperation;
+import org.eclipse.jdt.internal.compiler.env.NameEnvironmentAnswer;
+
+/**
+ * <p>
+ * Measures {@link NameEnvironmentImpl#findType(char[][])} and {@link NameEnvironmentImpl#isPackage(char[][], char[])}
+ * the way the compiler invokes them, for the given number of jar files (with 20 classes each). One operation looks up
+ * 100 types (75 existing and 25 missing ones) and 100 packages.
+ * </p>
+ * 
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class NameEnvironmentBenchmark extends AbstractBenchmark {
+
+  /** the class file loaders of the jar files */
+  private ClasspathClassFileLoaderImpl[] _classFileLoaders;
+
+  /** the name environment */
+  private NameEnvironmentImpl            _nameEnvironment;
+
+  /** the types that are looked up by an operation */
+  private char[][][]                     _typeNames;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link NameEnvironmentBenchmark}.
+   * </p>
+   */
+  public NameEnvironmentBenchmark() {
+    super("NameEnvironment", 10, 100, 1000);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void setUp() throws Exception {
+    String[] classNames = new String[100];
+    this._classFileLoaders = CompoundClassFileLoaderBenchmark.createClassFileLoaders(getDirectory(), getSize(),
+        classNames);
+    this._nameEnvironment = new NameEnvironmentImpl(new CompoundClassFileLoaderImpl(this._classFileLoaders));
+    this._typeNames = new char[classNames.length][][];
+    for (int i = 0; i < classNames.length; i++) {
+      this._typeNames[i] = CharOperation.splitOn('.', classNames[i].toCharArray());
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Object run() throws Exception {
+    NameEnvironmentAnswer result = null;
+    for (char[][] typeName : this._typeNames) {
+      NameEnvironmentAnswer answer = this._nameEnvironment.findType(typeName);
+      if (answer != null) {
+        result = answer;
+      }
+      char[][] packageName = CharOperation.subarray(typeName, 0, typeName.length - 2);
+      if (!this._nameEnvironment.isPackage(packageName, typeName[typeName.length - 2])) {
+        result = null;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void tearDown() throws Exception {
+    this._nameEnvironment.cleanup();
+    for (ClasspathClassFileLoaderImpl classFileLoader : this._classFileLoaders) {
+      classFileLoader.dispose();
+    }
+  }
+
+} /* ENDCLASS */
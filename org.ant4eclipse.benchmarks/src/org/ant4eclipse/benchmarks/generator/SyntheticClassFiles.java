@@ -0,0 +1,144 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.benchmarks.generator;
+
+import org.ant4eclipse.lib.core.util.Utilities;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+/**
+ * <p>
+ * Creates minimal class files (an empty public class extending <code>java.lang.Object</code>) in directories or jar
+ * files.
+ * </p>
+ * 
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class SyntheticClassFiles {
+
+  /**
+   * <p>
+   * Returns the qualified names of the given number of classes in the given number of packages.
+   * </p>
+   * 
+   * @param prefix
+   *          the prefix of the package names (f.e. <code>org.example</code>)
+   * @param packages
+   *          the number of packages
+   * @param classesPerPackage
+   *          the number of classes per package
+   * @return the qualified class names.
+   */
+  public static String[] getClassNames(String prefix, int packages, int classesPerPackage) {
+    String[] result = new String[packages * classesPerPackage];
+    for (int i = 0; i < packages; i++) {
+      for (int j = 0; j < classesPerPackage; j++) {
+        result[i * classesPerPackage + j] = String.format("%s.p%d.Type%d", prefix, Integer.valueOf(i), Integer
+            .valueOf(j));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * <p>
+   * Creates the class file of an empty class with the given name.
+   * </p>
+   * 
+   * @param qualifiedName
+   *          the qualified name of the class
+   * @return the content of the class file.
+   */
+  public static byte[] createClassFile(String qualifiedName) {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream output = new DataOutputStream(bytes);
+      output.writeInt(0xCAFEBABE);
+      // java 5
+      output.writeShort(0);
+      output.writeShort(49);
+      // constant pool: #1 name, #2 this class, #3 super class name, #4 super class
+      output.writeShort(5);
+      output.writeByte(1);
+      output.writeUTF(qualifiedName.replace('.', '/'));
+      output.writeByte(7);
+      output.writeShort(1);
+      output.writeByte(1);
+      output.writeUTF("java/lang/Object");
+      output.writeByte(7);
+      output.writeShort(3);
+      // ACC_PUBLIC | ACC_SUPER
+      output.writeShort(0x21);
+      output.writeShort(2);
+      output.writeShort(4);
+      // no interfaces, fields, methods and attributes
+      output.writeShort(0);
+      output.writeShort(0);
+      output.writeShort(0);
+      output.writeShort(0);
+      output.close();
+      return bytes.toByteArray();
+    } catch (IOException ex) {
+      throw new RuntimeException(ex.getMessage(), ex);
+    }
+  }
+
+  /**
+   * <p>
+   * Creates the class files of the given classes in the given directory.
+   * </p>
+   * 
+   * @param directory
+   *          the root directory
+   * @param classNames
+   *          the qualified class names
+   */
+  public static void createClassDirectory(File directory, String[] classNames) {
+    for (String className : classNames) {
+      File classFile = new File(directory, className.replace('.', '/') + ".class");
+      Utilities.mkdirs(classFile.getParentFile());
+      Utilities.writeFile(classFile, createClassFile(className));
+    }
+  }
+
+  /**
+   * <p>
+   * Creates a jar file that contains the class files of the given classes.
+   * </p>
+   * 
+   * @param jarFile
+   *          the jar file
+   * @param classNames
+   *          the qualified class names
+   * @throws IOException
+   */
+  public static void createJarFile(File jarFile, String[] classNames) throws IOException {
+    Utilities.mkdirs(jarFile.getParentFile());
+    JarOutputStream output = new JarOutputStream(new FileOutputStream(jarFile));
+    try {
+      for (String className : classNames) {
+        output.putNextEntry(new ZipEntry(className.replace('.', '/') + ".class"));
+        output.write(createClassFile(className));
+        output.closeEntry();
+      }
+    } finally {
+      output.close();
+    }
+  }
+
+} /* ENDCLASS */
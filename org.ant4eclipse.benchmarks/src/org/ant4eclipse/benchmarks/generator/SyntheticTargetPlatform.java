@@ -0,0 +1,102 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.benchmarks.generator;
+
+import org.ant4eclipse.lib.core.util.Utilities;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+
+/**
+ * <p>
+ * Creates a target platform with binary bundles (jar files in the <code>plugins</code> directory). The bundle
+ * <code>n</code> requires the bundles <code>n-1</code>, <code>n/2</code> and <code>n/3</code> (if they exist) and
+ * imports the package of the bundle <code>n/5</code>.
+ * </p>
+ * 
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class SyntheticTargetPlatform {
+
+  /** the number of classes of each bundle */
+  public static final int CLASSES_PER_BUNDLE = 10;
+
+  /**
+   * <p>
+   * Returns the symbolic name of the bundle with the given index.
+   * </p>
+   * 
+   * @param index
+   *          the index of the bundle
+   * @return the symbolic name of the bundle.
+   */
+  public static String getSymbolicName(int index) {
+    return String.format("org.example.bundle%05d", Integer.valueOf(index));
+  }
+
+  /**
+   * <p>
+   * Creates the given number of bundles in the <code>plugins</code> directory of the given directory.
+   * </p>
+   * 
+   * @param directory
+   *          the target platform directory
+   * @param bundles
+   *          the number of bundles
+   * @throws IOException
+   */
+  public static void create(File directory, int bundles) throws IOException {
+    File plugins = new File(directory, "plugins");
+    Utilities.mkdirs(plugins);
+    for (int i = 0; i < bundles; i++) {
+      String symbolicName = getSymbolicName(i);
+      Manifest manifest = new Manifest();
+      Attributes attributes = manifest.getMainAttributes();
+      attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+      attributes.putValue("Bundle-ManifestVersion", "2");
+      attributes.putValue("Bundle-SymbolicName", symbolicName);
+      attributes.putValue("Bundle-Version", "1.0.0");
+      attributes.putValue("Export-Package", symbolicName + ";version=\"1.0.0\"");
+      StringBuffer requireBundle = new StringBuffer();
+      for (Integer dependency : SyntheticWorkspace.getDependencies(i)) {
+        if (requireBundle.length() > 0) {
+          requireBundle.append(",");
+        }
+        requireBundle.append(getSymbolicName(dependency.intValue())).append(";bundle-version=\"[1.0.0,2.0.0)\"");
+      }
+      if (requireBundle.length() > 0) {
+        attributes.putValue("Require-Bundle", requireBundle.toString());
+      }
+      if (i > 0) {
+        attributes.putValue("Import-Package", getSymbolicName(i / 5) + ";version=\"[1.0.0,2.0.0)\"");
+      }
+      JarOutputStream output = new JarOutputStream(new FileOutputStream(new File(plugins, symbolicName
+          + "_1.0.0.jar")), manifest);
+      try {
+        for (int j = 0; j < CLASSES_PER_BUNDLE; j++) {
+          String className = symbolicName + ".Type" + j;
+          output.putNextEntry(new ZipEntry(className.replace('.', '/') + ".class"));
+          output.write(SyntheticClassFiles.createClassFile(className));
+          output.closeEntry();
+        }
+      } finally {
+        output.close();
+      }
+    }
+  }
+
+} /* ENDCLASS */
@@ -0,0 +1,129 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.benchmarks.generator;
+
+import org.ant4eclipse.lib.core.util.Utilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Creates a workspace with java projects. Each project has a source folder, an output folder containing class files and
+ * a library. The project <code>n</code> depends on the projects <code>n-1</code>, <code>n/2</code> and
+ * <code>n/3</code> (if they exist), so the last project references all other projects (directly or indirectly).
+ * </p>
+ * 
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class SyntheticWorkspace {
+
+  /** the number of classes in the output folder and the library of each project */
+  public static final int CLASSES_PER_PROJECT = 20;
+
+  /**
+   * <p>
+   * Returns the name of the project with the given index.
+   * </p>
+   * 
+   * @param index
+   *          the index of the project
+   * @return the name of the project.
+   */
+  public static String getProjectName(int index) {
+    return String.format("project%05d", Integer.valueOf(index));
+  }
+
+  /**
+   * <p>
+   * Returns the indices of the projects the project with the given index depends on.
+   * </p>
+   * 
+   * @param index
+   *          the index of the project
+   * @return the indices of the required projects.
+   */
+  public static List<Integer> getDependencies(int index) {
+    List<Integer> result = new ArrayList<Integer>();
+    for (int dependency : new int[] { index - 1, index / 2, index / 3 }) {
+      if ((dependency >= 0) && (dependency < index) && !result.contains(Integer.valueOf(dependency))) {
+        result.add(Integer.valueOf(dependency));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * <p>
+   * Creates the given number of projects in the given directory.
+   * </p>
+   * 
+   * @param directory
+   *          the workspace directory
+   * @param projects
+   *          the number of projects
+   * @throws IOException
+   */
+  public static void create(File directory, int projects) throws IOException {
+    for (int i = 0; i < projects; i++) {
+      String name = getProjectName(i);
+      File projectDir = new File(directory, name);
+      Utilities.mkdirs(new File(projectDir, "src"));
+      String prefix = "org.example." + name;
+      SyntheticClassFiles.createClassDirectory(new File(projectDir, "bin"), SyntheticClassFiles.getClassNames(prefix,
+          2, CLASSES_PER_PROJECT / 2));
+      SyntheticClassFiles.createJarFile(new File(projectDir, "lib/" + name + ".jar"), SyntheticClassFiles
+          .getClassNames(prefix + ".lib", 2, CLASSES_PER_PROJECT / 2));
+      Utilities.writeFile(new File(projectDir, ".project"), createProjectFile(name), "UTF-8");
+      Utilities.writeFile(new File(projectDir, ".classpath"), createClasspathFile(i), "UTF-8");
+    }
+  }
+
+  private static String createProjectFile(String name) {
+    StringBuffer buffer = new StringBuffer();
+    buffer.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+    buffer.append("<projectDescription>\n");
+    buffer.append("  <name>").append(name).append("</name>\n");
+    buffer.append("  <comment/>\n");
+    buffer.append("  <projects/>\n");
+    buffer.append("  <buildSpec>\n");
+    buffer.append("    <buildCommand>\n");
+    buffer.append("      <name>org.eclipse.jdt.core.javabuilder</name>\n");
+    buffer.append("      <arguments/>\n");
+    buffer.append("    </buildCommand>\n");
+    buffer.append("  </buildSpec>\n");
+    buffer.append("  <natures>\n");
+    buffer.append("    <nature>org.eclipse.jdt.core.javanature</nature>\n");
+    buffer.append("  </natures>\n");
+    buffer.append("</projectDescription>\n");
+    return buffer.toString();
+  }
+
+  private static String createClasspathFile(int index) {
+    StringBuffer buffer = new StringBuffer();
+    buffer.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+    buffer.append("<classpath>\n");
+    buffer.append("  <classpathentry kind=\"src\" path=\"src\"/>\n");
+    buffer.append("  <classpathentry exported=\"true\" kind=\"lib\" path=\"lib/").append(getProjectName(index)).append(
+        ".jar\"/>\n");
+    for (Integer dependency : getDependencies(index)) {
+      buffer.append("  <classpathentry combineaccessrules=\"false\" exported=\"true\" kind=\"src\" path=\"/").append(
+          getProjectName(dependency.intValue())).append("\"/>\n");
+    }
+    buffer.append("  <classpathentry kind=\"output\" path=\"bin\"/>\n");
+    buffer.append("</classpath>\n");
+    return buffer.toString();
+  }
+
+} /* ENDCLASS */
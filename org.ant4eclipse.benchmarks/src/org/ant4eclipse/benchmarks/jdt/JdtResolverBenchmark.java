@@ -0,0 +1,77 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.benchmarks.jdt;
+
+import org.ant4eclipse.benchmarks.AbstractBenchmark;
+import org.ant4eclipse.benchmarks.generator.SyntheticWorkspace;
+import org.ant4eclipse.lib.core.service.ServiceRegistryAccess;
+import org.ant4eclipse.lib.jdt.internal.tools.container.JdtResolverCache;
+import org.ant4eclipse.lib.jdt.tools.JdtResolver;
+import org.ant4eclipse.lib.platform.model.resource.EclipseProject;
+import org.ant4eclipse.lib.platform.model.resource.workspaceregistry.DefaultEclipseWorkspaceDefinition;
+import org.ant4eclipse.lib.platform.model.resource.workspaceregistry.WorkspaceRegistry;
+
+/**
+ * <p>
+ * Measures {@link JdtResolver#resolveProjectClasspath(EclipseProject, boolean, boolean, java.util.List)} for the last
+ * project of a synthetic workspace with the given number of projects. The last project depends (directly or
+ * indirectly) on all other projects. The uncached variant clears the {@link JdtResolverCache} before each
+ * operation, the cached variant measures the validation of a cached class path.
+ * </p>
+ * 
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class JdtResolverBenchmark extends AbstractBenchmark {
+
+  /** the resolved project */
+  private EclipseProject _project;
+
+  /** indicates if the class path may be taken from the cache */
+  private boolean        _cached;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link JdtResolverBenchmark}.
+   * </p>
+   *
+   * @param cached
+   *          indicates if the class path may be taken from the cache
+   */
+  public JdtResolverBenchmark(boolean cached) {
+    super(cached ? "JdtResolverCached" : "JdtResolver", 10, 100, 1000);
+    this._cached = cached;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void setUp() throws Exception {
+    SyntheticWorkspace.create(getDirectory(), getSize());
+    WorkspaceRegistry registry = ServiceRegistryAccess.instance().getService(WorkspaceRegistry.class);
+    String id = getDirectory().getAbsolutePath();
+    this._project = registry.registerWorkspace(id, new DefaultEclipseWorkspaceDefinition(getDirectory())).getProject(
+        SyntheticWorkspace.getProjectName(getSize() - 1));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Object run() throws Exception {
+    if (!this._cached) {
+      JdtResolverCache.getInstance().clear();
+    }
+    return JdtResolver.resolveProjectClasspath(this._project, false, true, null);
+  }
+
+} /* ENDCLASS */
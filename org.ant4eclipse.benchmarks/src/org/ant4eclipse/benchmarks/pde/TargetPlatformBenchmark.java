@@ -0,0 +1,63 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.benchmarks.pde;
+
+import org.ant4eclipse.benchmarks.AbstractBenchmark;
+import org.ant4eclipse.benchmarks.generator.SyntheticTargetPlatform;
+import org.ant4eclipse.lib.pde.internal.tools.BinaryBundleAndFeatureSet;
+import org.ant4eclipse.lib.pde.internal.tools.TargetPlatformImpl;
+import org.ant4eclipse.lib.pde.tools.PlatformConfiguration;
+
+import java.io.File;
+
+/**
+ * <p>
+ * Measures {@link TargetPlatformImpl#refresh()} (reading all bundle manifests and resolving the state) for a target
+ * platform with the given number of bundles.
+ * </p>
+ * 
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class TargetPlatformBenchmark extends AbstractBenchmark {
+
+  /** the target platform */
+  private TargetPlatformImpl _targetPlatform;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link TargetPlatformBenchmark}.
+   * </p>
+   */
+  public TargetPlatformBenchmark() {
+    super("TargetPlatform", 100, 2000);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void setUp() throws Exception {
+    SyntheticTargetPlatform.create(getDirectory(), getSize());
+    this._targetPlatform = new TargetPlatformImpl(null, new BinaryBundleAndFeatureSet[] { new BinaryBundleAndFeatureSet(
+        getDirectory()) }, new PlatformConfiguration(), new File[] { getDirectory() });
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Object run() throws Exception {
+    this._targetPlatform.refresh();
+    return this._targetPlatform.getBundlesWithResolverErrors();
+  }
+
+} /* ENDCLASS */
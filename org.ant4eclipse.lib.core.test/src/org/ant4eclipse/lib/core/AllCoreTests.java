@@ -12,22 +12,28 @@
 package org.ant4eclipse.lib.core;
 
 import org.ant4eclipse.lib.core.data.VersionTest;
+import org.ant4eclipse.lib.core.dependencygraph.DependencyGraphExecutorTest;
 import org.ant4eclipse.lib.core.dependencygraph.DependencyGraphTest;
+import org.ant4eclipse.lib.core.ldapfilter.LdapFilterTest;
 import org.ant4eclipse.lib.core.logging.Failuretest;
 import org.ant4eclipse.lib.core.logging.LoggingUsageTest;
 import org.ant4eclipse.lib.core.nls.NLSTest;
 import org.ant4eclipse.lib.core.service.PropertiesBasedServiceRegistryConfigurationTest;
 import org.ant4eclipse.lib.core.service.ServiceRegistryTest;
+import org.ant4eclipse.lib.core.util.JarExpansionCacheTest;
 import org.ant4eclipse.lib.core.util.ManifestHelperTest;
 import org.ant4eclipse.lib.core.util.UtilitiesTest;
+import org.ant4eclipse.lib.core.xquery.XQueryCacheTest;
 import org.ant4eclipse.lib.core.xquery.XQueryHandlerTest;
+import org.ant4eclipse.lib.core.xquery.XQueryTrieTest;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses({ AssureTest.class, ClassNameTest.class, DefaultConfiguratorTest.class, VersionTest.class,
-    DependencyGraphTest.class, Failuretest.class, LoggingUsageTest.class, NLSTest.class,
-    PropertiesBasedServiceRegistryConfigurationTest.class, ServiceRegistryTest.class, ManifestHelperTest.class,
-    UtilitiesTest.class, XQueryHandlerTest.class })
+    DependencyGraphTest.class, DependencyGraphExecutorTest.class, Failuretest.class, LoggingUsageTest.class,
+    NLSTest.class, PropertiesBasedServiceRegistryConfigurationTest.class, ServiceRegistryTest.class,
+    ManifestHelperTest.class, UtilitiesTest.class, JarExpansionCacheTest.class, LdapFilterTest.class,
+    XQueryHandlerTest.class, XQueryCacheTest.class, XQueryTrieTest.class })
 public class AllCoreTests {
 } /* ENDCLASS */
@@ -0,0 +1,162 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.core.dependencygraph;
+
+import org.ant4eclipse.lib.core.CoreExceptionCode;
+import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Test: DependencyGraphExecutor
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class DependencyGraphExecutorTest extends ConfigurableAnt4EclipseTestCase {
+
+  /**
+   * <p>
+   * Creates the graph: a -> b -> c, a -> d, e -> d, f (a depends on b and d and so on).
+   * </p>
+   */
+  private DependencyGraph<String> createGraph() {
+    DependencyGraph<String> graph = new DependencyGraph<String>();
+    graph.addEdge("a", "b");
+    graph.addEdge("b", "c");
+    graph.addEdge("a", "d");
+    graph.addEdge("e", "d");
+    graph.addVertex("f");
+    return graph;
+  }
+
+  @Test
+  public void parallelExecution() {
+    final DependencyGraph<String> graph = createGraph();
+    final List<String> processed = Collections.synchronizedList(new LinkedList<String>());
+
+    Map<String, Throwable> failures = new DependencyGraphExecutor<String>(graph, 4, false).execute(Arrays.asList("a",
+        "b", "c", "d", "e", "f"), new VertexProcessor<String>() {
+      public void process(String vertex) throws Exception {
+        for (String child : graph.getChildren(vertex)) {
+          Assert.assertTrue(vertex + " started before " + child, processed.contains(child));
+        }
+        Thread.sleep(20);
+        processed.add(vertex);
+      }
+    });
+
+    Assert.assertTrue(failures.isEmpty());
+    Assert.assertEquals(6, processed.size());
+  }
+
+  @Test
+  public void sequentialExecution() {
+    DependencyGraph<String> graph = createGraph();
+    final List<String> processed = new LinkedList<String>();
+
+    new DependencyGraphExecutor<String>(graph, 1, false).execute(Arrays.asList("a", "b", "c", "d", "e", "f"),
+        new VertexProcessor<String>() {
+          public void process(String vertex) {
+            processed.add(vertex);
+          }
+        });
+
+    Assert.assertEquals(graph.calculateOrder(), processed);
+  }
+
+  @Test
+  public void executeSubset() {
+    final DependencyGraph<String> graph = createGraph();
+    final List<String> processed = Collections.synchronizedList(new LinkedList<String>());
+
+    new DependencyGraphExecutor<String>(graph, 4, false).execute(Arrays.asList("a", "c", "f"),
+        new VertexProcessor<String>() {
+          public void process(String vertex) throws Exception {
+            if ("c".equals(vertex)) {
+              // 'a' depends on 'c' through 'b', which is not executed
+              Thread.sleep(50);
+            }
+            processed.add(vertex);
+          }
+        });
+
+    Assert.assertEquals(3, processed.size());
+    Assert.assertTrue(processed.indexOf("c") < processed.indexOf("a"));
+  }
+
+  @Test
+  public void keepGoing() {
+    DependencyGraph<String> graph = createGraph();
+    final List<String> processed = Collections.synchronizedList(new LinkedList<String>());
+
+    Map<String, Throwable> failures = new DependencyGraphExecutor<String>(graph, 2, true).execute(Arrays.asList("a",
+        "b", "c", "d", "e", "f"), new VertexProcessor<String>() {
+      public void process(String vertex) {
+        if ("c".equals(vertex)) {
+          throw new IllegalStateException(vertex);
+        }
+        processed.add(vertex);
+      }
+    });
+
+    Assert.assertEquals(1, failures.size());
+    Assert.assertTrue(failures.get("c") instanceof IllegalStateException);
+    Assert.assertFalse(processed.contains("a"));
+    Assert.assertFalse(processed.contains("b"));
+    Assert.assertTrue(processed.containsAll(Arrays.asList("d", "e", "f")));
+  }
+
+  @Test
+  public void failFast() {
+    DependencyGraph<String> graph = createGraph();
+    final List<String> processed = new LinkedList<String>();
+
+    Map<String, Throwable> failures = new DependencyGraphExecutor<String>(graph, 1, false).execute(Arrays.asList("a",
+        "b", "c", "d", "e", "f"), new VertexProcessor<String>() {
+      public void process(String vertex) {
+        if ("c".equals(vertex)) {
+          throw new IllegalStateException(vertex);
+        }
+        processed.add(vertex);
+      }
+    });
+
+    Assert.assertEquals(1, failures.size());
+    Assert.assertTrue(processed.isEmpty());
+  }
+
+  @Test
+  public void cyclicDependencyGraph() {
+    DependencyGraph<String> graph = new DependencyGraph<String>();
+    graph.addEdge("o1", "o2");
+    graph.addEdge("o2", "o1");
+
+    try {
+      new DependencyGraphExecutor<String>(graph, 2, false).execute(Arrays.asList("o1", "o2"),
+          new VertexProcessor<String>() {
+            public void process(String vertex) {
+              Assert.fail();
+            }
+          });
+      Assert.fail();
+    } catch (Ant4EclipseException ex) {
+      Assert.assertEquals(CoreExceptionCode.CYCLIC_DEPENDENCIES_EXCEPTION, ex.getExceptionCode());
+    }
+  }
+}
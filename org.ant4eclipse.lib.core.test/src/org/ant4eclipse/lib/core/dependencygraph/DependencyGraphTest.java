@@ -18,6 +18,7 @@ import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -139,4 +140,76 @@ public class DependencyGraphTest {
 
   }
 
+  @Test
+  public void levels() {
+    DependencyGraph<String> graph = new DependencyGraph<String>();
+
+    graph.addEdge("a", "b");
+    graph.addEdge("a", "c");
+    graph.addEdge("c", "d");
+    graph.addEdge("e", "d");
+    graph.addVertex("f");
+
+    List<List<String>> levels = graph.calculateLevels();
+
+    Assert.assertEquals(3, levels.size());
+    Assert.assertEquals(Arrays.asList("b", "d", "f"), levels.get(0));
+    Assert.assertEquals(Arrays.asList("c", "e"), levels.get(1));
+    Assert.assertEquals(Arrays.asList("a"), levels.get(2));
+  }
+
+  @Test
+  public void cycles() {
+    DependencyGraph<String> graph = new DependencyGraph<String>();
+
+    graph.addEdge("o1", "o2");
+    graph.addEdge("o2", "o3");
+    graph.addEdge("o3", "o1");
+    graph.addEdge("o3", "o4");
+    graph.addEdge("t1", "t2");
+    graph.addEdge("t2", "t1");
+    graph.addEdge("s", "s");
+    graph.addEdge("x", "o1");
+
+    List<List<String>> cycles = graph.calculateCycles();
+
+    Assert.assertEquals(3, cycles.size());
+    Assert.assertTrue(cycles.contains(Arrays.asList("o1", "o2", "o3")));
+    Assert.assertTrue(cycles.contains(Arrays.asList("t1", "t2")));
+    Assert.assertTrue(cycles.contains(Arrays.asList("s")));
+
+    try {
+      graph.calculateOrder();
+      Assert.fail();
+    } catch (Ant4EclipseException ex) {
+      Assert.assertEquals(CoreExceptionCode.CYCLIC_DEPENDENCIES_EXCEPTION, ex.getExceptionCode());
+      Assert.assertTrue(ex.getMessage(), ex.getMessage().indexOf("o1 -> o2 -> o3 -> o1") != -1);
+      Assert.assertTrue(ex.getMessage(), ex.getMessage().indexOf("t1 -> t2 -> t1") != -1);
+      Assert.assertTrue(ex.getMessage(), ex.getMessage().indexOf("s -> s") != -1);
+    }
+  }
+
+  @Test
+  public void largeGraph() {
+    int count = 10000;
+    DependencyGraph<Integer> graph = new DependencyGraph<Integer>();
+    for (int i = 0; i < count; i++) {
+      graph.addVertex(Integer.valueOf(i));
+    }
+    for (int i = 1; i < count; i++) {
+      graph.addEdge(Integer.valueOf(i), Integer.valueOf(i - 1));
+      graph.addEdge(Integer.valueOf(i), Integer.valueOf(i / 2));
+      graph.addEdge(Integer.valueOf(i), Integer.valueOf((i * 7) % i));
+    }
+
+    List<Integer> result = graph.calculateOrder();
+
+    Assert.assertEquals(count, result.size());
+    int i = 0;
+    for (Integer vertex : result) {
+      Assert.assertEquals(i++, vertex.intValue());
+    }
+    Assert.assertTrue(graph.calculateCycles().isEmpty());
+  }
+
 } /* ENDCLASS */
\ No newline at end of file
@@ -0,0 +1,78 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.core.ldapfilter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Test: LdapFilter
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class LdapFilterTest {
+
+  private boolean validate(String filter) throws ParseException {
+    Map<String, String> properties = new HashMap<String, String>();
+    properties.put("project.name", "org.ant4eclipse.lib.core");
+    properties.put("project.type", "plugin");
+
+    boolean result = new LdapFilter(properties, new StringReader(filter)).validate();
+    Assert.assertEquals(result, LdapFilterCache.compile(filter).evaluate(properties));
+    return result;
+  }
+
+  @Test
+  public void comparisons() throws ParseException {
+    Assert.assertTrue(validate("(project.type=plugin)"));
+    Assert.assertTrue(validate("project.type=plugin"));
+    Assert.assertFalse(validate("(project.type=feature)"));
+    Assert.assertTrue(validate("(project.name=org.ant4eclipse.*)"));
+    Assert.assertFalse(validate("(project.name=*.jdt)"));
+    Assert.assertTrue(validate("(project.name=*)"));
+    Assert.assertFalse(validate("(project.version=*)"));
+    Assert.assertTrue(validate("(project.type~=plugin)"));
+    Assert.assertTrue(validate("(project.version>=1.0)"));
+  }
+
+  @Test
+  public void junctions() throws ParseException {
+    Assert.assertTrue(validate("(&(project.type=plugin)(project.name=org.*))"));
+    Assert.assertFalse(validate("(AND(project.type=plugin)(project.name=com.*))"));
+    Assert.assertTrue(validate("(|(project.type=feature)(project.name=org.*))"));
+    Assert.assertFalse(validate("(OR(project.type=feature)(project.name=com.*))"));
+    Assert.assertTrue(validate("(!(project.type=feature))"));
+    Assert.assertFalse(validate("(NOT(project.type=plugin))"));
+  }
+
+  @Test
+  public void invalidFilters() {
+    String[] filters = { "(project.type~=plu*)", "(project.type>=*)", "(&(project.type=plugin))", "(project.type=" };
+    for (String filter : filters) {
+      try {
+        LdapFilterCache.compile(filter);
+        Assert.fail(filter);
+      } catch (ParseException ex) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void cache() throws ParseException {
+    Assert.assertSame(LdapFilterCache.compile("(a=b)"), LdapFilterCache.compile("(a=b)"));
+  }
+}
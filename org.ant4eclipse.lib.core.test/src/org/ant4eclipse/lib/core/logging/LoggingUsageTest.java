@@ -65,6 +65,17 @@ public class LoggingUsageTest {
         getCurrentOutput());
   }
 
+  @Test
+  public void infoDisabled() {
+    DefaultAnt4EclipseLogger loggerimpl = (DefaultAnt4EclipseLogger) ServiceRegistryAccess.instance().getService(
+        SERVICE_TYPE);
+    loggerimpl.setLogLevel(DefaultAnt4EclipseLogger.Priority.warn);
+    A4ELogging.info("no args");
+    A4ELogging.info("single arg is: %d", Integer.valueOf(12));
+    A4ELogging.warn("multiple args are: %d, '%s'", Integer.valueOf(45), "Fredo");
+    Assert.assertEquals("[WARN] multiple args are: 45, 'Fredo'\n", getCurrentOutput());
+  }
+
   @Test
   public void warn() {
     A4ELogging.warn("no args");
@@ -123,4 +134,13 @@ public class LoggingUsageTest {
     Assert.assertEquals("", getCurrentOutput());
   }
 
+  @Test
+  public void logLevel() {
+    Object[] args = new Object[] { Integer.valueOf(45), "Fredo" };
+    A4ELogging.log(A4ELevel.TRACE, "multiple args are: %d, '%s'", args);
+    A4ELogging.log(A4ELevel.DEBUG, "multiple args are: %d, '%s'", args);
+    Assert.assertEquals("[TRACE] multiple args are: 45, 'Fredo'\n[DEBUG] multiple args are: 45, 'Fredo'\n",
+        getCurrentOutput());
+  }
+
 } /* ENDCLASS */
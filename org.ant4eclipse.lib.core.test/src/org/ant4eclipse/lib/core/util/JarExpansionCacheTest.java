@@ -0,0 +1,102 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.core.util;
+
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.ant4eclipse.testframework.JUnitUtilities;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Test: JarExpansionCache
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class JarExpansionCacheTest extends ConfigurableAnt4EclipseTestCase {
+
+  @Test
+  public void expand() {
+    File jar = Utilities.exportResource("/util/test-jar.jar");
+    JarExpansionCache cache = new JarExpansionCache(JUnitUtilities.createTempDir(), 1);
+
+    File destination = cache.expand(jar);
+    Assert.assertTrue(new File(destination, "test.txt").isFile());
+    Assert.assertTrue(new File(destination, "META-INF/MANIFEST.MF").isFile());
+
+    // the same content is expanded to the same directory
+    File copy = Utilities.exportResource("/util/test-jar.jar");
+    Assert.assertEquals(destination, cache.expand(copy));
+  }
+
+  @Test
+  public void cleanup() throws IOException {
+    File jar = Utilities.exportResource("/util/test-jar.jar");
+    File directory = JUnitUtilities.createTempDir();
+
+    // an entry that hasn't been used for a day
+    File unused = createEntry(directory, "unused", System.currentTimeMillis() - 24 * 60 * 60 * 1000);
+
+    File destination = new JarExpansionCache(directory, 1).expand(jar);
+    Assert.assertEquals(0, new JarExpansionCache(directory, 1).cleanup());
+    Assert.assertTrue(destination.isDirectory());
+    Assert.assertTrue(unused.isDirectory());
+
+    // only the unused entry is removed (together with it's lock file)
+    Assert.assertEquals(1, new JarExpansionCache(directory, 0).cleanup());
+    Assert.assertFalse(unused.exists());
+    Assert.assertFalse(new File(directory, "unused.info").exists());
+    Assert.assertFalse(new File(directory, "unused.lock").exists());
+    Assert.assertTrue(new File(destination, "test.txt").isFile());
+  }
+
+  @Test
+  public void cleanupSkipsEntriesInUse() throws IOException {
+    File jar = Utilities.exportResource("/util/test-jar.jar");
+    File directory = JUnitUtilities.createTempDir();
+
+    // an entry that is used by this build and an entry that has been used by another build since this build started
+    File destination = new JarExpansionCache(directory, 0).expand(jar);
+    File used = createEntry(directory, "used", System.currentTimeMillis());
+
+    Assert.assertEquals(0, new JarExpansionCache(directory, 0).cleanup());
+    Assert.assertTrue(new File(destination, "test.txt").isFile());
+    Assert.assertTrue(used.isDirectory());
+
+    // the destination which has been handed out by an expansion is still usable
+    Assert.assertEquals(destination, new JarExpansionCache(directory, 0).expand(jar));
+    Assert.assertTrue(new File(destination, "test.txt").isFile());
+  }
+
+  /**
+   * Creates a cache entry with the given hash and the given time of it's last usage.
+   */
+  private File createEntry(File directory, String hash, long lastUsed) throws IOException {
+    File result = new File(directory, hash);
+    Assert.assertTrue(result.mkdir());
+    Utilities.writeFile(new File(result, "content.txt"), "content", Utilities.ENCODING);
+    File info = new File(directory, hash + ".info");
+    DataOutputStream output = new DataOutputStream(new FileOutputStream(info));
+    try {
+      output.writeLong(7);
+    } finally {
+      output.close();
+    }
+    Assert.assertTrue(info.setLastModified(lastUsed));
+    Assert.assertTrue(new File(directory, hash + ".lock").createNewFile());
+    return result;
+  }
+}
@@ -480,6 +480,32 @@ public class UtilitiesTest extends ConfigurableAnt4EclipseTestCase {
 
   }
 
+  @Test
+  public void sha1() throws IOException {
+
+    Assert.assertEquals("a9993e364706816aba3e25717850c26c9cd0d89d", Utilities.sha1("abc"));
+
+    File tempfile = JUnitUtilities.createTempFile();
+    Utilities.writeFile(tempfile, "abc".getBytes("UTF-8"));
+    Assert.assertEquals("a9993e364706816aba3e25717850c26c9cd0d89d", Utilities.sha1(tempfile));
+
+  }
+
+  @Test
+  public void replaceFile() throws IOException {
+
+    File destination = JUnitUtilities.createTempFile();
+    Utilities.writeFile(destination, "old".getBytes("UTF-8"));
+
+    File tempfile = new File(destination.getPath() + ".tmp");
+    Utilities.writeFile(tempfile, "new".getBytes("UTF-8"));
+
+    Utilities.replaceFile(tempfile, destination);
+    Assert.assertFalse(tempfile.exists());
+    Assert.assertEquals("new", Utilities.readTextContent(destination, "UTF-8", false).toString());
+
+  }
+
   @Test
   public void replaceTokens() {
 
@@ -0,0 +1,73 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.core.xquery;
+
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.ant4eclipse.testframework.JUnitUtilities;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+
+/**
+ * Test: XQueryCache
+ */
+public class XQueryCacheTest extends ConfigurableAnt4EclipseTestCase {
+
+  /**
+   * Runs the queries of the test against the given file using the given cache.
+   */
+  private String[][] query(XQueryCache cache, File xmlfile) {
+    XQueryHandler handler = new XQueryHandler();
+    XQuery query1 = handler.createQuery("/database/element/@name");
+    XQuery query2 = handler.createQuery("/database/folder/file");
+    cache.activate();
+    try {
+      XQueryHandler.queryFile(xmlfile, handler);
+    } finally {
+      XQueryCache.deactivate();
+    }
+    return new String[][] { query1.getResult(), query2.getResult() };
+  }
+
+  @Test
+  public void cachedResults() throws Exception {
+    File directory = JUnitUtilities.createTempDir();
+    File xmlfile = new File(directory, "data.xml");
+    File cacheFile = new File(directory, "cache");
+    Utilities.writeFile(xmlfile, "<database><element name=\"Pjotr\"/><element name=\"Hugo\"/></database>", "UTF-8");
+
+    XQueryCache cache = XQueryCache.load(cacheFile);
+    String[][] results = query(cache, xmlfile);
+    Assert.assertEquals(1, cache.getMisses());
+    Assert.assertArrayEquals(new String[] { "Pjotr", "Hugo" }, results[0]);
+    Assert.assertEquals(0, results[1].length);
+    cache.save();
+    Assert.assertTrue(cacheFile.isFile());
+
+    // the results are restored from the cache file
+    cache = XQueryCache.load(cacheFile);
+    results = query(cache, xmlfile);
+    Assert.assertEquals(0, cache.getMisses());
+    Assert.assertArrayEquals(new String[] { "Pjotr", "Hugo" }, results[0]);
+    Assert.assertEquals(0, results[1].length);
+
+    // a modified file is parsed again
+    Utilities.writeFile(xmlfile, "<database><element name=\"Frijda\"/></database>", "UTF-8");
+    xmlfile.setLastModified(xmlfile.lastModified() + 2000);
+    results = query(cache, xmlfile);
+    Assert.assertEquals(1, cache.getMisses());
+    Assert.assertArrayEquals(new String[] { "Frijda" }, results[0]);
+  }
+
+} /* ENDCLASS */
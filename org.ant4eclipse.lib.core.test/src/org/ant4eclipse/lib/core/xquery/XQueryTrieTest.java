@@ -0,0 +1,88 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.core.xquery;
+
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.InputStream;
+
+/**
+ * Test: XQueryTrie (compares the results with the results of the XQueryHandler)
+ */
+public class XQueryTrieTest extends ConfigurableAnt4EclipseTestCase {
+
+  private static final String[] DATA_QUERIES  = { "/database/element/@name", "/database/element/@age",
+      "/database/folder/file", "/database/folder/length", "/database/{folder}/length",
+      "/database/{folder[@name='device:B']}/length", "/*/element/@name", "/*/*/file", "/database/element[1]/@name",
+      "/database/group/entry[count()]", "/database/group[1]/entry[0]/@name", "/database/group/entry/@name",
+      "/database/group/entry[@name='entry.2']/@name", "/database/group/@name", "/other/element/@name" };
+
+  private static final String   MIXED_CONTENT = "<a>" + "<b><c>1</c><c>2</c></b>" + "<z><c>3</c></z>"
+                                                  + "<b>text<c>4</c><d/>tail</b>" + "<b><e/></b>" + "</a>";
+
+  private static final String[] MIXED_QUERIES = { "/a/b/c", "/a/b/c[1]", "/a/*/c[0]", "/a/{b}/c", "/a/b",
+      "/a/b/c[count()]", "/a/{b}/d/@x", "/a/*/c", "/a/z/c" };
+
+  /**
+   * Runs the supplied queries using both engines and compares the results.
+   */
+  private void compare(byte[] content, String[] queries) {
+    XQueryHandler legacy = new XQueryHandler();
+    XQueryHandler compiled = new XQueryHandler();
+    for (String query : queries) {
+      legacy.createQuery(query);
+      compiled.createQuery(query);
+    }
+    XQueryHandler.queryInputStream(new ByteArrayInputStream(content), legacy, false);
+    XQueryHandler.queryInputStream(new ByteArrayInputStream(content), compiled, true);
+    for (int i = 0; i < queries.length; i++) {
+      String[] expected = legacy.getQueries().get(i).getValues();
+      String[] actual = compiled.getQueries().get(i).getValues();
+      if (expected == null) {
+        Assert.assertNull(queries[i], actual);
+      } else {
+        Assert.assertArrayEquals(queries[i], expected, actual);
+      }
+    }
+  }
+
+  @Test
+  public void dataFile() throws Exception {
+    InputStream inputStream = getClass().getClassLoader().getResourceAsStream("xquery/data.xml");
+    try {
+      compare(Utilities.readTextContent(inputStream, "UTF-8", true).toString().getBytes("UTF-8"), DATA_QUERIES);
+    } finally {
+      Utilities.close((Closeable) inputStream);
+    }
+  }
+
+  @Test
+  public void mixedContent() throws Exception {
+    compare(MIXED_CONTENT.getBytes("UTF-8"), MIXED_QUERIES);
+  }
+
+  @Test
+  public void unknownRootElement() throws Exception {
+    XQueryHandler handler = new XQueryHandler();
+    XQuery query = handler.createQuery("/database/element/@name");
+    // the content after the root element is never read
+    XQueryHandler.queryInputStream(new ByteArrayInputStream("<other><element name='a'/></oth".getBytes("UTF-8")),
+        handler, true);
+    Assert.assertFalse(query.gotResult());
+  }
+
+} /* ENDCLASS */
@@ -4,10 +4,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.LinkedList;
-import java.util.Iterator;
-import java.util.regex.Pattern;
 
-/** * <p> * Implements a filter for LDAP strings. Usage: * <code>new LdapFilter(map, System.in).validate()</code > * </p> *  * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de) */
+/** * <p> * Implements a filter for LDAP strings. Usage: * <code>new LdapFilter(map, System.in).validate()</code > * </p> * <p> * The filter is parsed into an immutable {@link LdapFilterExpression} (see {@link #parse()}) which can be evaluated * against different properties without parsing the filter again. * </p> *  * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de) */
 public class LdapFilter implements LdapFilterConstants {
   /** the (scoped) properties **/
   private Map _properties = new HashMap();
@@ -33,55 +31,10 @@ public class LdapFilter implements LdapFilterConstants {
     // set properties    _properties = properties;
   }
 
-  private boolean equals(String attributeKey, String value)
+  /**   * <p>   * Parses the filter and evaluates it against the properties of this instance.   * </p>   *   * @return <code>true</code> if the properties match the filter.   */
+  public boolean validate() throws ParseException
   {
-    if (!_properties.containsKey(attributeKey))
-    {
-      return false;
-    }
-    if (isPresentValue(value))
-    {
-      return true;
-    }
-    String scopedProperty = (String) _properties.get(attributeKey);
-    String regExpValue = value.replaceAll("\u005c\u005c*", ".*");
-    boolean result = Pattern.matches(regExpValue, scopedProperty);
-    return result;
-  }
-
-  private boolean approx(String attributeKey, String value) throws ParseException
-  {
-    denyWildcardValue(value);
-    return equals(attributeKey, value);
-  }
-
-  private boolean greater(String attributeKey, String value) throws ParseException
-  {
-    denyWildcardValue(value);
-    return true;
-  }
-
-  private boolean less(String attributeKey, String value) throws ParseException
-  {
-    denyWildcardValue(value);
-    return true;
-  }
-
-  private void denyWildcardValue(String value) throws ParseException
-  {
-    if (value.indexOf('*') != - 1)
-    {
-      throw new ParseException("Invalid filter definition.");
-    }
-  }
-
-  private boolean isPresentValue(String value)
-  {
-    if ("*".equals(value))
-    {
-      return true;
-    }
-    return false;
+    return parse().evaluate(_properties);
   }
 
   public static void main(String args []) throws ParseException
@@ -93,8 +46,9 @@ public class LdapFilter implements LdapFilterConstants {
     new LdapFilter(map, System.in).validate();
   }
 
-  final public boolean validate() throws ParseException {
-  boolean value;
+/** * Parses the filter. */
+  final public LdapFilterExpression parse() throws ParseException {
+  LdapFilterExpression value;
     switch ((jj_ntk==-1)?jj_ntk():jj_ntk) {
     case BRACKET_OPEN:
       value = filter();
@@ -119,8 +73,8 @@ public class LdapFilter implements LdapFilterConstants {
   }
 
 /** * filter = "(" filtercomp ")" */
-  final public boolean filter() throws ParseException {
-  boolean value;
+  final public LdapFilterExpression filter() throws ParseException {
+  LdapFilterExpression value;
     jj_consume_token(BRACKET_OPEN);
     value = filtercomp();
     jj_consume_token(BRACKET_CLOSE);
@@ -129,8 +83,8 @@ public class LdapFilter implements LdapFilterConstants {
   }
 
 /** * filtercomp = and / or / not / attributeValueComparison */
-  final public boolean filtercomp() throws ParseException {
-  boolean value;
+  final public LdapFilterExpression filtercomp() throws ParseException {
+  LdapFilterExpression value;
     switch ((jj_ntk==-1)?jj_ntk():jj_ntk) {
     case AND:
     case AND_ORG:
@@ -157,7 +111,7 @@ public class LdapFilter implements LdapFilterConstants {
   }
 
 /** * simple     = attr filtertype value * filtertype = equal / approx / greater / less * equal      = "=" * approx     = "~=" * greater    = ">=" * less       = "<=" */
-  final public boolean attributeValueComparison() throws ParseException {
+  final public LdapFilterExpression attributeValueComparison() throws ParseException {
   Token attribute = null;
   Token value = null;
   Token operator = null;
@@ -192,33 +146,13 @@ public class LdapFilter implements LdapFilterConstants {
       jj_consume_token(-1);
       throw new ParseException();
     }
-    switch (operator.kind)
-    {
-      case LdapFilterConstants.EQUAL :
-      {
-        {if (true) return equals(attribute.image, value.image);}
-      }
-      case LdapFilterConstants.APPROX :
-      {
-        {if (true) return approx(attribute.image, value.image);}
-      }
-      case LdapFilterConstants.GREATER :
-      {
-        {if (true) return greater(attribute.image, value.image);}
-      }
-      case LdapFilterConstants.LESS :
-      {
-        {if (true) return less(attribute.image, value.image);}
-      }
-      default :
-      {if (true) return false;}
-    }
+    {if (true) return LdapFilterExpression.compare(attribute.image, operator.kind, value.image);}
     throw new Error("Missing return statement in function");
   }
 
 /** * not = "!" filter  */
-  final public boolean not() throws ParseException {
-  boolean filterresult;
+  final public LdapFilterExpression not() throws ParseException {
+  LdapFilterExpression filterresult;
     switch ((jj_ntk==-1)?jj_ntk():jj_ntk) {
     case NOT:
       jj_consume_token(NOT);
@@ -232,13 +166,13 @@ public class LdapFilter implements LdapFilterConstants {
       throw new ParseException();
     }
     filterresult = filter();
-    {if (true) return !filterresult;}
+    {if (true) return LdapFilterExpression.not(filterresult);}
     throw new Error("Missing return statement in function");
   }
 
 /** *  and = "&" filterlist */
-  final public boolean and() throws ParseException {
-  List values;
+  final public LdapFilterExpression and() throws ParseException {
+  List<LdapFilterExpression> values;
     switch ((jj_ntk==-1)?jj_ntk():jj_ntk) {
     case AND:
       jj_consume_token(AND);
@@ -252,23 +186,13 @@ public class LdapFilter implements LdapFilterConstants {
       throw new ParseException();
     }
     values = filterlist();
-    for (Iterator iterator = values.iterator();
-    iterator.hasNext();
-    )
-    {
-      Boolean value = (Boolean) iterator.next();
-      if (value.booleanValue() == false)
-      {
-        {if (true) return false;}
-      }
-    }
-    {if (true) return true;}
+    {if (true) return LdapFilterExpression.and(values);}
     throw new Error("Missing return statement in function");
   }
 
 /** * or = "|" filterlist */
-  final public boolean or() throws ParseException {
-  List values;
+  final public LdapFilterExpression or() throws ParseException {
+  List<LdapFilterExpression> values;
     switch ((jj_ntk==-1)?jj_ntk():jj_ntk) {
     case OR:
       jj_consume_token(OR);
@@ -282,29 +206,20 @@ public class LdapFilter implements LdapFilterConstants {
       throw new ParseException();
     }
     values = filterlist();
-    for (Iterator iterator = values.iterator();
-    iterator.hasNext();
-    )
-    {
-      if (((Boolean) iterator.next()).booleanValue())
-      {
-        {if (true) return true;}
-      }
-    }
-    {if (true) return false;}
+    {if (true) return LdapFilterExpression.or(values);}
     throw new Error("Missing return statement in function");
   }
 
 /** * filterlist = 1*filter */
-  final public List filterlist() throws ParseException {
-  List values = new LinkedList();
-  boolean value;
+  final public List<LdapFilterExpression> filterlist() throws ParseException {
+  List<LdapFilterExpression> values = new LinkedList<LdapFilterExpression>();
+  LdapFilterExpression value;
     value = filter();
-    values.add(Boolean.valueOf(value));
+    values.add(value);
     label_1:
     while (true) {
       value = filter();
-      values.add(Boolean.valueOf(value));
+      values.add(value);
       switch ((jj_ntk==-1)?jj_ntk():jj_ntk) {
       case BRACKET_OPEN:
         ;
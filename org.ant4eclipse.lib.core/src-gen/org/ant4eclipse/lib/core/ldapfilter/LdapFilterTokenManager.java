@@ -4,8 +4,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.LinkedList;
-import java.util.Iterator;
-import java.util.regex.Pattern;
 
 /** Token Manager. */
 public class LdapFilterTokenManager implements LdapFilterConstants
@@ -15,9 +13,9 @@ public class LdapFilterTokenManager implements LdapFilterConstants
   public  java.io.PrintStream debugStream = System.out;
   /** Set debug output. */
   public  void setDebugStream(java.io.PrintStream ds) { debugStream = ds; }
-private final int jjStopStringLiteralDfa_0(int pos, long active0)
+private final int jjStopStringLiteralDfa_0(int pos, long active0)
 {
-   switch (pos)
+   switch (pos)
    {
       case 0:
          if ((active0 & 0x1500L) != 0L)
@@ -40,7 +38,7 @@ private final int jjStopStringLiteralDfa_0(int pos, long active0)
          return -1;
    }
 }
-private final int jjStartNfa_0(int pos, long active0)
+private final int jjStartNfa_0(int pos, long active0)
 {
    return jjMoveNfa_0(jjStopStringLiteralDfa_0(pos, active0), pos + 1);
 }
@@ -258,7 +256,7 @@ private int jjMoveNfa_0(int startState, int curPos)
       catch(java.io.IOException e) { return curPos; }
    }
 }
-static final int[] jjnextStates = {
+static final int[] jjnextStates = {
 };
 
 /** Token literal values. */
@@ -270,11 +268,11 @@ public static final String[] jjstrLiteralImages = {
 public static final String[] lexStateNames = {
    "DEFAULT",
 };
-static final long[] jjtoToken = {
-   0x3fff1L, 
+static final long[] jjtoToken = {
+   0x3fff1L, 
 };
-static final long[] jjtoSkip = {
-   0xeL, 
+static final long[] jjtoSkip = {
+   0xeL, 
 };
 protected SimpleCharStream input_stream;
 private final int[] jjrounds = new int[2];
@@ -362,7 +360,7 @@ public Token getNextToken()
   Token matchedToken;
   int curPos = 0;
 
-  EOFLoop :
+  EOFLoop :
   for (;;)
   {
    try
@@ -15,10 +15,13 @@ import org.ant4eclipse.lib.core.Assure;
 import org.ant4eclipse.lib.core.CoreExceptionCode;
 import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -48,6 +51,11 @@ import java.util.Set;
  * {@link DependencyGraph#addEdge(Object, Object)}.
  * </p>
  * 
+ * <p>
+ * The graph is stored as adjacency lists, so the order (and the levels) are computed in linear time with respect to
+ * the number of vertices and edges (apart from sorting the vertices of each level by the order of their definition).
+ * </p>
+ * 
  * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
  * @author Daniel Kasmeroglu (daniel.kasmeroglu@kasisoft.net)
  * 
@@ -56,14 +64,17 @@ import java.util.Set;
  */
 public final class DependencyGraph<T> {
 
-  /** vertices */
-  private List<T>           _vertices;
+  /** vertices (in the order of their definition) */
+  private List<T>            _vertices;
 
-  /** edges */
-  private List<Edge<T>>     _edges;
+  /** maps the vertices to their indices */
+  private Map<T, Integer>    _indices;
+
+  /** the indices of the children of each vertex (in the order of the definition of the edges) */
+  private List<Set<Integer>> _children;
 
   /** renderer */
-  private VertexRenderer<T> _renderer;
+  private VertexRenderer<T>  _renderer;
 
   /**
    * <p>
@@ -71,8 +82,9 @@ public final class DependencyGraph<T> {
    * </p>
    */
   public DependencyGraph() {
-    this._vertices = new LinkedList<T>();
-    this._edges = new LinkedList<Edge<T>>();
+    this._vertices = new ArrayList<T>();
+    this._indices = new HashMap<T, Integer>();
+    this._children = new ArrayList<Set<Integer>>();
   }
 
   /**
@@ -100,9 +112,7 @@ public final class DependencyGraph<T> {
    */
   public void addVertex(T vertex) {
     Assure.notNull("vertex", vertex);
-    if (!this._vertices.contains(vertex)) {
-      this._vertices.add(vertex);
-    }
+    index(vertex);
   }
 
   /**
@@ -117,7 +127,7 @@ public final class DependencyGraph<T> {
    */
   public boolean containsVertex(T vertex) {
     Assure.notNull("vertex", vertex);
-    return this._vertices.contains(vertex);
+    return this._indices.containsKey(vertex);
   }
 
   /**
@@ -133,9 +143,30 @@ public final class DependencyGraph<T> {
   public void addEdge(T parent, T child) {
     Assure.notNull("parent", parent);
     Assure.notNull("child", child);
-    addVertex(parent);
-    addVertex(child);
-    this._edges.add(new Edge<T>(parent, child));
+    int parentIndex = index(parent);
+    int childIndex = index(child);
+    this._children.get(parentIndex).add(Integer.valueOf(childIndex));
+  }
+
+  /**
+   * <p>
+   * Returns the children of the given vertex, i.e. the vertices the given vertex depends on.
+   * </p>
+   * 
+   * @param parent
+   *          the parent vertex
+   * @return the children of the given vertex. Not <code>null</code>.
+   */
+  public List<T> getChildren(T parent) {
+    Assure.notNull("parent", parent);
+    List<T> result = new LinkedList<T>();
+    Integer index = this._indices.get(parent);
+    if (index != null) {
+      for (Integer child : this._children.get(index.intValue())) {
+        result.add(this._vertices.get(child.intValue()));
+      }
+    }
+    return result;
   }
 
   /**
@@ -146,178 +177,286 @@ public final class DependencyGraph<T> {
    * @return the ordered list of all the nodes..
    */
   public List<T> calculateOrder() {
-
-    // setup a matrix that contains a true value iff there is a the first index donates a parent of the second value
-    boolean[][] matrix = new boolean[this._vertices.size()][this._vertices.size()];
-
-    // fill the diagonale
-    for (boolean[] element : matrix) {
-      Arrays.fill(element, false);
+    List<T> result = new LinkedList<T>();
+    for (List<T> level : calculateLevels()) {
+      result.addAll(level);
     }
+    return result;
+  }
 
-    // set each value to true iff there is a relationship form first to second...
-    for (int i = 0; i < this._edges.size(); i++) {
-      Edge<T> edge = this._edges.get(i);
-      int fromidx = this._vertices.indexOf(edge.getParent());
-      int toidx = this._vertices.indexOf(edge.getChild());
-
-      if ((fromidx == -1) || (toidx == -1)) {
-        // one of the edge's vertices has not been
-        // added to this graph (f.e. if it's a dependency
-        // on the outside of a specific context)
-        continue;
+  /**
+   * <p>
+   * Computes the levels of the nodes. The first level contains all nodes that don't refer to any other node, each
+   * following level contains the nodes that only refer to nodes of the previous levels. So the nodes of a level don't
+   * depend on each other (e.g. they can be processed in parallel). The nodes of each level are listed in the order of
+   * their definition.
+   * </p>
+   * 
+   * @return the levels of the nodes.
+   */
+  public List<List<T>> calculateLevels() {
+    int count = this._vertices.size();
+
+    // count the children and collect the parents of each vertex
+    int[] pending = new int[count];
+    List<List<Integer>> parents = new ArrayList<List<Integer>>(count);
+    for (int i = 0; i < count; i++) {
+      parents.add(new ArrayList<Integer>());
+    }
+    for (int i = 0; i < count; i++) {
+      for (Integer child : this._children.get(i)) {
+        parents.get(child.intValue()).add(Integer.valueOf(i));
+        pending[i]++;
       }
+    }
 
-      matrix[fromidx][toidx] = true;
+    // the first level contains the vertices without children
+    int[] level = new int[count];
+    int levelSize = 0;
+    for (int i = 0; i < count; i++) {
+      if (pending[i] == 0) {
+        level[levelSize++] = i;
+      }
     }
 
-    List<T> list = new LinkedList<T>();
+    // each level is reduced to the next one
+    List<List<T>> result = new LinkedList<List<T>>();
+    int[] nextLevel = new int[count];
+    int processed = 0;
+    while (levelSize > 0) {
+      List<T> vertices = new ArrayList<T>(levelSize);
+      int nextLevelSize = 0;
+      for (int i = 0; i < levelSize; i++) {
+        vertices.add(this._vertices.get(level[i]));
+        for (Integer parent : parents.get(level[i])) {
+          if (--pending[parent.intValue()] == 0) {
+            nextLevel[nextLevelSize++] = parent.intValue();
+          }
+        }
+      }
+      result.add(vertices);
+      processed += levelSize;
+
+      // the vertices of a level are ordered by their definition
+      Arrays.sort(nextLevel, 0, nextLevelSize);
+      int[] swap = level;
+      level = nextLevel;
+      nextLevel = swap;
+      levelSize = nextLevelSize;
+    }
 
-    // iterates across the matrix as long as we didn't found
-    // a cycle and there are still edges to be processed
-    while (reduce(list, matrix)) {
-      // nothing to do...
+    // all remaining vertices are part of a cycle or depend on one
+    if (processed < count) {
+      StringBuffer buffer = new StringBuffer();
+      for (List<T> cycle : calculateCycles()) {
+        if (buffer.length() > 0) {
+          buffer.append(", ");
+        }
+        appendCycle(buffer, cycle);
+      }
+      throw new Ant4EclipseException(CoreExceptionCode.CYCLIC_DEPENDENCIES_EXCEPTION, buffer.toString());
     }
 
-    return list;
+    return result;
   }
 
   /**
    * <p>
-   * Reduces the internal matrix. Reduction means that the supplied matrix will be modified while vertices that doesn't
-   * refer to any other one can be added to the list since they no longer depend on another vertex. Reduction is an
-   * iterative process, so it's necessary to run this function until the matrix doesn't contain an edge.
+   * Returns all cycles of this graph, i.e. the strongly connected components that contain more than one vertex (or a
+   * vertex that refers to itself). The vertices of each cycle are listed in the order of a path through the cycle
+   * starting with the vertex that has been defined first, so the first vertex refers to the second one, the last vertex
+   * refers to the first one.
    * </p>
    * 
-   * @param result
-   *          The list that will receive the vertices.
-   * @param matrix
-   *          The current state of the matrix representing the graph.
-   * 
-   * @return true <=> There are still edges within the matrix so a succeeding iteration is required.
+   * @return all cycles of this graph. Empty if the graph doesn't contain a cycle.
    */
-  private boolean reduce(List<T> result, boolean[][] matrix) {
-    int zeros = 0;
-    int[] count = countEdges(matrix);
-
-    List<T> removable = new LinkedList<T>();
-
-    // add currently independent vertices to the list
-    // of removable candidates
-    for (int i = 0; i < count.length; i++) {
-      if (count[i] == 0) {
-        T vertex = this._vertices.get(i);
+  public List<List<T>> calculateCycles() {
+    List<List<T>> result = new LinkedList<List<T>>();
+    for (int[] component : calculateStronglyConnectedComponents()) {
+      if ((component.length > 1) || this._children.get(component[0]).contains(Integer.valueOf(component[0]))) {
+        result.add(findCycle(component));
+      }
+    }
+    return result;
+  }
 
-        if (!result.contains(vertex)) {
-          removable.add(vertex);
-        }
+  /**
+   * <p>
+   * Returns the textual representation of the given vertex.
+   * </p>
+   * 
+   * @param vertex
+   *          the vertex
+   * @return the textual representation of the given vertex (created by the renderer if available).
+   */
+  String render(T vertex) {
+    if (this._renderer == null) {
+      return String.valueOf(vertex);
+    }
+    return this._renderer.renderVertex(vertex);
+  }
 
-        zeros++;
-      }
+  /**
+   * <p>
+   * Returns the index of the given vertex. The vertex is added if necessary.
+   * </p>
+   */
+  private int index(T vertex) {
+    Integer result = this._indices.get(vertex);
+    if (result == null) {
+      result = Integer.valueOf(this._vertices.size());
+      this._vertices.add(vertex);
+      this._indices.put(vertex, result);
+      this._children.add(new LinkedHashSet<Integer>());
     }
+    return result.intValue();
+  }
 
-    if (removable.isEmpty()) {
-      if (zeros < matrix.length) {
-        // get the first cycle and create an apropriate textual representation
-        StringBuffer buffer = new StringBuffer();
-        for (int i = 0; i < count.length; i++) {
-          if (count[i] > 0) {
-            cycleString(buffer, new HashSet<T>(), i, matrix);
-            break;
-          }
-        }
-        throw new Ant4EclipseException(CoreExceptionCode.CYCLIC_DEPENDENCIES_EXCEPTION, buffer.toString());
+  /**
+   * <p>
+   * Computes the strongly connected components of this graph using Tarjan's algorithm. The recursion is replaced by an
+   * explicit stack, so deep graphs don't cause a {@link StackOverflowError}.
+   * </p>
+   * 
+   * @return the indices of the vertices of each strongly connected component (sorted).
+   */
+  private List<int[]> calculateStronglyConnectedComponents() {
+    int count = this._vertices.size();
+    int[] indices = new int[count];
+    int[] lowlinks = new int[count];
+    boolean[] onStack = new boolean[count];
+    Arrays.fill(indices, -1);
+
+    List<int[]> result = new LinkedList<int[]>();
+    int[] stack = new int[count];
+    int stackSize = 0;
+    int nextIndex = 0;
+
+    // the dfs stack: the vertex and the position within its children
+    int[] dfsVertices = new int[count];
+    int[][] dfsChildren = new int[count][];
+    int[] dfsPositions = new int[count];
+
+    for (int start = 0; start < count; start++) {
+      if (indices[start] != -1) {
+        continue;
       }
-    } else {
-      // we need to clear the removable vertices, so they won't
-      // be processed within the next iteration
-      for (int i = 0; i < matrix.length; i++) {
-        for (int j = 0; j < matrix.length; j++) {
-          if (matrix[i][j]) {
-            if (removable.contains(this._vertices.get(j))) {
-              matrix[i][j] = false;
+      int dfsSize = 0;
+      dfsVertices[dfsSize] = start;
+      dfsChildren[dfsSize] = children(start);
+      dfsPositions[dfsSize] = 0;
+      dfsSize++;
+      indices[start] = lowlinks[start] = nextIndex++;
+      stack[stackSize++] = start;
+      onStack[start] = true;
+
+      while (dfsSize > 0) {
+        int top = dfsSize - 1;
+        int vertex = dfsVertices[top];
+        if (dfsPositions[top] < dfsChildren[top].length) {
+          int child = dfsChildren[top][dfsPositions[top]++];
+          if (indices[child] == -1) {
+            indices[child] = lowlinks[child] = nextIndex++;
+            stack[stackSize++] = child;
+            onStack[child] = true;
+            dfsVertices[dfsSize] = child;
+            dfsChildren[dfsSize] = children(child);
+            dfsPositions[dfsSize] = 0;
+            dfsSize++;
+          } else if (onStack[child]) {
+            lowlinks[vertex] = Math.min(lowlinks[vertex], indices[child]);
+          }
+        } else {
+          dfsSize--;
+          dfsChildren[dfsSize] = null;
+          if (dfsSize > 0) {
+            int parent = dfsVertices[dfsSize - 1];
+            lowlinks[parent] = Math.min(lowlinks[parent], lowlinks[vertex]);
+          }
+          if (lowlinks[vertex] == indices[vertex]) {
+            int size = 0;
+            while (stack[stackSize - 1 - size] != vertex) {
+              size++;
             }
+            size++;
+            int[] component = new int[size];
+            for (int i = 0; i < size; i++) {
+              component[i] = stack[--stackSize];
+              onStack[component[i]] = false;
+            }
+            Arrays.sort(component);
+            result.add(component);
           }
         }
       }
-
-      result.addAll(removable);
     }
-
-    return zeros < matrix.length;
+    return result;
   }
 
   /**
    * <p>
-   * Creates a String which is used to create a textual representation of a cycle.
+   * Returns a path through the given strongly connected component that starts and ends with its first vertex.
    * </p>
-   * 
-   * @param buffer
-   *          The buffer used to collect the data.
-   * @param processed
-   *          A list of added vertices which is required for the abortion criteria.
-   * @param idx
-   *          The index of the vertex which is part of the cycle.
-   * @param matrix
-   *          The current state of the matrix.
    */
-  private void cycleString(StringBuffer buffer, Set<T> processed, int idx, boolean[][] matrix) {
-    T vertex = this._vertices.get(idx);
-    if (this._renderer == null) {
-      buffer.append(String.valueOf(vertex));
-    } else {
-      buffer.append(this._renderer.renderVertex(vertex));
+  private List<T> findCycle(int[] component) {
+    Map<Integer, Integer> predecessors = new HashMap<Integer, Integer>();
+    Set<Integer> members = new LinkedHashSet<Integer>();
+    for (int vertex : component) {
+      members.add(Integer.valueOf(vertex));
     }
-    if (processed.contains(vertex)) {
-      return;
-    }
-    buffer.append(" -> ");
-    processed.add(vertex);
-    for (int i = 0; i < matrix.length; i++) {
-      if (matrix[idx][i]) {
-        cycleString(buffer, processed, i, matrix);
-        break;
+
+    // breadth first search from the first vertex back to itself (within the component)
+    Integer start = Integer.valueOf(component[0]);
+    LinkedList<Integer> queue = new LinkedList<Integer>();
+    queue.add(start);
+    Integer last = null;
+    while ((last == null) && !queue.isEmpty()) {
+      Integer vertex = queue.removeFirst();
+      for (Integer child : this._children.get(vertex.intValue())) {
+        if (child.equals(start)) {
+          last = vertex;
+          break;
+        }
+        if (members.contains(child) && !predecessors.containsKey(child)) {
+          predecessors.put(child, vertex);
+          queue.add(child);
+        }
       }
     }
+
+    LinkedList<T> result = new LinkedList<T>();
+    for (Integer vertex = last; !vertex.equals(start); vertex = predecessors.get(vertex)) {
+      result.addFirst(this._vertices.get(vertex.intValue()));
+    }
+    result.addFirst(this._vertices.get(start.intValue()));
+    return result;
   }
 
   /**
    * <p>
-   * Returns a list with the counted number of edges.
+   * Appends the textual representation of the given cycle, e.g. <code>a -> b -> a</code>.
    * </p>
-   * 
-   * @param matrix
-   *          The matrix which provides graph representation.
-   * 
-   * @return A list with the length of the matrix where each element holds the number of edges of the related row.
    */
-  private int[] countEdges(boolean[][] matrix) {
-    int[] result = new int[matrix.length];
-    // count the number of edges for each row
-    for (int i = 0; i < matrix.length; i++) {
-      result[i] = sum(matrix[i]);
+  private void appendCycle(StringBuffer buffer, List<T> cycle) {
+    for (T vertex : cycle) {
+      buffer.append(render(vertex));
+      buffer.append(" -> ");
     }
-    return result;
+    buffer.append(render(cycle.get(0)));
   }
 
   /**
    * <p>
-   * Returns the number of 'true'-values in the given array.
+   * Returns the indices of the children of the vertex with the given index.
    * </p>
-   * 
-   * @param row
-   *          the array of boolean
-   * @return the number of 'true'-values in the given array.
    */
-  private int sum(boolean[] row) {
-    int result = 0;
-
-    for (boolean element : row) {
-      if (element) {
-        result++;
-      }
+  private int[] children(int vertex) {
+    Set<Integer> children = this._children.get(vertex);
+    int[] result = new int[children.size()];
+    int i = 0;
+    for (Integer child : children) {
+      result[i++] = child.intValue();
     }
-
     return result;
   }
 
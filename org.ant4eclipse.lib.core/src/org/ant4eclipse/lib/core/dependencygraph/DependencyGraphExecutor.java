@@ -0,0 +1,373 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.core.dependencygraph;
+
+import org.ant4eclipse.lib.core.Assure;
+import org.ant4eclipse.lib.core.CoreExceptionCode;
+import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
+import org.ant4eclipse.lib.core.logging.A4ELogging;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * Processes the vertices of a {@link DependencyGraph} concurrently. A vertex is processed as soon as all the vertices
+ * it depends on have been processed. Whenever a thread becomes idle, it takes the ready vertex with the longest chain
+ * of dependent vertices, so the critical path of the graph is started as early as possible.
+ * </p>
+ * <p>
+ * If only a subset of the vertices of the graph is processed, the dependencies are followed through the vertices that
+ * are not processed, so the order of the processed vertices is the same as if all vertices would have been processed.
+ * </p>
+ * <p>
+ * If the processing of a vertex fails, no further vertices are started (<i>fail-fast</i>). In <i>keep-going</i> mode,
+ * only the vertices that (directly or indirectly) depend on the failed vertex are skipped. In both cases the vertices
+ * that are processed at the time of the failure are finished.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ *
+ * @param <T>
+ *          the type of the vertices
+ */
+public final class DependencyGraphExecutor<T> {
+
+  /** used to create unique thread names */
+  private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+  /** the dependency graph */
+  private DependencyGraph<T>         _dependencyGraph;
+
+  /** the maximum number of threads */
+  private int                        _threadCount;
+
+  /** indicates whether the independent vertices should be processed after a failure */
+  private boolean                    _keepGoing;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link DependencyGraphExecutor}.
+   * </p>
+   *
+   * @param dependencyGraph
+   *          the dependency graph
+   * @param threadCount
+   *          the maximum number of threads. If <code>1</code>, all vertices are processed by the calling thread in the
+   *          order computed by {@link DependencyGraph#calculateOrder()}.
+   * @param keepGoing
+   *          <code>true</code> if the vertices that don't depend on a failed vertex should be processed after a
+   *          failure.
+   */
+  public DependencyGraphExecutor(DependencyGraph<T> dependencyGraph, int threadCount, boolean keepGoing) {
+    Assure.notNull("dependencyGraph", dependencyGraph);
+    Assure.assertTrue(threadCount > 0, "threadCount must be at least 1");
+
+    this._dependencyGraph = dependencyGraph;
+    this._threadCount = threadCount;
+    this._keepGoing = keepGoing;
+  }
+
+  /**
+   * <p>
+   * Processes the given vertices.
+   * </p>
+   *
+   * @param vertices
+   *          the vertices to process. They must have been added to the dependency graph.
+   * @param processor
+   *          the processor of the vertices
+   * @return the failures (in the order of their occurrence). Empty if all vertices have been processed successfully.
+   */
+  public Map<T, Throwable> execute(List<T> vertices, VertexProcessor<T> processor) {
+    Assure.notNull("vertices", vertices);
+    Assure.notNull("processor", processor);
+
+    // order the vertices (this fails if the graph contains a cycle)
+    Set<T> selected = new HashSet<T>(vertices);
+    for (T vertex : selected) {
+      Assure.assertTrue(this._dependencyGraph.containsVertex(vertex), String.format(
+          "The vertex '%s' has not been added to the dependency graph.", this._dependencyGraph.render(vertex)));
+    }
+    List<T> order = new ArrayList<T>(selected.size());
+    for (T vertex : this._dependencyGraph.calculateOrder()) {
+      if (selected.contains(vertex)) {
+        order.add(vertex);
+      }
+    }
+
+    int count = order.size();
+    Map<T, Integer> indices = new HashMap<T, Integer>();
+    for (int i = 0; i < count; i++) {
+      indices.put(order.get(i), Integer.valueOf(i));
+    }
+
+    // compute the number of unprocessed requirements and the dependent vertices
+    final int[] pending = new int[count];
+    List<List<Integer>> dependents = new ArrayList<List<Integer>>(count);
+    for (int i = 0; i < count; i++) {
+      dependents.add(new ArrayList<Integer>());
+    }
+    for (int i = 0; i < count; i++) {
+      for (Integer required : getRequiredVertices(order.get(i), indices)) {
+        dependents.get(required.intValue()).add(Integer.valueOf(i));
+        pending[i]++;
+      }
+    }
+
+    // the weight of a vertex is the length of the longest chain of vertices that depend on it
+    final int[] weights = new int[count];
+    for (int i = count - 1; i >= 0; i--) {
+      int weight = 0;
+      for (Integer dependent : dependents.get(i)) {
+        weight = Math.max(weight, weights[dependent.intValue()]);
+      }
+      weights[i] = weight + 1;
+    }
+
+    // the ready vertices, the heaviest first
+    final boolean prioritize = this._threadCount > 1;
+    PriorityQueue<Integer> ready = new PriorityQueue<Integer>(Math.max(1, count), new Comparator<Integer>() {
+      public int compare(Integer o1, Integer o2) {
+        if (prioritize && (weights[o1.intValue()] != weights[o2.intValue()])) {
+          return weights[o2.intValue()] - weights[o1.intValue()];
+        }
+        return o1.intValue() - o2.intValue();
+      }
+    });
+    for (int i = 0; i < count; i++) {
+      if (pending[i] == 0) {
+        ready.add(Integer.valueOf(i));
+      }
+    }
+
+    Throwable[] failures = new Throwable[count];
+    boolean[] processed = new boolean[count];
+    int threadCount = Math.min(this._threadCount, count);
+    A4ELogging.debug("Processing %d vertices using %d threads.", Integer.valueOf(count), Integer.valueOf(threadCount));
+
+    if (threadCount <= 1) {
+      while (!ready.isEmpty()) {
+        int index = ready.poll().intValue();
+        new ProcessTask(order.get(index), index, processor, failures).call();
+        if (!finished(index, failures, processed, pending, dependents, ready)) {
+          break;
+        }
+      }
+    } else {
+      ExecutorService executor = Executors.newFixedThreadPool(threadCount, new ProcessThreadFactory());
+      try {
+        CompletionService<Integer> completionService = new ExecutorCompletionService<Integer>(executor);
+        int running = 0;
+        boolean stopped = false;
+        while (true) {
+
+          // keep all threads busy
+          while (!stopped && (running < threadCount) && !ready.isEmpty()) {
+            int index = ready.poll().intValue();
+            completionService.submit(new ProcessTask(order.get(index), index, processor, failures));
+            running++;
+          }
+          if (running == 0) {
+            break;
+          }
+
+          // wait for the next processed vertex
+          int index = takeProcessedVertex(completionService);
+          running--;
+          if (!finished(index, failures, processed, pending, dependents, ready)) {
+            stopped = true;
+          }
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+
+    // collect the result
+    Map<T, Throwable> result = new LinkedHashMap<T, Throwable>();
+    List<String> skipped = new LinkedList<String>();
+    for (int i = 0; i < count; i++) {
+      if (failures[i] != null) {
+        result.put(order.get(i), failures[i]);
+      } else if (!processed[i]) {
+        skipped.add(this._dependencyGraph.render(order.get(i)));
+      }
+    }
+    if (!skipped.isEmpty()) {
+      A4ELogging.warn("Skipped %d vertices due to previous failures: %s", Integer.valueOf(skipped.size()), skipped);
+    }
+    return result;
+  }
+
+  /**
+   * <p>
+   * Marks the vertex with the given index as processed and adds the dependent vertices that became ready to the given
+   * queue.
+   * </p>
+   *
+   * @return <code>false</code> if no more vertices should be started.
+   */
+  private boolean finished(int index, Throwable[] failures, boolean[] processed, int[] pending,
+      List<List<Integer>> dependents, PriorityQueue<Integer> ready) {
+    processed[index] = true;
+    if (failures[index] != null) {
+      // the dependent vertices never become ready
+      return this._keepGoing;
+    }
+    for (Integer dependent : dependents.get(index)) {
+      if (--pending[dependent.intValue()] == 0) {
+        ready.add(dependent);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * <p>
+   * Returns the indices of the selected vertices the given vertex depends on. Vertices that are not selected are
+   * traversed.
+   * </p>
+   */
+  private Set<Integer> getRequiredVertices(T vertex, Map<T, Integer> indices) {
+    Set<Integer> result = new HashSet<Integer>();
+    Set<T> visited = new HashSet<T>();
+    LinkedList<T> stack = new LinkedList<T>(this._dependencyGraph.getChildren(vertex));
+    while (!stack.isEmpty()) {
+      T child = stack.removeFirst();
+      if (child.equals(vertex) || !visited.add(child)) {
+        continue;
+      }
+      Integer index = indices.get(child);
+      if (index != null) {
+        result.add(index);
+      } else {
+        stack.addAll(this._dependencyGraph.getChildren(child));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * <p>
+   * Waits for the next processed vertex and returns its index.
+   * </p>
+   */
+  private int takeProcessedVertex(CompletionService<Integer> completionService) {
+    try {
+      return completionService.take().get().intValue();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new Ant4EclipseException(ex, CoreExceptionCode.DEPENDENCY_GRAPH_EXECUTION_INTERRUPTED);
+    } catch (ExecutionException ex) {
+      // can't happen, the task catches all failures
+      throw new RuntimeException(ex.getCause());
+    }
+  }
+
+  /**
+   * <p>
+   * Processes a single vertex and records its failure.
+   * </p>
+   */
+  private class ProcessTask implements Callable<Integer> {
+
+    /** the vertex */
+    private T                  _vertex;
+
+    /** the index of the vertex */
+    private int                _index;
+
+    /** the processor */
+    private VertexProcessor<T> _processor;
+
+    /** the failures of all vertices */
+    private Throwable[]        _failures;
+
+    /**
+     * <p>
+     * Creates a new instance of type {@link ProcessTask}.
+     * </p>
+     */
+    public ProcessTask(T vertex, int index, VertexProcessor<T> processor, Throwable[] failures) {
+      this._vertex = vertex;
+      this._index = index;
+      this._processor = processor;
+      this._failures = failures;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer call() {
+      try {
+        this._processor.process(this._vertex);
+      } catch (Throwable ex) {
+        A4ELogging.debug("Processing of '%s' failed: %s", DependencyGraphExecutor.this._dependencyGraph
+            .render(this._vertex), ex);
+        // the array is read by the calling thread after the completion service handed out this task
+        this._failures[this._index] = ex;
+      }
+      return Integer.valueOf(this._index);
+    }
+  }
+
+  /**
+   * <p>
+   * Creates named daemon threads for the processing of the vertices.
+   * </p>
+   */
+  private static class ProcessThreadFactory implements ThreadFactory {
+
+    /** the number of the pool */
+    private int           _pool;
+
+    /** the number of the next thread */
+    private AtomicInteger _thread;
+
+    /**
+     * <p>
+     * Creates a new instance of type {@link ProcessThreadFactory}.
+     * </p>
+     */
+    public ProcessThreadFactory() {
+      this._pool = POOL_COUNTER.incrementAndGet();
+      this._thread = new AtomicInteger();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "A4E-" + this._pool + "-" + this._thread.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
+} /* ENDCLASS */
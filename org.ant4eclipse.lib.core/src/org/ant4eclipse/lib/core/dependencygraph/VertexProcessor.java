@@ -0,0 +1,39 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.core.dependencygraph;
+
+/**
+ * <p>
+ * A {@link VertexProcessor} is used by the {@link DependencyGraphExecutor} to process the vertices of a
+ * {@link DependencyGraph}.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ *
+ * @param <T>
+ *          the type of the vertices
+ */
+public interface VertexProcessor<T> {
+
+  /**
+   * <p>
+   * Processes the given vertex. This method may be called concurrently for vertices that don't depend on each other.
+   * </p>
+   *
+   * @param vertex
+   *          the vertex to process.
+   * @throws Exception
+   *           if the vertex could not be processed.
+   */
+  void process(T vertex) throws Exception;
+
+} /* ENDINTERFACE */
@@ -0,0 +1,89 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.core.ldapfilter;
+
+import org.ant4eclipse.lib.core.Assure;
+
+import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * A bounded cache of parsed LDAP filters, so a filter that is evaluated for many projects or plug-ins is only parsed
+ * once. If the cache is full, the least recently used filter is dropped.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class LdapFilterCache {
+
+  /** the maximum number of cached filters */
+  public static final int                                MAX_SIZE = 256;
+
+  /** the parsed filters per filter text */
+  private static final Map<String, LdapFilterExpression> CACHE    = new FilterMap();
+
+  /**
+   * <p>
+   * Returns the parsed filter for the given filter text.
+   * </p>
+   *
+   * @param filter
+   *          the filter text. Not <code>null</code>.
+   * @return the parsed filter. Not <code>null</code>.
+   * @throws ParseException
+   *           if the filter text is not a valid filter.
+   */
+  public static LdapFilterExpression compile(String filter) throws ParseException {
+    Assure.notNull("filter", filter);
+
+    synchronized (CACHE) {
+      LdapFilterExpression result = CACHE.get(filter);
+      if (result != null) {
+        return result;
+      }
+    }
+
+    // parse outside of the lock (parsing the same filter twice doesn't do any harm)
+    LdapFilterExpression result = new LdapFilter(new StringReader(filter)).parse();
+    synchronized (CACHE) {
+      CACHE.put(filter, result);
+    }
+    return result;
+  }
+
+  /**
+   * <p>
+   * A map which drops it's least recently used entry as soon as it exceeds {@link LdapFilterCache#MAX_SIZE} entries.
+   * </p>
+   */
+  private static final class FilterMap extends LinkedHashMap<String, LdapFilterExpression> {
+
+    /** - */
+    private static final long serialVersionUID = 1L;
+
+    public FilterMap() {
+      super(16, 0.75f, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, LdapFilterExpression> eldest) {
+      return size() > MAX_SIZE;
+    }
+
+  } /* ENDCLASS */
+
+} /* ENDCLASS */
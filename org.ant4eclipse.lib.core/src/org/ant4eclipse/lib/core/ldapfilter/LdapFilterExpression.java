@@ -0,0 +1,177 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.core.ldapfilter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * <p>
+ * An immutable, parsed LDAP filter (see {@link LdapFilter#parse()}). A parsed filter can be evaluated against
+ * different properties as often as required (and by several threads at the same time).
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public abstract class LdapFilterExpression {
+
+  /**
+   * <p>
+   * Evaluates this filter against the given properties.
+   * </p>
+   *
+   * @param properties
+   *          the properties. Not <code>null</code>.
+   * @return <code>true</code> if the properties match this filter.
+   */
+  public abstract boolean evaluate(PropertyLookup properties);
+
+  /**
+   * <p>
+   * Evaluates this filter against the given properties.
+   * </p>
+   *
+   * @param properties
+   *          the properties. Not <code>null</code>.
+   * @return <code>true</code> if the properties match this filter.
+   */
+  public boolean evaluate(final Map<?, ?> properties) {
+    return evaluate(new PropertyLookup() {
+      public String getProperty(String key) {
+        return (String) properties.get(key);
+      }
+    });
+  }
+
+  /**
+   * <p>
+   * Creates a filter that matches if all given filters match.
+   * </p>
+   */
+  static LdapFilterExpression and(List<LdapFilterExpression> filters) {
+    return new Junction(filters.toArray(new LdapFilterExpression[filters.size()]), true);
+  }
+
+  /**
+   * <p>
+   * Creates a filter that matches if one of the given filters matches.
+   * </p>
+   */
+  static LdapFilterExpression or(List<LdapFilterExpression> filters) {
+    return new Junction(filters.toArray(new LdapFilterExpression[filters.size()]), false);
+  }
+
+  /**
+   * <p>
+   * Creates a filter that matches if the given filter doesn't match.
+   * </p>
+   */
+  static LdapFilterExpression not(final LdapFilterExpression filter) {
+    return new LdapFilterExpression() {
+      @Override
+      public boolean evaluate(PropertyLookup properties) {
+        return !filter.evaluate(properties);
+      }
+    };
+  }
+
+  /**
+   * <p>
+   * Creates a filter that compares the value of a property.
+   * </p>
+   *
+   * @param kind
+   *          the kind of the operator token (see {@link LdapFilterConstants}).
+   */
+  static LdapFilterExpression compare(String attribute, int kind, String value) throws ParseException {
+    if ((kind != LdapFilterConstants.EQUAL) && (value.indexOf('*') != -1)) {
+      throw new ParseException("Invalid filter definition.");
+    }
+    if ((kind == LdapFilterConstants.GREATER) || (kind == LdapFilterConstants.LESS)) {
+      // ordering comparisons are not supported, so they always match
+      return new LdapFilterExpression() {
+        @Override
+        public boolean evaluate(PropertyLookup properties) {
+          return true;
+        }
+      };
+    }
+    return new Equals(attribute, value);
+  }
+
+  /**
+   * <p>
+   * Compares a property with a value (which may contain wildcards).
+   * </p>
+   */
+  private static final class Equals extends LdapFilterExpression {
+
+    /** the name of the property */
+    private String  _attribute;
+
+    /** the pattern for the value or <code>null</code> if the property only has to be present */
+    private Pattern _pattern;
+
+    public Equals(String attribute, String value) {
+      this._attribute = attribute;
+      this._pattern = "*".equals(value) ? null : Pattern.compile(value.replaceAll("\\*", ".*"));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean evaluate(PropertyLookup properties) {
+      String property = properties.getProperty(this._attribute);
+      if (property == null) {
+        return false;
+      }
+      return (this._pattern == null) || this._pattern.matcher(property).matches();
+    }
+
+  } /* ENDCLASS */
+
+  /**
+   * <p>
+   * A conjunction or disjunction of filters.
+   * </p>
+   */
+  private static final class Junction extends LdapFilterExpression {
+
+    /** the filters */
+    private LdapFilterExpression[] _filters;
+
+    /** <code>true</code> for a conjunction, <code>false</code> for a disjunction */
+    private boolean                _and;
+
+    public Junction(LdapFilterExpression[] filters, boolean and) {
+      this._filters = filters;
+      this._and = and;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean evaluate(PropertyLookup properties) {
+      for (LdapFilterExpression filter : this._filters) {
+        if (filter.evaluate(properties) != this._and) {
+          return !this._and;
+        }
+      }
+      return this._and;
+    }
+
+  } /* ENDCLASS */
+
+} /* ENDCLASS */
@@ -0,0 +1,34 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.core.ldapfilter;
+
+/**
+ * <p>
+ * Provides the properties a {@link LdapFilterExpression} is evaluated against.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public interface PropertyLookup {
+
+  /**
+   * <p>
+   * Returns the value of the property with the given key.
+   * </p>
+   *
+   * @param key
+   *          the key of the property. Not <code>null</code>.
+   * @return the value of the property or <code>null</code> if the property is not set.
+   */
+  String getProperty(String key);
+
+} /* ENDCLASS */
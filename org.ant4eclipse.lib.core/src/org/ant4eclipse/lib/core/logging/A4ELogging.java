@@ -23,6 +23,9 @@ import org.ant4eclipse.lib.core.service.ServiceRegistryAccess;
  */
 public class A4ELogging {
 
+  /** the logger of the current registry (cached as it's looked up for each message) */
+  private static volatile Ant4EclipseLogger _logger;
+
   /**
    * Returns <code>true</code> if the debugging is enabled.
    * 
@@ -53,6 +56,40 @@ public class A4ELogging {
     getLogger().trace(msg, args);
   }
 
+  /**
+   * Dumps traceing information. Unlike {@link #trace(String, Object...)} this doesn't create an argument array if
+   * tracing is disabled.
+   * 
+   * @param msg
+   *          A formatting message. Neither <code>null</code> nor empty.
+   * @param arg
+   *          The argument used for the formatted message.
+   */
+  public static final void trace(String msg, Object arg) {
+    Ant4EclipseLogger logger = getLogger();
+    if (logger.isTraceingEnabled()) {
+      logger.trace(msg, arg);
+    }
+  }
+
+  /**
+   * Dumps traceing information. Unlike {@link #trace(String, Object...)} this doesn't create an argument array if
+   * tracing is disabled.
+   * 
+   * @param msg
+   *          A formatting message. Neither <code>null</code> nor empty.
+   * @param arg1
+   *          The first argument used for the formatted message.
+   * @param arg2
+   *          The second argument used for the formatted message.
+   */
+  public static final void trace(String msg, Object arg1, Object arg2) {
+    Ant4EclipseLogger logger = getLogger();
+    if (logger.isTraceingEnabled()) {
+      logger.trace(msg, arg1, arg2);
+    }
+  }
+
   /**
    * Dumps debugging information.
    * 
@@ -65,6 +102,40 @@ public class A4ELogging {
     getLogger().debug(msg, args);
   }
 
+  /**
+   * Dumps debugging information. Unlike {@link #debug(String, Object...)} this doesn't create an argument array if
+   * debugging is disabled.
+   * 
+   * @param msg
+   *          A formatting message. Neither <code>null</code> nor empty.
+   * @param arg
+   *          The argument used for the formatted message.
+   */
+  public static final void debug(String msg, Object arg) {
+    Ant4EclipseLogger logger = getLogger();
+    if (logger.isDebuggingEnabled()) {
+      logger.debug(msg, arg);
+    }
+  }
+
+  /**
+   * Dumps debugging information. Unlike {@link #debug(String, Object...)} this doesn't create an argument array if
+   * debugging is disabled.
+   * 
+   * @param msg
+   *          A formatting message. Neither <code>null</code> nor empty.
+   * @param arg1
+   *          The first argument used for the formatted message.
+   * @param arg2
+   *          The second argument used for the formatted message.
+   */
+  public static final void debug(String msg, Object arg1, Object arg2) {
+    Ant4EclipseLogger logger = getLogger();
+    if (logger.isDebuggingEnabled()) {
+      logger.debug(msg, arg1, arg2);
+    }
+  }
+
   /**
    * Dumps informational text.
    * 
@@ -112,12 +183,13 @@ public class A4ELogging {
    *          The arguments used for the formatted message.
    */
   public static final void log(A4ELevel level, String msg, Object... args) {
+    // the logger is invoked directly, as trace(msg, args) would bind to trace(String, Object)
     switch (level) {
     case TRACE:
-      trace(msg, args);
+      getLogger().trace(msg, args);
       break;
     case DEBUG:
-      debug(msg, args);
+      getLogger().debug(msg, args);
       break;
     case INFO:
       info(msg, args);
@@ -137,7 +209,20 @@ public class A4ELogging {
    * @return An instance of a logger currently provided by the registry. Not <code>null</code>.
    */
   private static final Ant4EclipseLogger getLogger() {
-    return ServiceRegistryAccess.instance().getService(Ant4EclipseLogger.class);
+    Ant4EclipseLogger result = _logger;
+    if (result == null) {
+      result = ServiceRegistryAccess.instance().getService(Ant4EclipseLogger.class);
+      _logger = result;
+    }
+    return result;
+  }
+
+  /**
+   * Discards the cached logger, so the logger is looked up in the registry again. Invoked by
+   * {@link ServiceRegistryAccess} whenever the registry is configured, restored or reset.
+   */
+  public static final void resetLogger() {
+    _logger = null;
   }
 
 } /* ENDCLASS */
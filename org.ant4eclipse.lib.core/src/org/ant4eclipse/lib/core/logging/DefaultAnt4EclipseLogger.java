@@ -121,7 +121,9 @@ public class DefaultAnt4EclipseLogger implements Ant4EclipseLogger {
    * {@inheritDoc}
    */
   public void info(String msg, Object... args) {
-    log(Priority.info, msg, args);
+    if (Priority.info.isEnabled(this._logLevel)) {
+      log(Priority.info, msg, args);
+    }
   }
 
   /**
@@ -137,7 +139,9 @@ public class DefaultAnt4EclipseLogger implements Ant4EclipseLogger {
    * {@inheritDoc}
    */
   public void warn(String msg, Object... args) {
-    log(Priority.warn, msg, args);
+    if (Priority.warn.isEnabled(this._logLevel)) {
+      log(Priority.warn, msg, args);
+    }
   }
 
   /**
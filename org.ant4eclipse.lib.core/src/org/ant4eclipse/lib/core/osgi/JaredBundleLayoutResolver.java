@@ -15,6 +15,7 @@ import org.ant4eclipse.lib.core.Assure;
 import org.ant4eclipse.lib.core.CoreExceptionCode;
 import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
 import org.ant4eclipse.lib.core.logging.A4ELogging;
+import org.ant4eclipse.lib.core.util.JarExpansionCache;
 import org.ant4eclipse.lib.core.util.ManifestHelper;
 import org.ant4eclipse.lib.core.util.ManifestHelper.ManifestHeaderElement;
 import org.ant4eclipse.lib.core.util.Utilities;
@@ -36,16 +37,19 @@ import java.util.jar.Manifest;
 public class JaredBundleLayoutResolver implements BundleLayoutResolver {
 
   /** the location */
-  private File     _location;
+  private File              _location;
 
   /** the expansion directory */
-  private File     _expansionDirectory;
+  private File              _expansionDirectory;
+
+  /** the expansion cache (used instead of the expansion directory) */
+  private JarExpansionCache _expansionCache;
 
   /** the jar file */
-  private JarFile  _jarFile;
+  private JarFile           _jarFile;
 
   /** the manifest */
-  private Manifest _manifest;
+  private Manifest          _manifest;
 
   /**
    * <p>
@@ -58,12 +62,44 @@ public class JaredBundleLayoutResolver implements BundleLayoutResolver {
    *          the expansion directory
    */
   public JaredBundleLayoutResolver(File location, File expansionDirectory) {
-    Assure.isFile("location", location);
     Assure.notNull("expansionDirectory", expansionDirectory);
 
-    this._location = location;
     this._expansionDirectory = expansionDirectory;
 
+    init(location);
+  }
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link JaredBundleLayoutResolver} which expands the jar file using the given cache.
+   * </p>
+   * 
+   * @param location
+   *          the location of the jar file
+   * @param expansionCache
+   *          the expansion cache
+   */
+  public JaredBundleLayoutResolver(File location, JarExpansionCache expansionCache) {
+    Assure.notNull("expansionCache", expansionCache);
+
+    this._expansionCache = expansionCache;
+
+    init(location);
+  }
+
+  /**
+   * <p>
+   * Opens the jar file at the given location.
+   * </p>
+   * 
+   * @param location
+   *          the location of the jar file
+   */
+  private void init(File location) {
+    Assure.isFile("location", location);
+
+    this._location = location;
+
     try {
       this._jarFile = new JarFile(this._location);
       this._manifest = this._jarFile.getManifest();
@@ -154,13 +190,19 @@ public class JaredBundleLayoutResolver implements BundleLayoutResolver {
 
     String version = ManifestHelper.getManifestHeader(this._manifest, ManifestHelper.BUNDLE_VERSION);
 
-    File destination = new File(this._expansionDirectory, elements[0].getValues()[0] + "_" + version);
+    File destination = null;
 
     // unwrap jar file
     try {
-      Utilities.expandJarFile(this._jarFile, destination);
+      if (this._expansionCache != null) {
+        destination = this._expansionCache.expand(this._location);
+      } else {
+        destination = new File(this._expansionDirectory, elements[0].getValues()[0] + "_" + version);
+        Utilities.expandJarFile(this._jarFile, destination);
+      }
     } catch (Ant4EclipseException ex) {
-      if (ex.getExceptionCode() == CoreExceptionCode.IO_FAILURE) {
+      if ((ex.getExceptionCode() == CoreExceptionCode.IO_FAILURE)
+          || (ex.getExceptionCode() == CoreExceptionCode.FILEIO_FAILURE)) {
         // log error
         A4ELogging.error("Could not expand jar file '%s'. Reason: '%s'", this._location, ex.getMessage());
         // return 'self'
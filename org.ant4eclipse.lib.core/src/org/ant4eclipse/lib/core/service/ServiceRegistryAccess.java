@@ -12,6 +12,7 @@
 package org.ant4eclipse.lib.core.service;
 
 import org.ant4eclipse.lib.core.Assure;
+import org.ant4eclipse.lib.core.logging.A4ELogging;
 
 /**
  * <p>
@@ -38,10 +39,12 @@ public class ServiceRegistryAccess {
     Assure.notNull("configuration", configuration);
     Assure.assertTrue(!isConfigured(), "ServiceRegistry already is configured.");
     _instance = new ServiceRegistry(configuration);
+    A4ELogging.resetLogger();
     try {
       _instance.initialize();
     } catch (RuntimeException exception) {
       _instance = null;
+      A4ELogging.resetLogger();
       throw exception;
     }
   }
@@ -58,6 +61,7 @@ public class ServiceRegistryAccess {
   public static final void restore(ServiceRegistry registry) {
     Assure.notNull("registry", registry);
     _instance = registry;
+    A4ELogging.resetLogger();
   }
 
   /**
@@ -79,6 +83,7 @@ public class ServiceRegistryAccess {
   public static final void reset() {
     instance().dispose();
     _instance = null;
+    A4ELogging.resetLogger();
   }
 
   /**
@@ -0,0 +1,480 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.core.util;
+
+import org.ant4eclipse.lib.core.Assure;
+import org.ant4eclipse.lib.core.CoreExceptionCode;
+import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
+import org.ant4eclipse.lib.core.logging.A4ELogging;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarFile;
+
+/**
+ * <p>
+ * A persistent cache of expanded jar files which is shared by all builds (see {@link Utilities#getCacheDir(String)}).
+ * The jar files are expanded to directories that are named after the SHA-1 hash of their content, so a jar file is
+ * only expanded once as long as it's content doesn't change, regardless of it's location.
+ * </p>
+ * <p>
+ * A jar file is expanded while holding a file lock, so concurrent builds can share the cache. Within a build the
+ * expansions are only serialized if they are using the same lock stripe. Next to each expanded jar file there's an info
+ * file which contains the size of the expanded jar file. The modification time of the info file is updated whenever the
+ * expanded jar file is used, so {@link #cleanup()} can remove the least recently used jar files as soon as the cache
+ * exceeds it's maximum size.
+ * </p>
+ * <p>
+ * The file lock of an entry is only held while it is expanded or removed, so it doesn't protect the builds that are
+ * reading an expanded jar file. Therefore {@link #cleanup()} never removes an entry that has been used by this build
+ * (process) or by any other build since this build has been started.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class JarExpansionCache {
+
+  /** the maximum size of the cache in megabytes */
+  public static final String                PROP_MAXSIZE    = "ant4eclipse.expansionCache.maxSize";
+
+  /** the default maximum size of the cache in megabytes */
+  public static final long                  DEFAULT_MAXSIZE = 1024;
+
+  /** the name of the cache directory */
+  private static final String               CACHE           = "jar-expansion";
+
+  /** the suffix of the info files */
+  private static final String               INFO_SUFFIX     = ".info";
+
+  /** the suffix of the lock files */
+  private static final String               LOCK_SUFFIX     = ".lock";
+
+  /** the name of the lock file which is used while the cache is cleaned up */
+  private static final String               CLEANUP_LOCK    = "cleanup.lock";
+
+  /** the locks which are used by the threads of this build (a file lock can only be held once per process) */
+  private static final Object               LOCKS[]         = new Object[32];
+
+  /** the content hashes per jar file (path, length and modification time) */
+  private static final Map<String, String>  HASHES          = new ConcurrentHashMap<String, String>();
+
+  /** the hashes of the entries that have been used by this build */
+  private static final Map<String, Boolean> USED            = new ConcurrentHashMap<String, Boolean>();
+
+  /** the start time of this build, entries used afterwards might be in use by a concurrent build */
+  private static final long                 START           = ManagementFactory.getRuntimeMXBean().getStartTime();
+
+  /** the content of a lock file whose entry has been removed */
+  private static final byte                 REMOVED         = 1;
+
+  /** the cache directory */
+  private File                              _directory;
+
+  /** the maximum size of the cache in bytes */
+  private long                              _maxSize;
+
+  static {
+    for (int i = 0; i < LOCKS.length; i++) {
+      LOCKS[i] = new Object();
+    }
+  }
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link JarExpansionCache}.
+   * </p>
+   *
+   * @param directory
+   *          the cache directory. Not <code>null</code>.
+   * @param maxSize
+   *          the maximum size of the cache in megabytes.
+   */
+  public JarExpansionCache(File directory, long maxSize) {
+    Assure.isDirectory("directory", directory);
+    this._directory = directory;
+    this._maxSize = maxSize * 1024 * 1024;
+  }
+
+  /**
+   * <p>
+   * Returns the cache which is located in the ant4eclipse cache directory. It's maximum size can be specified using the
+   * system property {@link #PROP_MAXSIZE}.
+   * </p>
+   *
+   * @return the cache or <code>null</code> if persistent caches are disabled.
+   */
+  public static JarExpansionCache getDefault() {
+    return getDefault(Long.getLong(PROP_MAXSIZE, DEFAULT_MAXSIZE).longValue());
+  }
+
+  /**
+   * <p>
+   * Returns the cache which is located in the ant4eclipse cache directory.
+   * </p>
+   *
+   * @param maxSize
+   *          the maximum size of the cache in megabytes.
+   * @return the cache or <code>null</code> if persistent caches are disabled.
+   */
+  public static JarExpansionCache getDefault(long maxSize) {
+    File directory = Utilities.getCacheDir(CACHE);
+    if (directory == null) {
+      return null;
+    }
+    return new JarExpansionCache(directory, maxSize);
+  }
+
+  /**
+   * <p>
+   * Returns the cache directory.
+   * </p>
+   *
+   * @return the cache directory. Not <code>null</code>.
+   */
+  public File getDirectory() {
+    return this._directory;
+  }
+
+  /**
+   * <p>
+   * Returns the directory which contains the expanded content of the given jar file. The jar file is expanded if it
+   * isn't contained in the cache.
+   * </p>
+   *
+   * @param jarFile
+   *          the jar file. Not <code>null</code>.
+   * @return the directory which contains the expanded jar file. Not <code>null</code>.
+   */
+  public File expand(File jarFile) {
+    Assure.isFile("jarFile", jarFile);
+
+    String hash = getHash(jarFile);
+    File destination = new File(this._directory, hash);
+    File info = new File(this._directory, hash + INFO_SUFFIX);
+    USED.put(hash, Boolean.TRUE);
+
+    // an entry is complete if it's info file exists
+    if (info.isFile() && destination.isDirectory()) {
+      info.setLastModified(System.currentTimeMillis());
+      return destination;
+    }
+
+    boolean expanded = false;
+    synchronized (getLock(hash)) {
+      FileLock lock = null;
+      try {
+        lock = lockEntry(hash, true);
+        if (!info.isFile() || !destination.isDirectory()) {
+          if (destination.exists()) {
+            // a previous expansion or cleanup has been interrupted
+            Utilities.delete(destination);
+          }
+          A4ELogging.debug("Expanding '%s' to the cache entry '%s'.", jarFile, destination);
+          JarFile jar = new JarFile(jarFile);
+          try {
+            Utilities.expandJarFile(jar, destination);
+          } finally {
+            jar.close();
+          }
+          writeSize(info, getSize(destination));
+          expanded = true;
+        }
+        info.setLastModified(System.currentTimeMillis());
+      } catch (IOException ex) {
+        throw new Ant4EclipseException(ex, CoreExceptionCode.FILEIO_FAILURE, jarFile);
+      } finally {
+        unlockEntry(lock);
+      }
+    }
+
+    if (expanded) {
+      cleanup();
+    }
+    return destination;
+  }
+
+  /**
+   * <p>
+   * Removes the least recently used jar files until the cache doesn't exceed it's maximum size. Jar files which are
+   * currently expanded by another build, which have been used by this build or which have been used since this build
+   * has been started are skipped.
+   * </p>
+   *
+   * @return the number of removed jar files.
+   */
+  public int cleanup() {
+
+    RandomAccessFile cleanupFile = null;
+    FileLock cleanupLock = null;
+    try {
+      cleanupFile = new RandomAccessFile(new File(this._directory, CLEANUP_LOCK), "rw");
+      cleanupLock = cleanupFile.getChannel().tryLock();
+      if (cleanupLock == null) {
+        // another build is cleaning up the cache
+        return 0;
+      }
+      return removeEntries();
+    } catch (IOException ex) {
+      A4ELogging.warn("Could not lock the jar expansion cache '%s': %s", this._directory, ex.getMessage());
+      return 0;
+    } finally {
+      release(cleanupLock, cleanupFile);
+    }
+  }
+
+  /**
+   * <p>
+   * Removes the least recently used jar files until the cache doesn't exceed it's maximum size. The caller must hold
+   * the cleanup lock.
+   * </p>
+   *
+   * @return the number of removed jar files.
+   */
+  private int removeEntries() {
+
+    // collect the entries that are not in use and the size of all entries
+    File[] infos = this._directory.listFiles();
+    if (infos == null) {
+      return 0;
+    }
+    List<File> entries = new ArrayList<File>();
+    long total = 0;
+    for (File info : infos) {
+      if (info.getName().endsWith(INFO_SUFFIX)) {
+        total += readSize(info);
+        if (!USED.containsKey(getEntryHash(info)) && (info.lastModified() < START)) {
+          entries.add(info);
+        }
+      }
+    }
+    if (total <= this._maxSize) {
+      return 0;
+    }
+
+    // remove the least recently used entries first
+    File[] sorted = entries.toArray(new File[entries.size()]);
+    final long[] lastModified = new long[sorted.length];
+    for (int i = 0; i < sorted.length; i++) {
+      lastModified[i] = sorted[i].lastModified();
+    }
+    Integer[] order = new Integer[sorted.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = Integer.valueOf(i);
+    }
+    Arrays.sort(order, new Comparator<Integer>() {
+      public int compare(Integer o1, Integer o2) {
+        long l1 = lastModified[o1.intValue()];
+        long l2 = lastModified[o2.intValue()];
+        return l1 < l2 ? -1 : (l1 == l2 ? 0 : 1);
+      }
+    });
+
+    int result = 0;
+    for (int i = 0; (i < order.length) && (total > this._maxSize); i++) {
+      File info = sorted[order[i].intValue()];
+      long size = readSize(info);
+      if (remove(info)) {
+        total -= size;
+        result++;
+      }
+    }
+    A4ELogging.debug("Removed %d jar files from the jar expansion cache '%s'.", Integer.valueOf(result),
+        this._directory);
+    return result;
+  }
+
+  /**
+   * <p>
+   * Removes the entry with the given info file unless it's locked by another build.
+   * </p>
+   */
+  private boolean remove(File info) {
+    String hash = getEntryHash(info);
+    synchronized (getLock(hash)) {
+      FileLock lock = null;
+      try {
+        lock = lockEntry(hash, false);
+        if ((lock == null) || (info.lastModified() >= START)) {
+          // the entry is in use
+          return false;
+        }
+        // the entry becomes incomplete as soon as the info file has been deleted
+        if (!info.delete() || !Utilities.delete(new File(this._directory, hash))) {
+          return false;
+        }
+        // a build that is waiting for the lock has to open the lock file again
+        lock.channel().write(ByteBuffer.wrap(new byte[] { REMOVED }));
+        new File(this._directory, hash + LOCK_SUFFIX).delete();
+        return true;
+      } catch (IOException ex) {
+        A4ELogging.warn("Could not remove '%s' from the jar expansion cache: %s", hash, ex.getMessage());
+        return false;
+      } finally {
+        unlockEntry(lock);
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Acquires the file lock of the entry with the given hash. The lock file of a removed entry is marked as removed, so
+   * a lock that has been acquired for such a lock file is released and the lock file is opened again.
+   * </p>
+   *
+   * @param hash
+   *          the hash of the entry.
+   * @param wait
+   *          <code>true</code> if this method should wait until the lock is available.
+   * @return the lock or <code>null</code> if <code>wait</code> is <code>false</code> and the entry is locked by
+   *         another build.
+   */
+  private FileLock lockEntry(String hash, boolean wait) throws IOException {
+    while (true) {
+      RandomAccessFile lockFile = new RandomAccessFile(new File(this._directory, hash + LOCK_SUFFIX), "rw");
+      boolean locked = false;
+      try {
+        FileLock lock = wait ? lockFile.getChannel().lock() : lockFile.getChannel().tryLock();
+        if (lock == null) {
+          return null;
+        }
+        // the entry has been removed while this build has been waiting for the lock
+        locked = lockFile.length() == 0;
+        if (locked) {
+          return lock;
+        }
+      } finally {
+        if (!locked) {
+          lockFile.close();
+        }
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Releases the given file lock of an entry and closes it's lock file.
+   * </p>
+   */
+  private static void unlockEntry(FileLock lock) {
+    if (lock != null) {
+      try {
+        lock.channel().close();
+      } catch (IOException ex) {
+        A4ELogging.debug("Could not release lock: %s", ex.getMessage());
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the hash of the entry with the given info file.
+   * </p>
+   */
+  private static String getEntryHash(File info) {
+    return info.getName().substring(0, info.getName().length() - INFO_SUFFIX.length());
+  }
+
+  /**
+   * <p>
+   * Returns the lock of this process for the entry with the given hash.
+   * </p>
+   */
+  private static Object getLock(String hash) {
+    return LOCKS[(hash.hashCode() & Integer.MAX_VALUE) % LOCKS.length];
+  }
+
+  /**
+   * <p>
+   * Returns the SHA-1 hash of the content of the given jar file. The hash is only computed once per build as long as the
+   * jar file doesn't change.
+   * </p>
+   */
+  private static String getHash(File jarFile) {
+    String key = jarFile.getAbsolutePath() + "|" + jarFile.length() + "|" + jarFile.lastModified();
+    String result = HASHES.get(key);
+    if (result != null) {
+      return result;
+    }
+    try {
+      result = Utilities.sha1(jarFile);
+    } catch (IOException ex) {
+      throw new Ant4EclipseException(ex, CoreExceptionCode.FILEIO_FAILURE, jarFile);
+    }
+    HASHES.put(key, result);
+    return result;
+  }
+
+  /**
+   * <p>
+   * Returns the size of all files below the given directory.
+   * </p>
+   */
+  private static long getSize(File directory) {
+    long result = 0;
+    File[] children = directory.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        result += child.isDirectory() ? getSize(child) : child.length();
+      }
+    }
+    return result;
+  }
+
+  private static void writeSize(File info, long size) throws IOException {
+    DataOutputStream output = new DataOutputStream(new FileOutputStream(info));
+    try {
+      output.writeLong(size);
+    } finally {
+      output.close();
+    }
+  }
+
+  private static long readSize(File info) {
+    DataInputStream input = null;
+    try {
+      input = new DataInputStream(new FileInputStream(info));
+      return input.readLong();
+    } catch (IOException ex) {
+      // a broken entry doesn't count
+      return 0;
+    } finally {
+      Utilities.close((Closeable) input);
+    }
+  }
+
+  private static void release(FileLock lock, RandomAccessFile file) {
+    if (lock != null) {
+      try {
+        lock.release();
+      } catch (IOException ex) {
+        A4ELogging.debug("Could not release lock: %s", ex.getMessage());
+      }
+    }
+    Utilities.close(file);
+  }
+
+} /* ENDCLASS */
@@ -55,6 +55,18 @@ public class StopWatch {
     this._runningSince = System.currentTimeMillis();
   }
 
+  /**
+   * Adds the given time to this stop watch and counts it as one invocation. This method can be used to record times
+   * that have been measured elsewhere, e.g. by concurrently running threads.
+   * 
+   * @param elapsedTime
+   *          the time (in ms) to add
+   */
+  public synchronized void addElapsedTime(long elapsedTime) {
+    this._invocations++;
+    this._elapsedTime += elapsedTime;
+  }
+
   /**
    * Returns the total time this stop watch has been run
    * 
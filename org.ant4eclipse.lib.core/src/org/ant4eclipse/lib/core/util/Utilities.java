@@ -31,6 +31,8 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
 import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -64,10 +66,10 @@ import org.ant4eclipse.lib.core.nls.NLSMessage;
 public class Utilities {
 
   /** - */
-  private static final String OPEN            = "${";
+  private static final String OPEN             = "${";
 
   /** - */
-  private static final String CLOSE           = "}";
+  private static final String CLOSE            = "}";
 
   @NLSMessage("Exporting a resource is only supported for root based pathes !")
   public static String        MSG_INVALIDRESOURCEPATH;
@@ -76,19 +78,34 @@ public class Utilities {
   public static String        MSG_FAILEDTODELETE;
 
   /** - */
-  public static final String  PROP_A4ETEMPDIR = "ant4eclipse.temp";
+  public static final String  PROP_A4ETEMPDIR  = "ant4eclipse.temp";
 
   /** - */
-  public static final String  NL              = System.getProperty("line.separator");
+  public static final String  PROP_A4ECACHEDIR = "ant4eclipse.cache";
+
+  /** the value of {@link #PROP_A4ECACHEDIR} that disables all persistent caches */
+  public static final String  CACHEDIR_NONE    = "none";
+
+  /** - */
+  public static final String  NL               = System.getProperty("line.separator");
 
   /** - */
-  public static final String  ENCODING        = System.getProperty("file.encoding");
+  public static final String  ENCODING         = System.getProperty("file.encoding");
 
   /** - */
-  private static final String OS              = System.getProperty("os.name");
+  private static final String OS               = System.getProperty("os.name");
+
+  /** the size of the buffer used to copy streams */
+  private static final int    BUFFER_SIZE      = 65536;
+
+  /** the locks for the expansion of jar files (striped by the expansion directory) */
+  private static final Object EXPAND_LOCKS[]   = new Object[32];
 
   static {
     NLS.initialize(Utilities.class);
+    for (int i = 0; i < EXPAND_LOCKS.length; i++) {
+      EXPAND_LOCKS[i] = new Object();
+    }
   }
 
   /**
@@ -999,6 +1016,32 @@ public class Utilities {
     }
   }
 
+  /**
+   * Returns the directory that is used to persist cached data between several builds. The location can be specified
+   * using the system property {@link #PROP_A4ECACHEDIR} and defaults to <code>${user.home}/.ant4eclipse/cache</code>.
+   * Setting the property to {@link #CACHEDIR_NONE} disables all persistent caches.
+   * 
+   * @param name
+   *          The name of the cache which is used as the name of a subdirectory. Neither <code>null</code> nor empty.
+   * 
+   * @return The cache directory or <code>null</code> if persistent caches are disabled or the directory could not be
+   *         created.
+   */
+  public static final File getCacheDir(String name) {
+    Assure.nonEmpty("name", name);
+    String cachedir = cleanup(System.getProperty(PROP_A4ECACHEDIR));
+    if (CACHEDIR_NONE.equalsIgnoreCase(cachedir)) {
+      return null;
+    }
+    File root = cachedir != null ? new File(cachedir) : new File(System.getProperty("user.home"), ".ant4eclipse/cache");
+    File result = new File(root, name);
+    if (!result.isDirectory() && !result.mkdirs() && !result.isDirectory()) {
+      A4ELogging.debug("Could not create cache directory '%s'. Caching is disabled.", result);
+      return null;
+    }
+    return result;
+  }
+
   /**
    * Writes some content into a temporary File and gives access to it.
    * 
@@ -1090,6 +1133,88 @@ public class Utilities {
     }
   }
 
+  /**
+   * Replaces a file with a completely written temporary file, so concurrent readers never see a partially written file.
+   * The temporary file should be located in the same directory as the destination.
+   * 
+   * @param tempFile
+   *          The completely written temporary file. Not <code>null</code>.
+   * @param destination
+   *          The file which has to be replaced. Not <code>null</code>.
+   * 
+   * @throws IOException
+   *           The temporary file couldn't be renamed.
+   */
+  public static final void replaceFile(File tempFile, File destination) throws IOException {
+    Assure.notNull("tempFile", tempFile);
+    Assure.notNull("destination", destination);
+    if (!tempFile.renameTo(destination)) {
+      // on windows an existing file cannot be replaced by renaming
+      destination.delete();
+      if (!tempFile.renameTo(destination)) {
+        throw new IOException("Could not rename '" + tempFile + "' to '" + destination + "'.");
+      }
+    }
+  }
+
+  /**
+   * Returns the SHA-1 hash of the supplied text (using the UTF-8 encoding) as a hexadecimal string.
+   * 
+   * @param text
+   *          The text which has to be hashed. Not <code>null</code>.
+   * 
+   * @return The hexadecimal SHA-1 hash. Not <code>null</code>.
+   */
+  public static final String sha1(String text) {
+    Assure.notNull("text", text);
+    try {
+      return toHex(MessageDigest.getInstance("SHA-1").digest(text.getBytes("UTF-8")));
+    } catch (NoSuchAlgorithmException ex) {
+      throw new RuntimeException(ex.getMessage(), ex);
+    } catch (UnsupportedEncodingException ex) {
+      throw new RuntimeException(ex.getMessage(), ex);
+    }
+  }
+
+  /**
+   * Returns the SHA-1 hash of the content of the supplied file as a hexadecimal string.
+   * 
+   * @param file
+   *          The file which content has to be hashed. Not <code>null</code>.
+   * 
+   * @return The hexadecimal SHA-1 hash. Not <code>null</code>.
+   * 
+   * @throws IOException
+   *           The file couldn't be read.
+   */
+  public static final String sha1(File file) throws IOException {
+    Assure.notNull("file", file);
+    InputStream input = null;
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      input = new FileInputStream(file);
+      byte[] buffer = new byte[65536];
+      int count;
+      while ((count = input.read(buffer)) != -1) {
+        digest.update(buffer, 0, count);
+      }
+      return toHex(digest.digest());
+    } catch (NoSuchAlgorithmException ex) {
+      throw new RuntimeException(ex.getMessage(), ex);
+    } finally {
+      close(input);
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuffer buffer = new StringBuffer(bytes.length * 2);
+    for (byte b : bytes) {
+      buffer.append(Character.forDigit((b >> 4) & 0xF, 16));
+      buffer.append(Character.forDigit(b & 0xF, 16));
+    }
+    return buffer.toString();
+  }
+
   /**
    * Removes a suffix from a name if it has one.
    * 
@@ -1125,7 +1250,9 @@ public class Utilities {
 
   /**
    * <p>
-   * Expands the specified jar file to the expansion directory.
+   * Expands the specified jar file to the expansion directory. The jar file is expanded to a temporary directory next to
+   * the expansion directory which is renamed afterwards, so the expansion directory either doesn't exist or is
+   * complete. Concurrent expansions are only serialized if they use the same expansion directory.
    * </p>
    * 
    * @param jarFile
@@ -1133,71 +1260,84 @@ public class Utilities {
    * @param expansionDirectory
    *          the expansion directory
    */
-  public static synchronized final void expandJarFile(JarFile jarFile, File expansionDirectory) {
+  public static final void expandJarFile(JarFile jarFile, File expansionDirectory) {
 
     Assure.notNull("jarFile", jarFile);
     Assure.notNull("expansionDirectory", expansionDirectory);
 
-    if (expansionDirectory.exists()) {
-      A4ELogging.debug("%s|Already expanded '%s' to '%s'", Thread.currentThread().getId(), jarFile, expansionDirectory);
-      return;
-    }
+    // this way we make sure that calls to File#getParentFile always return non-null values
+    expansionDirectory = expansionDirectory.getAbsoluteFile();
 
-    A4ELogging.debug("%s|Expanding '%s' to '%s'", Thread.currentThread().getId(), jarFile, expansionDirectory);
+    int stripe = (expansionDirectory.getPath().hashCode() & Integer.MAX_VALUE) % EXPAND_LOCKS.length;
+    synchronized (EXPAND_LOCKS[stripe]) {
 
-    mkdirs(expansionDirectory);
+      if (expansionDirectory.exists()) {
+        A4ELogging.debug("%s|Already expanded '%s' to '%s'", Thread.currentThread().getId(), jarFile,
+            expansionDirectory);
+        return;
+      }
 
-    // this way we make sure that calls to File#getParentFile always return non-null values
-    expansionDirectory = expansionDirectory.getAbsoluteFile();
+      A4ELogging.debug("%s|Expanding '%s' to '%s'", Thread.currentThread().getId(), jarFile, expansionDirectory);
+
+      File tempDirectory = new File(expansionDirectory.getParentFile(), expansionDirectory.getName() + ".tmp"
+          + Long.toHexString(System.nanoTime()));
+      mkdirs(tempDirectory);
 
-    Enumeration<JarEntry> entries = jarFile.entries();
-    while (entries.hasMoreElements()) {
+      try {
+        Enumeration<JarEntry> entries = jarFile.entries();
+        while (entries.hasMoreElements()) {
 
-      ZipEntry zipEntry = entries.nextElement();
+          ZipEntry zipEntry = entries.nextElement();
 
-      File destFile = new File(expansionDirectory, zipEntry.getName());
-      if (destFile.exists()) {
-        // a directory might already have been created
-        continue;
-      }
+          File destFile = new File(tempDirectory, zipEntry.getName());
+          if (destFile.exists()) {
+            // a directory might already have been created
+            continue;
+          }
+
+          if (zipEntry.isDirectory()) {
+            mkdirs(destFile);
+          } else {
+            mkdirs(destFile.getParentFile());
+            InputStream inputStream = null;
+            try {
+              inputStream = jarFile.getInputStream(zipEntry);
+              writeFile(inputStream, destFile);
+            } catch (IOException ex) {
+              throw new Ant4EclipseException(ex, CoreExceptionCode.IO_FAILURE);
+            } finally {
+              close(inputStream);
+            }
+          }
 
-      if (zipEntry.isDirectory()) {
-        mkdirs(destFile);
-      } else {
-        mkdirs(destFile.getParentFile());
-        InputStream inputStream = null;
-        try {
-          inputStream = jarFile.getInputStream(zipEntry);
-          writeFile(inputStream, destFile);
-        } catch (IOException ex) {
-          throw new Ant4EclipseException(ex, CoreExceptionCode.IO_FAILURE);
-        } finally {
-          close(inputStream);
         }
-      }
 
+        // publish the expanded jar (another process might have been faster)
+        if (!tempDirectory.renameTo(expansionDirectory) && !expansionDirectory.isDirectory()) {
+          throw new Ant4EclipseException(CoreExceptionCode.FILEIO_FAILURE, expansionDirectory);
+        }
+
+      } finally {
+        if (tempDirectory.exists()) {
+          delete(tempDirectory);
+        }
+      }
     }
 
   }
 
-  private static void writeFile(InputStream inputStream, File file) {
+  private static void writeFile(InputStream inputStream, File file) throws IOException {
     Assure.notNull("inputStream", inputStream);
 
     FileOutputStream fos = null;
     try {
       fos = new FileOutputStream(file);
 
-      byte buffer[] = new byte[1024];
+      byte buffer[] = new byte[BUFFER_SIZE];
       int count;
-      while ((count = inputStream.read(buffer, 0, buffer.length)) > 0) {
+      while ((count = inputStream.read(buffer, 0, buffer.length)) != -1) {
         fos.write(buffer, 0, count);
       }
-    } catch (IOException e) {
-      /**
-       * @todo [28-Jun-2009:KASI] The original code didn't take care of this, since it only closed the streams (now done
-       *       within the finally sequence). Nevertheless the resource might not have been copied completely, so there's
-       *       need to be a valid treatment.
-       */
     } finally {
       // close open streams
       close(fos);
@@ -1245,6 +1385,9 @@ public class Utilities {
       outcopier.start();
       errcopier.start();
       int result = process.waitFor();
+      // the output is only complete after the streams have been consumed completely
+      outcopier.join();
+      errcopier.join();
       if (result != 0) {
         A4ELogging.error(CoreExceptionCode.LAUNCHING_FAILURE.getMessage(), exe, Integer.valueOf(result), output, error);
         throw new Ant4EclipseException(CoreExceptionCode.LAUNCHING_FAILURE, exe, Integer.valueOf(result), output,
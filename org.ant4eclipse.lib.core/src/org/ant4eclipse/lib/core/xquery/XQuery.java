@@ -39,6 +39,9 @@ public class XQuery {
   // a corresponding list of conditions
   private Condition[]    _conditions;
 
+  // the fragments including their conditions (used to share fragments within a trie)
+  private String[]       _expressions;
+
   // the attribute name in case we're handling an attribute
   private String         _attribute;
 
@@ -111,6 +114,7 @@ public class XQuery {
     }
 
     // strip conditions
+    this._expressions = this._splitted.clone();
     this._conditions = new Condition[this._splitted.length];
     this._counter = new int[this._splitted.length];
     Arrays.fill(this._conditions, null);
@@ -147,13 +151,13 @@ public class XQuery {
     try {
 
       // indexed element
-      return new IndexCompare(Integer.parseInt(condition), depth);
+      return new IndexCompare(Integer.parseInt(condition));
 
     } catch (NumberFormatException ex) {
 
       // create a count-function used to calculate the number of occurrences
       if ("count()".equals(condition)) {
-        return new CounterFunction(depth);
+        return new CounterFunction();
       }
 
       // this must be an attributed expression
@@ -207,7 +211,7 @@ public class XQuery {
 
     // check if the condition applies to the current state
     if (this._conditions[this._accept] != null) {
-      return this._conditions[this._accept].check(element, attrs);
+      return this._conditions[this._accept].check(element, attrs, counter(this._accept));
     }
 
     // the current state is supported by this query
@@ -259,26 +263,11 @@ public class XQuery {
       // this might be a candidate for checking
       if (matches(element, attrs)) {
 
-        // mark the requirement to generate a value
-        if ((depth == this._forcedepth) && (this._attribute == null)) {
-          this._matched = true;
-        }
-
         // all conditions met, so we can increase the depth
         // to prepare for the next level
         this._accept++;
 
-        // it was the last part of the query, so fetch the attribute
-        // if this query is used for an attribute
-        if (depth == (this._splitted.length - 1)) {
-          if (this._attribute != null) {
-            addValue(attrs.getValue(this._attribute));
-          } else {
-            if (this._forcedepth == -1) {
-              this._matched = true;
-            }
-          }
-        }
+        enter(depth, attrs);
 
       }
 
@@ -286,6 +275,35 @@ public class XQuery {
 
   }
 
+  /**
+   * This function will be called whenever an element matched the fragment of the supplied depth.
+   * 
+   * @param depth
+   *          The current depth within the XML document.
+   * @param attrs
+   *          The attributes associated with this element.
+   */
+  void enter(int depth, Attributes attrs) {
+
+    // mark the requirement to generate a value
+    if ((depth == this._forcedepth) && (this._attribute == null)) {
+      this._matched = true;
+    }
+
+    // it was the last part of the query, so fetch the attribute
+    // if this query is used for an attribute
+    if (depth == (this._splitted.length - 1)) {
+      if (this._attribute != null) {
+        addValue(attrs.getValue(this._attribute));
+      } else {
+        if (this._forcedepth == -1) {
+          this._matched = true;
+        }
+      }
+    }
+
+  }
+
   /**
    * The element has been left.
    * 
@@ -297,23 +315,92 @@ public class XQuery {
   void endVisit(int depth, String content) {
 
     if (this._accept == (depth + 1)) {
-      if (this._matched) {
-        if (depth == this._splitted.length - 1) {
-          // nice, the query could be satisfied
-          addValue(content);
-          this._matched = false;
-        } else if (depth == this._forcedepth) {
-          // no match for this query, but we're advised to
-          // create a default value
-          addValue(null);
-          this._matched = false;
-        }
-      }
+      leave(depth, content);
       this._accept--;
     }
 
   }
 
+  /**
+   * An element that matched the fragment of the supplied depth has been left.
+   * 
+   * @param depth
+   *          The current depth within the XML document.
+   * @param content
+   *          The trimmed text content of the XML element.
+   */
+  void leave(int depth, String content) {
+    if (this._matched) {
+      if (depth == this._splitted.length - 1) {
+        // nice, the query could be satisfied
+        addValue(content);
+        this._matched = false;
+      } else if (depth == this._forcedepth) {
+        // no match for this query, but we're advised to
+        // create a default value
+        addValue(null);
+        this._matched = false;
+      }
+    }
+  }
+
+  /**
+   * Returns the number of fragments (the number of elements) of this query.
+   * 
+   * @return The number of fragments of this query.
+   */
+  int getLength() {
+    return this._splitted.length;
+  }
+
+  /**
+   * Returns the element name of the supplied depth which might be the wildcard <code>*</code>.
+   * 
+   * @param depth
+   *          The depth of the fragment.
+   * 
+   * @return The element name of the supplied depth.
+   */
+  String getElement(int depth) {
+    return this._splitted[depth];
+  }
+
+  /**
+   * Returns the fragment of the supplied depth including it's condition.
+   * 
+   * @param depth
+   *          The depth of the fragment.
+   * 
+   * @return The fragment of the supplied depth.
+   */
+  String getExpression(int depth) {
+    return this._expressions[depth];
+  }
+
+  /**
+   * Returns the condition of the supplied depth.
+   * 
+   * @param depth
+   *          The depth of the fragment.
+   * 
+   * @return The condition of the supplied depth or <code>null</code>.
+   */
+  Condition getCondition(int depth) {
+    return this._conditions[depth];
+  }
+
+  /**
+   * Returns true if the query has to be notified when an element matched the fragment of the supplied depth.
+   * 
+   * @param depth
+   *          The depth of the fragment.
+   * 
+   * @return true <=> {@link #enter(int, Attributes)} and {@link #leave(int, String)} have to be called.
+   */
+  boolean isNotified(int depth) {
+    return (depth == this._splitted.length - 1) || (depth == this._forcedepth);
+  }
+
   /**
    * Prepare this query for another XML document.
    */
@@ -351,6 +438,29 @@ public class XQuery {
     return result;
   }
 
+  /**
+   * Returns the data collected by this query or <code>null</code> if no data has been collected (used by the
+   * {@link XQueryCache}).
+   * 
+   * @return The data collected by this query or <code>null</code>.
+   */
+  String[] getValues() {
+    return this._values == null ? null : getResult();
+  }
+
+  /**
+   * Restores the data collected by this query (used by the {@link XQueryCache}).
+   * 
+   * @param values
+   *          The data or <code>null</code> if no data has been collected.
+   */
+  void restoreValues(String[] values) {
+    reset();
+    if (values != null) {
+      this._values = new Vector<String>(Arrays.asList(values));
+    }
+  }
+
   /**
    * Returns the data collected by this query. If no or one result were found, this method returns null or the result.
    * If more than one result were found, an XQueryException will be thrown.
@@ -414,7 +524,7 @@ public class XQuery {
   /**
    * A Condition used to test a query expression.
    */
-  private interface Condition {
+  interface Condition {
 
     /**
      * Tests a query expression using the supplied attributes.
@@ -423,40 +533,65 @@ public class XQuery {
      *          The element name.
      * @param attrs
      *          The attributes which has to be used for the test.
+     * @param counter
+     *          The index of the element among the elements with the same name (-1 if the elements are not counted).
      * 
      * @return true <=> The condition is met.
      */
-    boolean check(String element, Attributes attrs);
+    boolean check(String element, Attributes attrs, int counter);
+
+    /**
+     * Returns true if this condition requires the elements to be counted.
+     * 
+     * @return true <=> The elements have to be counted.
+     */
+    boolean isCounted();
+
+    /**
+     * Returns true if this condition can be shared by several queries.
+     * 
+     * @return true <=> The condition doesn't modify the results of it's query.
+     */
+    boolean isShareable();
 
   } /* ENDINTERFACE */
 
   /**
    * Condition implementation which checks for a specific element level.
    */
-  private class IndexCompare implements Condition {
+  private static class IndexCompare implements Condition {
 
     private int level;
 
-    private int index;
-
     /**
      * Initializes this condition using the supplied element level.
      * 
      * @param lvlindex
      *          The element count used for the check.
-     * @param cnt
-     *          The index used for the comparison.
      */
-    public IndexCompare(int lvlindex, int cnt) {
+    public IndexCompare(int lvlindex) {
       this.level = lvlindex;
-      this.index = cnt;
     }
 
     /**
      * {@inheritDoc}
      */
-    public boolean check(String element, Attributes attrs) {
-      return counter(this.index) == this.level;
+    public boolean check(String element, Attributes attrs, int counter) {
+      return counter == this.level;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isCounted() {
+      return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isShareable() {
+      return true;
     }
 
   } /* ENDCLASS */
@@ -466,24 +601,12 @@ public class XQuery {
    */
   private class CounterFunction implements Condition {
 
-    private int index;
-
-    /**
-     * Initializes this counter.
-     * 
-     * @param idx
-     *          The index of the counter that shall be used.
-     */
-    public CounterFunction(int idx) {
-      this.index = idx;
-    }
-
     /**
      * {@inheritDoc}
      */
-    public boolean check(String element, Attributes attrs) {
+    public boolean check(String element, Attributes attrs, int counter) {
 
-      if (counter(this.index) == 0) {
+      if (counter == 0) {
         // create a new entry
         addValue("0");
       }
@@ -499,12 +622,26 @@ public class XQuery {
 
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isCounted() {
+      return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isShareable() {
+      return false;
+    }
+
   } /* ENDCLASS */
 
   /**
    * Condition implementation which checks for a specific attribute value.
    */
-  private class StringCompare implements Condition {
+  private static class StringCompare implements Condition {
 
     private String attr;
 
@@ -526,10 +663,24 @@ public class XQuery {
     /**
      * {@inheritDoc}
      */
-    public boolean check(String element, Attributes attrs) {
+    public boolean check(String element, Attributes attrs, int counter) {
       return this.value.equals(attrs.getValue(this.attr));
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isCounted() {
+      return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isShareable() {
+      return true;
+    }
+
   } /* ENDCLASS */
 
 } /* ENDCLASS */
@@ -0,0 +1,319 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.core.xquery;
+
+import org.ant4eclipse.lib.core.Assure;
+import org.ant4eclipse.lib.core.logging.A4ELogging;
+import org.ant4eclipse.lib.core.util.Utilities;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * A persistent snapshot of the results of the queries that have been executed using
+ * {@link XQueryHandler#queryFile(File, XQueryHandler)}. A cached result is used as long as the path, the size and the
+ * modification time of the queried file and the queries themselves didn't change, so unchanged files don't have to be
+ * parsed again.
+ * </p>
+ * <p>
+ * A cache is only used by the threads it has been {@link #activate() activated} for. When the cache is
+ * {@link #save() saved}, only the results that have been used since it has been loaded are stored, so the results of
+ * files that are no longer queried are dropped.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class XQueryCache {
+
+  /** the magic number of cache files */
+  private static final int                      MAGIC   = 0x41345851;
+
+  /** the version of the cache file format */
+  private static final int                      VERSION = 1;
+
+  /** the cache that is active for the current thread */
+  private static final ThreadLocal<XQueryCache> ACTIVE  = new ThreadLocal<XQueryCache>();
+
+  /** the cache file */
+  private File                                  _cacheFile;
+
+  /** the results that have been loaded from the cache file */
+  private Map<String, Entry>                    _loaded;
+
+  /** the results that have been used (or computed) since the cache has been loaded */
+  private Map<String, Entry>                    _used;
+
+  /** the number of files that have been parsed */
+  private AtomicInteger                         _misses;
+
+  /**
+   * <p>
+   * Creates a new, empty instance of type {@link XQueryCache}.
+   * </p>
+   */
+  private XQueryCache(File cacheFile) {
+    this._cacheFile = cacheFile;
+    this._loaded = new ConcurrentHashMap<String, Entry>();
+    this._used = new ConcurrentHashMap<String, Entry>();
+    this._misses = new AtomicInteger();
+  }
+
+  /**
+   * <p>
+   * Loads the cache from the given file. If the file doesn't exist (or can't be read) an empty cache is returned.
+   * </p>
+   *
+   * @param cacheFile
+   *          the cache file. Not <code>null</code>.
+   * @return the cache. Not <code>null</code>.
+   */
+  public static XQueryCache load(File cacheFile) {
+    Assure.notNull("cacheFile", cacheFile);
+
+    XQueryCache result = new XQueryCache(cacheFile);
+    if (!cacheFile.isFile()) {
+      return result;
+    }
+
+    DataInputStream input = null;
+    try {
+      input = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+      if ((input.readInt() == MAGIC) && (input.readInt() == VERSION)) {
+        int count = input.readInt();
+        for (int i = 0; i < count; i++) {
+          String key = readString(input);
+          Entry entry = new Entry(input.readLong(), input.readLong(), new String[input.readInt()][]);
+          for (int j = 0; j < entry._results.length; j++) {
+            int length = input.readInt();
+            if (length >= 0) {
+              entry._results[j] = new String[length];
+              for (int k = 0; k < length; k++) {
+                entry._results[j][k] = readString(input);
+              }
+            }
+          }
+          result._loaded.put(key, entry);
+        }
+      }
+    } catch (IOException ex) {
+      A4ELogging.warn("Could not read query cache '%s': %s", cacheFile, ex.getMessage());
+      result._loaded.clear();
+    } finally {
+      Utilities.close((Closeable) input);
+    }
+    return result;
+  }
+
+  /**
+   * <p>
+   * Stores the results that have been used since the cache has been loaded.
+   * </p>
+   */
+  public void save() {
+    if ((this._misses.get() == 0) && (this._used.size() == this._loaded.size())) {
+      // nothing changed
+      return;
+    }
+    DataOutputStream output = null;
+    File tempFile = new File(this._cacheFile.getPath() + ".tmp");
+    try {
+      output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+      output.writeInt(MAGIC);
+      output.writeInt(VERSION);
+      output.writeInt(this._used.size());
+      for (Map.Entry<String, Entry> mapEntry : this._used.entrySet()) {
+        Entry entry = mapEntry.getValue();
+        writeString(output, mapEntry.getKey());
+        output.writeLong(entry._lastModified);
+        output.writeLong(entry._length);
+        output.writeInt(entry._results.length);
+        for (String[] results : entry._results) {
+          output.writeInt(results == null ? -1 : results.length);
+          if (results != null) {
+            for (String value : results) {
+              writeString(output, value);
+            }
+          }
+        }
+      }
+      output.close();
+      output = null;
+      Utilities.replaceFile(tempFile, this._cacheFile);
+    } catch (IOException ex) {
+      A4ELogging.warn("Could not write query cache '%s': %s", this._cacheFile, ex.getMessage());
+    } finally {
+      Utilities.close((Closeable) output);
+      tempFile.delete();
+    }
+  }
+
+  /**
+   * <p>
+   * Activates this cache for the current thread.
+   * </p>
+   */
+  public void activate() {
+    ACTIVE.set(this);
+  }
+
+  /**
+   * <p>
+   * Deactivates the cache for the current thread.
+   * </p>
+   */
+  public static void deactivate() {
+    ACTIVE.remove();
+  }
+
+  /**
+   * <p>
+   * Returns the cache that is active for the current thread.
+   * </p>
+   *
+   * @return the active cache or <code>null</code>.
+   */
+  static XQueryCache getActive() {
+    return ACTIVE.get();
+  }
+
+  /**
+   * <p>
+   * Returns the number of files that have been parsed since the cache has been loaded.
+   * </p>
+   *
+   * @return the number of files that have been parsed.
+   */
+  public int getMisses() {
+    return this._misses.get();
+  }
+
+  /**
+   * <p>
+   * Restores the results of the queries of the given handler if the cache contains up-to-date results.
+   * </p>
+   *
+   * @return <code>true</code> if the results have been restored.
+   */
+  boolean restore(File xmlfile, XQueryHandler handler) {
+    String key = getKey(xmlfile, handler);
+    Entry entry = this._used.get(key);
+    if (entry == null) {
+      entry = this._loaded.get(key);
+    }
+    List<XQuery> queries = handler.getQueries();
+    if ((entry == null) || (entry._lastModified != xmlfile.lastModified()) || (entry._length != xmlfile.length())
+        || (entry._results.length != queries.size())) {
+      return false;
+    }
+    for (int i = 0; i < entry._results.length; i++) {
+      queries.get(i).restoreValues(entry._results[i]);
+    }
+    this._used.put(key, entry);
+    return true;
+  }
+
+  /**
+   * <p>
+   * Stores the results of the queries of the given handler.
+   * </p>
+   */
+  void store(File xmlfile, XQueryHandler handler) {
+    List<XQuery> queries = handler.getQueries();
+    Entry entry = new Entry(xmlfile.lastModified(), xmlfile.length(), new String[queries.size()][]);
+    for (int i = 0; i < entry._results.length; i++) {
+      entry._results[i] = queries.get(i).getValues();
+    }
+    this._used.put(getKey(xmlfile, handler), entry);
+    this._misses.incrementAndGet();
+  }
+
+  /**
+   * <p>
+   * Returns the key for the given file and queries.
+   * </p>
+   */
+  private String getKey(File xmlfile, XQueryHandler handler) {
+    StringBuffer buffer = new StringBuffer(xmlfile.getAbsolutePath());
+    for (XQuery query : handler.getQueries()) {
+      buffer.append('\n');
+      buffer.append(query.toString());
+    }
+    return buffer.toString();
+  }
+
+  /**
+   * <p>
+   * Writes the given string (which may be <code>null</code> or longer than supported by
+   * {@link DataOutputStream#writeUTF(String)}).
+   * </p>
+   */
+  private static void writeString(DataOutputStream output, String value) throws IOException {
+    if (value == null) {
+      output.writeInt(-1);
+    } else {
+      byte[] bytes = value.getBytes("UTF-8");
+      output.writeInt(bytes.length);
+      output.write(bytes);
+    }
+  }
+
+  private static String readString(DataInputStream input) throws IOException {
+    int length = input.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    input.readFully(bytes);
+    return new String(bytes, "UTF-8");
+  }
+
+  /**
+   * <p>
+   * The cached results for a file.
+   * </p>
+   */
+  private static class Entry {
+
+    /** the modification time of the file */
+    private long       _lastModified;
+
+    /** the length of the file */
+    private long       _length;
+
+    /** the results of the queries (<code>null</code> if a query didn't collect any data) */
+    private String[][] _results;
+
+    /**
+     * <p>
+     * Creates a new instance of type {@link Entry}.
+     * </p>
+     */
+    public Entry(long lastModified, long length, String[][] results) {
+      this._lastModified = lastModified;
+      this._length = length;
+      this._results = results;
+    }
+  }
+
+} /* ENDCLASS */
@@ -15,16 +15,21 @@ import org.ant4eclipse.lib.core.Assure;
 import org.ant4eclipse.lib.core.CoreExceptionCode;
 import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
 import org.ant4eclipse.lib.core.logging.A4ELogging;
+import org.ant4eclipse.lib.core.util.Utilities;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
 import javax.xml.parsers.FactoryConfigurationError;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.util.List;
 import java.util.Vector;
 
 /**
@@ -38,18 +43,27 @@ import java.util.Vector;
 public class XQueryHandler extends DefaultHandler {
 
   /** - */
-  private StringBuffer            _buffer;
+  private StringBuffer                        _buffer;
 
   /** - */
-  private int                     _depth;
+  private int                                 _depth;
 
   /** - */
-  private Vector<XQuery>          _queries;
+  private Vector<XQuery>                      _queries;
 
-  private String                  _fileName;
+  private String                              _fileName;
 
   /** - */
-  private static SAXParserFactory factory;
+  private static SAXParserFactory             factory;
+
+  /**
+   * System-Property that disables the evaluation of all queries using a {@link XQueryTrie}, so each query is visited by
+   * each element.
+   */
+  private static final boolean                LEGACY  = Boolean.getBoolean("ant4eclipse.xquery.legacy");
+
+  /** the parser of the current thread which can be reused */
+  private static final ThreadLocal<SAXParser> PARSERS = new ThreadLocal<SAXParser>();
 
   /**
    * Initialises this handler.
@@ -86,6 +100,15 @@ public class XQueryHandler extends DefaultHandler {
     return result;
   }
 
+  /**
+   * Returns the queries of this handler.
+   * 
+   * @return The queries of this handler.
+   */
+  List<XQuery> getQueries() {
+    return this._queries;
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -145,7 +168,8 @@ public class XQueryHandler extends DefaultHandler {
   }
 
   /**
-   * Runs the queries against the supplied XML file.
+   * Runs the queries against the supplied XML file. If a {@link XQueryCache} is active for the current thread, the
+   * cached results are used if the file hasn't been changed.
    * 
    * @param xmlfile
    *          The XML file that shall be queried.
@@ -155,12 +179,22 @@ public class XQueryHandler extends DefaultHandler {
   public static void queryFile(File xmlfile, XQueryHandler handler) {
     Assure.isFile("xmlfile", xmlfile);
     Assure.notNull("handler", handler);
+    XQueryCache cache = XQueryCache.getActive();
+    if ((cache != null) && cache.restore(xmlfile, handler)) {
+      return;
+    }
+    InputStream input = null;
     try {
-      SAXParserFactory factory = getSAXParserFactory();
-      factory.newSAXParser().parse(new FileInputStream(xmlfile), handler);
+      input = new FileInputStream(xmlfile);
+      parse(input, handler, !LEGACY);
     } catch (Exception ex) {
       A4ELogging.error(ex.getMessage());
       throw (new Ant4EclipseException(ex, CoreExceptionCode.X_QUERY_PARSE_EXCEPTION));
+    } finally {
+      Utilities.close((Closeable) input);
+    }
+    if (cache != null) {
+      cache.store(xmlfile, handler);
     }
   }
 
@@ -173,25 +207,73 @@ public class XQueryHandler extends DefaultHandler {
    *          The handler which provides all queries.
    */
   public static void queryInputStream(InputStream inputStream, XQueryHandler handler) {
+    queryInputStream(inputStream, handler, !LEGACY);
+  }
+
+  /**
+   * Runs the queries against the supplied XML inputstream.
+   * 
+   * @param inputStream
+   *          The XML inputstream that shall be queried.
+   * @param handler
+   *          The handler which provides all queries.
+   * @param compiled
+   *          true <=> The queries are evaluated using a {@link XQueryTrie}.
+   */
+  static void queryInputStream(InputStream inputStream, XQueryHandler handler, boolean compiled) {
     Assure.notNull("inputStream", inputStream);
     Assure.notNull("handler", handler);
     try {
-      SAXParserFactory factory = getSAXParserFactory();
-      factory.newSAXParser().parse(inputStream, handler);
+      parse(inputStream, handler, compiled);
     } catch (Exception ex) {
       A4ELogging.error(ex.getMessage());
       throw (new Ant4EclipseException(ex, CoreExceptionCode.X_QUERY_PARSE_EXCEPTION));
     }
   }
 
-  private static SAXParserFactory getSAXParserFactory() throws FactoryConfigurationError {
+  /**
+   * Parses the supplied XML inputstream using the parser of the current thread.
+   * 
+   * @param inputStream
+   *          The XML inputstream that shall be queried.
+   * @param handler
+   *          The handler which provides all queries.
+   * @param compiled
+   *          true <=> The queries are evaluated using a {@link XQueryTrie}.
+   */
+  private static void parse(InputStream inputStream, XQueryHandler handler, boolean compiled) throws Exception {
+    // the parser is removed while it's in use, so a nested call gets it's own parser
+    SAXParser parser = PARSERS.get();
+    PARSERS.remove();
+    if (parser == null) {
+      parser = newSAXParser();
+    }
+    try {
+      if (compiled) {
+        parser.parse(inputStream, new XQueryTrie(handler._queries));
+      } else {
+        parser.parse(inputStream, handler);
+      }
+    } catch (XQueryTrie.QueriesSatisfiedException ex) {
+      // the remaining content can't change the results
+    } finally {
+      parser.reset();
+      PARSERS.set(parser);
+    }
+  }
+
+  /**
+   * Creates a new parser. The factory isn't thread safe, so the access is synchronized.
+   */
+  private static synchronized SAXParser newSAXParser() throws FactoryConfigurationError,
+      ParserConfigurationException, SAXException {
 
     if (factory == null) {
       factory = SAXParserFactory.newInstance();
       // factory.setFeature("http://xml.org/sax/features/string-interning", true);
       factory.setValidating(false);
     }
-    return factory;
+    return factory.newSAXParser();
   }
 
 } /* ENDCLASS */
@@ -0,0 +1,383 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.core.xquery;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * A SAX handler that evaluates all queries of a {@link XQueryHandler} in a single pass. The fragments of the queries
+ * are compiled into a trie, so queries with a common prefix share their nodes. For each element only the trie nodes
+ * that are children of the nodes matched by the parent element and that have the name of the element (or a wildcard)
+ * are tested.
+ * </p>
+ * <p>
+ * The results are the same as the results of the {@link XQueryHandler} itself. A query collects all matching elements
+ * (so duplicates can be detected by {@link XQuery#getSingleResult()}), so the document can only be left early if it's
+ * root element doesn't match any query. In this case the parsing is stopped by throwing a
+ * {@link QueriesSatisfiedException}.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+final class XQueryTrie extends DefaultHandler {
+
+  /** - */
+  private static final Node[]        NO_NODES = new Node[0];
+
+  /** the queries */
+  private List<XQuery>               _queries;
+
+  /** the (virtual) root node which has the fragments of depth 0 as children */
+  private Node                       _root;
+
+  /** all nodes which count their elements */
+  private List<Node>                 _counted;
+
+  /** the counted nodes per depth and element name */
+  private List<Map<String, Counter>> _counters;
+
+  /** the nodes matched by the open elements */
+  private List<Node[]>               _stack;
+
+  /** the text content of the current element */
+  private StringBuffer               _buffer;
+
+  /**
+   * <p>
+   * Compiles the supplied queries into a trie.
+   * </p>
+   *
+   * @param queries
+   *          The queries which have to be evaluated. Not <code>null</code>.
+   */
+  XQueryTrie(List<XQuery> queries) {
+    this._queries = queries;
+    this._root = new Node(-1, null, null);
+    this._counted = new ArrayList<Node>();
+    this._counters = new ArrayList<Map<String, Counter>>();
+    this._stack = new ArrayList<Node[]>();
+    this._buffer = new StringBuffer();
+    for (int i = 0; i < queries.size(); i++) {
+      add(queries.get(i), i);
+    }
+    this._root.compile();
+  }
+
+  /**
+   * <p>
+   * Adds the fragments of the supplied query to the trie.
+   * </p>
+   */
+  private void add(XQuery query, int index) {
+    Node node = this._root;
+    for (int depth = 0; depth < query.getLength(); depth++) {
+      XQuery.Condition condition = query.getCondition(depth);
+      String key = query.getExpression(depth);
+      if ((condition != null) && !condition.isShareable()) {
+        // the condition contributes to the results of it's query
+        key = key + "#" + index;
+      }
+      Node child = node._children.get(key);
+      if (child == null) {
+        child = new Node(depth, query.getElement(depth), condition);
+        child._parent = node;
+        node._children.put(key, child);
+        if ((condition != null) && condition.isCounted()) {
+          addCounter(child);
+        }
+      }
+      if (query.isNotified(depth)) {
+        child._queries.add(query);
+      }
+      node = child;
+    }
+  }
+
+  /**
+   * <p>
+   * Registers the supplied node so it's counter is incremented by the elements with it's name and reset by the elements
+   * with the names of it's parents.
+   * </p>
+   */
+  private void addCounter(Node node) {
+    this._counted.add(node);
+    if (!node.isWildcard()) {
+      getCounter(node._depth, node._element)._incremented.add(node);
+    }
+    for (Node parent = node._parent; parent != this._root; parent = parent._parent) {
+      if (!parent.isWildcard()) {
+        getCounter(parent._depth, parent._element)._reset.add(node);
+      }
+    }
+  }
+
+  private Counter getCounter(int depth, String element) {
+    while (this._counters.size() <= depth) {
+      this._counters.add(new HashMap<String, Counter>());
+    }
+    Counter result = this._counters.get(depth).get(element);
+    if (result == null) {
+      result = new Counter();
+      this._counters.get(depth).put(element, result);
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void startDocument() {
+    for (int i = 0; i < this._queries.size(); i++) {
+      this._queries.get(i).reset();
+    }
+    for (int i = 0; i < this._counted.size(); i++) {
+      this._counted.get(i)._counter = 0;
+    }
+    this._stack.clear();
+    this._buffer.setLength(0);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void startElement(String uri, String localname, String qname, Attributes attributes) throws SAXException {
+
+    int depth = this._stack.size();
+
+    // modify the element counters
+    if (depth < this._counters.size()) {
+      Counter counter = this._counters.get(depth).get(qname);
+      if (counter != null) {
+        counter.adjust();
+      }
+    }
+
+    // test the children of the nodes matched by the parent element
+    Node[] parents = depth == 0 ? new Node[] { this._root } : this._stack.get(depth - 1);
+    List<Node> matched = null;
+    for (Node parent : parents) {
+      Node[] candidates = parent._named.get(qname);
+      if (candidates != null) {
+        matched = match(candidates, qname, attributes, matched);
+      }
+      matched = match(parent._wildcards, qname, attributes, matched);
+    }
+
+    if (matched == null) {
+      if (depth == 0) {
+        // the document doesn't contain any results
+        throw new QueriesSatisfiedException();
+      }
+      this._stack.add(NO_NODES);
+    } else {
+      this._stack.add(matched.toArray(new Node[matched.size()]));
+    }
+
+  }
+
+  /**
+   * <p>
+   * Tests the supplied candidates and notifies the queries of the matching nodes.
+   * </p>
+   *
+   * @return The list of matching nodes or <code>null</code> if neither this nor a previous call found a match.
+   */
+  private List<Node> match(Node[] candidates, String qname, Attributes attributes, List<Node> matched) {
+    List<Node> result = matched;
+    for (Node candidate : candidates) {
+      if (candidate.matches(qname, attributes)) {
+        for (int i = 0; i < candidate._queries.size(); i++) {
+          candidate._queries.get(i).enter(candidate._depth, attributes);
+        }
+        if (result == null) {
+          result = new ArrayList<Node>();
+        }
+        result.add(candidate);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void endElement(String uri, String localname, String qname) throws SAXException {
+
+    Node[] matched = this._stack.remove(this._stack.size() - 1);
+    if (matched.length > 0) {
+      String str = this._buffer.toString().trim();
+      for (Node node : matched) {
+        for (int i = 0; i < node._queries.size(); i++) {
+          node._queries.get(i).leave(node._depth, str);
+        }
+      }
+    }
+
+    this._buffer.setLength(0);
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void characters(char[] ch, int start, int length) {
+    this._buffer.append(ch, start, length);
+  }
+
+  /**
+   * <p>
+   * A node of the trie which represents a fragment of one or more queries.
+   * </p>
+   */
+  private static final class Node {
+
+    /** the depth of the fragment */
+    private int                   _depth;
+
+    /** the element name or <code>*</code> */
+    private String                _element;
+
+    /** the condition of the fragment or <code>null</code> */
+    private XQuery.Condition      _condition;
+
+    /** the parent node */
+    private Node                  _parent;
+
+    /** the children per fragment */
+    private Map<String, Node>     _children;
+
+    /** the children per element name (available after compilation) */
+    private Map<String, Node[]>   _named;
+
+    /** the children with a wildcard (available after compilation) */
+    private Node[]                _wildcards;
+
+    /** the queries which have to be notified if an element matches this node */
+    private List<XQuery>          _queries;
+
+    /** the number of elements with the name of this node since the last reset */
+    private int                   _counter;
+
+    /**
+     * <p>
+     * Creates a new instance of type {@link Node}.
+     * </p>
+     */
+    public Node(int depth, String element, XQuery.Condition condition) {
+      this._depth = depth;
+      this._element = element;
+      this._condition = condition;
+      this._children = new LinkedHashMap<String, Node>();
+      this._queries = new ArrayList<XQuery>();
+    }
+
+    public boolean isWildcard() {
+      return "*".equals(this._element);
+    }
+
+    /**
+     * <p>
+     * Returns true if the supplied element matches this node.
+     * </p>
+     */
+    public boolean matches(String element, Attributes attributes) {
+      if (!isWildcard() && !this._element.equals(element)) {
+        return false;
+      }
+      // -1 because the counter already has been adjusted for this element
+      return (this._condition == null) || this._condition.check(element, attributes, this._counter - 1);
+    }
+
+    /**
+     * <p>
+     * Creates the lookup structures for the children of this node (and their children).
+     * </p>
+     */
+    public void compile() {
+      Map<String, List<Node>> named = new HashMap<String, List<Node>>();
+      List<Node> wildcards = new ArrayList<Node>();
+      for (Node child : this._children.values()) {
+        if (child.isWildcard()) {
+          wildcards.add(child);
+        } else {
+          List<Node> nodes = named.get(child._element);
+          if (nodes == null) {
+            nodes = new ArrayList<Node>();
+            named.put(child._element, nodes);
+          }
+          nodes.add(child);
+        }
+        child.compile();
+      }
+      this._named = new HashMap<String, Node[]>();
+      for (Map.Entry<String, List<Node>> entry : named.entrySet()) {
+        this._named.put(entry.getKey(), entry.getValue().toArray(new Node[entry.getValue().size()]));
+      }
+      this._wildcards = wildcards.toArray(new Node[wildcards.size()]);
+    }
+
+  } /* ENDCLASS */
+
+  /**
+   * <p>
+   * The counted nodes affected by the elements with a specific name at a specific depth.
+   * </p>
+   */
+  private static final class Counter {
+
+    /** the nodes which count these elements */
+    private List<Node> _incremented = new ArrayList<Node>();
+
+    /** the nodes which are children of nodes for these elements */
+    private List<Node> _reset       = new ArrayList<Node>();
+
+    public void adjust() {
+      for (int i = 0; i < this._incremented.size(); i++) {
+        this._incremented.get(i)._counter++;
+      }
+      for (int i = 0; i < this._reset.size(); i++) {
+        this._reset.get(i)._counter = 0;
+      }
+    }
+
+  } /* ENDCLASS */
+
+  /**
+   * <p>
+   * Thrown to stop the parsing as soon as no further results can be produced.
+   * </p>
+   */
+  static final class QueriesSatisfiedException extends SAXException {
+
+    /** - */
+    private static final long serialVersionUID = 1L;
+
+    public QueriesSatisfiedException() {
+      super("All queries are satisfied.");
+    }
+
+  } /* ENDCLASS */
+
+} /* ENDCLASS */
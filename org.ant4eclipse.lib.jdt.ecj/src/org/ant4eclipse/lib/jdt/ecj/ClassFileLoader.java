@@ -46,6 +46,21 @@ public interface ClassFileLoader {
    */
   boolean hasPackage(String packageName);
 
+  /**
+   * <p>
+   * This method returns <code>true</code> if {@link ClassFileLoader} has a package with the given compound name (e.g.
+   * <code>{ "java", "lang" }</code>) regardless of any visibility restrictions.
+   * </p>
+   * <p>
+   * This method is called very frequently by the eclipse java compiler. Implementations should not create any objects.
+   * </p>
+   * 
+   * @param packageName
+   *          the compound name of the package.
+   * @return <code>true</code> if the package is available via this {@link ClassFileLoader}
+   */
+  boolean hasPackage(char[][] packageName);
+
   /**
    * <p>
    * Returns an instance of type {@link ClassFile} that represents the specified class or <code>null</code> if no such
@@ -59,6 +74,23 @@ public interface ClassFileLoader {
    */
   ClassFile loadClass(ClassName className);
 
+  /**
+   * <p>
+   * Returns an instance of type {@link ClassFile} that represents the class with the given compound name (e.g.
+   * <code>{ "java", "lang", "Object" }</code>) or <code>null</code> if no such class can be found.
+   * </p>
+   * <p>
+   * This method is called very frequently by the eclipse java compiler. Implementations should not create any objects
+   * if the package of the requested class is not available.
+   * </p>
+   * 
+   * @param compoundTypeName
+   *          The compound name of the class that should be loaded.
+   * @return an instance of type {@link ClassFile} that represents the specified class or <code>null</code> if the class
+   *         is not available.
+   */
+  ClassFile loadClass(char[][] compoundTypeName);
+
   /**
    * <p>
    * Returns an instance of type {@link SourceFile} that is the source file for the specified class or <code>null</code>
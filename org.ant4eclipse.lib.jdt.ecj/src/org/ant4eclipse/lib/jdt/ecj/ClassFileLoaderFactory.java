@@ -77,12 +77,17 @@ public class ClassFileLoaderFactory {
 
       // Try to get already initialized ClassFileLoader from cache
       ClassFileLoader classFileLoader = ClassFileLoaderCache.getInstance().getClassFileLoader(cacheKey);
-      if (classFileLoader == null) {
+      if (classFileLoader != null) {
+        // the class path directories may have been changed since the ClassFileLoader has been cached
+        invalidateChangedDirectories(classFileLoader);
+      } else {
         // Create new ClassFileLoader
+        long start = System.currentTimeMillis();
         classFileLoader = new ClasspathClassFileLoaderImpl(source, type, classpathEntries, sourcepathEntries);
 
         // add ClassFileLoader to Cache
-        ClassFileLoaderCache.getInstance().storeClassFileLoader(cacheKey, classFileLoader);
+        ClassFileLoaderCache.getInstance().storeClassFileLoader(cacheKey, classFileLoader,
+            System.currentTimeMillis() - start);
   }
 
       // Return the ClassFileLoader
@@ -205,12 +210,17 @@ public class ClassFileLoaderFactory {
       String cacheKey = String.valueOf(entry) + "/" + type;
       // Try to get ClassFileLoader from cache
       ClassFileLoader classFileLoader = ClassFileLoaderCache.getInstance().getClassFileLoader(cacheKey);
-      if (classFileLoader == null) {
+      if (classFileLoader != null) {
+        // the class path directories may have been changed since the ClassFileLoader has been cached
+        invalidateChangedDirectories(classFileLoader);
+      } else {
         // Create new ClassFileLoader
+        long start = System.currentTimeMillis();
         classFileLoader = new ClasspathClassFileLoaderImpl(entry, type);
 
         // add to cache
-        ClassFileLoaderCache.getInstance().storeClassFileLoader(cacheKey, classFileLoader);
+        ClassFileLoaderCache.getInstance().storeClassFileLoader(cacheKey, classFileLoader,
+            System.currentTimeMillis() - start);
       }
 
       return classFileLoader;
@@ -260,5 +270,19 @@ public class ClassFileLoaderFactory {
       PerformanceLogging.stop(ClassFileLoaderFactory.class, "createFilteringClassFileLoader");
     }
   }
+
+  /**
+   * <p>
+   * Discards the lookup caches of the given (cached) class file loader for all directories that have been changed.
+   * </p>
+   * 
+   * @param classFileLoader
+   *          the class file loader
+   */
+  private static void invalidateChangedDirectories(ClassFileLoader classFileLoader) {
+    if (classFileLoader instanceof ClasspathClassFileLoaderImpl) {
+      ((ClasspathClassFileLoaderImpl) classFileLoader).invalidateChangedDirectories();
+    }
+  }
 
 }
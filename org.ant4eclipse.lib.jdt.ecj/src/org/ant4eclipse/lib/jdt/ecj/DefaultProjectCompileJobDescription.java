@@ -0,0 +1,113 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj;
+
+import org.ant4eclipse.lib.core.Assure;
+import org.ant4eclipse.lib.core.util.StringMap;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Default implementation of a {@link ProjectCompileJobDescription}.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class DefaultProjectCompileJobDescription extends DefaultCompileJobDescription implements
+    ProjectCompileJobDescription {
+
+  /** the name of the compile job */
+  private String   _name;
+
+  /** the names of the required compile jobs */
+  private String[] _requiredJobs;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link DefaultProjectCompileJobDescription}.
+   * </p>
+   */
+  public DefaultProjectCompileJobDescription() {
+    super();
+    this._requiredJobs = new String[0];
+  }
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link DefaultProjectCompileJobDescription}.
+   * </p>
+   *
+   * @param name
+   * @param requiredJobs
+   * @param classFileLoader
+   * @param compilerOptions
+   * @param sourceFiles
+   */
+  public DefaultProjectCompileJobDescription(String name, String[] requiredJobs, ClassFileLoader classFileLoader,
+      StringMap compilerOptions, SourceFile[] sourceFiles) {
+    super(classFileLoader, compilerOptions, sourceFiles);
+    Assure.nonEmpty("name", name);
+    Assure.notNull("requiredJobs", requiredJobs);
+    this._name = name;
+    this._requiredJobs = requiredJobs;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public String getName() {
+    return this._name;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public String[] getRequiredJobs() {
+    return this._requiredJobs;
+  }
+
+  /**
+   * @param name
+   *          the name to set
+   */
+  public void setName(String name) {
+    Assure.nonEmpty("name", name);
+    this._name = name;
+  }
+
+  /**
+   * @param requiredJobs
+   *          the names of the required compile jobs
+   */
+  public void setRequiredJobs(String[] requiredJobs) {
+    Assure.notNull("requiredJobs", requiredJobs);
+    this._requiredJobs = requiredJobs;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+    StringBuffer buffer = new StringBuffer();
+    buffer.append("[DefaultProjectCompileJobDescription:");
+    buffer.append(" _name: ");
+    buffer.append(this._name);
+    buffer.append(", _requiredJobs: ");
+    buffer.append(Arrays.asList(this._requiredJobs));
+    buffer.append(", ");
+    buffer.append(super.toString());
+    buffer.append("]");
+    return buffer.toString();
+  }
+}
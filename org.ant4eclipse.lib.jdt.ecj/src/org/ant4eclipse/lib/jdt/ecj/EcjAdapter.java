@@ -38,6 +38,42 @@ public interface EcjAdapter {
    */
   CompileJobResult compile(CompileJobDescription description);
 
+  /**
+   * <p>
+   * Performs the compile jobs described by the given {@link ProjectCompileJobDescription ProjectCompileJobDescriptions}
+   * using the given number of threads. A compile job is started as soon as all the compile jobs it requires have been
+   * finished, independent compile jobs are executed concurrently. The class files compiled by a compile job are visible
+   * to the compile jobs that depend on it.
+   * </p>
+   * 
+   * @param descriptions
+   *          the {@link ProjectCompileJobDescription ProjectCompileJobDescriptions} that describe the compile jobs.
+   * @param threadCount
+   *          the maximum number of compile jobs that are executed concurrently. If <code>threadCount</code> is not
+   *          positive, the number of available processors is used.
+   * @return the results of the compile jobs (in the order of the given descriptions).
+   */
+  CompileJobResult[] compile(ProjectCompileJobDescription[] descriptions, int threadCount);
+
+  /**
+   * <p>
+   * Performs an incremental compile based on the given {@link CompileJobDescription}. The referenced types and the
+   * structure of the produced class files of each compiled source file are recorded in a build state next to its
+   * destination folder. Of the given source files only those that have been changed since the last compilation are
+   * recompiled, together with the (recorded) source files that reference a type whose structure has been changed.
+   * Class files of deleted source files are removed.
+   * </p>
+   * <p>
+   * The given source files should contain all the source files of the destination folders. Source files that are not
+   * given are only recompiled if they depend on a changed type.
+   * </p>
+   * 
+   * @param description
+   *          the {@link CompileJobDescription} that describes the compile job.
+   * @return the merged result of all compiled source files.
+   */
+  CompileJobResult compileIncrementally(CompileJobDescription description);
+
   /**
    * <p>
    * Inner factory to allow the creation of new {@link EcjAdapter} instances.
@@ -59,6 +59,12 @@ public class EcjExceptionCodes extends ExceptionCode {
       + "(e.g. from executeJdtProject)")
   public static ExceptionCode     NO_DEST_PATH_SET;
 
+  @NLSMessage("The compile job '%s' is defined more than once.")
+  public static ExceptionCode     DUPLICATE_COMPILE_JOB;
+
+  @NLSMessage("A compile job failed: %s")
+  public static ExceptionCode     COMPILE_JOB_FAILED;
+
   static {
     NLS.initialize(EcjExceptionCodes.class);
   }
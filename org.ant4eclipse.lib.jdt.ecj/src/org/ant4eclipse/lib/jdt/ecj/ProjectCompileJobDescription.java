@@ -0,0 +1,47 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj;
+
+/**
+ * <p>
+ * A {@link ProjectCompileJobDescription} describes the compile job of a single project that is compiled together with
+ * other projects (see {@link EcjAdapter#compile(ProjectCompileJobDescription[], int)}).
+ * </p>
+ * <p>
+ * A compile job is started as soon as all compile jobs it requires have been finished. The
+ * {@link #getClassFileLoader() class file loader} is requested when the compile job is started, so implementations may
+ * create it lazily.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public interface ProjectCompileJobDescription extends CompileJobDescription {
+
+  /**
+   * <p>
+   * Returns the name of the compile job (e.g. the name of the project).
+   * </p>
+   *
+   * @return the name of the compile job. Neither <code>null</code> nor empty.
+   */
+  String getName();
+
+  /**
+   * <p>
+   * Returns the names of the compile jobs that have to be finished before this compile job can be started. Names that
+   * don't refer to one of the compile jobs that are compiled together are ignored.
+   * </p>
+   *
+   * @return the names of the required compile jobs. Not <code>null</code>.
+   */
+  String[] getRequiredJobs();
+}
@@ -0,0 +1,288 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.ant4eclipse.lib.core.Assure;
+import org.ant4eclipse.lib.core.logging.A4ELogging;
+import org.ant4eclipse.lib.core.util.Utilities;
+
+/**
+ * <p>
+ * Writes compiled class files asynchronously. The class files are passed to a small pool of writer threads through a
+ * bounded queue; if the queue is full, the compiler thread writes the class file itself, so the memory used by pending
+ * class files is limited.
+ * </p>
+ * <p>
+ * A class file is only written if its content differs from the content of the existing file. Unchanged class files
+ * aren't touched at all, so tools that compare time stamps (e.g. jar or copy tasks) don't consider them as modified.
+ * Each output directory is created at most once per writer.
+ * </p>
+ * <p>
+ * The number of writer threads can be configured using the system property
+ * <code>ant4eclipse.classFileWriter.threads</code> (a value of <code>0</code> writes all class files synchronously),
+ * the size of the queue using <code>ant4eclipse.classFileWriter.queueSize</code>.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class ClassFileWriter {
+
+  /** System-Property that specifies the number of writer threads */
+  private static final int                 WRITER_THREADS = Integer.getInteger(
+                                                              "ant4eclipse.classFileWriter.threads", 2).intValue();
+
+  /** System-Property that specifies the maximum number of pending class files */
+  private static final int                 QUEUE_SIZE     = Integer.getInteger(
+                                                              "ant4eclipse.classFileWriter.queueSize", 256).intValue();
+
+  /** used to create unique thread names */
+  private static final AtomicInteger       POOL_COUNTER   = new AtomicInteger();
+
+  /** the writer threads (<code>null</code> if the class files are written synchronously) */
+  private ThreadPoolExecutor               _executor;
+
+  /** the directories that are known to exist */
+  private ConcurrentHashMap<File, Boolean> _directories;
+
+  /** the class files that could not be written */
+  private List<String>                     _failures;
+
+  /** the number of written class files */
+  private AtomicInteger                    _written;
+
+  /** the number of class files that haven't been written because they didn't change */
+  private AtomicInteger                    _unchanged;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link ClassFileWriter}.
+   * </p>
+   */
+  public ClassFileWriter() {
+    this._directories = new ConcurrentHashMap<File, Boolean>();
+    this._failures = new ArrayList<String>();
+    this._written = new AtomicInteger();
+    this._unchanged = new AtomicInteger();
+    if (WRITER_THREADS > 0) {
+      final int pool = POOL_COUNTER.incrementAndGet();
+      this._executor = new ThreadPoolExecutor(WRITER_THREADS, WRITER_THREADS, 0, TimeUnit.MILLISECONDS,
+          new ArrayBlockingQueue<Runnable>(Math.max(1, QUEUE_SIZE)), new ThreadFactory() {
+            private AtomicInteger _thread = new AtomicInteger();
+
+            public Thread newThread(Runnable runnable) {
+              Thread thread = new Thread(runnable, "A4E-classfile-writer-" + pool + "-"
+                  + this._thread.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            }
+          }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+  }
+
+  /**
+   * <p>
+   * Writes the given content to the given class file.
+   * </p>
+   *
+   * @param classFile
+   *          the class file. Not <code>null</code>.
+   * @param content
+   *          the content of the class file. Must not be modified afterwards.
+   */
+  public void write(final File classFile, final byte[] content) {
+    Assure.notNull("classFile", classFile);
+    Assure.notNull("content", content);
+
+    Runnable task = new Runnable() {
+      public void run() {
+        writeClassFile(classFile, content);
+      }
+    };
+
+    if (this._executor != null) {
+      this._executor.execute(task);
+    } else {
+      task.run();
+    }
+  }
+
+  /**
+   * <p>
+   * Copies the given (already compiled) class file to the given class file.
+   * </p>
+   *
+   * @param source
+   *          the compiled class file. Not <code>null</code>.
+   * @param classFile
+   *          the class file. Not <code>null</code>.
+   */
+  public void copy(final File source, final File classFile) {
+    Assure.isFile("source", source);
+    Assure.notNull("classFile", classFile);
+
+    Runnable task = new Runnable() {
+      public void run() {
+        copyClassFile(source, classFile);
+      }
+    };
+
+    if (this._executor != null) {
+      this._executor.execute(task);
+    } else {
+      task.run();
+    }
+  }
+
+  /**
+   * <p>
+   * Waits until all class files have been written and stops the writer threads.
+   * </p>
+   *
+   * @return <code>true</code> if all class files have been written successfully.
+   */
+  public boolean close() {
+    if (this._executor != null) {
+      this._executor.shutdown();
+      try {
+        while (!this._executor.awaitTermination(1, TimeUnit.SECONDS)) {
+          // wait until the queue has been processed
+        }
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        this._executor.shutdownNow();
+        addFailure("Interrupted while writing class files.");
+      }
+    }
+    A4ELogging.debug("Class files written: %d, unchanged: %d", Integer.valueOf(this._written.get()), Integer
+        .valueOf(this._unchanged.get()));
+    synchronized (this._failures) {
+      return this._failures.isEmpty();
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the number of class files that have been written.
+   * </p>
+   *
+   * @return the number of class files that have been written.
+   */
+  public int getWritten() {
+    return this._written.get();
+  }
+
+  /**
+   * <p>
+   * Returns the number of class files that haven't been written because their content didn't change.
+   * </p>
+   *
+   * @return the number of unchanged class files.
+   */
+  public int getUnchanged() {
+    return this._unchanged.get();
+  }
+
+  /**
+   * <p>
+   * Copies a single class file unless the target already has the same content.
+   * </p>
+   */
+  private void copyClassFile(File source, File classFile) {
+    byte[] content = null;
+    try {
+      content = readContent(source);
+    } catch (Exception ex) {
+      A4ELogging.error("Could not read classfile '%s': %s", source, ex.toString());
+      addFailure(source.getPath());
+      return;
+    }
+    writeClassFile(classFile, content);
+  }
+
+  /**
+   * <p>
+   * Writes a single class file unless it already has the given content. In the latter case the class file (including
+   * its time stamp) is left untouched.
+   * </p>
+   */
+  private void writeClassFile(File classFile, byte[] content) {
+    try {
+      if (hasContent(classFile, content)) {
+        this._unchanged.incrementAndGet();
+        return;
+      }
+      File directory = classFile.getParentFile();
+      if (!this._directories.containsKey(directory)) {
+        Utilities.mkdirs(directory);
+        this._directories.put(directory, Boolean.TRUE);
+      }
+      A4ELogging.debug("writing class file: '%s'", classFile);
+      OutputStream output = null;
+      try {
+        output = new FileOutputStream(classFile);
+        output.write(content);
+      } finally {
+        Utilities.close((Closeable) output);
+      }
+      this._written.incrementAndGet();
+    } catch (Exception ex) {
+      A4ELogging.error("Could not write classfile '%s': %s", classFile, ex.toString());
+      addFailure(classFile.getPath());
+    }
+  }
+
+  /**
+   * <p>
+   * Returns <code>true</code> if the given file exists and has the given content.
+   * </p>
+   */
+  private boolean hasContent(File file, byte[] content) throws IOException {
+    if (file.length() != content.length || !file.isFile()) {
+      return false;
+    }
+    return Arrays.equals(readContent(file), content);
+  }
+
+  /**
+   * <p>
+   * Returns the content of the given file.
+   * </p>
+   */
+  private byte[] readContent(File file) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream((int) file.length());
+    Utilities.copy(new FileInputStream(file), output, new byte[8192]);
+    return output.toByteArray();
+  }
+
+  private void addFailure(String failure) {
+    synchronized (this._failures) {
+      this._failures.add(failure);
+    }
+  }
+}
@@ -11,20 +11,27 @@
  **********************************************************************/
 package org.ant4eclipse.lib.jdt.ecj.internal.tools;
 
+import org.ant4eclipse.lib.jdt.ecj.ClassFile;
 import org.ant4eclipse.lib.jdt.ecj.CompileJobResult;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.incremental.SourceFileState;
 import org.eclipse.jdt.core.compiler.CategorizedProblem;
 
 import java.io.File;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 public class CompileJobResultImpl implements CompileJobResult {
 
-  private boolean              _succeeded;
+  private boolean                _succeeded;
 
-  private CategorizedProblem[] _categorizedProblems;
+  private CategorizedProblem[]   _categorizedProblems;
 
-  private Map<String, File>    _compiledclassfiles;
+  private Map<String, File>      _compiledclassfiles;
+
+  private List<SourceFileState>  _sourceFileStates;
+
+  private Map<String, ClassFile> _loadedClassFiles;
 
   /**
    * {@inheritDoc}
@@ -69,4 +76,42 @@ public class CompileJobResultImpl implements CompileJobResult {
     this._compiledclassfiles = compiledclasses;
   }
 
+  /**
+   * Returns the states of the compiled source files.
+   * 
+   * @return The states of the compiled source files or <code>null</code> if dependencies haven't been recorded.
+   */
+  public List<SourceFileState> getSourceFileStates() {
+    return this._sourceFileStates;
+  }
+
+  /**
+   * Changes the states of the compiled source files.
+   * 
+   * @param sourceFileStates
+   *          The states of the compiled source files. Maybe <code>null</code>.
+   */
+  public void setSourceFileStates(List<SourceFileState> sourceFileStates) {
+    this._sourceFileStates = sourceFileStates;
+  }
+
+  /**
+   * Returns the class files that have been loaded from the class path by binary name.
+   * 
+   * @return The loaded class files or <code>null</code> if dependencies haven't been recorded.
+   */
+  public Map<String, ClassFile> getLoadedClassFiles() {
+    return this._loadedClassFiles;
+  }
+
+  /**
+   * Changes the class files that have been loaded from the class path.
+   * 
+   * @param loadedClassFiles
+   *          The loaded class files by binary name. Maybe <code>null</code>.
+   */
+  public void setLoadedClassFiles(Map<String, ClassFile> loadedClassFiles) {
+    this._loadedClassFiles = loadedClassFiles;
+  }
+
 }
@@ -11,11 +11,11 @@
  **********************************************************************/
 package org.ant4eclipse.lib.jdt.ecj.internal.tools;
 
-import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
 import org.ant4eclipse.lib.core.logging.A4ELogging;
-import org.ant4eclipse.lib.core.util.Utilities;
 import org.ant4eclipse.lib.jdt.ecj.ReferableSourceFile;
 import org.ant4eclipse.lib.jdt.ecj.SourceFile;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.incremental.SourceFileState;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.incremental.StructuralHash;
 import org.eclipse.jdt.core.compiler.CategorizedProblem;
 import org.eclipse.jdt.internal.compiler.ClassFile;
 import org.eclipse.jdt.internal.compiler.CompilationResult;
@@ -49,15 +49,38 @@ public class CompilerRequestorImpl implements ICompilerRequestor {
   /** collection of class files which have been compiled */
   private Map<String, File>          _compiledClassFiles;
 
+  /** the states of the compiled source files (<code>null</code> if dependencies are not recorded) */
+  private List<SourceFileState>      _sourceFileStates;
+
+  /** writes the compiled class files */
+  private ClassFileWriter            _classFileWriter;
+
   /**
    * <p>
    * Creates a new instance of type {@link CompilerRequestorImpl}.
    * </p>
    */
   public CompilerRequestorImpl() {
+    this(false);
+  }
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link CompilerRequestorImpl}.
+   * </p>
+   * 
+   * @param recordDependencies
+   *          <code>true</code> if the referenced types and the structural hashes of the produced class files should be
+   *          recorded for each compiled source file (see {@link #getSourceFileStates()}).
+   */
+  public CompilerRequestorImpl(boolean recordDependencies) {
     this._compilationSuccessful = true;
     this._categorizedProblems = new LinkedList<CategorizedProblem>();
     this._compiledClassFiles = new Hashtable<String, File>();
+    if (recordDependencies) {
+      this._sourceFileStates = new LinkedList<SourceFileState>();
+    }
+    this._classFileWriter = new ClassFileWriter();
   }
 
   /**
@@ -97,6 +120,14 @@ public class CompilerRequestorImpl implements ICompilerRequestor {
     // get the destination directory
     File destinationDirectory = sourceFile.getDestinationFolder();
 
+    // record the dependencies
+    SourceFileState sourceFileState = null;
+    if (this._sourceFileStates != null) {
+      sourceFileState = new SourceFileState(sourceFile, !result.hasErrors());
+      sourceFileState.addReferences(result.qualifiedReferences, result.simpleNameReferences, result.rootReferences);
+      this._sourceFileStates.add(sourceFileState);
+    }
+
     if (!result.hasErrors()) {
       ClassFile[] classFiles = result.getClassFiles();
       for (ClassFile classFile2 : classFiles) {
@@ -110,18 +141,13 @@ public class CompilerRequestorImpl implements ICompilerRequestor {
         }
         classFileName.append(".class");
         File classFile = new File(destinationDirectory, classFileName.toString());
-        File classDir = classFile.getParentFile();
-        if (!classDir.exists()) {
-          classDir.mkdirs();
-        }
-        try {
-          A4ELogging.debug("writing class file: '%s'", classFile);
-          Utilities.writeFile(classFile, classFile2.getBytes());
-          this._compiledClassFiles.put(classFileName.toString(), classFile);
-        } catch (Ant4EclipseException ioe) {
-          A4ELogging.error("Could not write classfile '%s': %s", classFileName.toString(), ioe.toString());
-          ioe.printStackTrace();
-          this._compilationSuccessful = false;
+
+        // the class file is written asynchronously (see finish())
+        this._classFileWriter.write(classFile, classFile2.getBytes());
+        this._compiledClassFiles.put(classFileName.toString(), classFile);
+        if (sourceFileState != null) {
+          String binaryName = classFileName.substring(0, classFileName.length() - ".class".length());
+          sourceFileState.addType(binaryName, StructuralHash.compute(classFileName.toString(), classFile2.getBytes()));
         }
       }
     } else {
@@ -134,6 +160,17 @@ public class CompilerRequestorImpl implements ICompilerRequestor {
     }
   }
 
+  /**
+   * <p>
+   * Waits until all class files have been written. Must be called after the compilation has been finished.
+   * </p>
+   */
+  public void finish() {
+    if (!this._classFileWriter.close()) {
+      this._compilationSuccessful = false;
+    }
+  }
+
   /**
    * <p>
    * Returns <code>true</code> if the compilation was successful, <code>false</code> otherwise.
@@ -155,4 +192,15 @@ public class CompilerRequestorImpl implements ICompilerRequestor {
   public CategorizedProblem[] getCategorizedProblems() {
     return this._categorizedProblems.toArray(new CategorizedProblem[0]);
   }
+
+  /**
+   * <p>
+   * Returns the states of the compiled source files or <code>null</code> if dependencies are not recorded.
+   * </p>
+   * 
+   * @return the states of the compiled source files.
+   */
+  public List<SourceFileState> getSourceFileStates() {
+    return this._sourceFileStates;
+  }
 }
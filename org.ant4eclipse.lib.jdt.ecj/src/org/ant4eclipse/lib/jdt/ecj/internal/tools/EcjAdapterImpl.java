@@ -18,16 +18,17 @@ import java.util.Map;
 
 import org.ant4eclipse.lib.core.Assure;
 import org.ant4eclipse.lib.core.logging.A4ELogging;
+import org.ant4eclipse.lib.jdt.ecj.ClassFileLoader;
 import org.ant4eclipse.lib.jdt.ecj.CompileJobDescription;
 import org.ant4eclipse.lib.jdt.ecj.CompileJobResult;
 import org.ant4eclipse.lib.jdt.ecj.EcjAdapter;
+import org.ant4eclipse.lib.jdt.ecj.ProjectCompileJobDescription;
 import org.ant4eclipse.lib.jdt.ecj.SourceFile;
 import org.eclipse.jdt.internal.compiler.Compiler;
 import org.eclipse.jdt.internal.compiler.DefaultErrorHandlingPolicies;
 import org.eclipse.jdt.internal.compiler.IErrorHandlingPolicy;
 import org.eclipse.jdt.internal.compiler.IProblemFactory;
 import org.eclipse.jdt.internal.compiler.env.ICompilationUnit;
-import org.eclipse.jdt.internal.compiler.env.INameEnvironment;
 import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
 import org.eclipse.jdt.internal.compiler.problem.DefaultProblemFactory;
 
@@ -49,14 +50,68 @@ public final class EcjAdapterImpl implements EcjAdapter {
   public CompileJobResult compile(CompileJobDescription description) {
     Assure.notNull("description", description);
 
-    // create the name environment
-    INameEnvironment nameEnvironment = new NameEnvironmentImpl(description.getClassFileLoader());
+    return compile(description, description.getClassFileLoader());
+  }
 
-    // get the compiler options
-    Map<String, String> compilerOptions = description.getCompilerOptions();
+  /**
+   * {@inheritDoc}
+   */
+  public CompileJobResult[] compile(ProjectCompileJobDescription[] descriptions, int threadCount) {
+    Assure.notNull("descriptions", descriptions);
+
+    return new ParallelCompileJobExecutor(this, descriptions, threadCount).execute();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public CompileJobResult compileIncrementally(CompileJobDescription description) {
+    Assure.notNull("description", description);
+
+    return new IncrementalCompiler(this, description).compile();
+  }
+
+  /**
+   * <p>
+   * Performs a compile based on the given {@link CompileJobDescription}, using the given {@link ClassFileLoader}
+   * instead of the class file loader of the description.
+   * </p>
+   * 
+   * @param description
+   *          the {@link CompileJobDescription} that describes the compile job.
+   * @param classFileLoader
+   *          the {@link ClassFileLoader} that is used to find referenced types.
+   * @return the result of the compile job.
+   */
+  CompileJobResult compile(CompileJobDescription description, ClassFileLoader classFileLoader) {
+    return compile(description.getCompilerOptions(), description.getSourceFiles(), classFileLoader, false);
+  }
+
+  /**
+   * <p>
+   * Compiles the given source files.
+   * </p>
+   * 
+   * @param compilerOptions
+   *          the compiler options
+   * @param sourceFiles
+   *          the source files
+   * @param classFileLoader
+   *          the {@link ClassFileLoader} that is used to find referenced types.
+   * @param recordDependencies
+   *          <code>true</code> if the result should contain the {@link CompileJobResultImpl#getSourceFileStates()
+   *          states} of the compiled source files and the {@link CompileJobResultImpl#getLoadedClassFiles() class files}
+   *          that have been loaded from the class path.
+   * @return the result of the compile job.
+   */
+  CompileJobResultImpl compile(Map<String, String> compilerOptions, SourceFile[] sourceFiles,
+      ClassFileLoader classFileLoader, boolean recordDependencies) {
+
+    // create the name environment
+    NameEnvironmentImpl nameEnvironment = new NameEnvironmentImpl(classFileLoader, recordDependencies);
 
     // retrieve the compilation units
-    ICompilationUnit[] sources = getCompilationUnits(description.getSourceFiles());
+    ICompilationUnit[] sources = getCompilationUnits(sourceFiles);
 
     // create the error handling policy
     IErrorHandlingPolicy policy = DefaultErrorHandlingPolicies.proceedWithAllProblems();
@@ -65,11 +120,14 @@ public final class EcjAdapterImpl implements EcjAdapter {
     IProblemFactory problemFactory = new DefaultProblemFactory(Locale.getDefault());
 
     // create the compiler requestor
-    CompilerRequestorImpl requestor = new CompilerRequestorImpl();
+    CompilerRequestorImpl requestor = new CompilerRequestorImpl(recordDependencies);
+
+    // the referenced names are only computed if requested
+    CompilerOptions options = new CompilerOptions(compilerOptions);
+    options.produceReferenceInfo = recordDependencies;
 
     // create the compiler
-    Compiler compiler = new Compiler(nameEnvironment, policy, new CompilerOptions(compilerOptions), requestor,
-        problemFactory);
+    Compiler compiler = new Compiler(nameEnvironment, policy, options, requestor, problemFactory);
 
     if (Boolean.getBoolean("a4e.ecj.useMultiThreading")) {
       compiler.useSingleThread = false;
@@ -80,13 +138,19 @@ public final class EcjAdapterImpl implements EcjAdapter {
     setupAnnotationProcessor(compiler);
 
     // compile
-    compiler.compile(sources);
+    try {
+      compiler.compile(sources);
+    } finally {
+      requestor.finish();
+    }
 
     // create the compile job result
     CompileJobResultImpl result = new CompileJobResultImpl();
     result.setSucceeded(requestor.isCompilationSuccessful());
     result.setCategorizedProblems(requestor.getCategorizedProblems());
     result.setCompiledClassFiles(requestor.getCompiledClassFiles());
+    result.setSourceFileStates(requestor.getSourceFileStates());
+    result.setLoadedClassFiles(nameEnvironment.getLoadedClassFiles());
 
     // return the result
     return result;
@@ -0,0 +1,399 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.ant4eclipse.lib.core.Assure;
+import org.ant4eclipse.lib.core.logging.A4ELogging;
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.lib.jdt.ecj.ClassFile;
+import org.ant4eclipse.lib.jdt.ecj.ClassFileLoader;
+import org.ant4eclipse.lib.jdt.ecj.CompileJobDescription;
+import org.ant4eclipse.lib.jdt.ecj.CompileJobResult;
+import org.ant4eclipse.lib.jdt.ecj.EcjAdapter;
+import org.ant4eclipse.lib.jdt.ecj.SourceFile;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.incremental.BuildState;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.incremental.ExternalTypeState;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.incremental.SourceFileState;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.incremental.StructuralHash;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.loader.ClasspathClassFileLoaderImpl;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.loader.CompoundClassFileLoaderImpl;
+import org.eclipse.jdt.core.compiler.CategorizedProblem;
+import org.eclipse.jdt.core.compiler.CharOperation;
+
+/**
+ * <p>
+ * Performs an incremental compilation (see {@link EcjAdapter#compileIncrementally(CompileJobDescription)}).
+ * </p>
+ * <p>
+ * The compilation is performed in rounds: the first round compiles the changed source files. If the structure of a
+ * produced type has been changed (or a type has been added or removed), the source files that depend on it are
+ * compiled in the next round, until no more structural changes occur. The class files of the source files of a round
+ * are removed before the round is compiled, so that references to removed types are reported as errors.
+ * </p>
+ * <p>
+ * Types that are referenced by the compiled source files but loaded from the class path (e.g. from the output folder
+ * of another project or from a jar file) are recorded together with their structural hashes. If such a type has been
+ * changed or removed since the last compilation, the source files that depend on it are compiled in the first round.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class IncrementalCompiler {
+
+  /** the adapter that compiles the source files */
+  private EcjAdapterImpl           _ecjAdapter;
+
+  /** the compile job description */
+  private CompileJobDescription    _description;
+
+  /** maps the (canonical) destination folders to their build states */
+  private Map<File, BuildState>    _buildStates;
+
+  /** the given source files (by key) */
+  private Map<String, SourceFile>  _sourceFiles;
+
+  /** the source files that have to be compiled in the next round (by key) */
+  private Map<String, SourceFile>  _pending;
+
+  /** the keys of the source files that have been compiled */
+  private Set<String>              _compiled;
+
+  /** the class files that have been compiled */
+  private Map<String, File>        _compiledClassFiles;
+
+  /** the problems of all rounds */
+  private List<CategorizedProblem> _categorizedProblems;
+
+  /** maps the library locations of loaded class files to the canonical class path entries */
+  private Map<String, File>        _canonicalLocations;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link IncrementalCompiler}.
+   * </p>
+   *
+   * @param ecjAdapter
+   *          the adapter that compiles the source files
+   * @param description
+   *          the compile job description
+   */
+  public IncrementalCompiler(EcjAdapterImpl ecjAdapter, CompileJobDescription description) {
+    Assure.notNull("ecjAdapter", ecjAdapter);
+    Assure.notNull("description", description);
+
+    this._ecjAdapter = ecjAdapter;
+    this._description = description;
+    this._buildStates = new LinkedHashMap<File, BuildState>();
+    this._sourceFiles = new LinkedHashMap<String, SourceFile>();
+    this._pending = new LinkedHashMap<String, SourceFile>();
+    this._compiled = new HashSet<String>();
+    this._compiledClassFiles = new HashMap<String, File>();
+    this._categorizedProblems = new ArrayList<CategorizedProblem>();
+    this._canonicalLocations = new HashMap<String, File>();
+  }
+
+  /**
+   * <p>
+   * Performs the incremental compilation.
+   * </p>
+   *
+   * @return the merged result of all rounds.
+   */
+  public CompileJobResult compile() {
+
+    // step 1: collect the changed source files
+    for (SourceFile sourceFile : this._description.getSourceFiles()) {
+      String key = sourceFile.getSourceFile().getAbsolutePath();
+      this._sourceFiles.put(key, sourceFile);
+      SourceFileState sourceFileState = getBuildState(sourceFile.getDestinationFolder()).getSourceFileState(key);
+      if ((sourceFileState == null) || sourceFileState.isChanged(sourceFile.getDestinationFolder())) {
+        this._pending.put(key, sourceFile);
+      }
+    }
+
+    // step 2: remove the class files of deleted source files and collect the changed types of the class path
+    Set<String> changedTypes = new HashSet<String>();
+    for (BuildState buildState : this._buildStates.values()) {
+      if (!buildState.isExisting()) {
+        A4ELogging.debug("No build state for '%s', dependent source files can't be determined.", buildState
+            .getOutputFolder());
+      }
+      for (SourceFileState sourceFileState : buildState.getSourceFileStates()) {
+        if (!sourceFileState.getSourceFile().exists()) {
+          A4ELogging.debug("Source file '%s' has been deleted.", sourceFileState.getSourceFile());
+          deleteClassFiles(buildState, sourceFileState);
+          changedTypes.addAll(sourceFileState.getTypes());
+          buildState.removeSourceFileState(sourceFileState.getKey());
+        }
+      }
+      collectChangedExternalTypes(buildState, changedTypes);
+    }
+    addDependentSourceFiles(changedTypes);
+
+    // step 3: compile until there are no more structural changes
+    boolean succeeded = true;
+    int round = 0;
+    while (!this._pending.isEmpty()) {
+      round++;
+      A4ELogging.debug("Incremental compilation round %d: compiling %d source files.", Integer.valueOf(round),
+          Integer.valueOf(this._pending.size()));
+
+      // remove the class files of the source files that are compiled in this round
+      for (SourceFile sourceFile : this._pending.values()) {
+        BuildState buildState = getBuildState(sourceFile.getDestinationFolder());
+        SourceFileState sourceFileState = buildState.getSourceFileState(sourceFile.getSourceFile().getAbsolutePath());
+        if (sourceFileState != null) {
+          deleteClassFiles(buildState, sourceFileState);
+        }
+      }
+
+      SourceFile[] sourceFiles = this._pending.values().toArray(new SourceFile[this._pending.size()]);
+      this._compiled.addAll(this._pending.keySet());
+      this._pending.clear();
+
+      CompileJobResultImpl result = this._ecjAdapter.compile(this._description.getCompilerOptions(), sourceFiles,
+          createClassFileLoader(), true);
+      succeeded = succeeded && result.succeeded();
+      this._compiledClassFiles.putAll(result.getCompiledClassFiles());
+      for (CategorizedProblem categorizedProblem : result.getCategorizedProblems()) {
+        this._categorizedProblems.add(categorizedProblem);
+      }
+
+      // update the build states and collect the structural changes
+      changedTypes.clear();
+      Map<String, File> destinationFolders = new HashMap<String, File>();
+      Set<BuildState> roundBuildStates = new HashSet<BuildState>();
+      for (SourceFile sourceFile : sourceFiles) {
+        destinationFolders.put(sourceFile.getSourceFile().getAbsolutePath(), sourceFile.getDestinationFolder());
+        roundBuildStates.add(getBuildState(sourceFile.getDestinationFolder()));
+      }
+      for (BuildState buildState : roundBuildStates) {
+        recordExternalTypes(buildState, result.getLoadedClassFiles());
+      }
+      for (SourceFileState sourceFileState : result.getSourceFileStates()) {
+        BuildState buildState = getBuildState(destinationFolders.get(sourceFileState.getKey()));
+        SourceFileState previousState = buildState.getSourceFileState(sourceFileState.getKey());
+        collectChangedTypes(previousState, sourceFileState, changedTypes);
+        buildState.putSourceFileState(sourceFileState);
+      }
+      addDependentSourceFiles(changedTypes);
+    }
+
+    // step 4: store the build states
+    for (BuildState buildState : this._buildStates.values()) {
+      buildState.save();
+    }
+
+    A4ELogging.debug("Incremental compilation finished after %d rounds (%d of %d source files compiled).", Integer
+        .valueOf(round), Integer.valueOf(this._compiled.size()), Integer.valueOf(this._sourceFiles.size()));
+
+    // create the merged result
+    CompileJobResultImpl result = new CompileJobResultImpl();
+    result.setSucceeded(succeeded);
+    result.setCategorizedProblems(this._categorizedProblems.toArray(new CategorizedProblem[this._categorizedProblems
+        .size()]));
+    result.setCompiledClassFiles(this._compiledClassFiles);
+    return result;
+  }
+
+  /**
+   * <p>
+   * Adds the types of the given states whose structure has been changed to the given set of changed types.
+   * </p>
+   */
+  private void collectChangedTypes(SourceFileState previousState, SourceFileState sourceFileState,
+      Set<String> changedTypes) {
+    for (String type : sourceFileState.getTypes()) {
+      String structuralHash = sourceFileState.getStructuralHash(type);
+      if ((previousState == null) || (structuralHash.length() == 0)
+          || !structuralHash.equals(previousState.getStructuralHash(type))) {
+        changedTypes.add(type);
+      }
+    }
+    if (previousState != null) {
+      for (String type : previousState.getTypes()) {
+        if (sourceFileState.getStructuralHash(type) == null) {
+          changedTypes.add(type);
+        }
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Adds the recorded types of the class path whose jar file or class file has been modified and whose structure has
+   * been changed (or that have been removed) to the given set of changed types.
+   * </p>
+   */
+  private void collectChangedExternalTypes(BuildState buildState, Set<String> changedTypes) {
+    for (ExternalTypeState externalTypeState : buildState.getExternalTypeStates()) {
+      if (!externalTypeState.isModified()) {
+        continue;
+      }
+      String binaryName = externalTypeState.getBinaryName();
+      ClassFile classFile = this._description.getClassFileLoader().loadClass(
+          CharOperation.splitOn('/', binaryName.toCharArray()));
+      if (classFile == null) {
+        A4ELogging.debug("Referenced type '%s' has been removed from the class path.", binaryName);
+        changedTypes.add(binaryName);
+        buildState.removeExternalTypeState(binaryName);
+        continue;
+      }
+      String structuralHash = StructuralHash.compute(classFile.getBinaryType());
+      if (!structuralHash.equals(externalTypeState.getStructuralHash())) {
+        A4ELogging.debug("Referenced type '%s' has been changed.", binaryName);
+        changedTypes.add(binaryName);
+      }
+      buildState.putExternalTypeState(new ExternalTypeState(binaryName, new File(classFile.getLibraryLocation()),
+          structuralHash));
+    }
+  }
+
+  /**
+   * <p>
+   * Records the given class files that have been loaded from the class path (and not from one of the output folders)
+   * in the given build state. The structural hash is only computed for types that haven't been recorded yet or whose
+   * jar file or class file has been modified.
+   * </p>
+   */
+  private void recordExternalTypes(BuildState buildState, Map<String, ClassFile> loadedClassFiles) {
+    if (loadedClassFiles == null) {
+      return;
+    }
+    for (Map.Entry<String, ClassFile> entry : loadedClassFiles.entrySet()) {
+      File location = getCanonicalLocation(entry.getValue());
+      if (isOutputFolder(location)) {
+        continue;
+      }
+      ExternalTypeState externalTypeState = buildState.getExternalTypeState(entry.getKey());
+      if ((externalTypeState == null) || !externalTypeState.getLocation().equals(location)
+          || externalTypeState.isModified()) {
+        buildState.putExternalTypeState(new ExternalTypeState(entry.getKey(), location, StructuralHash.compute(entry
+            .getValue().getBinaryType())));
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the (canonical) class path entry the given class file has been loaded from.
+   * </p>
+   */
+  private File getCanonicalLocation(ClassFile classFile) {
+    String libraryLocation = classFile.getLibraryLocation();
+    File result = this._canonicalLocations.get(libraryLocation);
+    if (result == null) {
+      result = Utilities.getCanonicalFile(new File(libraryLocation));
+      this._canonicalLocations.put(libraryLocation, result);
+    }
+    return result;
+  }
+
+  /**
+   * <p>
+   * Returns <code>true</code> if the given location is one of the output folders of this compilation.
+   * </p>
+   */
+  private boolean isOutputFolder(File location) {
+    return this._buildStates.containsKey(location);
+  }
+
+  /**
+   * <p>
+   * Schedules the recorded source files that depend on one of the given types for the next round.
+   * </p>
+   */
+  private void addDependentSourceFiles(Set<String> changedTypes) {
+    if (changedTypes.isEmpty()) {
+      return;
+    }
+    for (BuildState buildState : this._buildStates.values()) {
+      for (SourceFileState sourceFileState : buildState.getSourceFileStates()) {
+        String key = sourceFileState.getKey();
+        if (this._compiled.contains(key) || this._pending.containsKey(key)) {
+          continue;
+        }
+        for (String changedType : changedTypes) {
+          if (sourceFileState.dependsOn(changedType)) {
+            A4ELogging.debug("Source file '%s' depends on changed type '%s'.", sourceFileState.getSourceFile(),
+                changedType);
+            SourceFile sourceFile = this._sourceFiles.get(key);
+            if (sourceFile == null) {
+              sourceFile = sourceFileState.createSourceFile(buildState.getOutputFolder());
+            }
+            this._pending.put(key, sourceFile);
+            break;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Returns a class file loader that loads the types of the class file loader of the description and of the
+   * destination folders. The loaders for the destination folders are created for each round, since their content
+   * changes.
+   * </p>
+   */
+  private ClassFileLoader createClassFileLoader() {
+    List<ClassFileLoader> classFileLoaders = new ArrayList<ClassFileLoader>();
+    classFileLoaders.add(this._description.getClassFileLoader());
+    for (File outputFolder : this._buildStates.keySet()) {
+      if (outputFolder.isDirectory()) {
+        classFileLoaders.add(new ClasspathClassFileLoaderImpl(outputFolder, EcjAdapter.LIBRARY));
+      }
+    }
+    return new CompoundClassFileLoaderImpl(classFileLoaders.toArray(new ClassFileLoader[classFileLoaders.size()]));
+  }
+
+  /**
+   * <p>
+   * Deletes the class files of the given source file.
+   * </p>
+   */
+  private void deleteClassFiles(BuildState buildState, SourceFileState sourceFileState) {
+    for (String type : sourceFileState.getTypes()) {
+      deleteClassFile(SourceFileState.getClassFile(buildState.getOutputFolder(), type));
+    }
+  }
+
+  private void deleteClassFile(File classFile) {
+    if (classFile.isFile() && !classFile.delete()) {
+      A4ELogging.warn("Could not delete class file '%s'.", classFile);
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the build state of the given destination folder.
+   * </p>
+   */
+  private BuildState getBuildState(File destinationFolder) {
+    File outputFolder = Utilities.getCanonicalFile(destinationFolder);
+    BuildState result = this._buildStates.get(outputFolder);
+    if (result == null) {
+      result = BuildState.load(outputFolder);
+      this._buildStates.put(outputFolder, result);
+    }
+    return result;
+  }
+}
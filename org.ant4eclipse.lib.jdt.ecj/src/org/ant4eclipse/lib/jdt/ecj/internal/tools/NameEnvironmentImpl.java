@@ -11,12 +11,16 @@
  **********************************************************************/
 package org.ant4eclipse.lib.jdt.ecj.internal.tools;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.ant4eclipse.lib.core.Assure;
 import org.ant4eclipse.lib.core.ClassName;
 import org.ant4eclipse.lib.core.logging.A4ELogging;
 import org.ant4eclipse.lib.jdt.ecj.ClassFile;
 import org.ant4eclipse.lib.jdt.ecj.ClassFileLoader;
 import org.ant4eclipse.lib.jdt.ecj.SourceFile;
+import org.eclipse.jdt.core.compiler.CharOperation;
 import org.eclipse.jdt.internal.compiler.env.INameEnvironment;
 import org.eclipse.jdt.internal.compiler.env.NameEnvironmentAnswer;
 
@@ -24,6 +28,12 @@ import org.eclipse.jdt.internal.compiler.env.NameEnvironmentAnswer;
  * <p>
  * Adapter class to utilize class file loaders in the eclipse java compiler.
  * </p>
+ * <p>
+ * The compiler passes type and package names as compound names (<code>char[][]</code>). These are handed to the class
+ * file loader without converting them to strings, so unsuccessful lookups (which are by far the most frequent ones) do
+ * not create any objects. Compound names that have to be assembled from a package name and a simple name are built
+ * in reusable buffers, since the compiler uses a name environment from a single thread only.
+ * </p>
  * 
  * @author Gerd Wuetherich (gerd@gerd-wuetherich.de)
  * @author Nils Hartmann (nils@nilshartmann.net)
@@ -31,10 +41,10 @@ import org.eclipse.jdt.internal.compiler.env.NameEnvironmentAnswer;
 public class NameEnvironmentImpl implements INameEnvironment {
 
   // the debug flag
-  private static boolean  DEBUG_ALL            = false;
+  private static boolean         DEBUG_ALL            = false;
 
   // the debug flag
-  private static boolean  DEBUG_TYPE_NOT_FOUND = false;
+  private static boolean         DEBUG_TYPE_NOT_FOUND = false;
 
   static {
     DEBUG_ALL = "true".equals(System.getProperty("ant4eclipse.debug.nameenv"));
@@ -42,7 +52,13 @@ public class NameEnvironmentImpl implements INameEnvironment {
   }
 
   /** used to find binary type as requested by the compiler */
-  private ClassFileLoader _classFileLoader;
+  private ClassFileLoader        _classFileLoader;
+
+  /** reusable buffers for compound names, indexed by the number of segments */
+  private char[][][]             _compoundNameBuffers;
+
+  /** the class files that have been loaded by binary name (<code>null</code> if they are not recorded) */
+  private Map<String, ClassFile> _loadedClassFiles;
 
   /**
    * <p>
@@ -53,8 +69,27 @@ public class NameEnvironmentImpl implements INameEnvironment {
    *          the class file loader to use.
    */
   public NameEnvironmentImpl(ClassFileLoader classFileLoader) {
+    this(classFileLoader, false);
+  }
+
+  /**
+   * <p>
+   * Create a new instance of type {@link NameEnvironmentImpl}.
+   * </p>
+   * 
+   * @param classFileLoader
+   *          the class file loader to use.
+   * @param recordLoadedClassFiles
+   *          <code>true</code> if the class files that have been loaded should be recorded (see
+   *          {@link #getLoadedClassFiles()}).
+   */
+  public NameEnvironmentImpl(ClassFileLoader classFileLoader, boolean recordLoadedClassFiles) {
     Assure.notNull("classFileLoader", classFileLoader);
     this._classFileLoader = classFileLoader;
+    this._compoundNameBuffers = new char[16][][];
+    if (recordLoadedClassFiles) {
+      this._loadedClassFiles = new HashMap<String, ClassFile>();
+    }
 
     if (DEBUG_ALL || DEBUG_TYPE_NOT_FOUND) {
       A4ELogging.info("NameEnvironment tracing enabled.");
@@ -62,6 +97,17 @@ public class NameEnvironmentImpl implements INameEnvironment {
 
   }
 
+  /**
+   * <p>
+   * Returns the class files that have been loaded by the compiler, by binary name (e.g. <code>foo/Bar$Inner</code>).
+   * </p>
+   * 
+   * @return the loaded class files or <code>null</code> if they haven't been recorded.
+   */
+  public Map<String, ClassFile> getLoadedClassFiles() {
+    return this._loadedClassFiles;
+  }
+
   /**
    * @see org.eclipse.jdt.internal.compiler.env.INameEnvironment#cleanup()
    */
@@ -74,35 +120,29 @@ public class NameEnvironmentImpl implements INameEnvironment {
    */
   public NameEnvironmentAnswer findType(char[][] compoundTypeName) {
 
-    // convert char array to string(buffer)
-    StringBuffer buffer = new StringBuffer();
-    for (int i = 0; i < compoundTypeName.length; i++) {
-      buffer.append(new String(compoundTypeName[i]));
-      if (i < compoundTypeName.length - 1) {
-        buffer.append(".");
-      }
+    // load class file from class file loader
+    ClassFile classFile = this._classFileLoader.loadClass(compoundTypeName);
+    if (classFile != null) {
+      return newAnswer(classFile, compoundTypeName);
     }
 
-    // find class
-    NameEnvironmentAnswer answer = findClass(buffer.toString());
-    return answer;
+    // source files can only be found if the package exists
+    if (!this._classFileLoader.hasPackage(toCompoundName(compoundTypeName, compoundTypeName.length - 1, null))) {
+      if (DEBUG_TYPE_NOT_FOUND) {
+        A4ELogging.info("Could not load class '%s'.", CharOperation.toString(compoundTypeName));
+      }
+      return null;
+    }
 
+    // load source file from class file loader
+    return findSource(ClassName.fromQualifiedClassName(CharOperation.toString(compoundTypeName)));
   }
 
   /**
    * {@inheritDoc}
    */
   public NameEnvironmentAnswer findType(char[] typeName, char[][] packageName) {
-
-    StringBuffer result = new StringBuffer();
-    if (packageName != null) {
-      for (char[] element : packageName) {
-        result.append(new String(element)).append(".");
-      }
-    }
-    result.append(new String(typeName));
-
-    return findClass(result.toString());
+    return findType(toCompoundName(packageName, packageName != null ? packageName.length : 0, typeName));
   }
 
   /**
@@ -117,20 +157,16 @@ public class NameEnvironmentImpl implements INameEnvironment {
    */
   public boolean isPackage(char[][] parentPackageName, char[] packageName) {
 
-    String qualifiedPackageName = toJavaName(parentPackageName);
-    if (qualifiedPackageName.length() > 0) {
-      qualifiedPackageName += "." + new String(packageName);
-    } else {
-      qualifiedPackageName = new String(packageName);
-    }
+    char[][] compoundPackageName = toCompoundName(parentPackageName, parentPackageName != null ? parentPackageName.length
+        : 0, packageName);
 
-    boolean packageFound = this._classFileLoader.hasPackage(qualifiedPackageName);
+    boolean packageFound = this._classFileLoader.hasPackage(compoundPackageName);
 
     if (DEBUG_ALL) {
       if (packageFound) {
-        A4ELogging.info("Package '%s' found...", qualifiedPackageName);
+        A4ELogging.info("Package '%s' found...", CharOperation.toString(compoundPackageName));
       } else {
-        A4ELogging.info("Package '%s' not found...", qualifiedPackageName);
+        A4ELogging.info("Package '%s' not found...", CharOperation.toString(compoundPackageName));
       }
     }
 
@@ -168,10 +204,29 @@ public class NameEnvironmentImpl implements INameEnvironment {
             .getLibraryLocation());
       }
 
+      if (this._loadedClassFiles != null) {
+        this._loadedClassFiles.put(className.getQualifiedClassName().replace('.', '/'), classFile);
+      }
+
       return new NameEnvironmentAnswer(classFile.getBinaryType(), (classFile.hasAccessRestriction() ? classFile
           .getAccessRestriction() : null));
     }
 
+    return findSource(className);
+  }
+
+  /**
+   * <p>
+   * Returns a {@link NameEnvironmentAnswer} for the source of the class that is represented by the given
+   * {@link ClassName} instance.
+   * </p>
+   * 
+   * @param className
+   *          represents the class name
+   * @return a {@link NameEnvironmentAnswer} or <code>null</code>
+   */
+  private NameEnvironmentAnswer findSource(ClassName className) {
+
     // load source file from class file loader
     // TODO: AccessRestictions for source files!!
     SourceFile sourceFile = this._classFileLoader.loadSource(className);
@@ -197,24 +252,61 @@ public class NameEnvironmentImpl implements INameEnvironment {
 
   /**
    * <p>
-   * Converts the given char array to a java name (e.g. "net.sf.ant4eclipse").
+   * Returns a {@link NameEnvironmentAnswer} for the given class file.
+   * </p>
+   */
+  private NameEnvironmentAnswer newAnswer(ClassFile classFile, char[][] compoundTypeName) {
+
+    if (DEBUG_ALL) {
+      A4ELogging.info("Loading class '%s' from '%s'.", CharOperation.toString(compoundTypeName), classFile
+          .getLibraryLocation());
+    }
+
+    if (this._loadedClassFiles != null) {
+      this._loadedClassFiles.put(CharOperation.toString(compoundTypeName).replace('.', '/'), classFile);
+    }
+
+    return new NameEnvironmentAnswer(classFile.getBinaryType(), (classFile.hasAccessRestriction() ? classFile
+        .getAccessRestriction() : null));
+  }
+
+  /**
+   * <p>
+   * Returns a compound name that consists of the first <code>count</code> segments of the given name, followed by the
+   * given last segment (if not <code>null</code>). The result is a reused buffer that is only valid until the next
+   * invocation with the same number of segments.
    * </p>
    * 
-   * @param array
-   *          the array to convert.
-   * @return the
+   * @param name
+   *          the leading segments (maybe <code>null</code> if <code>count</code> is <code>0</code>).
+   * @param count
+   *          the number of leading segments to use.
+   * @param lastSegment
+   *          the last segment (maybe <code>null</code>).
+   * @return the compound name.
    */
-  private static String toJavaName(char[][] array) {
-    StringBuffer result = new StringBuffer();
-
-    if (array != null) {
-      for (int i = 0; i < array.length; i++) {
-        result.append(new String(array[i]));
-        if (i < array.length - 1) {
-          result.append(".");
-        }
-      }
+  private char[][] toCompoundName(char[][] name, int count, char[] lastSegment) {
+
+    int length = lastSegment != null ? count + 1 : count;
+
+    if (length >= this._compoundNameBuffers.length) {
+      char[][][] buffers = new char[length * 2][][];
+      System.arraycopy(this._compoundNameBuffers, 0, buffers, 0, this._compoundNameBuffers.length);
+      this._compoundNameBuffers = buffers;
+    }
+
+    char[][] result = this._compoundNameBuffers[length];
+    if (result == null) {
+      result = new char[length][];
+      this._compoundNameBuffers[length] = result;
+    }
+
+    if (count > 0) {
+      System.arraycopy(name, 0, result, 0, count);
+    }
+    if (lastSegment != null) {
+      result[count] = lastSegment;
     }
-    return result.toString();
+    return result;
   }
 }
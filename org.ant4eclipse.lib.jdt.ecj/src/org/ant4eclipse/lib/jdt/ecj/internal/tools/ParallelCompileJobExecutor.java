@@ -0,0 +1,183 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.ant4eclipse.lib.core.Assure;
+import org.ant4eclipse.lib.core.dependencygraph.DependencyGraph;
+import org.ant4eclipse.lib.core.dependencygraph.DependencyGraphExecutor;
+import org.ant4eclipse.lib.core.dependencygraph.VertexProcessor;
+import org.ant4eclipse.lib.core.dependencygraph.VertexRenderer;
+import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
+import org.ant4eclipse.lib.core.logging.A4ELogging;
+import org.ant4eclipse.lib.jdt.ecj.ClassFileLoader;
+import org.ant4eclipse.lib.jdt.ecj.CompileJobResult;
+import org.ant4eclipse.lib.jdt.ecj.EcjExceptionCodes;
+import org.ant4eclipse.lib.jdt.ecj.ProjectCompileJobDescription;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.loader.CompiledClassIndex;
+
+/**
+ * <p>
+ * Executes a set of {@link ProjectCompileJobDescription ProjectCompileJobDescriptions} concurrently. The compile jobs
+ * are added to a {@link DependencyGraph} and executed by a {@link DependencyGraphExecutor} with a bounded number of
+ * threads, so a compile job is started as soon as all the compile jobs it requires have been finished.
+ * </p>
+ * <p>
+ * Each compile job uses its own name environment. The class file loaders that are shared between the compile jobs
+ * (e.g. the cached loaders of the {@link org.ant4eclipse.lib.jdt.ecj.ClassFileLoaderFactory}) are read-only after
+ * their initialization, the lazily created lookup structures are synchronized. The class files that are compiled by a
+ * compile job are published to a single {@link CompiledClassIndex} before the compile job is reported as finished, so
+ * they are visible to the dependent compile jobs.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class ParallelCompileJobExecutor {
+
+  /** the adapter that performs the compile jobs */
+  private EcjAdapterImpl                 _ecjAdapter;
+
+  /** the compile jobs */
+  private ProjectCompileJobDescription[] _descriptions;
+
+  /** the number of threads */
+  private int                            _threadCount;
+
+  /** the class files that have been compiled so far */
+  private CompiledClassIndex             _compiledClassIndex;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link ParallelCompileJobExecutor}.
+   * </p>
+   *
+   * @param ecjAdapter
+   *          the adapter that performs the compile jobs
+   * @param descriptions
+   *          the compile jobs
+   * @param threadCount
+   *          the number of threads (the number of available processors if not positive)
+   */
+  public ParallelCompileJobExecutor(EcjAdapterImpl ecjAdapter, ProjectCompileJobDescription[] descriptions,
+      int threadCount) {
+    Assure.notNull("ecjAdapter", ecjAdapter);
+    Assure.notNull("descriptions", descriptions);
+
+    this._ecjAdapter = ecjAdapter;
+    this._descriptions = descriptions;
+    this._threadCount = threadCount > 0 ? threadCount : Runtime.getRuntime().availableProcessors();
+    this._compiledClassIndex = new CompiledClassIndex();
+  }
+
+  /**
+   * <p>
+   * Executes the compile jobs.
+   * </p>
+   *
+   * @return the results of the compile jobs (in the order of the descriptions).
+   */
+  public CompileJobResult[] execute() {
+
+    int count = this._descriptions.length;
+    final CompileJobResult[] results = new CompileJobResult[count];
+    if (count == 0) {
+      return results;
+    }
+
+    // map the names to the compile jobs
+    final Map<ProjectCompileJobDescription, Integer> indices = new HashMap<ProjectCompileJobDescription, Integer>();
+    Map<String, ProjectCompileJobDescription> descriptions = new HashMap<String, ProjectCompileJobDescription>();
+    for (int i = 0; i < count; i++) {
+      Assure.notNull("descriptions[" + i + "]", this._descriptions[i]);
+      String name = this._descriptions[i].getName();
+      if (descriptions.put(name, this._descriptions[i]) != null) {
+        throw new Ant4EclipseException(EcjExceptionCodes.DUPLICATE_COMPILE_JOB, name);
+      }
+      indices.put(this._descriptions[i], Integer.valueOf(i));
+    }
+
+    // build the dependency graph (requirements that aren't compiled together are ignored)
+    DependencyGraph<ProjectCompileJobDescription> dependencyGraph = new DependencyGraph<ProjectCompileJobDescription>(
+        new VertexRenderer<ProjectCompileJobDescription>() {
+          public String renderVertex(ProjectCompileJobDescription description) {
+            return description.getName();
+          }
+        });
+    for (ProjectCompileJobDescription description : this._descriptions) {
+      dependencyGraph.addVertex(description);
+    }
+    for (ProjectCompileJobDescription description : this._descriptions) {
+      for (String requiredJob : description.getRequiredJobs()) {
+        ProjectCompileJobDescription required = descriptions.get(requiredJob);
+        if ((required != null) && (required != description)) {
+          dependencyGraph.addEdge(description, required);
+        }
+      }
+    }
+
+    A4ELogging.debug("Executing %d compile jobs using at most %d threads.", Integer.valueOf(count), Integer
+        .valueOf(this._threadCount));
+
+    // execute the compile jobs (this fails if the requirements are cyclic)
+    Map<ProjectCompileJobDescription, Throwable> failures = new DependencyGraphExecutor<ProjectCompileJobDescription>(
+        dependencyGraph, this._threadCount, false).execute(Arrays.asList(this._descriptions),
+        new VertexProcessor<ProjectCompileJobDescription>() {
+          public void process(ProjectCompileJobDescription description) {
+            // each compile job writes its own slot only, the executor hands the slots over to the calling thread
+            results[indices.get(description).intValue()] = compile(description);
+          }
+        });
+
+    // rethrow the first failure
+    if (!failures.isEmpty()) {
+      Throwable cause = failures.values().iterator().next();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new Ant4EclipseException(cause, EcjExceptionCodes.COMPILE_JOB_FAILED, cause);
+    }
+
+    return results;
+  }
+
+  /**
+   * <p>
+   * Executes a single compile job and publishes its class files.
+   * </p>
+   *
+   * @param description
+   *          the compile job
+   * @return the result of the compile job
+   */
+  private CompileJobResult compile(ProjectCompileJobDescription description) {
+
+    A4ELogging.debug("Starting compile job '%s'.", description.getName());
+
+    // make the class files of the required jobs visible
+    ClassFileLoader classFileLoader = this._compiledClassIndex.createClassFileLoader(description.getClassFileLoader());
+
+    CompileJobResult result = this._ecjAdapter.compile(description, classFileLoader);
+
+    // publish the class files before the dependent jobs are started
+    this._compiledClassIndex.publish(result.getCompiledClassFiles());
+
+    A4ELogging.debug("Finished compile job '%s'.", description.getName());
+
+    return result;
+  }
+}
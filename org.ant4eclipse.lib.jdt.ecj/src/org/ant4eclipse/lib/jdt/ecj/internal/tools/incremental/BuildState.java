@@ -0,0 +1,280 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools.incremental;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.ant4eclipse.lib.core.Assure;
+import org.ant4eclipse.lib.core.logging.A4ELogging;
+import org.ant4eclipse.lib.core.util.Utilities;
+
+/**
+ * <p>
+ * The persisted dependency graph of the source files that are compiled to an output folder. The state is stored in
+ * the file <code>&lt;output folder&gt;.a4e-state</code> next to the output folder, so it isn't copied together with
+ * the class files and survives a clean of the output folder (in which case all source files are recompiled, since
+ * their class files are missing). Besides the states of the compiled source files, the states of the types that have
+ * been loaded from the class path are recorded, so that changes of other projects and libraries can be detected.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class BuildState {
+
+  /** the suffix of state files */
+  private static final String            STATE_FILE_SUFFIX = ".a4e-state";
+
+  /** the magic number of state files */
+  private static final int               MAGIC             = 0x41344553;
+
+  /** the version of the state file format */
+  private static final int               VERSION           = 2;
+
+  /** the output folder */
+  private File                           _outputFolder;
+
+  /** the state file */
+  private File                           _stateFile;
+
+  /** indicates whether the state has been read from an existing state file */
+  private boolean                        _existing;
+
+  /** maps the keys of the source files to their states */
+  private Map<String, SourceFileState>   _sourceFileStates;
+
+  /** maps the binary names of the referenced types that have been loaded from the class path to their states */
+  private Map<String, ExternalTypeState> _externalTypeStates;
+
+  /**
+   * <p>
+   * Creates a new, empty instance of type {@link BuildState}.
+   * </p>
+   *
+   * @param outputFolder
+   *          the output folder
+   */
+  private BuildState(File outputFolder) {
+    this._outputFolder = outputFolder;
+    this._stateFile = new File(outputFolder.getParentFile(), outputFolder.getName() + STATE_FILE_SUFFIX);
+    this._sourceFileStates = new LinkedHashMap<String, SourceFileState>();
+    this._externalTypeStates = new LinkedHashMap<String, ExternalTypeState>();
+  }
+
+  /**
+   * <p>
+   * Loads the build state of the given output folder. If there's no (readable) state file an empty state is returned.
+   * </p>
+   *
+   * @param outputFolder
+   *          the output folder
+   * @return the build state of the given output folder. Not <code>null</code>.
+   */
+  public static BuildState load(File outputFolder) {
+    Assure.notNull("outputFolder", outputFolder);
+
+    BuildState result = new BuildState(Utilities.getCanonicalFile(outputFolder));
+    if (!result._stateFile.isFile()) {
+      return result;
+    }
+
+    DataInputStream input = null;
+    try {
+      input = new DataInputStream(new BufferedInputStream(new FileInputStream(result._stateFile)));
+      if ((input.readInt() == MAGIC) && (input.readInt() == VERSION)
+          && input.readUTF().equals(result._outputFolder.getPath())) {
+        int count = input.readInt();
+        for (int i = 0; i < count; i++) {
+          SourceFileState sourceFileState = SourceFileState.read(input);
+          result._sourceFileStates.put(sourceFileState.getKey(), sourceFileState);
+        }
+        count = input.readInt();
+        for (int i = 0; i < count; i++) {
+          ExternalTypeState externalTypeState = ExternalTypeState.read(input);
+          result._externalTypeStates.put(externalTypeState.getBinaryName(), externalTypeState);
+        }
+        result._existing = true;
+      }
+    } catch (IOException ex) {
+      A4ELogging.warn("Could not read build state '%s': %s", result._stateFile, ex.getMessage());
+      result._sourceFileStates.clear();
+      result._externalTypeStates.clear();
+    } finally {
+      Utilities.close((Closeable) input);
+    }
+    return result;
+  }
+
+  /**
+   * <p>
+   * Stores this build state.
+   * </p>
+   */
+  public void save() {
+    DataOutputStream output = null;
+    File tempFile = new File(this._stateFile.getPath() + ".tmp");
+    try {
+      output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+      output.writeInt(MAGIC);
+      output.writeInt(VERSION);
+      output.writeUTF(this._outputFolder.getPath());
+      output.writeInt(this._sourceFileStates.size());
+      for (SourceFileState sourceFileState : this._sourceFileStates.values()) {
+        sourceFileState.write(output);
+      }
+      output.writeInt(this._externalTypeStates.size());
+      for (ExternalTypeState externalTypeState : this._externalTypeStates.values()) {
+        externalTypeState.write(output);
+      }
+      output.close();
+      output = null;
+      Utilities.replaceFile(tempFile, this._stateFile);
+    } catch (IOException ex) {
+      A4ELogging.warn("Could not write build state '%s': %s", this._stateFile, ex.getMessage());
+    } finally {
+      Utilities.close((Closeable) output);
+      tempFile.delete();
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the output folder.
+   * </p>
+   *
+   * @return the output folder.
+   */
+  public File getOutputFolder() {
+    return this._outputFolder;
+  }
+
+  /**
+   * <p>
+   * Returns <code>true</code> if the state has been read from an existing state file.
+   * </p>
+   *
+   * @return <code>true</code> if the state has been read from an existing state file.
+   */
+  public boolean isExisting() {
+    return this._existing;
+  }
+
+  /**
+   * <p>
+   * Returns the state of the source file with the given key or <code>null</code>.
+   * </p>
+   *
+   * @param key
+   *          the key of the source file (the absolute path)
+   * @return the state of the source file or <code>null</code>.
+   */
+  public SourceFileState getSourceFileState(String key) {
+    return this._sourceFileStates.get(key);
+  }
+
+  /**
+   * <p>
+   * Returns the states of all source files.
+   * </p>
+   *
+   * @return the states of all source files.
+   */
+  public Collection<SourceFileState> getSourceFileStates() {
+    return new ArrayList<SourceFileState>(this._sourceFileStates.values());
+  }
+
+  /**
+   * <p>
+   * Adds (or replaces) the given source file state.
+   * </p>
+   *
+   * @param sourceFileState
+   *          the source file state
+   */
+  public void putSourceFileState(SourceFileState sourceFileState) {
+    Assure.notNull("sourceFileState", sourceFileState);
+    this._sourceFileStates.put(sourceFileState.getKey(), sourceFileState);
+  }
+
+  /**
+   * <p>
+   * Removes the state of the source file with the given key.
+   * </p>
+   *
+   * @param key
+   *          the key of the source file
+   */
+  public void removeSourceFileState(String key) {
+    this._sourceFileStates.remove(key);
+  }
+
+  /**
+   * <p>
+   * Returns the state of the referenced type with the given binary name that has been loaded from the class path or
+   * <code>null</code>.
+   * </p>
+   *
+   * @param binaryName
+   *          the binary name of the type
+   * @return the state of the type or <code>null</code>.
+   */
+  public ExternalTypeState getExternalTypeState(String binaryName) {
+    return this._externalTypeStates.get(binaryName);
+  }
+
+  /**
+   * <p>
+   * Returns the states of all referenced types that have been loaded from the class path.
+   * </p>
+   *
+   * @return the states of all referenced types that have been loaded from the class path.
+   */
+  public Collection<ExternalTypeState> getExternalTypeStates() {
+    return new ArrayList<ExternalTypeState>(this._externalTypeStates.values());
+  }
+
+  /**
+   * <p>
+   * Adds (or replaces) the given state of a referenced type that has been loaded from the class path.
+   * </p>
+   *
+   * @param externalTypeState
+   *          the state of the referenced type
+   */
+  public void putExternalTypeState(ExternalTypeState externalTypeState) {
+    Assure.notNull("externalTypeState", externalTypeState);
+    this._externalTypeStates.put(externalTypeState.getBinaryName(), externalTypeState);
+  }
+
+  /**
+   * <p>
+   * Removes the state of the referenced type with the given binary name.
+   * </p>
+   *
+   * @param binaryName
+   *          the binary name of the type
+   */
+  public void removeExternalTypeState(String binaryName) {
+    this._externalTypeStates.remove(binaryName);
+  }
+}
@@ -0,0 +1,183 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools.incremental;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import org.ant4eclipse.lib.core.Assure;
+
+/**
+ * <p>
+ * The state of a type that has been referenced by the compiled source files but has been loaded from the class path
+ * (e.g. from a jar file or from the output folder of another project): the class path entry it has been loaded from,
+ * the time stamp of the jar file or class file and its {@link StructuralHash structural hash}.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class ExternalTypeState {
+
+  /** the binary name of the type, e.g. <code>foo/Bar$Inner</code> */
+  private String _binaryName;
+
+  /** the class path entry (jar file or directory) the type has been loaded from */
+  private File   _location;
+
+  /** the modification time of the jar file or class file */
+  private long   _lastModified;
+
+  /** the length of the jar file or class file */
+  private long   _length;
+
+  /** the structural hash of the type */
+  private String _structuralHash;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link ExternalTypeState}.
+   * </p>
+   *
+   * @param binaryName
+   *          the binary name of the type
+   * @param location
+   *          the class path entry the type has been loaded from
+   * @param structuralHash
+   *          the structural hash of the type
+   */
+  public ExternalTypeState(String binaryName, File location, String structuralHash) {
+    Assure.nonEmpty("binaryName", binaryName);
+    Assure.notNull("location", location);
+    Assure.notNull("structuralHash", structuralHash);
+    this._binaryName = binaryName;
+    this._location = location;
+    this._structuralHash = structuralHash;
+    File stampFile = getStampFile();
+    this._lastModified = stampFile.lastModified();
+    this._length = stampFile.length();
+  }
+
+  /**
+   * <p>
+   * Creates a new, empty instance of type {@link ExternalTypeState}.
+   * </p>
+   */
+  private ExternalTypeState() {
+    // used by read()
+  }
+
+  /**
+   * <p>
+   * Returns the binary name of the type.
+   * </p>
+   *
+   * @return the binary name of the type.
+   */
+  public String getBinaryName() {
+    return this._binaryName;
+  }
+
+  /**
+   * <p>
+   * Returns the class path entry the type has been loaded from.
+   * </p>
+   *
+   * @return the class path entry the type has been loaded from.
+   */
+  public File getLocation() {
+    return this._location;
+  }
+
+  /**
+   * <p>
+   * Returns the structural hash of the type.
+   * </p>
+   *
+   * @return the structural hash of the type.
+   */
+  public String getStructuralHash() {
+    return this._structuralHash;
+  }
+
+  /**
+   * <p>
+   * Returns <code>true</code> if the jar file or class file the type has been loaded from has been modified (or
+   * removed), so that the structural hash of the type has to be checked.
+   * </p>
+   *
+   * @return <code>true</code> if the jar file or class file has been modified.
+   */
+  public boolean isModified() {
+    File stampFile = getStampFile();
+    return (stampFile.lastModified() != this._lastModified) || (stampFile.length() != this._length);
+  }
+
+  /**
+   * <p>
+   * Returns the file whose time stamp is recorded: the class file if the type has been loaded from a directory,
+   * otherwise the jar file.
+   * </p>
+   */
+  private File getStampFile() {
+    if (this._location.isDirectory()) {
+      return SourceFileState.getClassFile(this._location, this._binaryName);
+    }
+    return this._location;
+  }
+
+  /**
+   * <p>
+   * Writes this state to the given stream.
+   * </p>
+   */
+  void write(DataOutputStream output) throws IOException {
+    output.writeUTF(this._binaryName);
+    output.writeUTF(this._location.getPath());
+    output.writeLong(this._lastModified);
+    output.writeLong(this._length);
+    output.writeUTF(this._structuralHash);
+  }
+
+  /**
+   * <p>
+   * Reads a state from the given stream.
+   * </p>
+   */
+  static ExternalTypeState read(DataInputStream input) throws IOException {
+    ExternalTypeState result = new ExternalTypeState();
+    result._binaryName = input.readUTF();
+    result._location = new File(input.readUTF());
+    result._lastModified = input.readLong();
+    result._length = input.readLong();
+    result._structuralHash = input.readUTF();
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+    StringBuffer buffer = new StringBuffer();
+    buffer.append("[ExternalTypeState:");
+    buffer.append(" _binaryName: ");
+    buffer.append(this._binaryName);
+    buffer.append(", _location: ");
+    buffer.append(this._location);
+    buffer.append(", _structuralHash: ");
+    buffer.append(this._structuralHash);
+    buffer.append("]");
+    return buffer.toString();
+  }
+}
@@ -0,0 +1,350 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools.incremental;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.ant4eclipse.lib.core.Assure;
+import org.ant4eclipse.lib.jdt.ecj.SourceFile;
+import org.ant4eclipse.lib.jdt.ecj.SourceFileFactory;
+
+/**
+ * <p>
+ * The state of a compiled source file: the time stamp of the source file at the time it has been compiled, the types
+ * it references and the class files it produced (together with their {@link StructuralHash structural hashes}).
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class SourceFileState {
+
+  /** the folder that contains the source file */
+  private File                _sourceFolder;
+
+  /** the name of the source file (relative to the source folder) */
+  private String              _sourceFileName;
+
+  /** the encoding of the source file */
+  private String              _encoding;
+
+  /** the modification time of the source file when it has been compiled */
+  private long                _lastModified;
+
+  /** the length of the source file when it has been compiled */
+  private long                _length;
+
+  /** indicates whether the source file has been compiled without errors */
+  private boolean             _successful;
+
+  /** the qualified names (packages and types) referenced by the source file, e.g. <code>java.util</code> */
+  private Set<String>         _qualifiedReferences;
+
+  /** the simple names referenced by the source file, e.g. <code>List</code> */
+  private Set<String>         _simpleNameReferences;
+
+  /** maps the binary names of the produced types (e.g. <code>foo/Bar$Inner</code>) to their structural hashes */
+  private Map<String, String> _types;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link SourceFileState} for the given source file.
+   * </p>
+   *
+   * @param sourceFile
+   *          the compiled source file
+   * @param successful
+   *          <code>true</code> if the source file has been compiled without errors
+   */
+  public SourceFileState(SourceFile sourceFile, boolean successful) {
+    Assure.notNull("sourceFile", sourceFile);
+    this._sourceFolder = sourceFile.getSourceFolder();
+    this._sourceFileName = sourceFile.getSourceFileName();
+    this._encoding = sourceFile.getEncoding();
+    this._lastModified = sourceFile.getSourceFile().lastModified();
+    this._length = sourceFile.getSourceFile().length();
+    this._successful = successful;
+    this._qualifiedReferences = new HashSet<String>();
+    this._simpleNameReferences = new HashSet<String>();
+    this._types = new LinkedHashMap<String, String>();
+  }
+
+  /**
+   * <p>
+   * Creates a new, empty instance of type {@link SourceFileState}.
+   * </p>
+   */
+  private SourceFileState() {
+    this._qualifiedReferences = new HashSet<String>();
+    this._simpleNameReferences = new HashSet<String>();
+    this._types = new LinkedHashMap<String, String>();
+  }
+
+  /**
+   * <p>
+   * Returns the source file.
+   * </p>
+   *
+   * @return the source file.
+   */
+  public File getSourceFile() {
+    return new File(this._sourceFolder, this._sourceFileName);
+  }
+
+  /**
+   * <p>
+   * Returns the key of this state (the absolute path of the source file).
+   * </p>
+   *
+   * @return the key of this state.
+   */
+  public String getKey() {
+    return getSourceFile().getAbsolutePath();
+  }
+
+  /**
+   * <p>
+   * Creates a {@link SourceFile} that can be used to recompile the source file.
+   * </p>
+   *
+   * @param destinationFolder
+   *          the destination folder
+   * @return a {@link SourceFile} for the source file.
+   */
+  public SourceFile createSourceFile(File destinationFolder) {
+    return SourceFileFactory.createSourceFile(this._sourceFolder, this._sourceFileName, destinationFolder,
+        this._encoding);
+  }
+
+  /**
+   * <p>
+   * Records the names referenced by the source file.
+   * </p>
+   *
+   * @param qualifiedReferences
+   *          the qualified references as reported by the compiler (may be <code>null</code>)
+   * @param simpleNameReferences
+   *          the simple name references as reported by the compiler (may be <code>null</code>)
+   * @param rootReferences
+   *          the first segments of the qualified references as reported by the compiler (may be <code>null</code>).
+   *          They are recorded as qualified references, since the compiler doesn't report single segment packages as
+   *          qualified references.
+   */
+  public void addReferences(char[][][] qualifiedReferences, char[][] simpleNameReferences, char[][] rootReferences) {
+    if (qualifiedReferences != null) {
+      for (char[][] qualifiedReference : qualifiedReferences) {
+        StringBuffer buffer = new StringBuffer();
+        for (int i = 0; i < qualifiedReference.length; i++) {
+          if (i > 0) {
+            buffer.append('.');
+          }
+          buffer.append(qualifiedReference[i]);
+        }
+        this._qualifiedReferences.add(buffer.toString());
+      }
+    }
+    if (simpleNameReferences != null) {
+      for (char[] simpleNameReference : simpleNameReferences) {
+        this._simpleNameReferences.add(new String(simpleNameReference));
+      }
+    }
+    if (rootReferences != null) {
+      for (char[] rootReference : rootReferences) {
+        this._qualifiedReferences.add(new String(rootReference));
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Records a type produced by the source file.
+   * </p>
+   *
+   * @param binaryName
+   *          the binary name of the type, e.g. <code>foo/Bar$Inner</code>
+   * @param structuralHash
+   *          the structural hash of the class file (<code>null</code> if unknown)
+   */
+  public void addType(String binaryName, String structuralHash) {
+    this._types.put(binaryName, structuralHash == null ? "" : structuralHash);
+  }
+
+  /**
+   * <p>
+   * Returns the binary names of the types that have been produced by the source file.
+   * </p>
+   *
+   * @return the binary names of the produced types.
+   */
+  public Set<String> getTypes() {
+    return this._types.keySet();
+  }
+
+  /**
+   * <p>
+   * Returns the structural hash of the given type or <code>null</code> if the type hasn't been produced by the source
+   * file.
+   * </p>
+   *
+   * @param binaryName
+   *          the binary name of the type
+   * @return the structural hash of the given type.
+   */
+  public String getStructuralHash(String binaryName) {
+    return this._types.get(binaryName);
+  }
+
+  /**
+   * <p>
+   * Returns <code>true</code> if the source file has to be recompiled: it has been modified since the last compilation,
+   * the last compilation failed or one of its class files is missing.
+   * </p>
+   *
+   * @param destinationFolder
+   *          the destination folder of the source file
+   * @return <code>true</code> if the source file has to be recompiled.
+   */
+  public boolean isChanged(File destinationFolder) {
+    File sourceFile = getSourceFile();
+    if (!this._successful || (sourceFile.lastModified() != this._lastModified)
+        || (sourceFile.length() != this._length)) {
+      return true;
+    }
+    for (String type : this._types.keySet()) {
+      if (!getClassFile(destinationFolder, type).isFile()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * <p>
+   * Returns <code>true</code> if the source file may depend on the given type. A source file depends on a type if it
+   * references the simple name of its top level type and its package (types in the default package are matched by
+   * their simple name only).
+   * </p>
+   *
+   * @param binaryName
+   *          the binary name of the type, e.g. <code>foo/Bar$Inner</code>
+   * @return <code>true</code> if the source file may depend on the given type.
+   */
+  public boolean dependsOn(String binaryName) {
+    int index = binaryName.lastIndexOf('/');
+    String simpleName = binaryName.substring(index + 1);
+    int memberIndex = simpleName.indexOf('$');
+    if (memberIndex > 0) {
+      simpleName = simpleName.substring(0, memberIndex);
+    }
+    if (!this._simpleNameReferences.contains(simpleName)) {
+      return false;
+    }
+    return (index == -1) || this._qualifiedReferences.contains(binaryName.substring(0, index).replace('/', '.'));
+  }
+
+  /**
+   * <p>
+   * Returns the class file of the given type.
+   * </p>
+   *
+   * @param destinationFolder
+   *          the destination folder
+   * @param binaryName
+   *          the binary name of the type
+   * @return the class file of the given type.
+   */
+  public static File getClassFile(File destinationFolder, String binaryName) {
+    return new File(destinationFolder, binaryName + ".class");
+  }
+
+  /**
+   * <p>
+   * Writes this state to the given stream.
+   * </p>
+   */
+  void write(DataOutputStream output) throws IOException {
+    output.writeUTF(this._sourceFolder.getAbsolutePath());
+    output.writeUTF(this._sourceFileName);
+    output.writeUTF(this._encoding);
+    output.writeLong(this._lastModified);
+    output.writeLong(this._length);
+    output.writeBoolean(this._successful);
+    writeStrings(output, this._qualifiedReferences);
+    writeStrings(output, this._simpleNameReferences);
+    output.writeInt(this._types.size());
+    for (Map.Entry<String, String> entry : this._types.entrySet()) {
+      output.writeUTF(entry.getKey());
+      output.writeUTF(entry.getValue());
+    }
+  }
+
+  /**
+   * <p>
+   * Reads a state from the given stream.
+   * </p>
+   */
+  static SourceFileState read(DataInputStream input) throws IOException {
+    SourceFileState result = new SourceFileState();
+    result._sourceFolder = new File(input.readUTF());
+    result._sourceFileName = input.readUTF();
+    result._encoding = input.readUTF();
+    result._lastModified = input.readLong();
+    result._length = input.readLong();
+    result._successful = input.readBoolean();
+    readStrings(input, result._qualifiedReferences);
+    readStrings(input, result._simpleNameReferences);
+    int count = input.readInt();
+    for (int i = 0; i < count; i++) {
+      result._types.put(input.readUTF(), input.readUTF());
+    }
+    return result;
+  }
+
+  private static void writeStrings(DataOutputStream output, Set<String> strings) throws IOException {
+    output.writeInt(strings.size());
+    for (String string : strings) {
+      output.writeUTF(string);
+    }
+  }
+
+  private static void readStrings(DataInputStream input, Set<String> strings) throws IOException {
+    int count = input.readInt();
+    for (int i = 0; i < count; i++) {
+      strings.add(input.readUTF());
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+    StringBuffer buffer = new StringBuffer();
+    buffer.append("[SourceFileState:");
+    buffer.append(" _sourceFolder: ");
+    buffer.append(this._sourceFolder);
+    buffer.append(", _sourceFileName: ");
+    buffer.append(this._sourceFileName);
+    buffer.append(", _successful: ");
+    buffer.append(this._successful);
+    buffer.append(", _types: ");
+    buffer.append(this._types.keySet());
+    buffer.append("]");
+    return buffer.toString();
+  }
+}
@@ -0,0 +1,200 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools.incremental;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileReader;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFormatException;
+import org.eclipse.jdt.internal.compiler.env.IBinaryAnnotation;
+import org.eclipse.jdt.internal.compiler.env.IBinaryField;
+import org.eclipse.jdt.internal.compiler.env.IBinaryMethod;
+import org.eclipse.jdt.internal.compiler.env.IBinaryNestedType;
+import org.eclipse.jdt.internal.compiler.env.IBinaryType;
+
+/**
+ * <p>
+ * Computes a hash over the structure of a class file that is visible to other classes: the modifiers, the super types,
+ * the annotations, the member types and the non-private fields (including their constant values, since constants are
+ * inlined by the compiler) and methods. Method bodies, private and synthetic members don't contribute to the hash, so
+ * the hash only changes if classes that reference the class may have to be recompiled.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class StructuralHash {
+
+  /** the modifier of private members */
+  private static final int ACC_PRIVATE   = 0x0002;
+
+  /** the modifier of synthetic members */
+  private static final int ACC_SYNTHETIC = 0x1000;
+
+  /**
+   * <p>
+   * Computes the structural hash of the given class file.
+   * </p>
+   *
+   * @param classFileName
+   *          the name of the class file (used for error messages only)
+   * @param bytes
+   *          the content of the class file
+   * @return the structural hash of the class file or <code>null</code> if the class file could not be read.
+   */
+  public static String compute(String classFileName, byte[] bytes) {
+
+    ClassFileReader reader;
+    try {
+      reader = new ClassFileReader(bytes, classFileName.toCharArray());
+    } catch (ClassFormatException ex) {
+      return null;
+    }
+
+    return compute(reader);
+  }
+
+  /**
+   * <p>
+   * Computes the structural hash of the given binary type.
+   * </p>
+   *
+   * @param binaryType
+   *          the binary type, e.g. a type that has been loaded from the class path
+   * @return the structural hash of the binary type.
+   */
+  public static String compute(IBinaryType binaryType) {
+
+    List<String> members = new ArrayList<String>();
+
+    // the type itself
+    StringBuffer type = new StringBuffer();
+    type.append(binaryType.getModifiers()).append(' ');
+    append(type, binaryType.getName());
+    append(type, binaryType.getGenericSignature());
+    append(type, binaryType.getSuperclassName());
+    char[][] interfaceNames = binaryType.getInterfaceNames();
+    if (interfaceNames != null) {
+      for (char[] interfaceName : interfaceNames) {
+        append(type, interfaceName);
+      }
+    }
+    append(type, binaryType.getAnnotations());
+
+    // the member types
+    IBinaryNestedType[] memberTypes = binaryType.getMemberTypes();
+    if (memberTypes != null) {
+      for (IBinaryNestedType memberType : memberTypes) {
+        if (isVisible(memberType.getModifiers())) {
+          StringBuffer member = new StringBuffer("T ");
+          member.append(memberType.getModifiers()).append(' ');
+          append(member, memberType.getName());
+          members.add(member.toString());
+        }
+      }
+    }
+
+    // the fields
+    IBinaryField[] fields = binaryType.getFields();
+    if (fields != null) {
+      for (IBinaryField field : fields) {
+        if (isVisible(field.getModifiers())) {
+          StringBuffer member = new StringBuffer("F ");
+          member.append(field.getModifiers()).append(' ');
+          append(member, field.getName());
+          append(member, field.getTypeName());
+          append(member, field.getGenericSignature());
+          if (field.getConstant() != null) {
+            member.append(field.getConstant().toString()).append(' ');
+          }
+          append(member, field.getAnnotations());
+          members.add(member.toString());
+        }
+      }
+    }
+
+    // the methods
+    IBinaryMethod[] methods = binaryType.getMethods();
+    if (methods != null) {
+      for (IBinaryMethod method : methods) {
+        if (isVisible(method.getModifiers()) && !method.isClinit()) {
+          StringBuffer member = new StringBuffer("M ");
+          member.append(method.getModifiers()).append(' ');
+          append(member, method.getSelector());
+          append(member, method.getMethodDescriptor());
+          append(member, method.getGenericSignature());
+          char[][] exceptionTypeNames = method.getExceptionTypeNames();
+          if (exceptionTypeNames != null) {
+            for (char[] exceptionTypeName : exceptionTypeNames) {
+              append(member, exceptionTypeName);
+            }
+          }
+          if (method.getDefaultValue() != null) {
+            member.append("default ");
+          }
+          append(member, method.getAnnotations());
+          members.add(member.toString());
+        }
+      }
+    }
+
+    // the order of the members is irrelevant
+    Collections.sort(members);
+
+    try {
+      MessageDigest digest = MessageDigest.getInstance("MD5");
+      digest.update(type.toString().getBytes("UTF-8"));
+      for (String member : members) {
+        digest.update((byte) '\n');
+        digest.update(member.getBytes("UTF-8"));
+      }
+      return toHex(digest.digest());
+    } catch (NoSuchAlgorithmException ex) {
+      throw new RuntimeException(ex.getMessage(), ex);
+    } catch (UnsupportedEncodingException ex) {
+      throw new RuntimeException(ex.getMessage(), ex);
+    }
+  }
+
+  private static boolean isVisible(int modifiers) {
+    return (modifiers & (ACC_PRIVATE | ACC_SYNTHETIC)) == 0;
+  }
+
+  private static void append(StringBuffer buffer, char[] value) {
+    if (value != null) {
+      buffer.append(value);
+    }
+    buffer.append(' ');
+  }
+
+  private static void append(StringBuffer buffer, IBinaryAnnotation[] annotations) {
+    if (annotations != null) {
+      for (IBinaryAnnotation annotation : annotations) {
+        buffer.append('@');
+        append(buffer, annotation.getTypeName());
+      }
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuffer buffer = new StringBuffer(bytes.length * 2);
+    for (byte b : bytes) {
+      buffer.append(Character.forDigit((b >> 4) & 0xF, 16));
+      buffer.append(Character.forDigit(b & 0xF, 16));
+    }
+    return buffer.toString();
+  }
+}
@@ -0,0 +1,221 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools.loader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * <p>
+ * A compiled access rule pattern (e.g. <code>com/foo/*</code> or <code>**&#47;*</code>) that is matched against class
+ * file names (e.g. <code>com/foo/Bar.class</code>).
+ * </p>
+ * <p>
+ * The pattern has the same semantics as the regular expression returned by {@link #toRegex(String)}: <code>**&#47;*</code>
+ * matches any character sequence, <code>*</code> matches any character sequence that doesn't contain a dot (and
+ * therefore may span several package segments). Instead of evaluating the regular expression the pattern is compiled
+ * into a sequence of literals and wildcards. Patterns that contain characters with a special meaning in regular
+ * expressions fall back to the (precompiled) regular expression.
+ * </p>
+ * 
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class AccessRulePattern {
+
+  /** token that matches a literal */
+  private static final int    LITERAL             = 0;
+
+  /** token that matches any character sequence without a dot (<code>*</code>) */
+  private static final int    NO_DOT              = 1;
+
+  /** token that matches any character sequence (<code>**&#47;*</code>) */
+  private static final int    ANY                 = 2;
+
+  /** the suffix of all class file names */
+  private static final String CLASS_SUFFIX        = ".class";
+
+  /** the characters that have to be matched by the regular expression */
+  private static final String REGEX_SPECIAL_CHARS = "\\^$.|?+()[]{}#";
+
+  /** the kinds of the tokens */
+  private int[]               _kinds;
+
+  /** the literals of the tokens (<code>null</code> for wildcards) */
+  private String[]            _literals;
+
+  /** the regular expression if the pattern can't be compiled, <code>null</code> otherwise */
+  private Pattern             _regex;
+
+  /** indicates if the pattern matches either all or none of the classes of a package */
+  private boolean             _packageGranular;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link AccessRulePattern}.
+   * </p>
+   * 
+   * @param pattern
+   *          the pattern (without the leading <code>+</code> or <code>-</code>)
+   */
+  public AccessRulePattern(String pattern) {
+    for (int i = 0; i < pattern.length(); i++) {
+      if (REGEX_SPECIAL_CHARS.indexOf(pattern.charAt(i)) != -1) {
+        this._regex = Pattern.compile(toRegex(pattern));
+        return;
+      }
+    }
+    compile(pattern);
+  }
+
+  /**
+   * <p>
+   * Returns <code>true</code> if the pattern matches either all or none of the classes of a package, so that the result
+   * of {@link #matches(String)} can be shared between all classes of a package.
+   * </p>
+   * 
+   * @return <code>true</code> if the pattern matches either all or none of the classes of a package.
+   */
+  public boolean isPackageGranular() {
+    return this._packageGranular;
+  }
+
+  /**
+   * <p>
+   * Returns <code>true</code> if the given class file name matches this pattern.
+   * </p>
+   * 
+   * @param classFileName
+   *          the class file name (e.g. <code>com/foo/Bar.class</code>)
+   * @return <code>true</code> if the given class file name matches this pattern.
+   */
+  public boolean matches(String classFileName) {
+    if (this._regex != null) {
+      return this._regex.matcher(classFileName).matches();
+    }
+
+    // compute the positions that can be reached after each token
+    int length = classFileName.length();
+    boolean[] current = new boolean[length + 1];
+    boolean[] next = new boolean[length + 1];
+    current[0] = true;
+    for (int i = 0; i < this._kinds.length; i++) {
+      boolean found = false;
+      if (this._kinds[i] == LITERAL) {
+        String literal = this._literals[i];
+        for (int p = 0; p <= length; p++) {
+          next[p] = false;
+        }
+        for (int p = 0; p + literal.length() <= length; p++) {
+          if (current[p] && classFileName.startsWith(literal, p)) {
+            next[p + literal.length()] = true;
+            found = true;
+          }
+        }
+      } else {
+        boolean reachable = false;
+        for (int p = 0; p <= length; p++) {
+          reachable = current[p]
+              || (reachable && (this._kinds[i] == ANY || classFileName.charAt(p - 1) != '.'));
+          next[p] = reachable;
+          found |= reachable;
+        }
+      }
+      if (!found) {
+        return false;
+      }
+      boolean[] swap = current;
+      current = next;
+      next = swap;
+    }
+    return current[length];
+  }
+
+  /**
+   * <p>
+   * Compiles the given pattern into a sequence of tokens.
+   * </p>
+   */
+  private void compile(String pattern) {
+    List<Integer> kinds = new ArrayList<Integer>();
+    List<String> literals = new ArrayList<String>();
+    StringBuilder literal = new StringBuilder();
+
+    // the wildcards after the last literal slash
+    int trailingWildcards = 0;
+    int i = 0;
+    while (i < pattern.length()) {
+      int kind = LITERAL;
+      if (pattern.startsWith("**/*", i)) {
+        kind = ANY;
+        i += 4;
+      } else if (pattern.charAt(i) == '*') {
+        kind = NO_DOT;
+        i++;
+      }
+      if (kind == LITERAL) {
+        char c = pattern.charAt(i++);
+        literal.append(c);
+        trailingWildcards = c == '/' ? 0 : -1;
+      } else {
+        if (literal.length() > 0) {
+          kinds.add(Integer.valueOf(LITERAL));
+          literals.add(literal.toString());
+          literal.setLength(0);
+        }
+        kinds.add(Integer.valueOf(kind));
+        literals.add(null);
+        if (trailingWildcards != -1) {
+          trailingWildcards++;
+        }
+      }
+    }
+    literal.append(CLASS_SUFFIX);
+    kinds.add(Integer.valueOf(LITERAL));
+    literals.add(literal.toString());
+
+    this._kinds = new int[kinds.size()];
+    for (int j = 0; j < this._kinds.length; j++) {
+      this._kinds[j] = kinds.get(j).intValue();
+    }
+    this._literals = literals.toArray(new String[literals.size()]);
+
+    // a class name doesn't contain a dot and the simple class name doesn't contain a slash, so wildcards that follow
+    // the last slash always match the remaining part of the class name
+    this._packageGranular = trailingWildcards > 0;
+  }
+
+  /**
+   * <p>
+   * Returns the regular expression that defines the semantics of the given access rule pattern.
+   * </p>
+   * 
+   * @param pattern
+   *          the pattern (without the leading <code>+</code> or <code>-</code>)
+   * @return the regular expression that defines the semantics of the given access rule pattern.
+   */
+  public static String toRegex(String pattern) {
+
+    // step 1: replace all occurrences of '**/*' with '###' (temporary step)
+    String result = pattern.replaceAll("\\*\\*/\\*", "###");
+
+    // step 2: replace all occurrences of '*' with '[^\.]*'
+    result = result.replaceAll("\\*", "[^\\\\.]*");
+
+    // step 3: replace all occurrences of '###' (formally '**/*') with '.*'
+    result = result.replaceAll("###", ".*");
+
+    // step 4: append '\.class'
+    return result.concat("\\.class");
+  }
+
+} /* ENDCLASS */
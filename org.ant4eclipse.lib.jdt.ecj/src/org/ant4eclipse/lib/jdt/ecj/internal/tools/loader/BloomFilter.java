@@ -0,0 +1,108 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools.loader;
+
+/**
+ * <p>
+ * Simple bloom filter for strings. A bloom filter answers the question whether a string might be contained in a set
+ * of strings: if {@link #mightContain(String)} returns <code>false</code>, the string definitely has not been added.
+ * If it returns <code>true</code>, the string has been added with a high probability (about 99 percent for the
+ * configured number of entries).
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class BloomFilter {
+
+  /** the number of bits per expected entry */
+  private static final int BITS_PER_ENTRY = 10;
+
+  /** the number of hash functions (optimal for 10 bits per entry) */
+  private static final int HASH_FUNCTIONS = 7;
+
+  /** the bits */
+  private long[]           _bits;
+
+  /** the number of bits */
+  private int              _bitCount;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link BloomFilter}.
+   * </p>
+   *
+   * @param expectedEntries
+   *          the expected number of entries.
+   */
+  public BloomFilter(int expectedEntries) {
+    int words = Math.max(1, (Math.max(1, expectedEntries) * BITS_PER_ENTRY + 63) / 64);
+    this._bits = new long[words];
+    this._bitCount = words * 64;
+  }
+
+  /**
+   * <p>
+   * Adds the given string to this filter.
+   * </p>
+   *
+   * @param value
+   *          the string to add.
+   */
+  public void add(String value) {
+    int hash1 = value.hashCode();
+    int hash2 = secondaryHash(value);
+    for (int i = 0; i < HASH_FUNCTIONS; i++) {
+      int bit = index(hash1 + i * hash2);
+      this._bits[bit >>> 6] |= (1L << bit);
+    }
+  }
+
+  /**
+   * <p>
+   * Returns <code>false</code> if the given string definitely has not been added to this filter.
+   * </p>
+   *
+   * @param value
+   *          the string.
+   * @return <code>false</code> if the given string has not been added to this filter, <code>true</code> if it might
+   *         have been added.
+   */
+  public boolean mightContain(String value) {
+    int hash1 = value.hashCode();
+    int hash2 = secondaryHash(value);
+    for (int i = 0; i < HASH_FUNCTIONS; i++) {
+      int bit = index(hash1 + i * hash2);
+      if ((this._bits[bit >>> 6] & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int index(int hash) {
+    return (hash & 0x7fffffff) % this._bitCount;
+  }
+
+  /**
+   * <p>
+   * Computes a hash that is independent of {@link String#hashCode()} (FNV-1a). The result is always odd.
+   * </p>
+   */
+  private static int secondaryHash(String value) {
+    int hash = 0x811c9dc5;
+    for (int i = 0; i < value.length(); i++) {
+      hash ^= value.charAt(i);
+      hash *= 0x01000193;
+    }
+    return hash | 1;
+  }
+}
@@ -1,48 +1,106 @@
 package org.ant4eclipse.lib.jdt.ecj.internal.tools.loader;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.ant4eclipse.lib.core.Lifecycle;
 import org.ant4eclipse.lib.core.logging.A4ELogging;
 import org.ant4eclipse.lib.core.service.ServiceRegistryAccess;
+import org.ant4eclipse.lib.core.util.StopWatchService;
 import org.ant4eclipse.lib.jdt.ecj.ClassFileLoader;
 
 /**
  * <p>
+ * Bounded cache for {@link ClassFileLoader ClassFileLoaders}. The cache holds at most a configurable number of entries
+ * with a configurable total weight, where the weight of a class file loader is the number of its packages plus the
+ * number of its class path entries. If one of these limits is exceeded, the least recently used entries are evicted.
+ * Cached class file loaders whose jar files or directories have been changed are discarded. Evicted and discarded class
+ * file loaders are disposed.
  * </p>
- * 
+ * <p>
+ * Hits, misses, evictions and the time spent to create the cached class file loaders are counted. The load time is
+ * additionally published via the {@link StopWatchService} (stop watch <code>ClassFileLoaderCache::load</code>).
+ * </p>
+ *
  * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
  * @author Nils Hartmann
  */
 public class ClassFileLoaderCache implements Lifecycle {
 
   /**
-   * System-Property that enables the ClassFileLoaderCache
+   * System-Property that disables the ClassFileLoaderCache (enabled by default)
    */
-  private static final boolean         ENABLE_CACHE = Boolean.getBoolean("ant4eclipse.enableClassFileLoaderCache");
+  private static final boolean                  ENABLE_CACHE        = !"false".equalsIgnoreCase(System
+                                                                        .getProperty("ant4eclipse.enableClassFileLoaderCache"));
 
   /**
    * System-Property that enables tracing of the cache. <b>This is very verbose!</b>
    */
-  private static final boolean         TRACE_CACHE  = Boolean.getBoolean("ant4eclipse.traceClassFileLoaderCache");
+  private static final boolean                  TRACE_CACHE         = Boolean
+                                                                        .getBoolean("ant4eclipse.traceClassFileLoaderCache");
+
+  /**
+   * System-Property that specifies the maximum number of cached class file loaders (<code>0</code> means unbounded)
+   */
+  private static final int                      DEFAULT_MAX_ENTRIES = Integer.getInteger(
+                                                                        "ant4eclipse.classFileLoaderCache.maxEntries",
+                                                                        1000).intValue();
+
+  /**
+   * System-Property that specifies the maximum total weight of all cached class file loaders (<code>0</code> means
+   * unbounded)
+   */
+  private static final long                     DEFAULT_MAX_WEIGHT  = Long.getLong(
+                                                                        "ant4eclipse.classFileLoaderCache.maxWeight",
+                                                                        250000).longValue();
 
-  /** the class file loader map */
-  private Map<Object, ClassFileLoader> _classFileLoaderMap;
+  /** the name of the stop watch that measures the load time */
+  public static final String                    LOAD_STOP_WATCH     = "ClassFileLoaderCache::load";
+
+  /** the class file loader map (in least recently used order) */
+  private LinkedHashMap<Object, CacheEntry>     _classFileLoaderMap;
+
+  /** the maximum number of entries */
+  private int                                   _maxEntries;
+
+  /** the maximum total weight */
+  private long                                  _maxWeight;
+
+  /** the current total weight */
+  private long                                  _weight;
 
   /**
    * Hit counter
    */
-  private int                          _hits        = 0;
+  private final AtomicLong                      _hits               = new AtomicLong();
 
   /**
    * Miss counter
    */
-  private int                          _missed      = 0;
+  private final AtomicLong                      _missed             = new AtomicLong();
+
+  /**
+   * Eviction counter
+   */
+  private final AtomicLong                      _evictions          = new AtomicLong();
+
+  /**
+   * The number of class file loaders that have been stored
+   */
+  private final AtomicLong                      _loads              = new AtomicLong();
+
+  /**
+   * The total time (in ms) needed to create the stored class file loaders
+   */
+  private final AtomicLong                      _loadTime           = new AtomicLong();
 
   /** - */
-  private boolean                      _initialized;
+  private boolean                               _initialized;
 
   /**
    * <p>
@@ -50,7 +108,9 @@ public class ClassFileLoaderCache implements Lifecycle {
    * </p>
    */
   public ClassFileLoaderCache() {
-    this._classFileLoaderMap = new ConcurrentHashMap<Object, ClassFileLoader>();
+    this._classFileLoaderMap = new LinkedHashMap<Object, CacheEntry>(16, 0.75f, true);
+    this._maxEntries = DEFAULT_MAX_ENTRIES;
+    this._maxWeight = DEFAULT_MAX_WEIGHT;
   }
 
   /**
@@ -73,68 +133,221 @@ public class ClassFileLoaderCache implements Lifecycle {
   public void dispose() {
     this._initialized = false;
     dump();
+    clear();
   }
 
   /**
    * <p>
+   * Removes (and disposes) all cached class file loaders and resets the statistics.
    * </p>
    */
   public void clear() {
-    this._classFileLoaderMap.clear();
-    this._hits = 0;
-    this._missed = 0;
+    List<ClassFileLoader> removed = new ArrayList<ClassFileLoader>();
+    synchronized (this._classFileLoaderMap) {
+      for (CacheEntry entry : this._classFileLoaderMap.values()) {
+        removed.add(entry._classFileLoader);
+      }
+      this._classFileLoaderMap.clear();
+      this._weight = 0;
+    }
+    disposeAll(removed);
+    this._hits.set(0);
+    this._missed.set(0);
+    this._evictions.set(0);
+    this._loads.set(0);
+    this._loadTime.set(0);
+  }
 
+  /**
+   * <p>
+   * Sets the limits of this cache. Entries exceeding the new limits are evicted immediately.
+   * </p>
+   *
+   * @param maxEntries
+   *          the maximum number of entries (<code>0</code> means unbounded)
+   * @param maxWeight
+   *          the maximum total weight (<code>0</code> means unbounded)
+   */
+  public void setLimits(int maxEntries, long maxWeight) {
+    List<ClassFileLoader> evicted;
+    synchronized (this._classFileLoaderMap) {
+      this._maxEntries = maxEntries;
+      this._maxWeight = maxWeight;
+      evicted = evict();
+    }
+    disposeAll(evicted);
   }
 
   /**
    * <p>
    * </p>
-   * 
+   *
    * @param key
    * @param classFileLoader
    */
   public void storeClassFileLoader(Object key, ClassFileLoader classFileLoader) {
+    storeClassFileLoader(key, classFileLoader, 0);
+  }
+
+  /**
+   * <p>
+   * Stores the given class file loader in the cache.
+   * </p>
+   *
+   * @param key
+   *          the key
+   * @param classFileLoader
+   *          the class file loader
+   * @param loadTime
+   *          the time (in ms) that has been needed to create the class file loader
+   */
+  public void storeClassFileLoader(Object key, ClassFileLoader classFileLoader, long loadTime) {
+
+    this._loads.incrementAndGet();
+    this._loadTime.addAndGet(loadTime);
+    ServiceRegistryAccess.instance().getService(StopWatchService.class).getOrCreateStopWatch(LOAD_STOP_WATCH)
+        .addElapsedTime(loadTime);
+
     if (ENABLE_CACHE) {
       if (TRACE_CACHE) {
         A4ELogging.debug("Store ClassFileLoader in cache for: '" + key + "' -> " + classFileLoader);
         A4ELogging.debug("  Packages: " + Arrays.asList(classFileLoader.getAllPackages()));
       }
-      this._classFileLoaderMap.put(key, classFileLoader);
+      CacheEntry entry = new CacheEntry(classFileLoader);
+      List<ClassFileLoader> evicted;
+      synchronized (this._classFileLoaderMap) {
+        CacheEntry previous = this._classFileLoaderMap.put(key, entry);
+        if (previous != null) {
+          this._weight -= previous._weight;
+        }
+        this._weight += entry._weight;
+        evicted = evict();
+        if ((previous != null) && (previous._classFileLoader != classFileLoader)) {
+          evicted.add(previous._classFileLoader);
+        }
+      }
+      disposeAll(evicted);
     }
   }
 
   /**
    * <p>
    * </p>
-   * 
+   *
    * @param key
    * @return
    */
   public ClassFileLoader getClassFileLoader(Object key) {
-    ClassFileLoader classFileLoader = this._classFileLoaderMap.get(key);
-    if (classFileLoader != null) {
-      this._hits++;
+    CacheEntry entry;
+    synchronized (this._classFileLoaderMap) {
+      entry = this._classFileLoaderMap.get(key);
+    }
+    if ((entry != null) && isStale(entry._classFileLoader)) {
+      if (TRACE_CACHE) {
+        A4ELogging.debug("Discarded stale ClassFileLoader from cache for: " + key);
+      }
+      boolean removed = false;
+      synchronized (this._classFileLoaderMap) {
+        if (this._classFileLoaderMap.get(key) == entry) {
+          this._classFileLoaderMap.remove(key);
+          this._weight -= entry._weight;
+          removed = true;
+        }
+      }
+      if (removed) {
+        disposeClassFileLoader(entry._classFileLoader);
+      }
+      entry = null;
+    }
+    if (entry != null) {
+      this._hits.incrementAndGet();
       if (ENABLE_CACHE && TRACE_CACHE) {
         A4ELogging.debug("Got ClassFileLoader from cache for: " + key);
       }
+      return entry._classFileLoader;
     } else {
-      this._missed++;
+      this._missed.incrementAndGet();
       if (ENABLE_CACHE && TRACE_CACHE) {
         A4ELogging.debug("Missed ClassFileLoader in cache for: " + key);
       }
+      return null;
     }
-    return classFileLoader;
   }
 
   /**
    * <p>
    * </p>
-   * 
+   *
    * @param key
    * @return
    */
   public boolean hasClassFileLoader(Object key) {
-    return this._classFileLoaderMap.containsKey(key);
+    synchronized (this._classFileLoaderMap) {
+      return this._classFileLoaderMap.containsKey(key);
+    }
+  }
+
+  /**
+   * @return the number of cache hits
+   */
+  public long getHits() {
+    return this._hits.get();
+  }
+
+  /**
+   * @return the number of cache misses
+   */
+  public long getMisses() {
+    return this._missed.get();
+  }
+
+  /**
+   * @return the number of evicted entries
+   */
+  public long getEvictions() {
+    return this._evictions.get();
+  }
+
+  /**
+   * @return the number of class file loaders that have been created
+   */
+  public long getLoads() {
+    return this._loads.get();
+  }
+
+  /**
+   * @return the total time (in ms) that has been needed to create class file loaders
+   */
+  public long getLoadTime() {
+    return this._loadTime.get();
+  }
+
+  /**
+   * @return the number of cached class file loaders
+   */
+  public int getSize() {
+    synchronized (this._classFileLoaderMap) {
+      return this._classFileLoaderMap.size();
+    }
+  }
+
+  /**
+   * @return the total weight of the cached class file loaders
+   */
+  public long getWeight() {
+    synchronized (this._classFileLoaderMap) {
+      return this._weight;
+    }
+  }
+
+  /**
+   * Dumps the current hit statistics of the ClassFileLoaderCache via A4ELogging
+   */
+  public void dumpStatistics() {
+    A4ELogging.info("ClassFileLoaderCache contains %d entries with a total weight of %d (limits: %d entries, weight %d).",
+        getSize(), getWeight(), this._maxEntries, this._maxWeight);
+    A4ELogging.info("There has been %d hits, %d misses and %d evictions. %d class file loaders took %d ms to load.",
+        getHits(), getMisses(), getEvictions(), getLoads(), getLoadTime());
   }
 
   /**
@@ -143,19 +356,112 @@ public class ClassFileLoaderCache implements Lifecycle {
   public void dump() {
 
     if (!ENABLE_CACHE) {
-      A4ELogging.info("ClassFileLoaderCache has been disabled. Anyway there have been " + (this._missed + this._hits)
-          + " calls to the cache.");
+      A4ELogging.info("ClassFileLoaderCache has been disabled. Anyway there have been "
+          + (this._missed.get() + this._hits.get()) + " calls to the cache.");
     } else {
-      A4ELogging.info("ClassFileLoaderCache contains " + this._classFileLoaderMap.size() + " entries.");
-      A4ELogging.info("There has been " + this._hits + " hits and " + this._missed + " misses");
-      for (Map.Entry<Object, ClassFileLoader> entry : this._classFileLoaderMap.entrySet()) {
-        A4ELogging.info("  " + entry.getKey() + " -> " + entry.getValue());
-        A4ELogging.info("  Packages: " + Arrays.asList(entry.getValue().getAllPackages()));
+      dumpStatistics();
+      synchronized (this._classFileLoaderMap) {
+        for (Map.Entry<Object, CacheEntry> entry : this._classFileLoaderMap.entrySet()) {
+          A4ELogging.info("  " + entry.getKey() + " -> " + entry.getValue()._classFileLoader);
+          A4ELogging.info("  Packages: " + Arrays.asList(entry.getValue()._classFileLoader.getAllPackages()));
+        }
       }
     }
   }
 
+  /**
+   * <p>
+   * Evicts the least recently used entries until the limits are met. Must be called while holding the lock of the map.
+   * The evicted class file loaders must be disposed (using {@link #disposeAll(List)}) after the lock has been released.
+   * </p>
+   *
+   * @return the evicted class file loaders
+   */
+  private List<ClassFileLoader> evict() {
+    List<ClassFileLoader> evicted = new ArrayList<ClassFileLoader>();
+    Iterator<Map.Entry<Object, CacheEntry>> iterator = this._classFileLoaderMap.entrySet().iterator();
+    while (iterator.hasNext() && exceedsLimits()) {
+      Map.Entry<Object, CacheEntry> entry = iterator.next();
+      iterator.remove();
+      evicted.add(entry.getValue()._classFileLoader);
+      this._weight -= entry.getValue()._weight;
+      this._evictions.incrementAndGet();
+      if (TRACE_CACHE) {
+        A4ELogging.debug("Evicted ClassFileLoader from cache for: " + entry.getKey());
+      }
+    }
+    return evicted;
+  }
+
+  /**
+   * <p>
+   * Returns <code>true</code> if the jar files or directories of the given class file loader have been changed since
+   * it has been created.
+   * </p>
+   *
+   * @param classFileLoader
+   *          the cached class file loader
+   * @return <code>true</code> if the class file loader must not be reused.
+   */
+  private static boolean isStale(ClassFileLoader classFileLoader) {
+    return (classFileLoader instanceof ClasspathClassFileLoaderImpl)
+        && ((ClasspathClassFileLoaderImpl) classFileLoader).isStale();
+  }
+
+  /**
+   * <p>
+   * Disposes the given class file loaders that have been removed from the cache, so that their shared jar handles are
+   * released.
+   * </p>
+   *
+   * @param classFileLoaders
+   *          the removed class file loaders
+   */
+  private static void disposeAll(List<ClassFileLoader> classFileLoaders) {
+    for (ClassFileLoader classFileLoader : classFileLoaders) {
+      disposeClassFileLoader(classFileLoader);
+    }
+  }
+
+  /**
+   * <p>
+   * Disposes the given class file loader that has been removed from the cache.
+   * </p>
+   *
+   * @param classFileLoader
+   *          the removed class file loader
+   */
+  private static void disposeClassFileLoader(ClassFileLoader classFileLoader) {
+    if (classFileLoader instanceof ClasspathClassFileLoaderImpl) {
+      ((ClasspathClassFileLoaderImpl) classFileLoader).dispose();
+    }
+  }
+
+  private boolean exceedsLimits() {
+    return ((this._maxEntries > 0) && (this._classFileLoaderMap.size() > this._maxEntries))
+        || ((this._maxWeight > 0) && (this._weight > this._maxWeight));
+  }
+
   public static ClassFileLoaderCache getInstance() {
     return ServiceRegistryAccess.instance().getService(ClassFileLoaderCache.class);
   }
+
+  /**
+   * <p>
+   * A cached class file loader together with its weight.
+   * </p>
+   */
+  private static class CacheEntry {
+
+    /** the class file loader */
+    private ClassFileLoader _classFileLoader;
+
+    /** the weight of the class file loader */
+    private long            _weight;
+
+    public CacheEntry(ClassFileLoader classFileLoader) {
+      this._classFileLoader = classFileLoader;
+      this._weight = classFileLoader.getAllPackages().length + classFileLoader.getClasspath().length;
+    }
+  }
 }
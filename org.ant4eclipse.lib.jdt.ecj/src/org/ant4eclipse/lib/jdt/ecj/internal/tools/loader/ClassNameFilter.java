@@ -0,0 +1,102 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools.loader;
+
+import java.io.File;
+
+/**
+ * <p>
+ * A {@link BloomFilter} over the names of the class files in a package directory. The filter is used to avoid file
+ * system accesses for classes that don't exist in the directory. It is created lazily by listing the directory once
+ * and is discarded by {@link #invalidateIfChanged()} if the directory has been modified since (adding or removing a
+ * file changes the modification time of the directory).
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class ClassNameFilter {
+
+  /** the class file suffix */
+  private static final String CLASS_FILE_SUFFIX = ".class";
+
+  /** the package directory */
+  private File                _directory;
+
+  /** the modification time of the directory at the time the filter has been created */
+  private long                _lastModified;
+
+  /** the filter (<code>null</code> if it hasn't been created yet or has been invalidated) */
+  private BloomFilter         _filter;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link ClassNameFilter}.
+   * </p>
+   *
+   * @param directory
+   *          the package directory.
+   */
+  public ClassNameFilter(File directory) {
+    this._directory = directory;
+  }
+
+  /**
+   * <p>
+   * Returns <code>false</code> if the package directory definitely doesn't contain a class file for the class with the
+   * given simple name.
+   * </p>
+   *
+   * @param className
+   *          the simple name of the class, e.g. <code>Object</code> or <code>Map$Entry</code>.
+   * @return <code>false</code> if the directory doesn't contain a class file for the class.
+   */
+  public synchronized boolean mightContain(String className) {
+    if (this._filter == null) {
+      createFilter();
+    }
+    return this._filter.mightContain(className);
+  }
+
+  /**
+   * <p>
+   * Discards the filter if the package directory has been modified since the filter has been created.
+   * </p>
+   *
+   * @return <code>true</code> if the filter has been discarded.
+   */
+  public synchronized boolean invalidateIfChanged() {
+    if ((this._filter != null) && (this._directory.lastModified() != this._lastModified)) {
+      this._filter = null;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * <p>
+   * Creates the filter by listing the package directory.
+   * </p>
+   */
+  private void createFilter() {
+    this._lastModified = this._directory.lastModified();
+    String[] names = this._directory.list();
+    if (names == null) {
+      names = new String[0];
+    }
+    this._filter = new BloomFilter(names.length);
+    for (String name : names) {
+      if (name.endsWith(CLASS_FILE_SUFFIX)) {
+        this._filter.add(name.substring(0, name.length() - CLASS_FILE_SUFFIX.length()));
+      }
+    }
+  }
+}
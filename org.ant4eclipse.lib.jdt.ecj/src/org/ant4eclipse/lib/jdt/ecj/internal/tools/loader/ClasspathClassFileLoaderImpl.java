@@ -14,24 +14,19 @@ package org.ant4eclipse.lib.jdt.ecj.internal.tools.loader;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
-import java.util.Enumeration;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.StringTokenizer;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
 
 import org.ant4eclipse.lib.core.Assure;
 import org.ant4eclipse.lib.core.ClassName;
-import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
 import org.ant4eclipse.lib.jdt.ecj.ClassFile;
 import org.ant4eclipse.lib.jdt.ecj.ClassFileLoader;
-import org.ant4eclipse.lib.jdt.ecj.EcjExceptionCodes;
 import org.ant4eclipse.lib.jdt.ecj.ReferableSourceFile;
 import org.ant4eclipse.lib.jdt.ecj.internal.tools.ReferableSourceFileImpl;
+import org.eclipse.jdt.core.compiler.CharOperation;
 
 /**
  * <p>
@@ -44,19 +39,28 @@ import org.ant4eclipse.lib.jdt.ecj.internal.tools.ReferableSourceFileImpl;
 public class ClasspathClassFileLoaderImpl implements ClassFileLoader {
 
   /** the class path entries */
-  private File[]                       _classpathEntries;
+  private File[]                        _classpathEntries;
 
   /** the class path entries */
-  private File[]                       _sourcepathEntries;
+  private File[]                        _sourcepathEntries;
 
   /** the source */
-  private File                         _location;
+  private File                          _location;
 
   /** the type of the associated bundle (PROJECT or LIBRARY) */
-  private byte                         _type;
+  private byte                          _type;
 
   /** maps packages to package providers */
-  private Map<String, PackageProvider> _allPackages;
+  private PackageTable<PackageProvider> _allPackages;
+
+  /** the shared handles of all jar files on the class path (<code>null</code> values after a dispose) */
+  private Map<File, JarHandle>          _jarHandles;
+
+  /** the class name filters of all package directories that have been accessed */
+  private List<ClassNameFilter>         _classNameFilters;
+
+  /** the modification times of all directory entries and their package directories */
+  private Map<File, Long>               _directoryTimestamps;
 
   /**
    * <p>
@@ -131,15 +135,21 @@ public class ClasspathClassFileLoaderImpl implements ClassFileLoader {
    * {@inheritDoc}
    */
   public boolean hasPackage(String packageName) {
-    return this._allPackages.containsKey(packageName);
+    return this._allPackages.get(packageName) != null;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public boolean hasPackage(char[][] packageName) {
+    return this._allPackages.get(packageName, packageName.length) != null;
   }
 
   /**
    * {@inheritDoc}
    */
   public String[] getAllPackages() {
-    Set<String> keys = this._allPackages.keySet();
-    return keys.toArray(new String[0]);
+    return this._allPackages.getPackageNames();
   }
 
   /**
@@ -229,16 +239,25 @@ public class ClasspathClassFileLoaderImpl implements ClassFileLoader {
     this._sourcepathEntries = sourcepathEntries;
 
     // create allPackages hash map
-    this._allPackages = new HashMap<String, PackageProvider>();
+    this._allPackages = new PackageTable<PackageProvider>();
+    this._jarHandles = new HashMap<File, JarHandle>();
+    this._classNameFilters = new ArrayList<ClassNameFilter>();
+    this._directoryTimestamps = new HashMap<File, Long>();
 
     // add all existing packages to the hash map
     for (File file : this._classpathEntries) {
       if (file.isDirectory()) {
         String[] allPackages = getAllPackagesFromDirectory(file);
         addAllPackagesFromClassPathEntry(allPackages, file);
+        recordTimestamps(file, allPackages);
       } else if (file.isFile()) {
-        String[] allPackages = getAllPackagesFromJar(file);
-        addAllPackagesFromClassPathEntry(allPackages, file);
+        // the jar handle is shared and indexes packages and class file entries in a single pass
+        JarHandle jarHandle = this._jarHandles.get(file);
+        if (jarHandle == null) {
+          jarHandle = JarFilePool.getInstance().acquire(file);
+          this._jarHandles.put(file, jarHandle);
+        }
+        addAllPackagesFromClassPathEntry(jarHandle.getPackages(), file);
       }
     }
 
@@ -247,6 +266,7 @@ public class ClasspathClassFileLoaderImpl implements ClassFileLoader {
       if (file.isDirectory()) {
         String[] allPackages = getAllPackagesFromDirectory(file);
         addAllPackagesFromSourcePathEntry(allPackages, file);
+        recordTimestamps(file, allPackages);
       }
       // we do not support source in jars or zips
     }
@@ -286,11 +306,11 @@ public class ClasspathClassFileLoaderImpl implements ClassFileLoader {
   private void addAllPackagesFromClassPathEntry(String[] allPackages, File classPathEntry) {
 
     for (String aPackage : allPackages) {
-      if (this._allPackages.containsKey(aPackage)) {
-        PackageProvider provider = this._allPackages.get(aPackage);
+      PackageProvider provider = this._allPackages.get(aPackage);
+      if (provider != null) {
         provider.addClasspathEntry(classPathEntry);
       } else {
-        PackageProvider provider = newPackageProvider();
+        provider = newPackageProvider();
         provider.addClasspathEntry(classPathEntry);
         this._allPackages.put(aPackage, provider);
       }
@@ -307,11 +327,11 @@ public class ClasspathClassFileLoaderImpl implements ClassFileLoader {
   private void addAllPackagesFromSourcePathEntry(String[] allPackages, File sourcePathEntry) {
 
     for (String aPackage : allPackages) {
-      if (this._allPackages.containsKey(aPackage)) {
-        PackageProvider provider = this._allPackages.get(aPackage);
+      PackageProvider provider = this._allPackages.get(aPackage);
+      if (provider != null) {
         provider.addSourcepathEntry(sourcePathEntry);
       } else {
-        PackageProvider provider = newPackageProvider();
+        provider = newPackageProvider();
         provider.addSourcepathEntry(sourcePathEntry);
         this._allPackages.put(aPackage, provider);
       }
@@ -320,104 +340,21 @@ public class ClasspathClassFileLoaderImpl implements ClassFileLoader {
 
   /**
    * <p>
-   * Returns all the names of the packages that are contained in the specified jar file. The package list contains the
-   * packages that contain classes as well as all parent packages of those.
-   * </p>
-   * 
-   * @param jar
-   * @return
-   * @throws IOException
-   */
-  private String[] getAllPackagesFromJar(File jar) {
-    Assure.isFile("jar", jar);
-
-    // prepare result...
-    List<String> result = new LinkedList<String>();
-
-    // create the jarFile wrapper...
-    JarFile jarFile = null;
-
-    try {
-      jarFile = new JarFile(jar);
-    } catch (IOException e) {
-      throw new Ant4EclipseException(EcjExceptionCodes.COULD_NOT_CREATE_JAR_FILE_FROM_FILE_EXCEPTION,
-          jar.getAbsolutePath());
-    }
-
-    // Iterate over entries...
-    Enumeration<?> enumeration = jarFile.entries();
-    while (enumeration.hasMoreElements()) {
-      JarEntry jarEntry = (JarEntry) enumeration.nextElement();
-
-      // add package for each found directory...
-      String directoryName = null;
-
-      // if the jar entry is a directory, the directory name is the name of the jar entry...
-      if (jarEntry.isDirectory()) {
-        directoryName = jarEntry.getName();
-      }
-      // otherwise the directory name has to be computed
-      else {
-        int splitIndex = jarEntry.getName().lastIndexOf('/');
-        if (splitIndex != -1) {
-          directoryName = jarEntry.getName().substring(0, splitIndex);
-        }
-      }
-
-      // directoryName can be null if a top level entry is processed
-      if (directoryName != null) {
-        // convert path to package name
-        String packageName = directoryName.replace('/', '.');
-        packageName = packageName.endsWith(".") ? packageName.substring(0, packageName.length() - 1) : packageName;
-
-        // at package with all the parent packages (!) to the result list
-        String[] packages = allPackages(packageName);
-        for (int i = 0; i < packages.length; i++) {
-          if (!result.contains(packages[i])) {
-            result.add(packages[i]);
-          }
-        }
-      }
-    }
-
-    // return result...
-    return result.toArray(new String[0]);
-
-  }
-
-  /**
-   * <p>
-   * Returns all package names (including parent package names) for the specified package.
-   * </p>
-   * <p>
-   * <b>Example:</b><br/>
-   * Given the package name <code>net.sf.ant4eclipse.tools</code> this method will return {"net", "net.sf",
-   * "net.sf.ant4eclipse", "net.sf.ant4eclipse.tools"}.
+   * Records the modification times of the given directory entry and its package directories. Adding or removing a
+   * package changes the modification time of its parent directory.
    * </p>
    * 
-   * @param packageName
-   *          the name of the package.
-   * @return all package names (including parent package names) for the specified package.
+   * @param directory
+   *          the directory entry
+   * @param packages
+   *          the packages of the directory entry
    */
-  private String[] allPackages(String packageName) {
-
-    // split the package name
-    StringTokenizer tokenizer = new StringTokenizer(packageName, ".");
-
-    // declare result
-    String[] result = new String[tokenizer.countTokens()];
-
-    // compute result
-    for (int i = 0; i < result.length; i++) {
-      if (i == 0) {
-        result[i] = tokenizer.nextToken();
-      } else {
-        result[i] = result[i - 1] + "." + tokenizer.nextToken();
-      }
+  private void recordTimestamps(File directory, String[] packages) {
+    this._directoryTimestamps.put(directory, Long.valueOf(directory.lastModified()));
+    for (String aPackage : packages) {
+      File packageDirectory = new File(directory, aPackage.replace('.', File.separatorChar));
+      this._directoryTimestamps.put(packageDirectory, Long.valueOf(packageDirectory.lastModified()));
     }
-
-    // return result
-    return result;
   }
 
   /**
@@ -426,6 +363,12 @@ public class ClasspathClassFileLoaderImpl implements ClassFileLoader {
    */
   private String[] getAllPackagesFromDirectory(File directory) {
 
+    // try to get the packages from the persistent package index
+    String[] cachedPackages = PackageIndexCache.getInstance().getDirectoryPackages(directory);
+    if (cachedPackages != null) {
+      return cachedPackages;
+    }
+
     List<String> result = new LinkedList<String>();
 
     File[] children = directory.listFiles(new FileFilter() {
@@ -440,7 +383,9 @@ public class ClasspathClassFileLoaderImpl implements ClassFileLoader {
       }
     }
 
-    return result.toArray(new String[0]);
+    String[] packages = result.toArray(new String[0]);
+    PackageIndexCache.getInstance().storeDirectoryPackages(directory, packages);
+    return packages;
   }
 
   /**
@@ -479,6 +424,19 @@ public class ClasspathClassFileLoaderImpl implements ClassFileLoader {
     return getPackageProvider(className.getPackageName()).loadClassFile(className);
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  public ClassFile loadClass(char[][] compoundTypeName) {
+
+    PackageProvider packageProvider = this._allPackages.get(compoundTypeName, compoundTypeName.length - 1);
+    if (packageProvider == null) {
+      return null;
+    }
+
+    return packageProvider.loadClassFile(ClassName.fromQualifiedClassName(CharOperation.toString(compoundTypeName)));
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -490,6 +448,84 @@ public class ClasspathClassFileLoaderImpl implements ClassFileLoader {
     return getPackageProvider(className.getPackageName()).loadSourceFile(className);
   }
 
+  /**
+   * <p>
+   * Discards the class name filters of all package directories that have been modified since the filters have been
+   * created. This method should be called before a (cached) class file loader is reused for another compilation.
+   * </p>
+   */
+  public void invalidateChangedDirectories() {
+    synchronized (this._classNameFilters) {
+      for (ClassNameFilter classNameFilter : this._classNameFilters) {
+        classNameFilter.invalidateIfChanged();
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Returns <code>true</code> if one of the jar files or directories of this class file loader has been changed since
+   * the class file loader has been created, so that its package index is no longer valid. A directory is considered to
+   * be changed if the directory itself or one of its package directories has been modified.
+   * </p>
+   * 
+   * @return <code>true</code> if this class file loader should no longer be used.
+   */
+  public boolean isStale() {
+    for (Map.Entry<File, Long> entry : this._directoryTimestamps.entrySet()) {
+      if (entry.getKey().lastModified() != entry.getValue().longValue()) {
+        return true;
+      }
+    }
+    synchronized (this._jarHandles) {
+      for (JarHandle jarHandle : this._jarHandles.values()) {
+        if ((jarHandle != null) && jarHandle.isStale()) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * <p>
+   * Releases the shared jar handles of this class file loader. If the class file loader is used afterwards, the jar
+   * handles are acquired again.
+   * </p>
+   */
+  public void dispose() {
+    synchronized (this._jarHandles) {
+      for (Map.Entry<File, JarHandle> entry : this._jarHandles.entrySet()) {
+        if (entry.getValue() != null) {
+          JarFilePool.getInstance().release(entry.getValue());
+          entry.setValue(null);
+        }
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the jar handle for the given class path entry. If this class file loader has been disposed while it is still
+   * in use (e.g. because it has been evicted from the {@link ClassFileLoaderCache} during a compilation), the handle is
+   * acquired again. It is then released when the {@link JarFilePool} is disposed.
+   * </p>
+   * 
+   * @param classpathEntry
+   *          the class path entry
+   * @return the jar handle or <code>null</code> if the class path entry is not a jar file
+   */
+  private JarHandle getJarHandle(File classpathEntry) {
+    synchronized (this._jarHandles) {
+      JarHandle jarHandle = this._jarHandles.get(classpathEntry);
+      if ((jarHandle == null) && this._jarHandles.containsKey(classpathEntry)) {
+        jarHandle = JarFilePool.getInstance().acquire(classpathEntry);
+        this._jarHandles.put(classpathEntry, jarHandle);
+      }
+      return jarHandle;
+    }
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -523,10 +559,13 @@ public class ClasspathClassFileLoaderImpl implements ClassFileLoader {
   public class PackageProvider {
 
     /** the class path entries */
-    private List<File> _classpathEntries;
+    private List<File>                 _classpathEntries;
 
     /** the source path entries */
-    private List<File> _sourcepathEntries;
+    private List<File>                 _sourcepathEntries;
+
+    /** the class name filters for the directory class path entries */
+    private Map<File, ClassNameFilter> _classNameFilters;
 
     /**
      * <p>
@@ -536,6 +575,7 @@ public class ClasspathClassFileLoaderImpl implements ClassFileLoader {
     public PackageProvider() {
       this._classpathEntries = new LinkedList<File>();
       this._sourcepathEntries = new LinkedList<File>();
+      this._classNameFilters = new HashMap<File, ClassNameFilter>();
     }
 
     /**
@@ -575,8 +615,15 @@ public class ClasspathClassFileLoaderImpl implements ClassFileLoader {
 
       for (File file : this._classpathEntries) {
         File classpathEntry = file;
+        JarHandle jarHandle = getJarHandle(classpathEntry);
+
+        if (jarHandle == null) {
+
+          // skip the file system access if the package directory doesn't contain the class
+          if (!getClassNameFilter(classpathEntry, className).mightContain(className.getClassName())) {
+            continue;
+          }
 
-        if (classpathEntry.isDirectory()) {
           File result = new File(classpathEntry, className.asClassFileName());
 
           if (result.exists()) {
@@ -591,23 +638,38 @@ public class ClasspathClassFileLoaderImpl implements ClassFileLoader {
             }
           }
         } else {
-          try {
-            JarFile jarFile = new JarFile(classpathEntry);
-
-            JarEntry entry = jarFile.getJarEntry(className.asClassFileName());
-
-            if ((entry != null)) {
-              return new JarClassFileImpl(className.asClassFileName(), jarFile, classpathEntry.getAbsolutePath(),
-                  ClasspathClassFileLoaderImpl.this._type);
-            }
-          } catch (IOException e) {
-            // nothing to do here...
+          if (jarHandle.hasEntry(className.asClassFileName())) {
+            return new JarClassFileImpl(className.asClassFileName(), jarHandle, classpathEntry.getAbsolutePath(),
+                ClasspathClassFileLoaderImpl.this._type);
           }
         }
       }
       return null;
     }
 
+    /**
+     * <p>
+     * Returns the class name filter for the package directory of the given class in the given class path entry.
+     * </p>
+     * 
+     * @param classpathEntry
+     *          the class path entry (a directory)
+     * @param className
+     *          the class name
+     * @return the class name filter
+     */
+    private synchronized ClassNameFilter getClassNameFilter(File classpathEntry, ClassName className) {
+      ClassNameFilter result = this._classNameFilters.get(classpathEntry);
+      if (result == null) {
+        result = new ClassNameFilter(new File(classpathEntry, className.getPackageAsDirectoryName()));
+        this._classNameFilters.put(classpathEntry, result);
+        synchronized (ClasspathClassFileLoaderImpl.this._classNameFilters) {
+          ClasspathClassFileLoaderImpl.this._classNameFilters.add(result);
+        }
+      }
+      return result;
+    }
+
     /**
      * <p>
      * </p>
@@ -0,0 +1,173 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools.loader;
+
+import java.io.File;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.ant4eclipse.lib.core.ClassName;
+import org.ant4eclipse.lib.jdt.ecj.ClassFile;
+import org.ant4eclipse.lib.jdt.ecj.ClassFileLoader;
+import org.ant4eclipse.lib.jdt.ecj.EcjAdapter;
+import org.ant4eclipse.lib.jdt.ecj.ReferableSourceFile;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.loader.CompiledClassIndex.PublishedFolder;
+import org.eclipse.jdt.core.compiler.CharOperation;
+
+/**
+ * <p>
+ * {@link ClassFileLoader} that makes the class files published to a {@link CompiledClassIndex} visible to a compile
+ * job. Classes are loaded from the class file loader of the compile job first (so that its access restrictions
+ * apply), the published class files are only used if the class file loader doesn't know the class (e.g. because the
+ * class file has been written after the class file loader has been created).
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class CompiledClassFileLoader implements ClassFileLoader {
+
+  /** the class file loader of the compile job */
+  private ClassFileLoader   _classFileLoader;
+
+  /** the published folders on the class path of the compile job */
+  private PublishedFolder[] _folders;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link CompiledClassFileLoader}.
+   * </p>
+   *
+   * @param classFileLoader
+   *          the class file loader of the compile job
+   * @param folders
+   *          the published folders on the class path of the compile job
+   */
+  CompiledClassFileLoader(ClassFileLoader classFileLoader, PublishedFolder[] folders) {
+    this._classFileLoader = classFileLoader;
+    this._folders = folders;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public File[] getClasspath() {
+    return this._classFileLoader.getClasspath();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public String[] getAllPackages() {
+    Set<String> result = new LinkedHashSet<String>();
+    for (String packageName : this._classFileLoader.getAllPackages()) {
+      result.add(packageName);
+    }
+    for (PublishedFolder folder : this._folders) {
+      for (String packageName : folder.getPackages().getPackageNames()) {
+        result.add(packageName);
+      }
+    }
+    return result.toArray(new String[result.size()]);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public boolean hasPackage(String packageName) {
+    if (this._classFileLoader.hasPackage(packageName)) {
+      return true;
+    }
+    for (PublishedFolder folder : this._folders) {
+      if (folder.getPackages().get(packageName) != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public boolean hasPackage(char[][] packageName) {
+    if (this._classFileLoader.hasPackage(packageName)) {
+      return true;
+    }
+    for (PublishedFolder folder : this._folders) {
+      if (folder.getPackages().get(packageName, packageName.length) != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public ClassFile loadClass(ClassName className) {
+    ClassFile result = this._classFileLoader.loadClass(className);
+    if (result != null) {
+      return result;
+    }
+    for (PublishedFolder folder : this._folders) {
+      Map<String, File> classFiles = folder.getPackages().get(className.getPackageName());
+      if (classFiles != null) {
+        File classFile = classFiles.get(className.getClassName());
+        if ((classFile != null) && classFile.isFile()) {
+          return new FileClassFileImpl(classFile, folder.getFolder().getAbsolutePath(), EcjAdapter.LIBRARY);
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public ClassFile loadClass(char[][] compoundTypeName) {
+    ClassFile result = this._classFileLoader.loadClass(compoundTypeName);
+    if (result != null) {
+      return result;
+    }
+    for (PublishedFolder folder : this._folders) {
+      if (folder.getPackages().get(compoundTypeName, compoundTypeName.length - 1) != null) {
+        return loadClass(ClassName.fromQualifiedClassName(CharOperation.toString(compoundTypeName)));
+      }
+    }
+    return null;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public ReferableSourceFile loadSource(ClassName className) {
+    return this._classFileLoader.loadSource(className);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+    StringBuffer buffer = new StringBuffer();
+    buffer.append("[CompiledClassFileLoader:");
+    buffer.append(" _classFileLoader: ");
+    buffer.append(this._classFileLoader);
+    buffer.append(" _folders: {");
+    for (int i = 0; i < this._folders.length; i++) {
+      buffer.append(i > 0 ? ", " : " ");
+      buffer.append(this._folders[i].getFolder());
+    }
+    buffer.append(" }]");
+    return buffer.toString();
+  }
+}
@@ -0,0 +1,180 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools.loader;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.ant4eclipse.lib.core.Assure;
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.lib.jdt.ecj.ClassFileLoader;
+
+/**
+ * <p>
+ * Thread safe index of the class files that have been compiled by concurrently executed compile jobs. When a compile
+ * job has been finished, its class files are {@link #publish(Map) published} to the index, so that they are visible
+ * to the compile jobs that depend on it, even if the class file loaders of these compile jobs have been created before
+ * the class files have been written.
+ * </p>
+ * <p>
+ * The index is read-mostly: each output folder is stored as an immutable snapshot that is replaced as a whole when new
+ * class files are published for it, so lookups never block.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class CompiledClassIndex {
+
+  /** the class file suffix */
+  private static final String                    CLASS_FILE_SUFFIX = ".class";
+
+  /** maps canonical output folders to their published class files */
+  private ConcurrentHashMap<File, PublishedFolder> _folders;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link CompiledClassIndex}.
+   * </p>
+   */
+  public CompiledClassIndex() {
+    this._folders = new ConcurrentHashMap<File, PublishedFolder>();
+  }
+
+  /**
+   * <p>
+   * Publishes the given compiled class files.
+   * </p>
+   *
+   * @param compiledClassFiles
+   *          maps class file names (e.g. <code>foo/bar/Bazz.class</code>) to the class files in the output folder (see
+   *          {@link org.ant4eclipse.lib.jdt.ecj.CompileJobResult#getCompiledClassFiles()}).
+   */
+  public void publish(Map<String, File> compiledClassFiles) {
+    Assure.notNull("compiledClassFiles", compiledClassFiles);
+
+    // group the class files by output folder
+    Map<File, Map<String, File>> filesByFolder = new HashMap<File, Map<String, File>>();
+    for (Map.Entry<String, File> entry : compiledClassFiles.entrySet()) {
+      String classFileName = entry.getKey();
+      String path = entry.getValue().getAbsolutePath();
+      if (!classFileName.endsWith(CLASS_FILE_SUFFIX) || (path.length() <= classFileName.length())) {
+        continue;
+      }
+      File folder = Utilities.getCanonicalFile(new File(path.substring(0, path.length() - classFileName.length())));
+      Map<String, File> files = filesByFolder.get(folder);
+      if (files == null) {
+        files = new HashMap<String, File>();
+        filesByFolder.put(folder, files);
+      }
+      files.put(classFileName, entry.getValue());
+    }
+
+    // replace the snapshots of the affected folders
+    synchronized (this) {
+      for (Map.Entry<File, Map<String, File>> entry : filesByFolder.entrySet()) {
+        PublishedFolder previous = this._folders.get(entry.getKey());
+        this._folders.put(entry.getKey(), new PublishedFolder(entry.getKey(), previous, entry.getValue()));
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Returns a class file loader that first delegates to the given class file loader and then searches the class files
+   * that have been published for the folders on its class path. The published folders are determined when this method
+   * is called, so class files that are published afterwards are not visible.
+   * </p>
+   *
+   * @param classFileLoader
+   *          the class file loader of a compile job.
+   * @return the class file loader for the compile job. Not <code>null</code>.
+   */
+  public ClassFileLoader createClassFileLoader(ClassFileLoader classFileLoader) {
+    Assure.notNull("classFileLoader", classFileLoader);
+
+    List<PublishedFolder> folders = new ArrayList<PublishedFolder>();
+    for (File classpathEntry : classFileLoader.getClasspath()) {
+      PublishedFolder folder = this._folders.get(Utilities.getCanonicalFile(classpathEntry));
+      if (folder != null) {
+        folders.add(folder);
+      }
+    }
+
+    if (folders.isEmpty()) {
+      return classFileLoader;
+    }
+
+    return new CompiledClassFileLoader(classFileLoader, folders.toArray(new PublishedFolder[folders.size()]));
+  }
+
+  /**
+   * <p>
+   * Immutable snapshot of the class files that have been published for an output folder.
+   * </p>
+   */
+  static class PublishedFolder {
+
+    /** the output folder */
+    private File                            _folder;
+
+    /** maps packages to the class files (by simple class name) */
+    private PackageTable<Map<String, File>> _packages;
+
+    /**
+     * <p>
+     * Creates a new snapshot that contains the class files of the given previous snapshot and the given class files.
+     * </p>
+     */
+    PublishedFolder(File folder, PublishedFolder previous, Map<String, File> classFiles) {
+      this._folder = folder;
+
+      // copy the previous snapshot
+      Map<String, Map<String, File>> packages = new HashMap<String, Map<String, File>>();
+      if (previous != null) {
+        for (String packageName : previous._packages.getPackageNames()) {
+          packages.put(packageName, new HashMap<String, File>(previous._packages.get(packageName)));
+        }
+      }
+
+      // add the new class files
+      for (Map.Entry<String, File> entry : classFiles.entrySet()) {
+        String name = entry.getKey();
+        name = name.substring(0, name.length() - CLASS_FILE_SUFFIX.length()).replace('/', '.');
+        int index = name.lastIndexOf('.');
+        String packageName = index == -1 ? "" : name.substring(0, index);
+        Map<String, File> files = packages.get(packageName);
+        if (files == null) {
+          files = new HashMap<String, File>();
+          packages.put(packageName, files);
+        }
+        files.put(name.substring(index + 1), entry.getValue());
+      }
+
+      this._packages = new PackageTable<Map<String, File>>();
+      for (Map.Entry<String, Map<String, File>> entry : packages.entrySet()) {
+        this._packages.put(entry.getKey(), entry.getValue());
+      }
+    }
+
+    File getFolder() {
+      return this._folder;
+    }
+
+    PackageTable<Map<String, File>> getPackages() {
+      return this._packages;
+    }
+  }
+}
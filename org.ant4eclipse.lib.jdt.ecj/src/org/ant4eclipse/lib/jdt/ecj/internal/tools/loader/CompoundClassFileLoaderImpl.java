@@ -17,27 +17,46 @@ import org.ant4eclipse.lib.core.util.Utilities;
 import org.ant4eclipse.lib.jdt.ecj.ClassFile;
 import org.ant4eclipse.lib.jdt.ecj.ClassFileLoader;
 import org.ant4eclipse.lib.jdt.ecj.ReferableSourceFile;
+import org.eclipse.jdt.core.compiler.CharOperation;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 
+/**
+ * <p>
+ * {@link ClassFileLoader} that combines several class file loaders.
+ * </p>
+ * <p>
+ * Classes and sources that could not be found are remembered in a negative lookup cache, so repeated lookups of
+ * missing types (which the compiler produces constantly while resolving imported and nested type names) don't walk the
+ * underlying class file loaders again. A compound class file loader is created for a single compilation during which
+ * the class path doesn't change. Cached class path based class file loaders that are reused for a later compilation
+ * are revalidated by the {@link org.ant4eclipse.lib.jdt.ecj.ClassFileLoaderFactory}.
+ * </p>
+ */
 public class CompoundClassFileLoaderImpl implements ClassFileLoader {
 
-  private ClassFileLoader[]                  _classFileLoaders;
+  private ClassFileLoader[]                   _classFileLoaders;
 
   /** maps packages to a package provider that contains a list of one or more class path entries */
-  private Map<String, List<ClassFileLoader>> _allPackages;
+  private PackageTable<List<ClassFileLoader>> _allPackages;
+
+  /** the qualified names of the classes that could not be found */
+  private PackageTable<Boolean>               _missingClasses;
+
+  /** the qualified names of the classes whose sources could not be found */
+  private PackageTable<Boolean>               _missingSources;
 
   public CompoundClassFileLoaderImpl(ClassFileLoader[] classFileLoaders) {
     Assure.notNull("classFileLoaders", classFileLoaders);
 
     this._classFileLoaders = classFileLoaders;
 
-    this._allPackages = new HashMap<String, List<ClassFileLoader>>();
+    this._allPackages = new PackageTable<List<ClassFileLoader>>();
+    this._missingClasses = new PackageTable<Boolean>();
+    this._missingSources = new PackageTable<Boolean>();
 
     initialise();
   }
@@ -70,14 +89,21 @@ public class CompoundClassFileLoaderImpl implements ClassFileLoader {
    * {@inheritDoc}
    */
   public String[] getAllPackages() {
-    return this._allPackages.keySet().toArray(new String[0]);
+    return this._allPackages.getPackageNames();
   }
 
   /**
    * {@inheritDoc}
    */
   public boolean hasPackage(String packageName) {
-    return this._allPackages.containsKey(packageName);
+    return this._allPackages.get(packageName) != null;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public boolean hasPackage(char[][] packageName) {
+    return this._allPackages.get(packageName, packageName.length) != null;
   }
 
   /**
@@ -93,6 +119,52 @@ public class CompoundClassFileLoaderImpl implements ClassFileLoader {
       return null;
     }
 
+    // return if the class is known to be missing
+    synchronized (this._missingClasses) {
+      if (this._missingClasses.get(className.getQualifiedClassName()) != null) {
+        return null;
+      }
+    }
+
+    return loadClass(className, classFileLoaderList);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public ClassFile loadClass(char[][] compoundTypeName) {
+
+    // get the class file loader list without creating a class name
+    List<ClassFileLoader> classFileLoaderList = this._allPackages.get(compoundTypeName, compoundTypeName.length - 1);
+
+    // return if class file loader list is null
+    if (classFileLoaderList == null) {
+      return null;
+    }
+
+    // return if the class is known to be missing
+    synchronized (this._missingClasses) {
+      if (this._missingClasses.get(compoundTypeName, compoundTypeName.length) != null) {
+        return null;
+      }
+    }
+
+    return loadClass(ClassName.fromQualifiedClassName(CharOperation.toString(compoundTypeName)), classFileLoaderList);
+  }
+
+  /**
+   * <p>
+   * Loads the specified class from the given class file loaders.
+   * </p>
+   * 
+   * @param className
+   *          the class name
+   * @param classFileLoaderList
+   *          the class file loaders that provide the package of the class
+   * @return the class file or <code>null</code>
+   */
+  private ClassFile loadClass(ClassName className, List<ClassFileLoader> classFileLoaderList) {
+
     // declare the result
     ClassFile result = null;
 
@@ -116,6 +188,13 @@ public class CompoundClassFileLoaderImpl implements ClassFileLoader {
       }
     }
 
+    // remember missing classes
+    if (result == null) {
+      synchronized (this._missingClasses) {
+        this._missingClasses.put(className.getQualifiedClassName(), Boolean.TRUE);
+      }
+    }
+
     // return the result
     return result;
   }
@@ -133,6 +212,13 @@ public class CompoundClassFileLoaderImpl implements ClassFileLoader {
       return null;
     }
 
+    // return if the source is known to be missing
+    synchronized (this._missingSources) {
+      if (this._missingSources.get(className.getQualifiedClassName()) != null) {
+        return null;
+      }
+    }
+
     // search for the source file
     for (ClassFileLoader classFileLoader : classFileLoaderList) {
       ReferableSourceFile sourceFile = classFileLoader.loadSource(className);
@@ -141,7 +227,10 @@ public class CompoundClassFileLoaderImpl implements ClassFileLoader {
       }
     }
 
-    // last resort: return null
+    // last resort: remember the missing source and return null
+    synchronized (this._missingSources) {
+      this._missingSources.put(className.getQualifiedClassName(), Boolean.TRUE);
+    }
     return null;
   }
 
@@ -170,13 +259,13 @@ public class CompoundClassFileLoaderImpl implements ClassFileLoader {
       String[] packages = classFileLoader.getAllPackages();
 
       for (String aPackage : packages) {
-        if (this._allPackages.containsKey(aPackage)) {
-          List<ClassFileLoader> classFileLoaderList = this._allPackages.get(aPackage);
+        List<ClassFileLoader> classFileLoaderList = this._allPackages.get(aPackage);
+        if (classFileLoaderList != null) {
           if (!classFileLoaderList.contains(classFileLoader)) {
             classFileLoaderList.add(classFileLoader);
           }
         } else {
-          List<ClassFileLoader> classFileLoaderList = new LinkedList<ClassFileLoader>();
+          classFileLoaderList = new LinkedList<ClassFileLoader>();
           classFileLoaderList.add(classFileLoader);
           this._allPackages.put(aPackage, classFileLoaderList);
         }
@@ -15,7 +15,9 @@ import java.io.File;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.ant4eclipse.lib.core.Assure;
 import org.ant4eclipse.lib.core.ClassName;
@@ -24,6 +26,7 @@ import org.ant4eclipse.lib.jdt.ecj.ClassFileLoader;
 import org.ant4eclipse.lib.jdt.ecj.ReferableSourceFile;
 import org.ant4eclipse.lib.jdt.ecj.ReferableType;
 import org.ant4eclipse.lib.jdt.ecj.internal.tools.DefaultReferableType;
+import org.eclipse.jdt.core.compiler.CharOperation;
 import org.eclipse.jdt.core.compiler.IProblem;
 import org.eclipse.jdt.internal.compiler.env.AccessRestriction;
 import org.eclipse.jdt.internal.compiler.env.AccessRule;
@@ -37,19 +40,25 @@ import org.eclipse.jdt.internal.compiler.env.AccessRule;
 public class FilteringClassFileLoader implements ClassFileLoader {
 
   /** the class file loader that should be filtered */
-  private ClassFileLoader _classFileLoader;
+  private ClassFileLoader         _classFileLoader;
 
   /** the filter string */
-  private String          _filter;
+  private String                  _filter;
 
   /** the include patterns */
-  private List<String>    _includes;
+  private List<AccessRulePattern> _includes;
 
   /** the exclude patterns */
-  private List<String>    _excludes;
+  private List<AccessRulePattern> _excludes;
 
   /** - */
-  private Set<String>     _containedPackages;
+  private Set<String>             _containedPackages;
+
+  /** indicates if all patterns match either all or none of the classes of a package */
+  private boolean                 _packageGranular;
+
+  /** the memoized restrictions per package (only used if the patterns are package granular) */
+  private Map<String, Boolean>    _restrictedPackages;
 
   /**
    * <p>
@@ -66,8 +75,9 @@ public class FilteringClassFileLoader implements ClassFileLoader {
     this._classFileLoader = classFileLoader;
     this._filter = filter;
 
-    this._includes = new LinkedList<String>();
-    this._excludes = new LinkedList<String>();
+    this._includes = new LinkedList<AccessRulePattern>();
+    this._excludes = new LinkedList<AccessRulePattern>();
+    this._restrictedPackages = new ConcurrentHashMap<String, Boolean>();
 
     init();
   }
@@ -93,6 +103,13 @@ public class FilteringClassFileLoader implements ClassFileLoader {
     return this._classFileLoader.hasPackage(packageName);
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  public boolean hasPackage(char[][] packageName) {
+    return this._classFileLoader.hasPackage(packageName);
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -105,6 +122,21 @@ public class FilteringClassFileLoader implements ClassFileLoader {
     return result;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  public ClassFile loadClass(char[][] compoundTypeName) {
+
+    ClassFile result = this._classFileLoader.loadClass(compoundTypeName);
+
+    // the class name is only needed to compute the access restrictions of an existing class
+    if (result != null) {
+      setAccessRestrictions(result, ClassName.fromQualifiedClassName(CharOperation.toString(compoundTypeName)));
+    }
+
+    return result;
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -137,31 +169,69 @@ public class FilteringClassFileLoader implements ClassFileLoader {
     }
 
     //
-    String classFileName = className.asClassFileName();
+    if (isRestricted(className) && referableType instanceof DefaultReferableType) {
+
+      AccessRestriction accessRestriction = new AccessRestriction(new AccessRule("**".toCharArray(),
+          IProblem.ForbiddenReference), referableType.getLibraryType(), referableType.getLibraryLocation());
+
+      ((DefaultReferableType) referableType).setAccessRestriction(accessRestriction);
+    }
+
+    return referableType;
+  }
+
+  /**
+   * <p>
+   * Returns <code>true</code> if the access to the given class is restricted. If the patterns are package granular (as
+   * nearly all access rules are), the result is computed once per package.
+   * </p>
+   * 
+   * @param className
+   *          the class name
+   * @return <code>true</code> if the access to the given class is restricted.
+   */
+  private boolean isRestricted(ClassName className) {
 
     //
-    for (String includePattern : this._includes) {
-      if (classFileName.matches(includePattern)) {
-        return referableType;
-      }
+    if (!this._packageGranular) {
+      return isRestricted(className.asClassFileName());
     }
 
     //
-    for (String exludePattern : this._excludes) {
-      if (classFileName.matches(exludePattern)) {
+    Boolean result = this._restrictedPackages.get(className.getPackageName());
+    if (result == null) {
+      result = Boolean.valueOf(isRestricted(className.asClassFileName()));
+      this._restrictedPackages.put(className.getPackageName(), result);
+    }
+    return result.booleanValue();
+  }
 
-        if (referableType instanceof DefaultReferableType) {
+  /**
+   * <p>
+   * Returns <code>true</code> if the given class file name doesn't match an include pattern but an exclude pattern.
+   * </p>
+   * 
+   * @param classFileName
+   *          the class file name
+   * @return <code>true</code> if the access to the given class is restricted.
+   */
+  private boolean isRestricted(String classFileName) {
 
-          AccessRestriction accessRestriction = new AccessRestriction(new AccessRule("**".toCharArray(),
-              IProblem.ForbiddenReference), referableType.getLibraryType(), referableType.getLibraryLocation());
+    //
+    for (AccessRulePattern includePattern : this._includes) {
+      if (includePattern.matches(classFileName)) {
+        return false;
+      }
+    }
 
-          ((DefaultReferableType) referableType).setAccessRestriction(accessRestriction);
-        }
-        return referableType;
+    //
+    for (AccessRulePattern exludePattern : this._excludes) {
+      if (exludePattern.matches(classFileName)) {
+        return true;
       }
     }
 
-    return referableType;
+    return false;
   }
 
   /**
@@ -172,6 +242,7 @@ public class FilteringClassFileLoader implements ClassFileLoader {
 
     //
     this._containedPackages = new HashSet<String>();
+    this._packageGranular = true;
 
     //
     for (String part : this._filter.split(";")) {
@@ -185,24 +256,16 @@ public class FilteringClassFileLoader implements ClassFileLoader {
         this._containedPackages = null;
       }
 
-      // step 1: replace all occurrences of '**/*' with '###' (temporary step)
-      String transformedPart = part.substring(1).replaceAll("\\*\\*/\\*", "###");
-
-      // step 2: replace all occurrences of '*' with '[^\.]*'
-      transformedPart = transformedPart.replaceAll("\\*", "[^\\\\.]*");
-
-      // step 3: replace all occurrences of '###' (formally '**/*') with '.*'
-      transformedPart = transformedPart.replaceAll("###", ".*");
-
-      // step 4: append '\.class'
-      transformedPart = transformedPart.concat("\\.class");
+      // step 1: compile the pattern (see AccessRulePattern.toRegex(String) for the semantics)
+      AccessRulePattern pattern = new AccessRulePattern(part.substring(1));
 
       if (part.startsWith("+")) {
-        this._includes.add(transformedPart);
+        this._includes.add(pattern);
       }
       if (part.startsWith("-")) {
-        this._excludes.add(transformedPart);
+        this._excludes.add(pattern);
       }
+      this._packageGranular &= pattern.isPackageGranular();
     }
   }
 }
@@ -12,7 +12,6 @@
 package org.ant4eclipse.lib.jdt.ecj.internal.tools.loader;
 
 import java.io.IOException;
-import java.util.zip.ZipFile;
 
 import org.ant4eclipse.lib.core.Assure;
 import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
@@ -22,7 +21,6 @@ import org.ant4eclipse.lib.jdt.ecj.internal.tools.DefaultReferableType;
 import org.eclipse.jdt.internal.compiler.classfmt.ClassFileReader;
 import org.eclipse.jdt.internal.compiler.classfmt.ClassFormatException;
 import org.eclipse.jdt.internal.compiler.env.IBinaryType;
-import org.eclipse.jdt.internal.compiler.util.Util;
 
 /**
  * DefaultClassFile --
@@ -31,30 +29,30 @@ import org.eclipse.jdt.internal.compiler.util.Util;
  */
 public class JarClassFileImpl extends DefaultReferableType implements ClassFile {
 
-  /** the zip file */
-  private ZipFile _zipFile;
+  /** the shared jar handle */
+  private JarHandle _jarHandle;
 
   /** the zip entry name */
-  private String  _zipEntryName;
+  private String    _zipEntryName;
 
   /**
    * @param zipEntryName
-   * @param zipFile
+   * @param jarHandle
    */
-  public JarClassFileImpl(String zipEntryName, ZipFile zipFile, String libraryLocation, byte libraryType) {
+  public JarClassFileImpl(String zipEntryName, JarHandle jarHandle, String libraryLocation, byte libraryType) {
 
     super(libraryLocation, libraryType);
 
     Assure.nonEmpty("zipEntryName", zipEntryName);
-    Assure.notNull("zipFile", zipFile);
+    Assure.notNull("jarHandle", jarHandle);
 
     this._zipEntryName = zipEntryName;
-    this._zipFile = zipFile;
+    this._jarHandle = jarHandle;
   }
 
   public byte[] getBytes() {
     try {
-      return Util.getZipEntryByteContent(this._zipFile.getEntry(this._zipEntryName), this._zipFile);
+      return this._jarHandle.getEntryContent(this._zipEntryName);
     } catch (Exception e) {
       throw new RuntimeException(e.getMessage(), e);
     }
@@ -65,16 +63,20 @@ public class JarClassFileImpl extends DefaultReferableType implements ClassFile
    */
   public final IBinaryType getBinaryType() {
     try {
-      return ClassFileReader.read(this._zipFile, this._zipEntryName, true);
+      byte[] content = this._jarHandle.getEntryContent(this._zipEntryName);
+      if (content == null) {
+        return null;
+      }
+      return new ClassFileReader(content, this._zipEntryName.toCharArray(), true);
     } catch (ClassFormatException e) {
       throw new Ant4EclipseException(e, EcjExceptionCodes.UNABLE_TO_READ_BINARY_TYPE_FROM_JAR_EXCEPTION,
-          this._zipFile.getName(), this._zipEntryName);
+          this._jarHandle.getFile().getPath(), this._zipEntryName);
     } catch (IOException e) {
       throw new Ant4EclipseException(e, EcjExceptionCodes.UNABLE_TO_READ_BINARY_TYPE_FROM_JAR_EXCEPTION,
-          this._zipFile.getName(), this._zipEntryName);
+          this._jarHandle.getFile().getPath(), this._zipEntryName);
     } catch (java.lang.SecurityException e) {
       throw new Ant4EclipseException(e, EcjExceptionCodes.UNABLE_TO_READ_BINARY_TYPE_FROM_JAR_EXCEPTION,
-          this._zipFile.getName(), this._zipEntryName);
+          this._jarHandle.getFile().getPath(), this._zipEntryName);
     }
   }
 
@@ -91,8 +93,8 @@ public class JarClassFileImpl extends DefaultReferableType implements ClassFile
     buffer.append(getLibraryType());
     buffer.append(" accessRestriction: ");
     buffer.append(getAccessRestriction());
-    buffer.append(" zipFile: ");
-    buffer.append(this._zipFile);
+    buffer.append(" jarHandle: ");
+    buffer.append(this._jarHandle);
     buffer.append(" zipEntryName: ");
     buffer.append(this._zipEntryName);
     buffer.append("]");
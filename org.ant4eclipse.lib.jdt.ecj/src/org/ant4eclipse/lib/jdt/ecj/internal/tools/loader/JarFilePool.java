@@ -0,0 +1,223 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools.loader;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.ant4eclipse.lib.core.Assure;
+import org.ant4eclipse.lib.core.Lifecycle;
+import org.ant4eclipse.lib.core.logging.A4ELogging;
+import org.ant4eclipse.lib.core.service.ServiceRegistryAccess;
+import org.ant4eclipse.lib.core.util.Utilities;
+
+/**
+ * <p>
+ * Pool of shared {@link JarHandle JarHandles}. Each jar file is opened (and indexed) only once, no matter how many class
+ * file loaders refer to it. Handles are reference counted: handles that are no longer referenced are kept open (up to
+ * a configurable number) so that they can be reused by subsequent compilations, all remaining handles are closed when
+ * the pool is disposed.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class JarFilePool implements Lifecycle {
+
+  /**
+   * System-Property that disables the memory mapping of jar files (enabled by default, except on windows where mapped
+   * files cannot be deleted or replaced until they have been garbage collected)
+   */
+  private static final boolean             USE_MEMORY_MAPPING = Boolean.parseBoolean(System.getProperty(
+                                                                  "ant4eclipse.jarFilePool.useMemoryMapping", String
+                                                                      .valueOf(!Utilities.isWindows())));
+
+  /**
+   * System-Property that specifies the maximum number of unreferenced handles that are kept open
+   */
+  private static final int                 MAX_IDLE_HANDLES   = Integer.getInteger(
+                                                                  "ant4eclipse.jarFilePool.maxIdleHandles", 256)
+                                                                  .intValue();
+
+  /** maps canonical jar file paths to the currently active handles */
+  private Map<String, JarHandle>           _handles;
+
+  /** the unreferenced handles in least recently used order */
+  private LinkedHashMap<String, JarHandle> _idleHandles;
+
+  /** the replaced handles that are still referenced (closed on their last release) */
+  private Map<JarHandle, Boolean>          _staleHandles;
+
+  /** - */
+  private boolean                          _initialized;
+
+  /**
+   * <p>
+   * Creates a new instance of type JarFilePool.
+   * </p>
+   */
+  public JarFilePool() {
+    this._handles = new HashMap<String, JarHandle>();
+    this._idleHandles = new LinkedHashMap<String, JarHandle>(16, 0.75f, true);
+    this._staleHandles = new IdentityHashMap<JarHandle, Boolean>();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public boolean isInitialized() {
+    return this._initialized;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public void initialize() {
+    this._initialized = true;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public synchronized void dispose() {
+    for (JarHandle handle : this._handles.values()) {
+      handle.close();
+    }
+    for (JarHandle handle : this._staleHandles.keySet()) {
+      handle.close();
+    }
+    this._handles.clear();
+    this._idleHandles.clear();
+    this._staleHandles.clear();
+    this._initialized = false;
+  }
+
+  /**
+   * <p>
+   * Returns a handle for the given jar file and increments its reference count. A new handle is created if the jar file
+   * hasn't been opened before or if it has been changed since it has been opened.
+   * </p>
+   *
+   * @param jarFile
+   *          the jar file. Not <code>null</code>.
+   * @return the handle for the given jar file. Not <code>null</code>.
+   */
+  public synchronized JarHandle acquire(File jarFile) {
+    Assure.isFile("jarFile", jarFile);
+
+    String key = Utilities.getCanonicalFile(jarFile).getPath();
+
+    JarHandle handle = this._handles.get(key);
+
+    if ((handle != null) && handle.isStale()) {
+      A4ELogging.debug("Jar file '%s' has been changed. Reopening.", jarFile);
+      this._handles.remove(key);
+      this._idleHandles.remove(key);
+      if (handle.getReferences() == 0) {
+        handle.close();
+      } else {
+        // still in use: closed on its last release
+        this._staleHandles.put(handle, Boolean.TRUE);
+      }
+      handle = null;
+    }
+
+    if (handle == null) {
+      handle = new JarHandle(jarFile, USE_MEMORY_MAPPING);
+      this._handles.put(key, handle);
+    }
+
+    handle.acquire();
+    this._idleHandles.remove(key);
+
+    return handle;
+  }
+
+  /**
+   * <p>
+   * Decrements the reference count of the given handle. Unreferenced handles stay open until the maximum number of idle
+   * handles has been exceeded.
+   * </p>
+   *
+   * @param handle
+   *          the handle. Not <code>null</code>.
+   */
+  public synchronized void release(JarHandle handle) {
+    Assure.notNull("handle", handle);
+
+    if (handle.release() > 0) {
+      return;
+    }
+
+    if (this._staleHandles.remove(handle) != null) {
+      // the handle has been replaced by a newer one
+      handle.close();
+      return;
+    }
+
+    String key = Utilities.getCanonicalFile(handle.getFile()).getPath();
+
+    if (this._handles.get(key) != handle) {
+      // the handle has already been closed by the pool
+      return;
+    }
+
+    this._idleHandles.put(key, handle);
+
+    // close the least recently used idle handles
+    if (this._idleHandles.size() > MAX_IDLE_HANDLES) {
+      List<String> evicted = new ArrayList<String>();
+      Iterator<String> iterator = this._idleHandles.keySet().iterator();
+      while (iterator.hasNext() && (this._idleHandles.size() - evicted.size() > MAX_IDLE_HANDLES)) {
+        evicted.add(iterator.next());
+      }
+      for (String evictedKey : evicted) {
+        this._idleHandles.remove(evictedKey);
+        JarHandle evictedHandle = this._handles.remove(evictedKey);
+        if (evictedHandle != null) {
+          evictedHandle.close();
+        }
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the number of currently open handles.
+   * </p>
+   *
+   * @return the number of currently open handles.
+   */
+  public synchronized int size() {
+    return this._handles.size();
+  }
+
+  /**
+   * <p>
+   * Returns the number of replaced handles that are still referenced.
+   * </p>
+   *
+   * @return the number of replaced handles that are still referenced.
+   */
+  public synchronized int getStaleHandleCount() {
+    return this._staleHandles.size();
+  }
+
+  public static JarFilePool getInstance() {
+    return ServiceRegistryAccess.instance().getService(JarFilePool.class);
+  }
+}
@@ -0,0 +1,282 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools.loader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.ant4eclipse.lib.core.Assure;
+import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
+import org.ant4eclipse.lib.core.logging.A4ELogging;
+import org.ant4eclipse.lib.jdt.ecj.EcjExceptionCodes;
+import org.eclipse.jdt.internal.compiler.util.Util;
+
+/**
+ * <p>
+ * A shared, reference counted handle for a jar file. Instances are managed by the {@link JarFilePool}, so each jar
+ * file is opened and indexed only once regardless of the number of class file loaders that refer to it.
+ * </p>
+ * <p>
+ * If possible the jar file is accessed through a memory mapped {@link JarIndex}. Otherwise (e.g. for zip64 archives)
+ * a single {@link JarFile} instance is opened and the class file entries are indexed by name.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class JarHandle {
+
+  /** the jar file */
+  private File                  _file;
+
+  /** the length of the jar file at the time it has been indexed */
+  private long                  _length;
+
+  /** the modification time of the jar file at the time it has been indexed */
+  private long                  _lastModified;
+
+  /** the memory mapped index (maybe <code>null</code>) */
+  private JarIndex              _jarIndex;
+
+  /** the fallback jar file (only used if no memory mapped index is available) */
+  private JarFile               _jarFile;
+
+  /** the class file entries of the fallback jar file */
+  private Map<String, JarEntry> _jarEntries;
+
+  /** the packages contained in the jar file */
+  private String[]              _packages;
+
+  /** the reference count */
+  private int                   _references;
+
+  /** <code>true</code> if this handle has been closed */
+  private boolean               _closed;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link JarHandle}.
+   * </p>
+   *
+   * @param file
+   *          the jar file. Not <code>null</code>.
+   * @param useMemoryMapping
+   *          <code>true</code> if the jar file should be memory mapped.
+   */
+  JarHandle(File file, boolean useMemoryMapping) {
+    Assure.isFile("file", file);
+
+    this._file = file;
+    this._length = file.length();
+    this._lastModified = file.lastModified();
+
+    if (useMemoryMapping) {
+      try {
+        this._jarIndex = PackageIndexCache.getInstance().getJarIndex(file);
+        this._packages = this._jarIndex.getPackages();
+        return;
+      } catch (IOException ex) {
+        A4ELogging.debug("Could not create memory mapped index for '%s': %s", file, ex.getMessage());
+      }
+    }
+
+    openJarFile();
+  }
+
+  /**
+   * <p>
+   * Returns the jar file.
+   * </p>
+   *
+   * @return the jar file.
+   */
+  public File getFile() {
+    return this._file;
+  }
+
+  /**
+   * <p>
+   * Returns the names of all packages (including the parent packages) that are contained in the jar file.
+   * </p>
+   *
+   * @return the names of all packages that are contained in the jar file.
+   */
+  public String[] getPackages() {
+    return this._packages;
+  }
+
+  /**
+   * <p>
+   * Returns <code>true</code> if the jar file contains a class file entry with the given name.
+   * </p>
+   *
+   * @param entryName
+   *          the name of the entry, e.g. <code>java/lang/Object.class</code>.
+   * @return <code>true</code> if the jar file contains a class file entry with the given name.
+   */
+  public boolean hasEntry(String entryName) {
+    if (this._jarIndex != null) {
+      return this._jarIndex.hasEntry(entryName);
+    }
+    return this._jarEntries.containsKey(entryName);
+  }
+
+  /**
+   * <p>
+   * Returns the content of the class file entry with the given name or <code>null</code> if no such entry exists.
+   * </p>
+   *
+   * @param entryName
+   *          the name of the entry, e.g. <code>java/lang/Object.class</code>.
+   * @return the content of the entry or <code>null</code>.
+   * @throws IOException
+   *           if the entry could not be read.
+   */
+  public byte[] getEntryContent(String entryName) throws IOException {
+    if (this._jarIndex != null) {
+      return this._jarIndex.getEntryContent(entryName);
+    }
+    JarEntry entry = this._jarEntries.get(entryName);
+    if (entry == null) {
+      return null;
+    }
+    synchronized (this) {
+      if (this._closed) {
+        throw new IOException("Jar file '" + this._file + "' has already been closed.");
+      }
+      return Util.getZipEntryByteContent(entry, this._jarFile);
+    }
+  }
+
+  /**
+   * <p>
+   * Returns <code>true</code> if the underlying jar file has been changed since this handle has been created.
+   * </p>
+   *
+   * @return <code>true</code> if the underlying jar file has been changed.
+   */
+  boolean isStale() {
+    return (this._file.length() != this._length) || (this._file.lastModified() != this._lastModified);
+  }
+
+  /**
+   * <p>
+   * Increments the reference count.
+   * </p>
+   */
+  synchronized void acquire() {
+    this._references++;
+  }
+
+  /**
+   * <p>
+   * Decrements the reference count.
+   * </p>
+   *
+   * @return the new reference count.
+   */
+  synchronized int release() {
+    if (this._references > 0) {
+      this._references--;
+    }
+    return this._references;
+  }
+
+  /**
+   * <p>
+   * Returns the reference count.
+   * </p>
+   *
+   * @return the reference count.
+   */
+  synchronized int getReferences() {
+    return this._references;
+  }
+
+  /**
+   * <p>
+   * Closes this handle. A memory mapped index will be released by the garbage collector.
+   * </p>
+   */
+  synchronized void close() {
+    this._closed = true;
+    if (this._jarFile != null) {
+      try {
+        this._jarFile.close();
+      } catch (IOException ex) {
+        A4ELogging.warn(ex.getMessage());
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Returns <code>true</code> if this handle has been closed.
+   * </p>
+   *
+   * @return <code>true</code> if this handle has been closed.
+   */
+  synchronized boolean isClosed() {
+    return this._closed;
+  }
+
+  /**
+   * <p>
+   * Opens the fallback jar file and indexes its class file entries.
+   * </p>
+   */
+  private void openJarFile() {
+    try {
+      this._jarFile = new JarFile(this._file);
+    } catch (IOException e) {
+      throw new Ant4EclipseException(EcjExceptionCodes.COULD_NOT_CREATE_JAR_FILE_FROM_FILE_EXCEPTION, this._file
+          .getAbsolutePath());
+    }
+
+    this._jarEntries = new HashMap<String, JarEntry>();
+    Set<String> packages = new LinkedHashSet<String>();
+
+    Enumeration<JarEntry> enumeration = this._jarFile.entries();
+    while (enumeration.hasMoreElements()) {
+      JarEntry jarEntry = enumeration.nextElement();
+      JarIndex.addPackages(jarEntry.getName(), packages);
+      if (!jarEntry.isDirectory() && jarEntry.getName().endsWith(".class")) {
+        this._jarEntries.put(jarEntry.getName(), jarEntry);
+      }
+    }
+
+    this._packages = packages.toArray(new String[packages.size()]);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+    StringBuffer buffer = new StringBuffer();
+    buffer.append("[JarHandle:");
+    buffer.append(" file: ");
+    buffer.append(this._file);
+    buffer.append(" mapped: ");
+    buffer.append(this._jarIndex != null);
+    buffer.append(" references: ");
+    buffer.append(this._references);
+    buffer.append("]");
+    return buffer.toString();
+  }
+}
@@ -0,0 +1,452 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools.loader;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.ant4eclipse.lib.core.Assure;
+import org.ant4eclipse.lib.core.util.Utilities;
+
+/**
+ * <p>
+ * Memory mapped index of a jar file. The central directory of the jar file is read exactly once while the index is
+ * created. For each class file entry the offset of its local header, its compressed and uncompressed size and the
+ * compression method are recorded, so loading a class requires one hash lookup and one read from the mapped buffer.
+ * The package names of the jar file are computed within the same pass.
+ * </p>
+ * <p>
+ * Only plain zip files are supported. Encrypted entries are ignored and zip64 archives are rejected with an
+ * {@link IOException}, in which case the caller has to fall back to {@link java.util.jar.JarFile}.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class JarIndex {
+
+  /** signature of the 'end of central directory' record */
+  private static final int           END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+
+  /** signature of a central directory file header */
+  private static final int           CENTRAL_DIRECTORY_SIGNATURE        = 0x02014b50;
+
+  /** signature of a local file header */
+  private static final int           LOCAL_HEADER_SIGNATURE             = 0x04034b50;
+
+  /** the size of the 'end of central directory' record (without comment) */
+  private static final int           END_OF_CENTRAL_DIRECTORY_SIZE      = 22;
+
+  /** the size of a central directory file header (without variable fields) */
+  private static final int           CENTRAL_DIRECTORY_HEADER_SIZE      = 46;
+
+  /** the size of a local file header (without variable fields) */
+  private static final int           LOCAL_HEADER_SIZE                  = 30;
+
+  /** the maximum length of a zip file comment */
+  private static final int           MAX_COMMENT_SIZE                   = 0xFFFF;
+
+  /** compression method 'stored' */
+  private static final int           METHOD_STORED                      = 0;
+
+  /** compression method 'deflated' */
+  private static final int           METHOD_DEFLATED                    = 8;
+
+  /** the indexed jar file */
+  private File                       _jarFile;
+
+  /** the memory mapped content of the jar file */
+  private MappedByteBuffer           _buffer;
+
+  /** maps class file entry names to their entries */
+  private Map<String, IndexEntry>    _entries;
+
+  /** all packages (including parent packages) contained in the jar file */
+  private String[]                   _packages;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link JarIndex}.
+   * </p>
+   *
+   * @param jarFile
+   *          the jar file to index. Not <code>null</code>.
+   *
+   * @throws IOException
+   *           if the jar file could not be mapped or is not a supported zip file.
+   */
+  public JarIndex(File jarFile) throws IOException {
+    this(jarFile, new HashMap<String, IndexEntry>());
+    readCentralDirectory();
+  }
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link JarIndex} and maps the given jar file.
+   * </p>
+   *
+   * @param jarFile
+   *          the jar file to map. Not <code>null</code>.
+   * @param entries
+   *          the class file entries of the jar file. Not <code>null</code>.
+   *
+   * @throws IOException
+   *           if the jar file could not be mapped.
+   */
+  private JarIndex(File jarFile, Map<String, IndexEntry> entries) throws IOException {
+    Assure.isFile("jarFile", jarFile);
+
+    this._jarFile = jarFile;
+    this._entries = entries;
+
+    RandomAccessFile randomAccessFile = new RandomAccessFile(jarFile, "r");
+    try {
+      FileChannel channel = randomAccessFile.getChannel();
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("Jar file '" + jarFile + "' is too large to be mapped.");
+      }
+      this._buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      this._buffer.order(ByteOrder.LITTLE_ENDIAN);
+    } finally {
+      // the mapping stays valid after the channel has been closed
+      Utilities.close(randomAccessFile);
+    }
+  }
+
+  /**
+   * <p>
+   * Reads a previously written index (see {@link #write(DataOutputStream)}) and maps the given jar file. The caller is
+   * responsible to make sure that the index is up to date.
+   * </p>
+   *
+   * @param jarFile
+   *          the jar file. Not <code>null</code>.
+   * @param input
+   *          the stream to read the index from. Not <code>null</code>.
+   * @return the jar index. Not <code>null</code>.
+   *
+   * @throws IOException
+   *           if the index could not be read or the jar file could not be mapped.
+   */
+  public static JarIndex read(File jarFile, DataInputStream input) throws IOException {
+    Assure.notNull("input", input);
+
+    String[] packages = new String[input.readInt()];
+    for (int i = 0; i < packages.length; i++) {
+      packages[i] = input.readUTF();
+    }
+
+    int entryCount = input.readInt();
+    Map<String, IndexEntry> entries = new HashMap<String, IndexEntry>(Math.max(16, (int) (entryCount / 0.75f) + 1));
+    for (int i = 0; i < entryCount; i++) {
+      String name = input.readUTF();
+      entries.put(name, new IndexEntry(input.readInt(), input.readInt(), input.readInt(), input.readUnsignedShort()));
+    }
+
+    JarIndex result = new JarIndex(jarFile, entries);
+    result._packages = packages;
+    return result;
+  }
+
+  /**
+   * <p>
+   * Writes the package list and the class file entry table of this index to the given stream.
+   * </p>
+   *
+   * @param output
+   *          the stream to write the index to. Not <code>null</code>.
+   *
+   * @throws IOException
+   *           if the index could not be written.
+   */
+  public void write(DataOutputStream output) throws IOException {
+    Assure.notNull("output", output);
+
+    output.writeInt(this._packages.length);
+    for (String aPackage : this._packages) {
+      output.writeUTF(aPackage);
+    }
+
+    output.writeInt(this._entries.size());
+    for (Entry<String, IndexEntry> entry : this._entries.entrySet()) {
+      IndexEntry indexEntry = entry.getValue();
+      output.writeUTF(entry.getKey());
+      output.writeInt(indexEntry._localHeaderOffset);
+      output.writeInt(indexEntry._compressedSize);
+      output.writeInt(indexEntry._size);
+      output.writeShort(indexEntry._method);
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the indexed jar file.
+   * </p>
+   *
+   * @return the indexed jar file.
+   */
+  public File getJarFile() {
+    return this._jarFile;
+  }
+
+  /**
+   * <p>
+   * Returns the names of all packages (including the parent packages) that are contained in the jar file.
+   * </p>
+   *
+   * @return the names of all packages that are contained in the jar file.
+   */
+  public String[] getPackages() {
+    return this._packages;
+  }
+
+  /**
+   * <p>
+   * Returns <code>true</code> if the jar file contains a class file entry with the given name.
+   * </p>
+   *
+   * @param entryName
+   *          the name of the entry, e.g. <code>java/lang/Object.class</code>.
+   * @return <code>true</code> if the jar file contains a class file entry with the given name.
+   */
+  public boolean hasEntry(String entryName) {
+    return this._entries.containsKey(entryName);
+  }
+
+  /**
+   * <p>
+   * Returns the (uncompressed) content of the class file entry with the given name or <code>null</code> if no such entry
+   * exists.
+   * </p>
+   *
+   * @param entryName
+   *          the name of the entry, e.g. <code>java/lang/Object.class</code>.
+   * @return the content of the entry or <code>null</code>.
+   * @throws IOException
+   *           if the entry could not be read.
+   */
+  public byte[] getEntryContent(String entryName) throws IOException {
+
+    IndexEntry entry = this._entries.get(entryName);
+    if (entry == null) {
+      return null;
+    }
+
+    // the buffer is shared between threads, so we always work on a duplicate
+    ByteBuffer buffer = this._buffer.duplicate();
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+    int localHeader = entry._localHeaderOffset;
+    if (buffer.getInt(localHeader) != LOCAL_HEADER_SIGNATURE) {
+      throw new IOException("Invalid local header for entry '" + entryName + "' in jar file '" + this._jarFile + "'.");
+    }
+    int dataOffset = localHeader + LOCAL_HEADER_SIZE + getUnsignedShort(buffer, localHeader + 26)
+        + getUnsignedShort(buffer, localHeader + 28);
+
+    if (entry._method == METHOD_STORED) {
+      byte[] result = new byte[entry._size];
+      buffer.position(dataOffset);
+      buffer.get(result);
+      return result;
+    }
+
+    // the inflater (nowrap mode) requires an additional dummy byte at the end of the input
+    byte[] compressed = new byte[entry._compressedSize + 1];
+    buffer.position(dataOffset);
+    buffer.get(compressed, 0, entry._compressedSize);
+
+    byte[] result = new byte[entry._size];
+    Inflater inflater = new Inflater(true);
+    try {
+      inflater.setInput(compressed);
+      int offset = 0;
+      while (offset < result.length) {
+        int count = inflater.inflate(result, offset, result.length - offset);
+        if ((count == 0) && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        offset += count;
+      }
+      if (offset != result.length) {
+        throw new IOException("Unexpected end of entry '" + entryName + "' in jar file '" + this._jarFile + "'.");
+      }
+    } catch (DataFormatException ex) {
+      IOException ioex = new IOException("Corrupt entry '" + entryName + "' in jar file '" + this._jarFile + "'.");
+      ioex.initCause(ex);
+      throw ioex;
+    } finally {
+      inflater.end();
+    }
+    return result;
+  }
+
+  /**
+   * <p>
+   * Reads the central directory of the jar file and fills the entry index as well as the package list.
+   * </p>
+   *
+   * @throws IOException
+   *           if the jar file is not a supported zip file.
+   */
+  private void readCentralDirectory() throws IOException {
+
+    ByteBuffer buffer = this._buffer;
+    int limit = buffer.limit();
+
+    // step 1: locate the 'end of central directory' record
+    int endOfCentralDirectory = -1;
+    int lowerBound = Math.max(0, limit - END_OF_CENTRAL_DIRECTORY_SIZE - MAX_COMMENT_SIZE);
+    for (int i = limit - END_OF_CENTRAL_DIRECTORY_SIZE; i >= lowerBound; i--) {
+      if (buffer.getInt(i) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+        endOfCentralDirectory = i;
+        break;
+      }
+    }
+    if (endOfCentralDirectory == -1) {
+      throw new IOException("Jar file '" + this._jarFile + "' has no central directory.");
+    }
+
+    int entryCount = getUnsignedShort(buffer, endOfCentralDirectory + 10);
+    long centralDirectoryOffset = getUnsignedInt(buffer, endOfCentralDirectory + 16);
+    if ((entryCount == 0xFFFF) || (centralDirectoryOffset == 0xFFFFFFFFL)) {
+      throw new IOException("Jar file '" + this._jarFile + "' is a zip64 archive.");
+    }
+
+    // step 2: iterate over all central directory headers
+    Set<String> packages = new LinkedHashSet<String>();
+    int offset = (int) centralDirectoryOffset;
+    for (int i = 0; i < entryCount; i++) {
+
+      if (buffer.getInt(offset) != CENTRAL_DIRECTORY_SIGNATURE) {
+        throw new IOException("Invalid central directory in jar file '" + this._jarFile + "'.");
+      }
+
+      int flags = getUnsignedShort(buffer, offset + 8);
+      int method = getUnsignedShort(buffer, offset + 10);
+      long compressedSize = getUnsignedInt(buffer, offset + 20);
+      long size = getUnsignedInt(buffer, offset + 24);
+      int nameLength = getUnsignedShort(buffer, offset + 28);
+      int extraLength = getUnsignedShort(buffer, offset + 30);
+      int commentLength = getUnsignedShort(buffer, offset + 32);
+      long localHeaderOffset = getUnsignedInt(buffer, offset + 42);
+
+      String name = getString(buffer, offset + CENTRAL_DIRECTORY_HEADER_SIZE, nameLength);
+
+      addPackages(name, packages);
+
+      // we only index class files which are neither encrypted nor compressed with an unsupported method
+      boolean encrypted = (flags & 1) != 0;
+      boolean supported = (method == METHOD_STORED) || (method == METHOD_DEFLATED);
+      if (name.endsWith(".class") && !encrypted && supported) {
+        if ((compressedSize == 0xFFFFFFFFL) || (size == 0xFFFFFFFFL) || (localHeaderOffset == 0xFFFFFFFFL)) {
+          throw new IOException("Jar file '" + this._jarFile + "' is a zip64 archive.");
+        }
+        this._entries.put(name, new IndexEntry((int) localHeaderOffset, (int) compressedSize, (int) size, method));
+      }
+
+      offset += CENTRAL_DIRECTORY_HEADER_SIZE + nameLength + extraLength + commentLength;
+    }
+
+    this._packages = packages.toArray(new String[packages.size()]);
+  }
+
+  /**
+   * <p>
+   * Adds the package of the given entry as well as all parent packages to the given set.
+   * </p>
+   *
+   * @param entryName
+   *          the name of the jar entry.
+   * @param packages
+   *          the set of packages.
+   */
+  static void addPackages(String entryName, Set<String> packages) {
+
+    // the directory name is the name of the entry itself (directories) or the name of the parent (files)
+    int splitIndex = entryName.lastIndexOf('/');
+    if (splitIndex <= 0) {
+      // top level entry
+      return;
+    }
+
+    String packageName = entryName.substring(0, splitIndex).replace('/', '.');
+
+    // add package with all the parent packages (!)
+    int index = packageName.length();
+    while (index > 0) {
+      String aPackage = packageName.substring(0, index);
+      if (!packages.add(aPackage)) {
+        // the parent packages have already been added as well
+        break;
+      }
+      index = aPackage.lastIndexOf('.');
+    }
+  }
+
+  private static int getUnsignedShort(ByteBuffer buffer, int index) {
+    return buffer.getShort(index) & 0xFFFF;
+  }
+
+  private static long getUnsignedInt(ByteBuffer buffer, int index) {
+    return buffer.getInt(index) & 0xFFFFFFFFL;
+  }
+
+  private static String getString(ByteBuffer buffer, int index, int length) throws UnsupportedEncodingException {
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = buffer.get(index + i);
+    }
+    return new String(bytes, "UTF-8");
+  }
+
+  /**
+   * <p>
+   * Describes a single class file entry within the mapped jar file.
+   * </p>
+   */
+  private static class IndexEntry {
+
+    /** the offset of the local file header */
+    private int _localHeaderOffset;
+
+    /** the compressed size */
+    private int _compressedSize;
+
+    /** the uncompressed size */
+    private int _size;
+
+    /** the compression method */
+    private int _method;
+
+    public IndexEntry(int localHeaderOffset, int compressedSize, int size, int method) {
+      this._localHeaderOffset = localHeaderOffset;
+      this._compressedSize = compressedSize;
+      this._size = size;
+      this._method = method;
+    }
+  }
+}
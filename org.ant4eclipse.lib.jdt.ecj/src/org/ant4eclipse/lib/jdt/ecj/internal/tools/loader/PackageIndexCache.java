@@ -0,0 +1,297 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools.loader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.ant4eclipse.lib.core.Assure;
+import org.ant4eclipse.lib.core.Lifecycle;
+import org.ant4eclipse.lib.core.logging.A4ELogging;
+import org.ant4eclipse.lib.core.service.ServiceRegistryAccess;
+import org.ant4eclipse.lib.core.util.Utilities;
+
+/**
+ * <p>
+ * Persistent, versioned on-disk cache for the package lists and class file entry tables of class path entries. The
+ * cache allows class file loaders to start without enumerating the entries of each jar file or walking each output
+ * directory on the second and later builds.
+ * </p>
+ * <p>
+ * Jar files are validated by their path, size and modification time (and optionally by their SHA-1 hash, see
+ * <code>ant4eclipse.packageIndexCache.verifyContent</code>). Directories are validated by the modification times of the
+ * directory itself and of each package directory, since adding or removing a package changes the modification time of
+ * its parent. Stale entries are replaced automatically.
+ * </p>
+ * <p>
+ * The cache is located in the <code>package-index</code> subdirectory of the ant4eclipse cache directory (see
+ * {@link Utilities#getCacheDir(String)}).
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class PackageIndexCache implements Lifecycle {
+
+  /**
+   * System-Property that enables the verification of cached jar file indexes by the SHA-1 hash of the jar file content
+   */
+  private static final boolean VERIFY_CONTENT = Boolean.getBoolean("ant4eclipse.packageIndexCache.verifyContent");
+
+  /** the magic number of all cache files */
+  private static final int     MAGIC          = 0x41344549;
+
+  /** the version of the cache file format */
+  private static final int     VERSION        = 1;
+
+  /** the kind of cache files for jar files */
+  private static final byte    KIND_JAR       = 1;
+
+  /** the kind of cache files for directories */
+  private static final byte    KIND_DIRECTORY = 2;
+
+  /** the cache directory (<code>null</code> if the cache is disabled) */
+  private File                 _cacheDirectory;
+
+  /** - */
+  private boolean              _initialized;
+
+  /**
+   * {@inheritDoc}
+   */
+  public boolean isInitialized() {
+    return this._initialized;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public void initialize() {
+    this._cacheDirectory = Utilities.getCacheDir("package-index");
+    this._initialized = true;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public void dispose() {
+    this._initialized = false;
+  }
+
+  /**
+   * <p>
+   * Returns <code>true</code> if the persistent cache is enabled.
+   * </p>
+   *
+   * @return <code>true</code> if the persistent cache is enabled.
+   */
+  public boolean isEnabled() {
+    return this._cacheDirectory != null;
+  }
+
+  /**
+   * <p>
+   * Returns the index for the given jar file. If the cache contains an up-to-date index it is used, otherwise the jar
+   * file is indexed and the result is stored in the cache.
+   * </p>
+   *
+   * @param jarFile
+   *          the jar file. Not <code>null</code>.
+   * @return the index for the given jar file. Not <code>null</code>.
+   * @throws IOException
+   *           if the jar file could not be indexed.
+   */
+  public JarIndex getJarIndex(File jarFile) throws IOException {
+    Assure.isFile("jarFile", jarFile);
+
+    if (!isEnabled()) {
+      return new JarIndex(jarFile);
+    }
+
+    File cacheFile = getCacheFile(jarFile);
+    long length = jarFile.length();
+    long lastModified = jarFile.lastModified();
+
+    // step 1: try to read the index from the cache
+    if (cacheFile.isFile()) {
+      DataInputStream input = null;
+      try {
+        input = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+        if (readHeader(input, KIND_JAR, jarFile) && (input.readLong() == length)
+            && (input.readLong() == lastModified)) {
+          String hash = input.readUTF();
+          if (!VERIFY_CONTENT || hash.equals(Utilities.sha1(jarFile))) {
+            return JarIndex.read(jarFile, input);
+          }
+        }
+      } catch (IOException ex) {
+        A4ELogging.debug("Could not read cached package index '%s': %s", cacheFile, ex.getMessage());
+      } finally {
+        Utilities.close((Closeable) input);
+      }
+      A4ELogging.debug("Cached package index for '%s' is stale.", jarFile);
+    }
+
+    // step 2: index the jar file and store the result
+    JarIndex result = new JarIndex(jarFile);
+    DataOutputStream output = null;
+    File tempFile = null;
+    try {
+      tempFile = File.createTempFile("index", ".tmp", this._cacheDirectory);
+      output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+      writeHeader(output, KIND_JAR, jarFile);
+      output.writeLong(length);
+      output.writeLong(lastModified);
+      output.writeUTF(VERIFY_CONTENT ? Utilities.sha1(jarFile) : "");
+      result.write(output);
+      output.close();
+      output = null;
+      Utilities.replaceFile(tempFile, cacheFile);
+      tempFile = null;
+    } catch (IOException ex) {
+      A4ELogging.debug("Could not write cached package index '%s': %s", cacheFile, ex.getMessage());
+    } finally {
+      Utilities.close((Closeable) output);
+      if (tempFile != null) {
+        tempFile.delete();
+      }
+    }
+    return result;
+  }
+
+  /**
+   * <p>
+   * Returns the cached packages of the given directory or <code>null</code> if the cache doesn't contain an up-to-date
+   * package list for this directory.
+   * </p>
+   *
+   * @param directory
+   *          the directory. Not <code>null</code>.
+   * @return the cached packages or <code>null</code>.
+   */
+  public String[] getDirectoryPackages(File directory) {
+    Assure.isDirectory("directory", directory);
+
+    if (!isEnabled()) {
+      return null;
+    }
+
+    File cacheFile = getCacheFile(directory);
+    if (!cacheFile.isFile()) {
+      return null;
+    }
+
+    DataInputStream input = null;
+    try {
+      input = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+      if (!readHeader(input, KIND_DIRECTORY, directory) || (input.readLong() != directory.lastModified())) {
+        return null;
+      }
+      String[] result = new String[input.readInt()];
+      for (int i = 0; i < result.length; i++) {
+        result[i] = input.readUTF();
+        File packageDirectory = new File(directory, result[i].replace('.', File.separatorChar));
+        if (input.readLong() != packageDirectory.lastModified()) {
+          A4ELogging.debug("Cached package index for '%s' is stale.", directory);
+          return null;
+        }
+      }
+      return result;
+    } catch (IOException ex) {
+      A4ELogging.debug("Could not read cached package index '%s': %s", cacheFile, ex.getMessage());
+      return null;
+    } finally {
+      Utilities.close((Closeable) input);
+    }
+  }
+
+  /**
+   * <p>
+   * Stores the packages of the given directory in the cache.
+   * </p>
+   *
+   * @param directory
+   *          the directory. Not <code>null</code>.
+   * @param packages
+   *          the packages of the directory. Not <code>null</code>.
+   */
+  public void storeDirectoryPackages(File directory, String[] packages) {
+    Assure.isDirectory("directory", directory);
+    Assure.notNull("packages", packages);
+
+    if (!isEnabled()) {
+      return;
+    }
+
+    File cacheFile = getCacheFile(directory);
+    DataOutputStream output = null;
+    File tempFile = null;
+    try {
+      tempFile = File.createTempFile("index", ".tmp", this._cacheDirectory);
+      output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+      writeHeader(output, KIND_DIRECTORY, directory);
+      output.writeLong(directory.lastModified());
+      output.writeInt(packages.length);
+      for (String aPackage : packages) {
+        output.writeUTF(aPackage);
+        output.writeLong(new File(directory, aPackage.replace('.', File.separatorChar)).lastModified());
+      }
+      output.close();
+      output = null;
+      Utilities.replaceFile(tempFile, cacheFile);
+      tempFile = null;
+    } catch (IOException ex) {
+      A4ELogging.debug("Could not write cached package index '%s': %s", cacheFile, ex.getMessage());
+    } finally {
+      Utilities.close((Closeable) output);
+      if (tempFile != null) {
+        tempFile.delete();
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the cache file for the given class path entry.
+   * </p>
+   *
+   * @param file
+   *          the class path entry
+   * @return the cache file
+   */
+  private File getCacheFile(File file) {
+    String path = Utilities.getCanonicalFile(file).getPath();
+    return new File(this._cacheDirectory, Utilities.sha1(path) + ".idx");
+  }
+
+  private void writeHeader(DataOutputStream output, byte kind, File file) throws IOException {
+    output.writeInt(MAGIC);
+    output.writeInt(VERSION);
+    output.writeByte(kind);
+    output.writeUTF(Utilities.getCanonicalFile(file).getPath());
+  }
+
+  private boolean readHeader(DataInputStream input, byte kind, File file) throws IOException {
+    return (input.readInt() == MAGIC) && (input.readInt() == VERSION) && (input.readByte() == kind)
+        && input.readUTF().equals(Utilities.getCanonicalFile(file).getPath());
+  }
+
+  public static PackageIndexCache getInstance() {
+    return ServiceRegistryAccess.instance().getService(PackageIndexCache.class);
+  }
+}
@@ -0,0 +1,262 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools.loader;
+
+import org.ant4eclipse.lib.core.Assure;
+
+/**
+ * <p>
+ * Hash table that maps package names (or other qualified names, e.g. class names) to values. In addition to the usual lookup by name (e.g.
+ * <code>"java.lang"</code>), packages can be looked up by the compound names used by the eclipse java compiler (e.g.
+ * <code>{ "java", "lang" }</code>) without creating any intermediate objects.
+ * </p>
+ * <p>
+ * The hash of a compound name is computed directly from its segments (separated by a virtual <code>'.'</code>) and is
+ * equal to the {@link String#hashCode() hash code} of the corresponding package name, so the hashes of all stored
+ * package names are computed only once when they are added.
+ * </p>
+ * <p>
+ * This class is not thread safe with respect to modifications. Instances that are no longer modified can be read
+ * concurrently.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class PackageTable<V> {
+
+  /** the package names (open addressing, <code>null</code> marks a free slot) */
+  private String[] _keys;
+
+  /** the precomputed hashes of the package names */
+  private int[]    _hashes;
+
+  /** the values */
+  private Object[] _values;
+
+  /** the number of packages */
+  private int      _size;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link PackageTable}.
+   * </p>
+   */
+  public PackageTable() {
+    this._keys = new String[16];
+    this._hashes = new int[16];
+    this._values = new Object[16];
+  }
+
+  /**
+   * <p>
+   * Returns the number of packages in this table.
+   * </p>
+   *
+   * @return the number of packages in this table.
+   */
+  public int size() {
+    return this._size;
+  }
+
+  /**
+   * <p>
+   * Returns the names of all packages in this table.
+   * </p>
+   *
+   * @return the names of all packages in this table. Not <code>null</code>.
+   */
+  public String[] getPackageNames() {
+    String[] result = new String[this._size];
+    int index = 0;
+    for (String key : this._keys) {
+      if (key != null) {
+        result[index++] = key;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * <p>
+   * Associates the given value with the given package name.
+   * </p>
+   *
+   * @param packageName
+   *          the package name, e.g. <code>java.lang</code>. Not <code>null</code>.
+   * @param value
+   *          the value. Not <code>null</code>.
+   */
+  public void put(String packageName, V value) {
+    Assure.notNull("packageName", packageName);
+    Assure.notNull("value", value);
+
+    int hash = packageName.hashCode();
+    int mask = this._keys.length - 1;
+    int index = hash & mask;
+    while (this._keys[index] != null) {
+      if ((this._hashes[index] == hash) && this._keys[index].equals(packageName)) {
+        this._values[index] = value;
+        return;
+      }
+      index = (index + 1) & mask;
+    }
+
+    this._keys[index] = packageName;
+    this._hashes[index] = hash;
+    this._values[index] = value;
+    this._size++;
+
+    // keep the load factor below 0.5
+    if (this._size * 2 > this._keys.length) {
+      rehash();
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the value that is associated with the given package name or <code>null</code>.
+   * </p>
+   *
+   * @param packageName
+   *          the package name, e.g. <code>java.lang</code>.
+   * @return the value or <code>null</code>.
+   */
+  public V get(String packageName) {
+    if (packageName == null) {
+      return null;
+    }
+    int hash = packageName.hashCode();
+    int mask = this._keys.length - 1;
+    int index = hash & mask;
+    String key;
+    while ((key = this._keys[index]) != null) {
+      if ((this._hashes[index] == hash) && key.equals(packageName)) {
+        return value(index);
+      }
+      index = (index + 1) & mask;
+    }
+    return null;
+  }
+
+  /**
+   * <p>
+   * Returns the value that is associated with the package that consists of the first <code>count</code> segments of
+   * the given compound name or <code>null</code>.
+   * </p>
+   *
+   * @param compoundName
+   *          the compound name, e.g. <code>{ "java", "lang", "Object" }</code>. Not <code>null</code>.
+   * @param count
+   *          the number of segments that form the package name, e.g. <code>2</code>.
+   * @return the value or <code>null</code>.
+   */
+  public V get(char[][] compoundName, int count) {
+    int hash = hash(compoundName, count);
+    int mask = this._keys.length - 1;
+    int index = hash & mask;
+    String key;
+    while ((key = this._keys[index]) != null) {
+      if ((this._hashes[index] == hash) && equals(key, compoundName, count)) {
+        return value(index);
+      }
+      index = (index + 1) & mask;
+    }
+    return null;
+  }
+
+  /**
+   * <p>
+   * Computes the hash of the package that consists of the first <code>count</code> segments of the given compound name.
+   * The result is equal to the {@link String#hashCode() hash code} of the corresponding package name.
+   * </p>
+   *
+   * @param compoundName
+   *          the compound name.
+   * @param count
+   *          the number of segments.
+   * @return the hash.
+   */
+  static int hash(char[][] compoundName, int count) {
+    int hash = 0;
+    for (int i = 0; i < count; i++) {
+      if (i > 0) {
+        hash = 31 * hash + '.';
+      }
+      char[] segment = compoundName[i];
+      for (char c : segment) {
+        hash = 31 * hash + c;
+      }
+    }
+    return hash;
+  }
+
+  /**
+   * <p>
+   * Returns <code>true</code> if the given package name equals the package that consists of the first
+   * <code>count</code> segments of the given compound name.
+   * </p>
+   */
+  private static boolean equals(String packageName, char[][] compoundName, int count) {
+    int position = 0;
+    int length = packageName.length();
+    for (int i = 0; i < count; i++) {
+      if (i > 0) {
+        if ((position >= length) || (packageName.charAt(position++) != '.')) {
+          return false;
+        }
+      }
+      char[] segment = compoundName[i];
+      if (position + segment.length > length) {
+        return false;
+      }
+      for (char c : segment) {
+        if (packageName.charAt(position++) != c) {
+          return false;
+        }
+      }
+    }
+    return position == length;
+  }
+
+  @SuppressWarnings("unchecked")
+  private V value(int index) {
+    return (V) this._values[index];
+  }
+
+  /**
+   * <p>
+   * Doubles the capacity of this table.
+   * </p>
+   */
+  private void rehash() {
+    String[] keys = this._keys;
+    int[] hashes = this._hashes;
+    Object[] values = this._values;
+
+    this._keys = new String[keys.length * 2];
+    this._hashes = new int[keys.length * 2];
+    this._values = new Object[keys.length * 2];
+
+    int mask = this._keys.length - 1;
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != null) {
+        int index = hashes[i] & mask;
+        while (this._keys[index] != null) {
+          index = (index + 1) & mask;
+        }
+        this._keys[index] = keys[i];
+        this._hashes[index] = hashes[i];
+        this._values[index] = values[i];
+      }
+    }
+  }
+}
@@ -11,12 +11,29 @@
  **********************************************************************/
 package org.ant4eclipse.lib.jdt;
 
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.ClassFileWriterTest;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.IncrementalCompilerTest;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.ParallelCompileJobExecutorTest;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.loader.AccessRulePatternTest;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.loader.BloomFilterTest;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.loader.ClassFileLoaderCacheTest;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.loader.JarFilePoolTest;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.loader.PackageIndexCacheTest;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.loader.PackageTableTest;
+import org.ant4eclipse.lib.jdt.internal.model.jre.JavaProfileImplTest;
+import org.ant4eclipse.lib.jdt.internal.model.jre.JavaRuntimeProbeCacheTest;
 import org.ant4eclipse.lib.jdt.internal.model.userlibrary.UserLibrariesFileParserImplTest;
+import org.ant4eclipse.lib.jdt.internal.tools.ResolvedClasspathImplTest;
 import org.ant4eclipse.lib.jdt.tools.BuildOrderResolverTest;
+import org.ant4eclipse.lib.jdt.tools.JdtResolverCacheTest;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
 @RunWith(Suite.class)
-@Suite.SuiteClasses( { BuildOrderResolverTest.class, UserLibrariesFileParserImplTest.class })
+@Suite.SuiteClasses( { BuildOrderResolverTest.class, JdtResolverCacheTest.class, UserLibrariesFileParserImplTest.class,
+    PackageTableTest.class, BloomFilterTest.class, AccessRulePatternTest.class, JavaProfileImplTest.class,
+    JarFilePoolTest.class, ClassFileLoaderCacheTest.class, IncrementalCompilerTest.class, ClassFileWriterTest.class,
+    JavaRuntimeProbeCacheTest.class, ResolvedClasspathImplTest.class, PackageIndexCacheTest.class,
+    ParallelCompileJobExecutorTest.class })
 public class AllJDTTests {
 } /* ENDCLASS */
@@ -0,0 +1,107 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.ant4eclipse.testframework.TestDirectory;
+import org.junit.Test;
+
+public class ClassFileWriterTest extends ConfigurableAnt4EclipseTestCase {
+
+  /** a time stamp that is older than any file created by the tests */
+  private static final long OLD = 1000000000000L;
+
+  private TestDirectory     _testDirectory;
+
+  @Override
+  public void setup() {
+    super.setup();
+
+    this._testDirectory = new TestDirectory();
+    this._testDirectory.createSubDirectory("bin/p");
+  }
+
+  @Override
+  public void dispose() {
+    this._testDirectory.dispose();
+
+    super.dispose();
+  }
+
+  @Test
+  public void newClassFile() {
+    File classFile = new File(this._testDirectory.getRootDir(), "bin/q/A.class");
+
+    ClassFileWriter writer = new ClassFileWriter();
+    writer.write(classFile, "abc".getBytes());
+    assertTrue(writer.close());
+
+    assertEquals(1, writer.getWritten());
+    assertEquals(0, writer.getUnchanged());
+    assertEquals("abc", Utilities.readTextContent(classFile, Utilities.ENCODING, false).toString());
+  }
+
+  @Test
+  public void unchangedClassFile() {
+    File classFile = this._testDirectory.createFile("bin/p/A.class", "abc");
+    assertTrue(classFile.setLastModified(OLD));
+    long lastModified = classFile.lastModified();
+
+    ClassFileWriter writer = new ClassFileWriter();
+    writer.write(classFile, "abc".getBytes());
+    assertTrue(writer.close());
+
+    // neither the content nor the time stamp is touched
+    assertEquals(0, writer.getWritten());
+    assertEquals(1, writer.getUnchanged());
+    assertEquals(lastModified, classFile.lastModified());
+  }
+
+  @Test
+  public void copyClassFile() {
+    this._testDirectory.createSubDirectory("out/p");
+    File source = this._testDirectory.createFile("out/p/A.class", "abc");
+    File unchanged = this._testDirectory.createFile("bin/p/A.class", "abc");
+    assertTrue(unchanged.setLastModified(OLD));
+    long lastModified = unchanged.lastModified();
+    File created = new File(this._testDirectory.getRootDir(), "bin/q/A.class");
+
+    ClassFileWriter writer = new ClassFileWriter();
+    writer.copy(source, unchanged);
+    writer.copy(source, created);
+    assertTrue(writer.close());
+
+    assertEquals(1, writer.getWritten());
+    assertEquals(1, writer.getUnchanged());
+    assertEquals(lastModified, unchanged.lastModified());
+    assertEquals("abc", Utilities.readTextContent(created, Utilities.ENCODING, false).toString());
+  }
+
+  @Test
+  public void changedClassFile() {
+    File classFile = this._testDirectory.createFile("bin/p/A.class", "abc");
+
+    ClassFileWriter writer = new ClassFileWriter();
+    writer.write(classFile, "abd".getBytes());
+    assertTrue(writer.close());
+
+    assertEquals(1, writer.getWritten());
+    assertEquals(0, writer.getUnchanged());
+    assertEquals("abd", Utilities.readTextContent(classFile, Utilities.ENCODING, false).toString());
+  }
+}
@@ -0,0 +1,200 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.lib.jdt.ecj.ClassFileLoader;
+import org.ant4eclipse.lib.jdt.ecj.CompileJobResult;
+import org.ant4eclipse.lib.jdt.ecj.DefaultCompileJobDescription;
+import org.ant4eclipse.lib.jdt.ecj.EcjAdapter;
+import org.ant4eclipse.lib.jdt.ecj.SourceFile;
+import org.ant4eclipse.lib.jdt.ecj.SourceFileFactory;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.loader.ClasspathClassFileLoaderImpl;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.loader.CompoundClassFileLoaderImpl;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.ant4eclipse.testframework.TestDirectory;
+import org.junit.Test;
+
+public class IncrementalCompilerTest extends ConfigurableAnt4EclipseTestCase {
+
+  private TestDirectory _testDirectory;
+
+  private File          _upstreamSource;
+
+  private File          _upstreamOutput;
+
+  private File          _source;
+
+  private File          _output;
+
+  private int           _upstreamCompilations;
+
+  @Override
+  public void setup() {
+    super.setup();
+
+    this._testDirectory = new TestDirectory();
+    this._upstreamSource = this._testDirectory.createSubDirectory("upstream/src");
+    this._upstreamOutput = this._testDirectory.createSubDirectory("upstream/bin");
+    this._source = this._testDirectory.createSubDirectory("project/src");
+    this._output = this._testDirectory.createSubDirectory("project/bin");
+
+    writeSource(this._upstreamSource, "up/Up.java", "package up; public class Up { public int foo() { return 1; } }");
+    compileUpstream();
+
+    writeSource(this._source, "p/A.java", "package p; public class A { Object a() { return new up.Up().foo(); } }");
+    writeSource(this._source, "p/B.java", "package p; public class B { public int b() { return 1; } }");
+    writeSource(this._source, "p/C.java", "package p; public class C { Object c() { return new B().b(); } }");
+    writeSource(this._source, "p/D.java", "package p; public class D { }");
+  }
+
+  @Override
+  public void dispose() {
+    this._testDirectory.dispose();
+
+    super.dispose();
+  }
+
+  @Test
+  public void unchanged() {
+    assertEquals(set("p/A.class", "p/B.class", "p/C.class", "p/D.class"), compileIncrementally(true));
+    assertEquals(set(), compileIncrementally(true));
+  }
+
+  @Test
+  public void changedSourceFile() {
+    compileIncrementally(true);
+
+    // a change of the method body doesn't affect the dependent source files
+    writeSource(this._source, "p/B.java", "package p; public class B { public int b() { return 2; } }");
+    assertEquals(set("p/B.class"), compileIncrementally(true));
+
+    // a change of the signature does
+    writeSource(this._source, "p/B.java", "package p; public class B { public long b() { return 2; } }");
+    assertEquals(set("p/B.class", "p/C.class"), compileIncrementally(true));
+  }
+
+  @Test
+  public void deletedSourceFile() {
+    compileIncrementally(true);
+
+    assertTrue(new File(this._source, "p/B.java").delete());
+
+    // C can't be compiled without B
+    assertEquals(set(), compileIncrementally(false));
+    assertFalse(new File(this._output, "p/B.class").exists());
+    assertFalse(new File(this._output, "p/C.class").exists());
+    assertTrue(new File(this._output, "p/A.class").exists());
+  }
+
+  @Test
+  public void changedUpstreamType() {
+    compileIncrementally(true);
+
+    // a change of the method body of an upstream type doesn't affect the source files
+    writeSource(this._upstreamSource, "up/Up.java", "package up; public class Up { public int foo() { return 2; } }");
+    compileUpstream();
+    assertEquals(set(), compileIncrementally(true));
+
+    // a change of the signature does
+    writeSource(this._upstreamSource, "up/Up.java", "package up; public class Up { public long foo() { return 2; } }");
+    compileUpstream();
+    assertEquals(set("p/A.class"), compileIncrementally(true));
+  }
+
+  @Test
+  public void removedUpstreamType() {
+    compileIncrementally(true);
+
+    assertTrue(new File(this._upstreamOutput, "up/Up.class").delete());
+    assertEquals(set(), compileIncrementally(false));
+    assertFalse(new File(this._output, "p/A.class").exists());
+  }
+
+  private Set<String> compileIncrementally(boolean expectSuccess) {
+    List<SourceFile> sourceFiles = new ArrayList<SourceFile>();
+    for (String name : new String[] { "A", "B", "C", "D" }) {
+      if (new File(this._source, "p/" + name + ".java").isFile()) {
+        sourceFiles.add(SourceFileFactory.createSourceFile(this._source, "p/" + name + ".java", this._output));
+      }
+    }
+    ClassFileLoader classFileLoader = new CompoundClassFileLoaderImpl(new ClassFileLoader[] { getJreClassFileLoader(),
+        new ClasspathClassFileLoaderImpl(this._upstreamOutput, EcjAdapter.LIBRARY) });
+    CompileJobResult result = new EcjAdapterImpl().compileIncrementally(createDescription(classFileLoader,
+        sourceFiles));
+    assertEquals(expectSuccess, result.succeeded());
+    return new TreeSet<String>(result.getCompiledClassFiles().keySet());
+  }
+
+  private void compileUpstream() {
+    SourceFile sourceFile = SourceFileFactory.createSourceFile(this._upstreamSource, "up/Up.java",
+        this._upstreamOutput);
+    CompileJobResult result = new EcjAdapterImpl().compile(createDescription(getJreClassFileLoader(), Collections
+        .singletonList(sourceFile)));
+    assertTrue(result.succeeded());
+
+    // make sure that the modification is detected
+    this._upstreamCompilations++;
+    new File(this._upstreamOutput, "up/Up.class").setLastModified(System.currentTimeMillis() + 10000
+        * this._upstreamCompilations);
+  }
+
+  private DefaultCompileJobDescription createDescription(ClassFileLoader classFileLoader, List<SourceFile> sourceFiles) {
+    Map<String, String> compilerOptions = new HashMap<String, String>();
+    compilerOptions.put("org.eclipse.jdt.core.compiler.source", "1.5");
+    compilerOptions.put("org.eclipse.jdt.core.compiler.compliance", "1.5");
+    compilerOptions.put("org.eclipse.jdt.core.compiler.codegen.targetPlatform", "1.5");
+
+    DefaultCompileJobDescription description = new DefaultCompileJobDescription();
+    description.setClassFileLoader(classFileLoader);
+    description.setCompilerOptions(compilerOptions);
+    description.setSourceFiles(sourceFiles.toArray(new SourceFile[sourceFiles.size()]));
+    return description;
+  }
+
+  private ClassFileLoader getJreClassFileLoader() {
+    return new ClasspathClassFileLoaderImpl(new File(System.getProperty("java.home"), "lib/rt.jar"),
+        EcjAdapter.LIBRARY);
+  }
+
+  private void writeSource(File sourceFolder, String name, String content) {
+    File file = new File(sourceFolder, name);
+    long lastModified = file.lastModified();
+    Utilities.mkdirs(file.getParentFile());
+    Utilities.writeFile(file, content, Utilities.ENCODING);
+    if (lastModified != 0) {
+      // make sure that the modification is detected
+      file.setLastModified(lastModified + 10000);
+    }
+  }
+
+  private static Set<String> set(String... values) {
+    Set<String> result = new TreeSet<String>();
+    for (String value : values) {
+      result.add(value);
+    }
+    return result;
+  }
+}
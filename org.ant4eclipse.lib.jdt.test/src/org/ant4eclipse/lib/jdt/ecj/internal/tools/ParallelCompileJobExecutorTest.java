@@ -0,0 +1,163 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.lib.jdt.ecj.ClassFileLoader;
+import org.ant4eclipse.lib.jdt.ecj.CompileJobResult;
+import org.ant4eclipse.lib.jdt.ecj.DefaultProjectCompileJobDescription;
+import org.ant4eclipse.lib.jdt.ecj.EcjAdapter;
+import org.ant4eclipse.lib.jdt.ecj.ProjectCompileJobDescription;
+import org.ant4eclipse.lib.jdt.ecj.SourceFile;
+import org.ant4eclipse.lib.jdt.ecj.SourceFileFactory;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.loader.ClasspathClassFileLoaderImpl;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.loader.CompoundClassFileLoaderImpl;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.ant4eclipse.testframework.TestDirectory;
+import org.junit.Test;
+
+public class ParallelCompileJobExecutorTest extends ConfigurableAnt4EclipseTestCase {
+
+  private TestDirectory _testDirectory;
+
+  @Override
+  public void setup() {
+    super.setup();
+
+    this._testDirectory = new TestDirectory();
+  }
+
+  @Override
+  public void dispose() {
+    this._testDirectory.dispose();
+
+    super.dispose();
+  }
+
+  @Test
+  public void dependentAndIndependentProjects() {
+    // 'base' and 'independent' can be compiled concurrently, 'dependent' requires the output of 'base'
+    ProjectCompileJobDescription base = createDescription("base", "base/Base.java",
+        "package base; public class Base { public int foo() { return 1; } }");
+    ProjectCompileJobDescription dependent = createDescription("dependent", "dependent/Dependent.java",
+        "package dependent; public class Dependent extends base.Base { public int bar() { return foo(); } }", "base");
+    ProjectCompileJobDescription independent = createDescription("independent", "independent/Independent.java",
+        "package independent; public class Independent { }");
+
+    // the dependent project is passed first, its class file loader is created before the output of 'base' exists
+    CompileJobResult[] results = new EcjAdapterImpl().compile(new ProjectCompileJobDescription[] { dependent,
+        independent, base }, 2);
+
+    assertEquals(3, results.length);
+    for (CompileJobResult result : results) {
+      assertTrue(result.succeeded());
+    }
+    assertEquals(set("dependent/Dependent.class"), results[0].getCompiledClassFiles().keySet());
+    assertEquals(set("independent/Independent.class"), results[1].getCompiledClassFiles().keySet());
+    assertEquals(set("base/Base.class"), results[2].getCompiledClassFiles().keySet());
+    assertTrue(new File(this._testDirectory.getRootDir(), "dependent/bin/dependent/Dependent.class").isFile());
+  }
+
+  @Test
+  public void singleThread() {
+    ProjectCompileJobDescription base = createDescription("base", "base/Base.java",
+        "package base; public class Base { }");
+    ProjectCompileJobDescription dependent = createDescription("dependent", "dependent/Dependent.java",
+        "package dependent; public class Dependent extends base.Base { }", "base", "unknown");
+
+    CompileJobResult[] results = new EcjAdapterImpl().compile(new ProjectCompileJobDescription[] { dependent, base },
+        1);
+
+    assertTrue(results[0].succeeded());
+    assertTrue(results[1].succeeded());
+  }
+
+  @Test
+  public void cyclicRequirements() {
+    ProjectCompileJobDescription first = createDescription("first", "first/First.java",
+        "package first; public class First { }", "second");
+    ProjectCompileJobDescription second = createDescription("second", "second/Second.java",
+        "package second; public class Second { }", "first");
+
+    try {
+      new EcjAdapterImpl().compile(new ProjectCompileJobDescription[] { first, second }, 2);
+      fail();
+    } catch (Ant4EclipseException ex) {
+      // expected
+    }
+  }
+
+  @Test
+  public void duplicateNames() {
+    ProjectCompileJobDescription first = createDescription("same", "first/First.java",
+        "package first; public class First { }");
+    ProjectCompileJobDescription second = createDescription("same", "second/Second.java",
+        "package second; public class Second { }");
+
+    try {
+      new EcjAdapterImpl().compile(new ProjectCompileJobDescription[] { first, second }, 2);
+      fail();
+    } catch (Ant4EclipseException ex) {
+      // expected
+    }
+  }
+
+  private ProjectCompileJobDescription createDescription(String name, String sourceFileName, String content,
+      String... requiredJobs) {
+    File source = this._testDirectory.createSubDirectory(name + "/src");
+    File output = this._testDirectory.createSubDirectory(name + "/bin");
+    File file = new File(source, sourceFileName);
+    Utilities.mkdirs(file.getParentFile());
+    Utilities.writeFile(file, content, Utilities.ENCODING);
+
+    // the class path contains the output folders of the required projects
+    ClassFileLoader[] classFileLoaders = new ClassFileLoader[requiredJobs.length + 1];
+    classFileLoaders[0] = new ClasspathClassFileLoaderImpl(new File(System.getProperty("java.home"), "lib/rt.jar"),
+        EcjAdapter.LIBRARY);
+    for (int i = 0; i < requiredJobs.length; i++) {
+      classFileLoaders[i + 1] = new ClasspathClassFileLoaderImpl(this._testDirectory.createSubDirectory(requiredJobs[i]
+          + "/bin"), EcjAdapter.PROJECT);
+    }
+
+    Map<String, String> compilerOptions = new HashMap<String, String>();
+    compilerOptions.put("org.eclipse.jdt.core.compiler.source", "1.5");
+    compilerOptions.put("org.eclipse.jdt.core.compiler.compliance", "1.5");
+    compilerOptions.put("org.eclipse.jdt.core.compiler.codegen.targetPlatform", "1.5");
+
+    DefaultProjectCompileJobDescription description = new DefaultProjectCompileJobDescription();
+    description.setName(name);
+    description.setRequiredJobs(requiredJobs);
+    description.setClassFileLoader(new CompoundClassFileLoaderImpl(classFileLoaders));
+    description.setCompilerOptions(compilerOptions);
+    description.setSourceFiles(new SourceFile[] { SourceFileFactory.createSourceFile(source, sourceFileName, output) });
+    return description;
+  }
+
+  private static Set<String> set(String... values) {
+    Set<String> result = new TreeSet<String>();
+    for (String value : values) {
+      result.add(value);
+    }
+    return result;
+  }
+}
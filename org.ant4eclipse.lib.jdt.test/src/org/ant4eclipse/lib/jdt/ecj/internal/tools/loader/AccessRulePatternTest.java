@@ -0,0 +1,86 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools.loader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class AccessRulePatternTest {
+
+  private static final String[] PATTERN_PARTS = { "com", "foo", "internal", "/", "/", "*", "*", "**", "**/*", "Bar",
+      "x.y", "$", "###" };
+
+  private static final String[] SEGMENTS      = { "com", "foo", "internal", "bar", "x" };
+
+  private static final String[] SIMPLE_NAMES  = { "Bar", "Foo", "Foo$Inner", "internal", "X1" };
+
+  @Test
+  public void typicalPatterns() {
+    assertTrue(new AccessRulePattern("com/foo/*").matches("com/foo/Bar.class"));
+    assertTrue(new AccessRulePattern("com/foo/*").matches("com/foo/bar/Bar.class"));
+    assertFalse(new AccessRulePattern("com/foo/*").matches("com/foobar/Bar.class"));
+    assertTrue(new AccessRulePattern("**/*").matches("Bar.class"));
+    assertTrue(new AccessRulePattern("**/internal/**").matches("com/internal/Bar.class"));
+    assertFalse(new AccessRulePattern("**/internal/**").matches("com/foo/Bar.class"));
+    assertTrue(new AccessRulePattern("com/foo/*").isPackageGranular());
+    assertTrue(new AccessRulePattern("**/*").isPackageGranular());
+    assertFalse(new AccessRulePattern("com/foo/Bar").isPackageGranular());
+    assertFalse(new AccessRulePattern("com/foo/B*").isPackageGranular());
+  }
+
+  @Test
+  public void sameResultsAsRegex() {
+    Random random = new Random(4711);
+    for (int i = 0; i < 1000; i++) {
+      String pattern = randomPattern(random);
+      AccessRulePattern accessRulePattern = new AccessRulePattern(pattern);
+      String regex = AccessRulePattern.toRegex(pattern);
+      for (int j = 0; j < 30; j++) {
+        String packageName = randomPackage(random);
+        String classFileName = packageName + SIMPLE_NAMES[random.nextInt(SIMPLE_NAMES.length)] + ".class";
+        boolean expected = classFileName.matches(regex);
+        assertEquals(pattern + " / " + classFileName, expected, accessRulePattern.matches(classFileName));
+
+        // package granular patterns have the same result for all classes of a package
+        if (accessRulePattern.isPackageGranular()) {
+          for (String simpleName : SIMPLE_NAMES) {
+            assertEquals(pattern + " / " + packageName + simpleName, expected, accessRulePattern.matches(packageName
+                + simpleName + ".class"));
+          }
+        }
+      }
+    }
+  }
+
+  private String randomPattern(Random random) {
+    StringBuilder result = new StringBuilder();
+    int parts = 1 + random.nextInt(6);
+    for (int i = 0; i < parts; i++) {
+      result.append(PATTERN_PARTS[random.nextInt(PATTERN_PARTS.length)]);
+    }
+    return result.toString();
+  }
+
+  private String randomPackage(Random random) {
+    StringBuilder result = new StringBuilder();
+    int segments = random.nextInt(4);
+    for (int i = 0; i < segments; i++) {
+      result.append(SEGMENTS[random.nextInt(SEGMENTS.length)]).append('/');
+    }
+    return result.toString();
+  }
+}
@@ -0,0 +1,54 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools.loader;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class BloomFilterTest {
+
+  @Test
+  public void noFalseNegatives() {
+    BloomFilter filter = new BloomFilter(1000);
+    for (int i = 0; i < 1000; i++) {
+      filter.add("Type" + i);
+    }
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(filter.mightContain("Type" + i));
+    }
+  }
+
+  @Test
+  public void fewFalsePositives() {
+    BloomFilter filter = new BloomFilter(1000);
+    for (int i = 0; i < 1000; i++) {
+      filter.add("Type" + i);
+    }
+    int falsePositives = 0;
+    for (int i = 0; i < 10000; i++) {
+      if (filter.mightContain("Missing" + i)) {
+        falsePositives++;
+      }
+    }
+    // the expected rate is about one percent
+    assertTrue("false positives: " + falsePositives, falsePositives < 300);
+  }
+
+  @Test
+  public void emptyFilter() {
+    BloomFilter filter = new BloomFilter(0);
+    for (int i = 0; i < 100; i++) {
+      assertTrue(!filter.mightContain("Type" + i));
+    }
+  }
+}
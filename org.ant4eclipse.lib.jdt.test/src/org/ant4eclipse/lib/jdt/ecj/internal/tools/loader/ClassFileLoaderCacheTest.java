@@ -0,0 +1,149 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools.loader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.ant4eclipse.lib.jdt.ecj.ClassFileLoader;
+import org.ant4eclipse.lib.jdt.ecj.EcjAdapter;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.ant4eclipse.testframework.TestDirectory;
+import org.junit.Test;
+
+public class ClassFileLoaderCacheTest extends ConfigurableAnt4EclipseTestCase {
+
+  private TestDirectory        _testDirectory;
+
+  private ClassFileLoaderCache _cache;
+
+  @Override
+  public void setup() {
+    super.setup();
+
+    this._testDirectory = new TestDirectory();
+    this._cache = new ClassFileLoaderCache();
+  }
+
+  @Override
+  public void dispose() {
+    this._cache.clear();
+    this._testDirectory.dispose();
+
+    super.dispose();
+  }
+
+  @Test
+  public void entryLimit() {
+    this._cache.setLimits(2, 0);
+
+    this._cache.storeClassFileLoader("a", createClassFileLoader("a", 0));
+    this._cache.storeClassFileLoader("b", createClassFileLoader("b", 0));
+    this._cache.storeClassFileLoader("c", createClassFileLoader("c", 0));
+
+    assertEquals(2, this._cache.getSize());
+    assertFalse(this._cache.hasClassFileLoader("a"));
+    assertTrue(this._cache.hasClassFileLoader("b"));
+    assertTrue(this._cache.hasClassFileLoader("c"));
+    assertEquals(1, this._cache.getEvictions());
+  }
+
+  @Test
+  public void weightLimit() {
+    this._cache.setLimits(0, 10);
+
+    // weight: number of packages + number of class path entries
+    this._cache.storeClassFileLoader("a", createClassFileLoader("a", 3));
+    this._cache.storeClassFileLoader("b", createClassFileLoader("b", 4));
+    assertEquals(9, this._cache.getWeight());
+
+    this._cache.storeClassFileLoader("c", createClassFileLoader("c", 1));
+    assertEquals(7, this._cache.getWeight());
+    assertFalse(this._cache.hasClassFileLoader("a"));
+    assertEquals(1, this._cache.getEvictions());
+
+    // lowering the limits evicts immediately
+    this._cache.setLimits(0, 2);
+    assertEquals(1, this._cache.getSize());
+    assertEquals(2, this._cache.getWeight());
+    assertTrue(this._cache.hasClassFileLoader("c"));
+  }
+
+  @Test
+  public void leastRecentlyUsedOrder() {
+    this._cache.setLimits(2, 0);
+
+    this._cache.storeClassFileLoader("a", createClassFileLoader("a", 0));
+    this._cache.storeClassFileLoader("b", createClassFileLoader("b", 0));
+
+    // "a" is used more recently than "b"
+    this._cache.getClassFileLoader("a");
+    this._cache.storeClassFileLoader("c", createClassFileLoader("c", 0));
+
+    assertTrue(this._cache.hasClassFileLoader("a"));
+    assertFalse(this._cache.hasClassFileLoader("b"));
+    assertTrue(this._cache.hasClassFileLoader("c"));
+  }
+
+  @Test
+  public void counters() {
+    ClassFileLoader classFileLoader = createClassFileLoader("a", 0);
+    this._cache.storeClassFileLoader("a", classFileLoader, 5);
+    this._cache.storeClassFileLoader("b", createClassFileLoader("b", 0), 7);
+
+    assertSame(classFileLoader, this._cache.getClassFileLoader("a"));
+    assertSame(classFileLoader, this._cache.getClassFileLoader("a"));
+    assertNull(this._cache.getClassFileLoader("c"));
+
+    assertEquals(2, this._cache.getHits());
+    assertEquals(1, this._cache.getMisses());
+    assertEquals(2, this._cache.getLoads());
+    assertEquals(12, this._cache.getLoadTime());
+    assertEquals(0, this._cache.getEvictions());
+
+    this._cache.clear();
+    assertEquals(0, this._cache.getSize());
+    assertEquals(0, this._cache.getWeight());
+    assertEquals(0, this._cache.getHits());
+    assertEquals(0, this._cache.getMisses());
+    assertEquals(0, this._cache.getLoads());
+  }
+
+  @Test
+  public void staleClassFileLoaderIsDiscarded() {
+    ClassFileLoader classFileLoader = createClassFileLoader("a", 1);
+    this._cache.storeClassFileLoader("a", classFileLoader);
+    assertSame(classFileLoader, this._cache.getClassFileLoader("a"));
+
+    // adding a package modifies the class path directory
+    File directory = new File(this._testDirectory.getRootDir(), "a");
+    new File(directory, "newpackage").mkdir();
+    directory.setLastModified(directory.lastModified() + 10000);
+
+    assertNull(this._cache.getClassFileLoader("a"));
+    assertFalse(this._cache.hasClassFileLoader("a"));
+    assertEquals(0, this._cache.getWeight());
+  }
+
+  private ClassFileLoader createClassFileLoader(String name, int packages) {
+    File directory = this._testDirectory.createSubDirectory(name);
+    for (int i = 0; i < packages; i++) {
+      new File(directory, "package" + i).mkdir();
+    }
+    return new ClasspathClassFileLoaderImpl(directory, EcjAdapter.LIBRARY);
+  }
+}
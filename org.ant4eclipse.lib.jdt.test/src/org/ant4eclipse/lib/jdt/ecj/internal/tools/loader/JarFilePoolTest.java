@@ -0,0 +1,151 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools.loader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import org.ant4eclipse.lib.core.ClassName;
+import org.ant4eclipse.lib.jdt.ecj.EcjAdapter;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.ant4eclipse.testframework.TestDirectory;
+import org.junit.Test;
+
+public class JarFilePoolTest extends ConfigurableAnt4EclipseTestCase {
+
+  private TestDirectory _testDirectory;
+
+  private File          _jarFile;
+
+  @Override
+  public void setup() {
+    super.setup();
+
+    this._testDirectory = new TestDirectory();
+    this._jarFile = new File(this._testDirectory.getRootDir(), "test.jar");
+    writeJar("a/A.class");
+  }
+
+  @Override
+  public void dispose() {
+    this._testDirectory.dispose();
+
+    super.dispose();
+  }
+
+  @Test
+  public void staleHandleIsClosedOnLastRelease() {
+    JarFilePool pool = new JarFilePool();
+
+    JarHandle handle = pool.acquire(this._jarFile);
+    pool.acquire(this._jarFile);
+
+    changeJar();
+    JarHandle newHandle = pool.acquire(this._jarFile);
+    assertNotSame(handle, newHandle);
+    assertEquals(1, pool.getStaleHandleCount());
+
+    pool.release(handle);
+    assertFalse(handle.isClosed());
+    pool.release(handle);
+    assertTrue(handle.isClosed());
+    assertEquals(0, pool.getStaleHandleCount());
+
+    pool.release(newHandle);
+    assertFalse(newHandle.isClosed());
+    pool.dispose();
+    assertTrue(newHandle.isClosed());
+  }
+
+  @Test
+  public void disposeClosesStaleHandles() {
+    JarFilePool pool = new JarFilePool();
+
+    JarHandle handle = pool.acquire(this._jarFile);
+    changeJar();
+    JarHandle newHandle = pool.acquire(this._jarFile);
+
+    pool.dispose();
+    assertTrue(handle.isClosed());
+    assertTrue(newHandle.isClosed());
+    assertEquals(0, pool.getStaleHandleCount());
+  }
+
+  @Test
+  public void disposedClassFileLoaderReleasesHandles() {
+    JarFilePool pool = JarFilePool.getInstance();
+
+    ClasspathClassFileLoaderImpl classFileLoader = new ClasspathClassFileLoaderImpl(this._jarFile, EcjAdapter.LIBRARY);
+    JarHandle handle = pool.acquire(this._jarFile);
+    assertEquals(2, handle.getReferences());
+
+    classFileLoader.dispose();
+    assertEquals(1, handle.getReferences());
+
+    // a disposed class file loader that is still in use acquires the handle again
+    assertNotNull(classFileLoader.loadClass(ClassName.fromQualifiedClassName("a.A")));
+    assertSame(handle, pool.acquire(this._jarFile));
+    assertEquals(3, handle.getReferences());
+  }
+
+  @Test
+  public void evictedClassFileLoaderReleasesHandles() {
+    ClassFileLoaderCache cache = new ClassFileLoaderCache();
+    cache.setLimits(1, 0);
+
+    cache.storeClassFileLoader("jar", new ClasspathClassFileLoaderImpl(this._jarFile, EcjAdapter.LIBRARY));
+    JarHandle handle = JarFilePool.getInstance().acquire(this._jarFile);
+    assertEquals(2, handle.getReferences());
+
+    cache.storeClassFileLoader("directory", new ClasspathClassFileLoaderImpl(this._testDirectory.getRootDir(),
+        EcjAdapter.LIBRARY));
+    assertEquals(1, handle.getReferences());
+
+    cache.storeClassFileLoader("jar", new ClasspathClassFileLoaderImpl(this._jarFile, EcjAdapter.LIBRARY));
+    assertEquals(2, handle.getReferences());
+    cache.clear();
+    assertEquals(1, handle.getReferences());
+  }
+
+  private void changeJar() {
+    long lastModified = this._jarFile.lastModified();
+    writeJar("a/A.class", "b/B.class");
+    this._jarFile.setLastModified(lastModified + 10000);
+  }
+
+  private void writeJar(String... entries) {
+    try {
+      JarOutputStream outputStream = new JarOutputStream(new FileOutputStream(this._jarFile));
+      try {
+        for (String entry : entries) {
+          outputStream.putNextEntry(new ZipEntry(entry));
+          outputStream.write(new byte[] { (byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE });
+          outputStream.closeEntry();
+        }
+      } finally {
+        outputStream.close();
+      }
+    } catch (IOException ex) {
+      throw new RuntimeException(ex);
+    }
+  }
+}
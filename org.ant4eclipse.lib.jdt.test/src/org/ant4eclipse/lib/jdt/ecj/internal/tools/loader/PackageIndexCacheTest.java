@@ -0,0 +1,263 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools.loader;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.ant4eclipse.testframework.TestDirectory;
+import org.junit.Test;
+
+public class PackageIndexCacheTest extends ConfigurableAnt4EclipseTestCase {
+
+  /** the modification time of cache files that haven't been rewritten */
+  private static final long OLD = 1000000000000L;
+
+  private TestDirectory     _testDirectory;
+
+  private File              _cacheDirectory;
+
+  private File              _jarFile;
+
+  private File              _directory;
+
+  private String            _cacheDirProperty;
+
+  @Override
+  public void setup() {
+    super.setup();
+
+    this._testDirectory = new TestDirectory();
+    this._cacheDirProperty = System.getProperty(Utilities.PROP_A4ECACHEDIR);
+    this._cacheDirectory = this._testDirectory.createSubDirectory("cache");
+    System.setProperty(Utilities.PROP_A4ECACHEDIR, this._cacheDirectory.getAbsolutePath());
+
+    this._jarFile = new File(this._testDirectory.getRootDir(), "test.jar");
+    writeJar("a/A.class", "a/b/B.class");
+
+    this._directory = this._testDirectory.createSubDirectory("classes");
+    this._testDirectory.createSubDirectory("classes/a");
+    this._testDirectory.createSubDirectory("classes/a/b");
+    setOld(this._directory, "a", "a/b");
+  }
+
+  @Override
+  public void dispose() {
+    if (this._cacheDirProperty == null) {
+      System.clearProperty(Utilities.PROP_A4ECACHEDIR);
+    } else {
+      System.setProperty(Utilities.PROP_A4ECACHEDIR, this._cacheDirProperty);
+    }
+    this._testDirectory.dispose();
+
+    super.dispose();
+  }
+
+  @Test
+  public void jarRoundTrip() throws IOException {
+    assertPackages(createCache().getJarIndex(this._jarFile), "a", "a.b");
+    File indexFile = getIndexFile();
+    indexFile.setLastModified(OLD);
+
+    // the index is read from the cache
+    JarIndex index = createCache().getJarIndex(this._jarFile);
+    assertPackages(index, "a", "a.b");
+    assertTrue(index.hasEntry("a/b/B.class"));
+    assertArrayEquals(new byte[] { (byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE }, index
+        .getEntryContent("a/b/B.class"));
+    assertEquals(OLD, indexFile.lastModified());
+  }
+
+  @Test
+  public void directoryRoundTrip() {
+    PackageIndexCache cache = createCache();
+    assertNull(cache.getDirectoryPackages(this._directory));
+    cache.storeDirectoryPackages(this._directory, new String[] { "a", "a.b" });
+
+    assertArrayEquals(new String[] { "a", "a.b" }, createCache().getDirectoryPackages(this._directory));
+  }
+
+  @Test
+  public void changedJarSize() throws IOException {
+    createCache().getJarIndex(this._jarFile);
+    getIndexFile().setLastModified(OLD);
+
+    // same modification time, different size
+    long lastModified = this._jarFile.lastModified();
+    writeJar("a/A.class", "a/b/B.class", "c/C.class");
+    this._jarFile.setLastModified(lastModified);
+
+    assertPackages(createCache().getJarIndex(this._jarFile), "a", "a.b", "c");
+    assertFalse(getIndexFile().lastModified() == OLD);
+    assertPackages(createCache().getJarIndex(this._jarFile), "a", "a.b", "c");
+  }
+
+  @Test
+  public void changedJarModificationTime() throws IOException {
+    createCache().getJarIndex(this._jarFile);
+    getIndexFile().setLastModified(OLD);
+
+    // same size, different modification time
+    this._jarFile.setLastModified(this._jarFile.lastModified() + 10000);
+
+    assertPackages(createCache().getJarIndex(this._jarFile), "a", "a.b");
+    assertFalse(getIndexFile().lastModified() == OLD);
+  }
+
+  @Test
+  public void addedPackageDirectory() {
+    createCache().storeDirectoryPackages(this._directory, new String[] { "a", "a.b" });
+
+    this._testDirectory.createSubDirectory("classes/a/c");
+    assertNull(createCache().getDirectoryPackages(this._directory));
+  }
+
+  @Test
+  public void removedPackageDirectory() {
+    createCache().storeDirectoryPackages(this._directory, new String[] { "a", "a.b" });
+
+    assertTrue(new File(this._directory, "a/b").delete());
+    assertNull(createCache().getDirectoryPackages(this._directory));
+  }
+
+  @Test
+  public void corruptIndexFile() throws IOException {
+    createCache().getJarIndex(this._jarFile);
+    File indexFile = getIndexFile();
+    FileOutputStream outputStream = new FileOutputStream(indexFile);
+    try {
+      outputStream.write(new byte[] { 1, 2, 3 });
+    } finally {
+      outputStream.close();
+    }
+
+    // the corrupt index is ignored and rewritten
+    assertPackages(createCache().getJarIndex(this._jarFile), "a", "a.b");
+    assertTrue(getIndexFile().length() > 3);
+    getIndexFile().setLastModified(OLD);
+    assertPackages(createCache().getJarIndex(this._jarFile), "a", "a.b");
+    assertEquals(OLD, getIndexFile().lastModified());
+  }
+
+  @Test
+  public void wrongVersion() throws IOException {
+    createCache().getJarIndex(this._jarFile);
+    setVersion(getIndexFile(), 99);
+    getIndexFile().setLastModified(OLD);
+
+    // the index is ignored and rewritten with the current version
+    assertPackages(createCache().getJarIndex(this._jarFile), "a", "a.b");
+    assertFalse(getIndexFile().lastModified() == OLD);
+    assertEquals(1, getVersion(getIndexFile()));
+
+    // directory indexes are ignored as well
+    createCache().storeDirectoryPackages(this._directory, new String[] { "a", "a.b" });
+    for (File indexFile : getIndexFiles()) {
+      setVersion(indexFile, 99);
+    }
+    assertNull(createCache().getDirectoryPackages(this._directory));
+  }
+
+  @Test
+  public void disabledCache() throws IOException {
+    System.setProperty(Utilities.PROP_A4ECACHEDIR, Utilities.CACHEDIR_NONE);
+
+    PackageIndexCache cache = createCache();
+    assertFalse(cache.isEnabled());
+    assertPackages(cache.getJarIndex(this._jarFile), "a", "a.b");
+    cache.storeDirectoryPackages(this._directory, new String[] { "a", "a.b" });
+    assertNull(cache.getDirectoryPackages(this._directory));
+    assertFalse(new File(this._cacheDirectory, "package-index").exists());
+  }
+
+  private PackageIndexCache createCache() {
+    PackageIndexCache result = new PackageIndexCache();
+    result.initialize();
+    return result;
+  }
+
+  private File[] getIndexFiles() {
+    File[] result = new File(this._cacheDirectory, "package-index").listFiles();
+    assertNotNull(result);
+    return result;
+  }
+
+  private File getIndexFile() {
+    File[] result = getIndexFiles();
+    assertEquals(1, result.length);
+    return result[0];
+  }
+
+  private void setOld(File root, String... paths) {
+    for (String path : paths) {
+      new File(root, path).setLastModified(OLD);
+    }
+    root.setLastModified(OLD);
+  }
+
+  private static void assertPackages(JarIndex index, String... packages) {
+    String[] actual = index.getPackages().clone();
+    Arrays.sort(actual);
+    assertArrayEquals(packages, actual);
+  }
+
+  private static int getVersion(File indexFile) throws IOException {
+    RandomAccessFile file = new RandomAccessFile(indexFile, "r");
+    try {
+      file.seek(4);
+      return file.readInt();
+    } finally {
+      file.close();
+    }
+  }
+
+  private static void setVersion(File indexFile, int version) throws IOException {
+    RandomAccessFile file = new RandomAccessFile(indexFile, "rw");
+    try {
+      file.seek(4);
+      file.writeInt(version);
+    } finally {
+      file.close();
+    }
+  }
+
+  private void writeJar(String... entries) {
+    try {
+      JarOutputStream outputStream = new JarOutputStream(new FileOutputStream(this._jarFile));
+      try {
+        for (String entry : entries) {
+          outputStream.putNextEntry(new ZipEntry(entry));
+          outputStream.write(new byte[] { (byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE });
+          outputStream.closeEntry();
+        }
+      } finally {
+        outputStream.close();
+      }
+    } catch (IOException ex) {
+      throw new RuntimeException(ex);
+    }
+  }
+}
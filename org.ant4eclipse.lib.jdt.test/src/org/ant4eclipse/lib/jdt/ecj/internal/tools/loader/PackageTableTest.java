@@ -0,0 +1,69 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools.loader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.eclipse.jdt.core.compiler.CharOperation;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+public class PackageTableTest {
+
+  @Test
+  public void compoundNameLookup() {
+    PackageTable<String> table = new PackageTable<String>();
+    table.put("java", "a");
+    table.put("java.lang", "b");
+    table.put("java.lang.reflect", "c");
+
+    assertEquals("a", table.get(CharOperation.splitOn('.', "java".toCharArray()), 1));
+    assertEquals("b", table.get(CharOperation.splitOn('.', "java.lang".toCharArray()), 2));
+    assertEquals("b", table.get(CharOperation.splitOn('.', "java.lang.Object".toCharArray()), 2));
+    assertEquals("c", table.get(CharOperation.splitOn('.', "java.lang.reflect".toCharArray()), 3));
+
+    assertNull(table.get(CharOperation.splitOn('.', "java.lan".toCharArray()), 2));
+    assertNull(table.get(CharOperation.splitOn('.', "java.langx".toCharArray()), 2));
+    assertNull(table.get(CharOperation.splitOn('.', "javalang".toCharArray()), 1));
+    assertNull(table.get(CharOperation.splitOn('.', "java.lang.Object".toCharArray()), 3));
+    assertNull(table.get(new char[0][], 0));
+  }
+
+  @Test
+  public void hashMatchesStringHashCode() {
+    String[] names = { "", "a", "org.ant4eclipse.lib.jdt", "java.lang.reflect" };
+    for (String name : names) {
+      char[][] compoundName = CharOperation.splitOn('.', name.toCharArray());
+      assertEquals(name.hashCode(), PackageTable.hash(compoundName, compoundName.length));
+    }
+  }
+
+  @Test
+  public void growAndReplace() {
+    PackageTable<Integer> table = new PackageTable<Integer>();
+    for (int i = 0; i < 1000; i++) {
+      table.put("p" + i + ".q", Integer.valueOf(i));
+    }
+    table.put("p7.q", Integer.valueOf(-7));
+
+    assertEquals(1000, table.size());
+    assertEquals(1000, new HashSet<String>(Arrays.asList(table.getPackageNames())).size());
+    for (int i = 0; i < 1000; i++) {
+      char[][] compoundName = CharOperation.splitOn('.', ("p" + i + ".q.Type").toCharArray());
+      assertEquals(Integer.valueOf(i == 7 ? -7 : i), table.get(compoundName, 2));
+      assertEquals(Integer.valueOf(i == 7 ? -7 : i), table.get("p" + i + ".q"));
+    }
+  }
+}
@@ -0,0 +1,52 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.internal.model.jre;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.ant4eclipse.lib.core.util.StringMap;
+import org.junit.Test;
+
+public class JavaProfileImplTest {
+
+  @Test
+  public void systemPackages() {
+    StringMap properties = new StringMap();
+    properties.put("org.osgi.framework.system.packages", "javax.swing,javax.swing.text,org.w3c.dom");
+    JavaProfileImpl javaProfile = new JavaProfileImpl(properties);
+
+    assertEquals(3, javaProfile.getSystemPackages().size());
+    assertEquals("javax.swing", javaProfile.getSystemPackages().get(0));
+    assertTrue(javaProfile.isSystemPackage("javax.swing"));
+    assertTrue(javaProfile.isSystemPackage("org.w3c.dom"));
+    assertFalse(javaProfile.isSystemPackage("javax"));
+    assertFalse(javaProfile.isSystemPackage("javax.swing.table"));
+  }
+
+  @Test
+  public void bootDelegation() {
+    StringMap properties = new StringMap();
+    properties.put("org.osgi.framework.bootdelegation", "javax.*, sun.misc, com.*.internal");
+    JavaProfileImpl javaProfile = new JavaProfileImpl(properties);
+
+    assertTrue(javaProfile.isDelegatedToBootClassLoader("javax.swing"));
+    assertTrue(javaProfile.isDelegatedToBootClassLoader("javax.swing.text"));
+    assertFalse(javaProfile.isDelegatedToBootClassLoader("javax."));
+    assertFalse(javaProfile.isDelegatedToBootClassLoader("javax"));
+    assertTrue(javaProfile.isDelegatedToBootClassLoader("sun.misc"));
+    assertFalse(javaProfile.isDelegatedToBootClassLoader("sun.misc.foo"));
+    assertTrue(javaProfile.isDelegatedToBootClassLoader("com.foo.internal"));
+    assertFalse(javaProfile.isDelegatedToBootClassLoader("com.foo"));
+  }
+}
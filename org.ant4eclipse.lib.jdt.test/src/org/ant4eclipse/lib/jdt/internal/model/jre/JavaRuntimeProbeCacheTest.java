@@ -0,0 +1,165 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.internal.model.jre;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+
+import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.lib.jdt.JdtExceptionCode;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.ant4eclipse.testframework.TestDirectory;
+import org.junit.Assume;
+import org.junit.Test;
+
+public class JavaRuntimeProbeCacheTest extends ConfigurableAnt4EclipseTestCase {
+
+  private static final String[] VALUES = { "1.6.0", "/jre/lib/rt.jar" };
+
+  private TestDirectory         _testDirectory;
+
+  private File                  _jre;
+
+  private File                  _probes;
+
+  private String                _cacheDirProperty;
+
+  private String                _probeProperty;
+
+  @Override
+  public void setup() {
+    super.setup();
+
+    this._testDirectory = new TestDirectory();
+    this._cacheDirProperty = System.getProperty(Utilities.PROP_A4ECACHEDIR);
+    this._probeProperty = System.getProperty(JavaRuntimeProbeCache.PROP_PROBE);
+    System.setProperty(Utilities.PROP_A4ECACHEDIR, this._testDirectory.createSubDirectory("cache").getAbsolutePath());
+
+    // a fake java runtime which records each probe
+    this._jre = this._testDirectory.createSubDirectory("jre");
+    this._probes = new File(this._testDirectory.getRootDir(), "probes.txt");
+    this._testDirectory.createSubDirectory("jre/bin");
+    this._testDirectory.createSubDirectory("jre/lib");
+    this._testDirectory.createFile("jre/lib/rt.jar", "rt");
+    File java = this._testDirectory.createFile("jre/bin/java", "#!/bin/sh\necho probe >> '"
+        + this._probes.getAbsolutePath() + "'\necho " + VALUES[0] + "\necho " + VALUES[1] + "\n");
+    Assume.assumeTrue(File.separatorChar == '/');
+    Assume.assumeTrue(java.setExecutable(true));
+  }
+
+  @Override
+  public void dispose() {
+    restore(Utilities.PROP_A4ECACHEDIR, this._cacheDirProperty);
+    restore(JavaRuntimeProbeCache.PROP_PROBE, this._probeProperty);
+    this._testDirectory.dispose();
+
+    super.dispose();
+  }
+
+  @Test
+  public void cachedPolicy() {
+    JavaRuntimeProbeCache cache = createCache(null);
+    assertArrayEquals(VALUES, cache.getProbeResult(this._jre));
+    assertArrayEquals(VALUES, cache.getProbeResult(this._jre));
+    assertEquals(1, getProbeCount());
+
+    // the result is stored persistently
+    assertArrayEquals(VALUES, createCache(JavaRuntimeProbeCache.PROBE_CACHED).getProbeResult(this._jre));
+    assertEquals(1, getProbeCount());
+
+    // a refresh probes the java runtime regardless of the cached result
+    assertArrayEquals(VALUES, cache.getProbeResult(this._jre, true));
+    assertEquals(2, getProbeCount());
+  }
+
+  @Test
+  public void alwaysPolicy() {
+    createCache(JavaRuntimeProbeCache.PROBE_CACHED).getProbeResult(this._jre);
+
+    JavaRuntimeProbeCache cache = createCache(JavaRuntimeProbeCache.PROBE_ALWAYS);
+    assertArrayEquals(VALUES, cache.getProbeResult(this._jre));
+    assertArrayEquals(VALUES, cache.getProbeResult(this._jre));
+    assertEquals(3, getProbeCount());
+  }
+
+  @Test
+  public void neverPolicy() {
+    try {
+      createCache(JavaRuntimeProbeCache.PROBE_NEVER).getProbeResult(this._jre);
+      fail("Expected an exception because the java runtime hasn't been probed");
+    } catch (Ant4EclipseException ex) {
+      assertEquals(JdtExceptionCode.JAVA_RUNTIME_NOT_PROBED, ex.getExceptionCode());
+    }
+    createCache(JavaRuntimeProbeCache.PROBE_CACHED).getProbeResult(this._jre);
+
+    // the stale result is used
+    change("jre/lib/rt.jar");
+    assertArrayEquals(VALUES, createCache(JavaRuntimeProbeCache.PROBE_NEVER).getProbeResult(this._jre));
+    assertEquals(1, getProbeCount());
+  }
+
+  @Test
+  public void changedExecutable() {
+    JavaRuntimeProbeCache cache = createCache(JavaRuntimeProbeCache.PROBE_CACHED);
+    cache.getProbeResult(this._jre);
+
+    change("jre/bin/java");
+    assertArrayEquals(VALUES, cache.getProbeResult(this._jre));
+    assertEquals(2, getProbeCount());
+    assertArrayEquals(VALUES, createCache(JavaRuntimeProbeCache.PROBE_CACHED).getProbeResult(this._jre));
+    assertEquals(2, getProbeCount());
+  }
+
+  @Test
+  public void changedClassLibrary() {
+    createCache(JavaRuntimeProbeCache.PROBE_CACHED).getProbeResult(this._jre);
+
+    change("jre/lib/rt.jar");
+    assertArrayEquals(VALUES, createCache(JavaRuntimeProbeCache.PROBE_CACHED).getProbeResult(this._jre));
+    assertEquals(2, getProbeCount());
+  }
+
+  private JavaRuntimeProbeCache createCache(String policy) {
+    restore(JavaRuntimeProbeCache.PROP_PROBE, policy);
+    JavaRuntimeProbeCache result = new JavaRuntimeProbeCache();
+    result.initialize();
+    return result;
+  }
+
+  /**
+   * Changes the size and the modification time of the given file.
+   */
+  private void change(String path) {
+    File file = new File(this._testDirectory.getRootDir(), path);
+    long lastModified = file.lastModified();
+    String content = Utilities.readTextContent(file, Utilities.ENCODING, true).toString();
+    this._testDirectory.createFile(path, content + "# changed\n");
+    file.setLastModified(lastModified - 10000);
+  }
+
+  private int getProbeCount() {
+    // each probe appends the line 'probe'
+    return this._probes.isFile() ? (int) this._probes.length() / "probe\n".length() : 0;
+  }
+
+  private static void restore(String property, String value) {
+    if (value == null) {
+      System.clearProperty(property);
+    } else {
+      System.setProperty(property, value);
+    }
+  }
+}
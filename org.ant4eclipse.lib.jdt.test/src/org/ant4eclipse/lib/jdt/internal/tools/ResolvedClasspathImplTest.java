@@ -0,0 +1,82 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.internal.tools;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.ant4eclipse.lib.jdt.tools.ResolvedClasspathEntry;
+import org.junit.Test;
+
+public class ResolvedClasspathImplTest {
+
+  @Test
+  public void interleavedEntries() {
+    ResolvedClasspathImpl classpath = new ResolvedClasspathImpl();
+    classpath.addClasspathEntry(entry("a", "b"));
+    classpath.addClasspathEntry(entry("c"));
+    classpath.closeSegment();
+    classpath.addClasspathEntry(entry("d"));
+    classpath.closeSegment();
+    classpath.addClasspathEntry(entry("c"));
+    classpath.addClasspathEntry(entry("b", "e"));
+    classpath.closeSegment();
+    classpath.addClasspathEntry(entry("a", "b"));
+    classpath.addClasspathEntry(entry("f"));
+
+    assertArrayEquals(new ResolvedClasspathEntry[] { entry("a", "b"), entry("c"), entry("d"), entry("b", "e"),
+        entry("f") }, classpath.getClasspath());
+    assertArrayEquals(files("a", "b", "c", "d", "e", "f"), classpath.getClasspathFiles());
+  }
+
+  @Test
+  public void sharedSegments() {
+    ResolvedClasspathImpl first = resolve();
+    ResolvedClasspathImpl second = resolve();
+
+    ResolvedClasspathEntry[] firstEntries = first.getClasspath();
+    ResolvedClasspathEntry[] secondEntries = second.getClasspath();
+    assertArrayEquals(firstEntries, secondEntries);
+    for (int i = 0; i < firstEntries.length; i++) {
+      assertSame(firstEntries[i], secondEntries[i]);
+    }
+
+    assertSame(ResolvedClasspathSegment.intern(Arrays.asList(entry("shared1"), entry("shared2"))),
+        ResolvedClasspathSegment.intern(Arrays.asList(entry("shared1"), entry("shared2"))));
+  }
+
+  private ResolvedClasspathImpl resolve() {
+    ResolvedClasspathImpl result = new ResolvedClasspathImpl();
+    result.addClasspathEntry(entry("project/bin"));
+    result.closeSegment();
+    result.addClasspathEntry(entry("jre/rt.jar", "jre/jce.jar"));
+    result.addClasspathEntry(entry("jre/ext.jar"));
+    result.closeSegment();
+    return result;
+  }
+
+  private static ResolvedClasspathEntry entry(String... names) {
+    return new ResolvedClasspathEntry(files(names));
+  }
+
+  private static File[] files(String... names) {
+    File[] result = new File[names.length];
+    for (int i = 0; i < names.length; i++) {
+      result[i] = new File(names[i]);
+    }
+    return result;
+  }
+
+} /* ENDCLASS */
@@ -0,0 +1,93 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.ant4eclipse.lib.core.service.ServiceRegistryAccess;
+import org.ant4eclipse.lib.platform.model.resource.Workspace;
+import org.ant4eclipse.lib.platform.model.resource.workspaceregistry.DefaultEclipseWorkspaceDefinition;
+import org.ant4eclipse.lib.platform.model.resource.workspaceregistry.WorkspaceRegistry;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.ant4eclipse.testframework.JdtProjectBuilder;
+import org.ant4eclipse.testframework.TestDirectory;
+import org.junit.Test;
+
+public class JdtResolverCacheTest extends ConfigurableAnt4EclipseTestCase {
+
+  private TestDirectory _testWorkspace;
+
+  @Override
+  public void setup() {
+    super.setup();
+
+    this._testWorkspace = new TestDirectory();
+
+    JdtProjectBuilder.getPreConfiguredJdtBuilder("simpleproject1").createIn(this._testWorkspace.getRootDir());
+    JdtProjectBuilder.getPreConfiguredJdtBuilder("simpleproject2").withClasspathEntry(
+        "<classpathentry combineaccessrules=\"false\" kind=\"src\" path=\"/simpleproject1\"/>").createIn(
+        this._testWorkspace.getRootDir());
+    JdtProjectBuilder.getPreConfiguredJdtBuilder("simpleproject3").createIn(this._testWorkspace.getRootDir());
+  }
+
+  @Override
+  public void dispose() {
+    this._testWorkspace.dispose();
+
+    super.dispose();
+  }
+
+  @Test
+  public void unchangedWorkspace() {
+    Workspace workspace = registerWorkspace();
+
+    ResolvedClasspath classpath = resolve(workspace, "simpleproject2");
+    assertSame(classpath, resolve(workspace, "simpleproject2"));
+    assertNotSame(classpath, JdtResolver.resolveProjectClasspath(workspace.getProject("simpleproject2"), false, true,
+        null));
+
+    // re-reading the unchanged projects doesn't invalidate the cache
+    assertSame(classpath, resolve(registerWorkspace(), "simpleproject2"));
+  }
+
+  @Test
+  public void changedProject() {
+    Workspace workspace = registerWorkspace();
+
+    ResolvedClasspath classpath1 = resolve(workspace, "simpleproject1");
+    ResolvedClasspath classpath2 = resolve(workspace, "simpleproject2");
+    ResolvedClasspath classpath3 = resolve(workspace, "simpleproject3");
+    assertEquals(2, classpath2.getClasspath().length);
+
+    // change the class path of simpleproject1
+    JdtProjectBuilder.getPreConfiguredJdtBuilder("simpleproject1").withSrcClasspathEntry("src2", false).createIn(
+        this._testWorkspace.getRootDir());
+    workspace = registerWorkspace();
+
+    // simpleproject1 and all projects that depend on it have to be resolved again
+    assertNotSame(classpath1, resolve(workspace, "simpleproject1"));
+    assertNotSame(classpath2, resolve(workspace, "simpleproject2"));
+    assertSame(classpath3, resolve(workspace, "simpleproject3"));
+  }
+
+  private Workspace registerWorkspace() {
+    WorkspaceRegistry workspaceRegistry = ServiceRegistryAccess.instance().getService(WorkspaceRegistry.class);
+    return workspaceRegistry.registerWorkspace(this._testWorkspace.getRootDir().getAbsolutePath(),
+        new DefaultEclipseWorkspaceDefinition(this._testWorkspace.getRootDir()));
+  }
+
+  private ResolvedClasspath resolve(Workspace workspace, String projectName) {
+    return JdtResolver.resolveProjectClasspath(workspace.getProject(projectName), false, false, null);
+  }
+}
@@ -76,6 +76,9 @@ public class JdtExceptionCode extends ExceptionCode {
   @NLSMessage("The JRE with id '%s' at '%s' has VM Profile '%s' but that profile is unknown.")
   public static JdtExceptionCode NO_JAVA_PROFILE_FOUND_FOR_JRE;
 
+  @NLSMessage("The java runtime at '%s' has not been probed yet but probing is disabled (%s=%s).")
+  public static JdtExceptionCode JAVA_RUNTIME_NOT_PROBED;
+
   static {
     NLS.initialize(JdtExceptionCode.class);
   }
@@ -272,8 +272,10 @@ public class JavaExecuter {
       errorGobbler.start();
       outputGobbler.start();
 
-      // wait for result
+      // wait for result (including the complete output)
       proc.waitFor();
+      errorGobbler.join();
+      outputGobbler.join();
 
       // read out and err stream
       this._systemOut = outputLinesList.toArray(new String[0]);
@@ -342,6 +344,17 @@ public class JavaExecuter {
     return this._systemErr;
   }
 
+  /**
+   * <p>
+   * Returns the directory of the java runtime environment.
+   * </p>
+   * 
+   * @return the directory of the java runtime environment.
+   */
+  public File getJreDirectory() {
+    return this._jreDirectory;
+  }
+
   /**
    * <p>
    * Returns the java executable. If the java executable could not be resolved, a {@link Ant4EclipseException} with the
@@ -350,7 +363,7 @@ public class JavaExecuter {
    * 
    * @return the java executable
    */
-  private File getJavaExecutable() {
+  public File getJavaExecutable() {
     // try 'bin/java'
     File result = new File(this._jreDirectory, "bin/java");
 
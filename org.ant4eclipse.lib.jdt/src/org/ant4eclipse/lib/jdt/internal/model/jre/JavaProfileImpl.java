@@ -17,9 +17,14 @@ import org.ant4eclipse.lib.core.util.StringMap;
 import org.ant4eclipse.lib.core.util.ManifestHelper.ManifestHeaderElement;
 import org.ant4eclipse.lib.jdt.model.jre.JavaProfile;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
 
 /**
  * <p>
@@ -61,7 +66,10 @@ public class JavaProfileImpl implements JavaProfile {
   private StringMap           _properties;
 
   /** the list of system packages */
-  private List<String>        _systemPackagesList             = new LinkedList<String>();
+  private List<String>        _systemPackagesList             = new ArrayList<String>();
+
+  /** the set of system packages (used for lookups) */
+  private Set<String>         _systemPackages                 = new HashSet<String>();
 
   /** the list of packages that are delegated to the boot class loader */
   private List<PackageFilter> _delegatedToBootClassLoaderList = new LinkedList<PackageFilter>();
@@ -91,7 +99,7 @@ public class JavaProfileImpl implements JavaProfile {
    * {@inheritDoc}
    */
   public boolean isSystemPackage(String packageName) {
-    return this._systemPackagesList.contains(packageName);
+    return this._systemPackages.contains(packageName);
   }
 
   /**
@@ -169,6 +177,7 @@ public class JavaProfileImpl implements JavaProfile {
         // add package names to string
         for (String packageName : packageNames) {
           this._systemPackagesList.add(packageName);
+          this._systemPackages.add(packageName);
         }
       }
     }
@@ -199,25 +208,53 @@ public class JavaProfileImpl implements JavaProfile {
    */
   public class PackageFilter {
 
-    /** - */
-    private String[] _includedPackages;
+    /** the package names without wild cards */
+    private Set<String>   _packages;
+
+    /** the prefixes of the package names with a trailing wild card (<code>javax.</code> for <code>javax.*</code>) */
+    private Set<String>   _prefixes;
+
+    /** the (ascending) lengths of the prefixes */
+    private int[]         _prefixLengths;
+
+    /** the package names with other wild cards as regular expressions */
+    private List<Pattern> _patterns;
 
     /**
      * @param includedPackages
      */
     public PackageFilter(String includedPackages) {
 
+      this._packages = new HashSet<String>();
+      this._prefixes = new HashSet<String>();
+      this._patterns = new LinkedList<Pattern>();
+      Set<Integer> prefixLengths = new TreeSet<Integer>();
+
       // set default value
-      this._includedPackages = includedPackages == null ? new String[] {} : includedPackages.split(",");
+      String[] packages = includedPackages == null ? new String[] {} : includedPackages.split(",");
 
       //
-      for (int i = 0; i < this._includedPackages.length; i++) {
+      for (String includedPackage : packages) {
+        String packageName = includedPackage.trim();
+        int wildcardIndex = packageName.indexOf('*');
 
-        // replace OSGi wild cards (*) with regular expressions (.+)
         // NOTE: we're interpreting a * as "one or more characters here"
-        // otherwise we have to use the regex ".*" which means "zero or more
-        // characters here"
-        this._includedPackages[i] = this._includedPackages[i].replaceAll("\\*", ".+");
+        if (wildcardIndex == -1) {
+          this._packages.add(packageName);
+        } else if (wildcardIndex == packageName.length() - 1) {
+          this._prefixes.add(packageName.substring(0, wildcardIndex));
+          prefixLengths.add(Integer.valueOf(wildcardIndex));
+        } else {
+          // replace OSGi wild cards (*) with regular expressions (.+)
+          this._patterns.add(Pattern.compile(packageName.replaceAll("\\*", ".+")));
+        }
+      }
+
+      //
+      this._prefixLengths = new int[prefixLengths.size()];
+      int i = 0;
+      for (Integer prefixLength : prefixLengths) {
+        this._prefixLengths[i++] = prefixLength.intValue();
       }
     }
 
@@ -232,8 +269,23 @@ public class JavaProfileImpl implements JavaProfile {
       Assure.notNull("packageName", packageName);
 
       //
-      for (String package1 : this._includedPackages) {
-        if (matches(package1.trim(), packageName)) {
+      if (this._packages.contains(packageName)) {
+        return true;
+      }
+
+      // the wild card has to match at least one character
+      for (int prefixLength : this._prefixLengths) {
+        if (prefixLength >= packageName.length()) {
+          break;
+        }
+        if (this._prefixes.contains(packageName.substring(0, prefixLength))) {
+          return true;
+        }
+      }
+
+      //
+      for (Pattern pattern : this._patterns) {
+        if (pattern.matcher(packageName).matches()) {
           return true;
         }
       }
@@ -241,21 +293,6 @@ public class JavaProfileImpl implements JavaProfile {
       // no match - return false
       return false;
     }
-
-    /**
-     * <p>
-     * </p>
-     * 
-     * @param osgiPattern
-     * @param string
-     * 
-     * @return
-     */
-    private boolean matches(String osgiPattern, String string) {
-      Assure.notNull("osgiPattern", osgiPattern);
-      Assure.notNull("string", string);
-      return string.matches(osgiPattern);
-    }
   }
 
   /**
@@ -31,6 +31,9 @@ import org.ant4eclipse.lib.jdt.model.jre.JavaProfile;
  */
 public class JavaProfileReader implements Lifecycle {
 
+  /** the built-in java profiles, read once and shared by all instances (the first one is the default profile) */
+  private static JavaProfile[]     _builtInProfiles;
+
   /** the java profile cache */
   private Map<String, JavaProfile> _javaProfileCache;
 
@@ -44,13 +47,16 @@ public class JavaProfileReader implements Lifecycle {
 
     this._javaProfileCache = new HashMap<String, JavaProfile>();
 
-    // read all known profiles
-    JavaProfile[] javaProfiles = readAllProfiles();
+    // get all known profiles
+    JavaProfile[] javaProfiles = getBuiltInProfiles();
 
     // add profiles to profile cache
     for (JavaProfile javaProfile : javaProfiles) {
       this._javaProfileCache.put(javaProfile.getName(), javaProfile);
     }
+
+    // set the default profile
+    this._defaultProfile = javaProfiles[0];
   }
 
   /**
@@ -116,10 +122,24 @@ public class JavaProfileReader implements Lifecycle {
     this._javaProfileCache.put(javaProfile.getName(), javaProfile);
   }
 
+  /**
+   * <p>
+   * Returns the built-in java profiles. The profiles are read only once, since they are never modified.
+   * </p>
+   * 
+   * @return the built-in java profiles.
+   */
+  private static synchronized JavaProfile[] getBuiltInProfiles() {
+    if (_builtInProfiles == null) {
+      _builtInProfiles = readAllProfiles();
+    }
+    return _builtInProfiles;
+  }
+
   /**
    * @return
    */
-  private JavaProfile[] readAllProfiles() {
+  private static JavaProfile[] readAllProfiles() {
 
     // load the profile listing first
     StringMap properties = new StringMap("/profiles/profile.list");
@@ -138,9 +158,6 @@ public class JavaProfileReader implements Lifecycle {
       }
     }
 
-    // set the default profile
-    this._defaultProfile = result.get(0);
-
     return result.toArray(new JavaProfile[result.size()]);
   }
 
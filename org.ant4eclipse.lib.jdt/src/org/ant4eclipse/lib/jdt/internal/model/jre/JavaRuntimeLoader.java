@@ -25,7 +25,6 @@ import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
 import org.ant4eclipse.lib.core.logging.A4ELogging;
 import org.ant4eclipse.lib.core.service.ServiceRegistryAccess;
 import org.ant4eclipse.lib.jdt.JdtExceptionCode;
-import org.ant4eclipse.lib.jdt.internal.model.jre.support.LibraryDetector;
 import org.ant4eclipse.lib.jdt.model.jre.JavaProfile;
 import org.ant4eclipse.lib.jdt.model.jre.JavaRuntime;
 import org.ant4eclipse.lib.jdt.model.jre.JavaRuntimeRegistry;
@@ -63,10 +62,8 @@ public class JavaRuntimeLoader {
     Assure.nonEmpty("id", id);
     Assure.isDirectory("location", location);
 
-    JavaExecuter javaLauncher = JavaExecuter.createWithA4eClasspath(location);
-    javaLauncher.setMainClass(LibraryDetector.class.getName());
-    javaLauncher.execute();
-    String[] values = javaLauncher.getSystemOut();
+    // the output of the LibraryDetector
+    String[] values = JavaRuntimeProbeCache.getInstance().getProbeResult(location);
 
     Version javaVersion = Version.newJavaVersion(values[0]);
     String sunbootclasspath = values[1];
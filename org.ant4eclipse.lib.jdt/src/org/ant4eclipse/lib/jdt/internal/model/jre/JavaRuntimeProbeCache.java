@@ -0,0 +1,400 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.internal.model.jre;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.ant4eclipse.lib.core.Assure;
+import org.ant4eclipse.lib.core.Lifecycle;
+import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
+import org.ant4eclipse.lib.core.logging.A4ELogging;
+import org.ant4eclipse.lib.core.service.ServiceRegistryAccess;
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.lib.jdt.JdtExceptionCode;
+import org.ant4eclipse.lib.jdt.internal.model.jre.support.LibraryDetector;
+
+/**
+ * <p>
+ * Caches the results of the {@link LibraryDetector} which has to be executed in a separate java process for each java
+ * runtime. The results are stored persistently, so the process is only started if the java runtime has been changed.
+ * </p>
+ * <p>
+ * An entry is identified by the canonical path of the java executable and validated by the size and modification time
+ * of the java executable and of the class library of the runtime (<code>lib/rt.jar</code> or
+ * <code>lib/modules</code>). The entries are located in the <code>jre-probe</code> subdirectory of the ant4eclipse
+ * cache directory (see {@link Utilities#getCacheDir(String)}).
+ * </p>
+ * <p>
+ * The usage of the cache can be controlled using the system property <code>ant4eclipse.jre.probe</code>:
+ * <ul>
+ * <li><code>cached</code> (default) - the cached results are used as long as they are up-to-date</li>
+ * <li><code>always</code> - each java runtime is probed (the results are stored anyway)</li>
+ * <li><code>never</code> - no java runtime is probed. The cached results are used even if they are stale.</li>
+ * </ul>
+ * </p>
+ * <p>
+ * The java runtimes are probed concurrently, only the probes of the same java executable are serialized.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class JavaRuntimeProbeCache implements Lifecycle {
+
+  /** System-Property that specifies when java runtimes are probed */
+  public static final String                PROP_PROBE    = "ant4eclipse.jre.probe";
+
+  /** the java runtimes are probed if the cache doesn't contain up-to-date results */
+  public static final String                PROBE_CACHED  = "cached";
+
+  /** the java runtimes are always probed */
+  public static final String                PROBE_ALWAYS  = "always";
+
+  /** the java runtimes are never probed */
+  public static final String                PROBE_NEVER   = "never";
+
+  /** the magic number of all cache files */
+  private static final int                  MAGIC         = 0x4134454A;
+
+  /** the version of the cache file format */
+  private static final int                  VERSION       = 1;
+
+  /** the class libraries that are used to detect changes of a java runtime (relative to the runtime directory) */
+  private static final String[]             CLASS_LIBRARY = { "lib/rt.jar", "lib/modules", "../Classes/classes.jar" };
+
+  /** the cache directory (<code>null</code> if the persistent cache is disabled) */
+  private File                              _cacheDirectory;
+
+  /** the results of this build (key: canonical path of the java executable) */
+  private Map<String, ProbeResult>          _results;
+
+  /** the locks that serialize the probes of a java executable (key: canonical path of the java executable) */
+  private ConcurrentHashMap<String, Object> _locks;
+
+  /** the probe policy */
+  private String                            _policy;
+
+  /** - */
+  private boolean                           _initialized;
+
+  /**
+   * {@inheritDoc}
+   */
+  public boolean isInitialized() {
+    return this._initialized;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public void initialize() {
+    this._cacheDirectory = Utilities.getCacheDir("jre-probe");
+    this._results = new ConcurrentHashMap<String, ProbeResult>();
+    this._locks = new ConcurrentHashMap<String, Object>();
+    this._policy = Utilities.cleanup(System.getProperty(PROP_PROBE));
+    if (this._policy == null) {
+      this._policy = PROBE_CACHED;
+    }
+    if (!PROBE_CACHED.equalsIgnoreCase(this._policy) && !PROBE_ALWAYS.equalsIgnoreCase(this._policy)
+        && !PROBE_NEVER.equalsIgnoreCase(this._policy)) {
+      A4ELogging.warn("Unknown value '%s' of the property '%s', using '%s'.", this._policy, PROP_PROBE, PROBE_CACHED);
+      this._policy = PROBE_CACHED;
+    }
+    this._initialized = true;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public void dispose() {
+    this._results = null;
+    this._locks = null;
+    this._initialized = false;
+  }
+
+  /**
+   * <p>
+   * Returns the output of the {@link LibraryDetector} for the java runtime at the given location. The java runtime is
+   * probed according to the policy specified by {@link #PROP_PROBE}.
+   * </p>
+   *
+   * @param location
+   *          the location of the java runtime. Not <code>null</code>.
+   * @return the output of the {@link LibraryDetector}. Not <code>null</code>.
+   */
+  public String[] getProbeResult(File location) {
+    return getProbeResult(location, PROBE_ALWAYS.equalsIgnoreCase(this._policy));
+  }
+
+  /**
+   * <p>
+   * Returns the output of the {@link LibraryDetector} for the java runtime at the given location. If the cache doesn't
+   * contain an up-to-date result (or if <code>refresh</code> is set) the java runtime is probed unless the policy is
+   * {@link #PROBE_NEVER}.
+   * </p>
+   *
+   * @param location
+   *          the location of the java runtime. Not <code>null</code>.
+   * @param refresh
+   *          <code>true</code> if the java runtime should be probed regardless of the cached result.
+   * @return the output of the {@link LibraryDetector}. Not <code>null</code>.
+   */
+  public String[] getProbeResult(File location, boolean refresh) {
+    Assure.isDirectory("location", location);
+
+    JavaExecuter javaExecuter = JavaExecuter.createWithA4eClasspath(location);
+    File executable = Utilities.getCanonicalFile(javaExecuter.getJavaExecutable());
+    File classLibrary = getClassLibrary(javaExecuter.getJreDirectory());
+    ProbeResult current = new ProbeResult(executable, classLibrary);
+
+    synchronized (getLock(executable.getPath())) {
+      return getProbeResult(location, refresh, javaExecuter, current);
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the output of the {@link LibraryDetector} for the given java runtime. The caller must hold the lock of the
+   * java executable.
+   * </p>
+   */
+  private String[] getProbeResult(File location, boolean refresh, JavaExecuter javaExecuter, ProbeResult current) {
+    String executable = current._executable;
+
+    // step 1: use the result of this build or the cached result
+    ProbeResult cached = this._results.get(executable);
+    if (cached == null) {
+      cached = read(new File(executable));
+    }
+    if (cached != null) {
+      if (PROBE_NEVER.equalsIgnoreCase(this._policy)) {
+        if (!cached.isValid(current)) {
+          A4ELogging.warn("The cached probe of the java runtime '%s' is stale but probing is disabled.", location);
+        }
+        return cached._values;
+      }
+      if (!refresh && cached.isValid(current)) {
+        A4ELogging.debug("Using the cached probe of the java runtime '%s'.", location);
+        this._results.put(executable, cached);
+        return cached._values;
+      }
+    } else if (PROBE_NEVER.equalsIgnoreCase(this._policy)) {
+      throw new Ant4EclipseException(JdtExceptionCode.JAVA_RUNTIME_NOT_PROBED, location, PROP_PROBE, PROBE_NEVER);
+    }
+
+    // step 2: probe the java runtime
+    javaExecuter.setMainClass(LibraryDetector.class.getName());
+    javaExecuter.execute();
+    current._values = javaExecuter.getSystemOut();
+    this._results.put(executable, current);
+    write(current);
+    return current._values;
+  }
+
+  /**
+   * <p>
+   * Returns the lock for the given java executable.
+   * </p>
+   */
+  private Object getLock(String executable) {
+    Object result = this._locks.get(executable);
+    if (result == null) {
+      Object lock = new Object();
+      result = this._locks.putIfAbsent(executable, lock);
+      if (result == null) {
+        result = lock;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * <p>
+   * Returns the class library of the given runtime directory or <code>null</code> if it can't be found.
+   * </p>
+   */
+  private File getClassLibrary(File jreDirectory) {
+    for (String path : CLASS_LIBRARY) {
+      File result = new File(jreDirectory, path);
+      if (result.isFile()) {
+        return result;
+      }
+    }
+    // a jdk 9+ doesn't contain a separate jre directory
+    File modules = new File(jreDirectory.getParentFile(), "lib/modules");
+    return modules.isFile() ? modules : null;
+  }
+
+  /**
+   * <p>
+   * Reads the cached result for the given java executable.
+   * </p>
+   *
+   * @return the cached result or <code>null</code>.
+   */
+  private ProbeResult read(File executable) {
+    if (this._cacheDirectory == null) {
+      return null;
+    }
+    File cacheFile = getCacheFile(executable);
+    if (!cacheFile.isFile()) {
+      return null;
+    }
+    DataInputStream input = null;
+    try {
+      input = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+      if ((input.readInt() != MAGIC) || (input.readInt() != VERSION) || !input.readUTF().equals(executable.getPath())) {
+        return null;
+      }
+      ProbeResult result = new ProbeResult();
+      result._executableLength = input.readLong();
+      result._executableLastModified = input.readLong();
+      result._classLibrary = input.readUTF();
+      result._classLibraryLength = input.readLong();
+      result._classLibraryLastModified = input.readLong();
+      result._values = new String[input.readInt()];
+      for (int i = 0; i < result._values.length; i++) {
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        result._values[i] = new String(bytes, "UTF-8");
+      }
+      return result;
+    } catch (IOException ex) {
+      A4ELogging.debug("Could not read cached java runtime probe '%s': %s", cacheFile, ex.getMessage());
+      return null;
+    } finally {
+      Utilities.close((Closeable) input);
+    }
+  }
+
+  /**
+   * <p>
+   * Stores the given result in the cache.
+   * </p>
+   */
+  private void write(ProbeResult result) {
+    if (this._cacheDirectory == null) {
+      return;
+    }
+    File cacheFile = getCacheFile(new File(result._executable));
+    DataOutputStream output = null;
+    File tempFile = null;
+    try {
+      tempFile = File.createTempFile("probe", ".tmp", this._cacheDirectory);
+      output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+      output.writeInt(MAGIC);
+      output.writeInt(VERSION);
+      output.writeUTF(result._executable);
+      output.writeLong(result._executableLength);
+      output.writeLong(result._executableLastModified);
+      output.writeUTF(result._classLibrary);
+      output.writeLong(result._classLibraryLength);
+      output.writeLong(result._classLibraryLastModified);
+      output.writeInt(result._values.length);
+      for (String value : result._values) {
+        // the boot class path may exceed the limit of writeUTF
+        byte[] bytes = value.getBytes("UTF-8");
+        output.writeInt(bytes.length);
+        output.write(bytes);
+      }
+      output.close();
+      output = null;
+      Utilities.replaceFile(tempFile, cacheFile);
+      tempFile = null;
+    } catch (IOException ex) {
+      A4ELogging.debug("Could not write cached java runtime probe '%s': %s", cacheFile, ex.getMessage());
+    } finally {
+      Utilities.close((Closeable) output);
+      if (tempFile != null) {
+        tempFile.delete();
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the cache file for the given java executable.
+   * </p>
+   */
+  private File getCacheFile(File executable) {
+    return new File(this._cacheDirectory, Utilities.sha1(executable.getPath()) + ".probe");
+  }
+
+  public static JavaRuntimeProbeCache getInstance() {
+    return ServiceRegistryAccess.instance().getService(JavaRuntimeProbeCache.class);
+  }
+
+  /**
+   * <p>
+   * The output of the {@link LibraryDetector} together with the state of the probed java runtime.
+   * </p>
+   */
+  private static class ProbeResult {
+
+    /** the canonical path of the java executable */
+    private String   _executable;
+
+    /** - */
+    private long     _executableLength;
+
+    /** - */
+    private long     _executableLastModified;
+
+    /** the path of the class library or an empty string */
+    private String   _classLibrary;
+
+    /** - */
+    private long     _classLibraryLength;
+
+    /** - */
+    private long     _classLibraryLastModified;
+
+    /** the output of the {@link LibraryDetector} */
+    private String[] _values;
+
+    public ProbeResult() {
+      super();
+    }
+
+    public ProbeResult(File executable, File classLibrary) {
+      this._executable = executable.getPath();
+      this._executableLength = executable.length();
+      this._executableLastModified = executable.lastModified();
+      this._classLibrary = classLibrary != null ? classLibrary.getPath() : "";
+      this._classLibraryLength = classLibrary != null ? classLibrary.length() : 0;
+      this._classLibraryLastModified = classLibrary != null ? classLibrary.lastModified() : 0;
+    }
+
+    /**
+     * <p>
+     * Returns <code>true</code> if this result has been created for the same state of the java runtime.
+     * </p>
+     */
+    public boolean isValid(ProbeResult current) {
+      return (this._executableLength == current._executableLength)
+          && (this._executableLastModified == current._executableLastModified)
+          && this._classLibrary.equals(current._classLibrary)
+          && (this._classLibraryLength == current._classLibraryLength)
+          && (this._classLibraryLastModified == current._classLibraryLastModified);
+    }
+  }
+
+} /* ENDCLASS */
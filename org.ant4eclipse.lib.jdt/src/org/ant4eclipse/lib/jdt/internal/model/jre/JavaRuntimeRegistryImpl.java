@@ -89,6 +89,7 @@ public class JavaRuntimeRegistryImpl implements JavaRuntimeRegistry {
     Assure.assertTrue(hasJavaRuntime(id), "No JavaRuntime with id '" + id + "' registered!");
 
     this._defaultJavaRuntimeKey = id;
+    this._defaultJavaRuntime = null;
   }
 
   /**
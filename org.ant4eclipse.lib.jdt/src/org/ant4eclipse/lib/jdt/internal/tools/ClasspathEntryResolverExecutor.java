@@ -277,7 +277,11 @@ public class ClasspathEntryResolverExecutor {
     for (ClasspathEntryResolver entryResolver : this._entryResolvers) {
       if (entryResolver.canResolve(entry)) {
         handled = true;
+
+        // each class path entry contributes it's own (shared) segment to the resolved class path
+        this._resolverContext.closeSegment();
         entryResolver.resolve(entry, this._resolverContext);
+        this._resolverContext.closeSegment();
         break;
       }
     }
@@ -144,4 +144,13 @@ public class ClasspathResolverContextImpl implements ClasspathResolverContext {
   public void addReferencedProjects(EclipseProject eclipseProject) {
     this._executor.addReferencedProject(eclipseProject);
   }
+
+  /**
+   * {@inheritDoc}
+   */
+  public void closeSegment() {
+    if (this._resolvedClasspath != null) {
+      this._resolvedClasspath.closeSegment();
+    }
+  }
 }
@@ -12,8 +12,10 @@
 package org.ant4eclipse.lib.jdt.internal.tools;
 
 import java.io.File;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.ant4eclipse.lib.core.Assure;
 import org.ant4eclipse.lib.jdt.tools.ResolvedClasspath;
@@ -21,18 +23,23 @@ import org.ant4eclipse.lib.jdt.tools.ResolvedClasspathEntry;
 
 /**
  * <p>
- * Implements the {@link ResolvedClasspath}.
+ * Implements the {@link ResolvedClasspath}. The class path is stored as an ordered list of shared
+ * {@link ResolvedClasspathSegment segments}, one for each resolved raw class path entry. Duplicate entries are removed
+ * when the class path is requested.
  * </p>
  * 
  * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
  */
 public final class ResolvedClasspathImpl implements ResolvedClasspath {
 
-  /** the list with all the resolved path entries */
-  private List<ResolvedClasspathEntry> _classpath;
+  /** the list with the shared segments of the class path */
+  private List<ResolvedClasspathSegment> _segments;
+
+  /** the entries of the segment that is currently resolved */
+  private List<ResolvedClasspathEntry>   _currentSegment;
 
   /** the boot class path. Might be null * */
-  private ResolvedClasspathEntry       _bootclasspath;
+  private ResolvedClasspathEntry         _bootclasspath;
 
   /**
    * <p>
@@ -40,14 +47,22 @@ public final class ResolvedClasspathImpl implements ResolvedClasspath {
    * </p>
    */
   public ResolvedClasspathImpl() {
-    this._classpath = new LinkedList<ResolvedClasspathEntry>();
+    this._segments = new ArrayList<ResolvedClasspathSegment>();
+    this._currentSegment = new ArrayList<ResolvedClasspathEntry>();
   }
 
   /**
    * {@inheritDoc}
    */
   public final ResolvedClasspathEntry[] getClasspath() {
-    return this._classpath.toArray(new ResolvedClasspathEntry[0]);
+    Set<ResolvedClasspathEntry> result = new LinkedHashSet<ResolvedClasspathEntry>();
+    for (ResolvedClasspathSegment segment : this._segments) {
+      for (ResolvedClasspathEntry entry : segment.getEntries()) {
+        result.add(entry);
+      }
+    }
+    result.addAll(this._currentSegment);
+    return result.toArray(new ResolvedClasspathEntry[result.size()]);
   }
 
   /**
@@ -78,12 +93,27 @@ public final class ResolvedClasspathImpl implements ResolvedClasspath {
    * {@inheritDoc}
    */
   public File[] getClasspathFiles() {
-    return resolveClasspathToFiles(this._classpath);
+
+    // create result
+    Set<File> result = new LinkedHashSet<File>();
+
+    // add all files (the files of duplicate entries are already contained)
+    for (ResolvedClasspathSegment segment : this._segments) {
+      for (ResolvedClasspathEntry entry : segment.getEntries()) {
+        addFiles(result, entry);
+      }
+    }
+    for (ResolvedClasspathEntry entry : this._currentSegment) {
+      addFiles(result, entry);
+    }
+
+    // return result
+    return result.toArray(new File[result.size()]);
   }
 
   /**
    * <p>
-   * Adds the given class path entry to the class path.
+   * Adds the given class path entry to the current segment of the class path.
    * </p>
    * 
    * @param resolvedClasspathEntry
@@ -91,8 +121,19 @@ public final class ResolvedClasspathImpl implements ResolvedClasspath {
    */
   public final void addClasspathEntry(ResolvedClasspathEntry resolvedClasspathEntry) {
     Assure.notNull("resolvedClasspathEntry", resolvedClasspathEntry);
-    if (!this._classpath.contains(resolvedClasspathEntry)) {
-      this._classpath.add(resolvedClasspathEntry);
+    this._currentSegment.add(resolvedClasspathEntry);
+  }
+
+  /**
+   * <p>
+   * Completes the current segment of the class path. The entries that have been added since the last call are replaced
+   * by the shared segment containing them.
+   * </p>
+   */
+  public final void closeSegment() {
+    if (!this._currentSegment.isEmpty()) {
+      this._segments.add(ResolvedClasspathSegment.intern(this._currentSegment));
+      this._currentSegment.clear();
     }
   }
 
@@ -109,35 +150,22 @@ public final class ResolvedClasspathImpl implements ResolvedClasspath {
       // TODO: NLS
       throw new RuntimeException("FAIL");
     }
-    this._bootclasspath = resolvedClasspathEntry;
+    this._bootclasspath = ResolvedClasspathSegment.internEntry(resolvedClasspathEntry);
   }
 
   /**
    * <p>
-   * Helper method that returns a list with all class path entries as files.
+   * Helper method that adds the files of the given class path entry to the given set.
    * </p>
    * 
-   * @param classpath
-   *          the class path
-   * @return a list with all class path entries as files.
+   * @param files
+   *          the set of files
+   * @param entry
+   *          the class path entry
    */
-  private File[] resolveClasspathToFiles(List<ResolvedClasspathEntry> classpath) {
-
-    // create result
-    List<File> result = new LinkedList<File>();
-
-    // add all files
-    for (Object element : classpath) {
-      ResolvedClasspathEntry resolvedClasspathEntry = (ResolvedClasspathEntry) element;
-      File[] files = resolvedClasspathEntry.getClassPathEntries();
-      for (int i = 0; i < files.length; i++) {
-        if (!result.contains(files[i])) {
-          result.add(files[i]);
-        }
-      }
+  private static void addFiles(Set<File> files, ResolvedClasspathEntry entry) {
+    for (File file : entry.getClassPathEntries()) {
+      files.add(file);
     }
-
-    // return result
-    return result.toArray(new File[0]);
   }
 }
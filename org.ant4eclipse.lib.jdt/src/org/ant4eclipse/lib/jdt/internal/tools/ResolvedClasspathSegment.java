@@ -0,0 +1,149 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.internal.tools;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.ant4eclipse.lib.jdt.tools.ResolvedClasspathEntry;
+
+/**
+ * <p>
+ * An immutable sequence of resolved class path entries that has been contributed by a single raw class path entry,
+ * e.g. the output folder of a project or all entries of a class path container. Segments (and their entries) are
+ * interned, so that all resolved class paths that contain the same segment share a single instance.
+ * </p>
+ * 
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+final class ResolvedClasspathSegment {
+
+  /** the interned segments */
+  private static final Map<ResolvedClasspathSegment, WeakReference<ResolvedClasspathSegment>> SEGMENTS;
+
+  /** the interned entries */
+  private static final Map<ResolvedClasspathEntry, WeakReference<ResolvedClasspathEntry>>     ENTRIES;
+
+  static {
+    SEGMENTS = new WeakHashMap<ResolvedClasspathSegment, WeakReference<ResolvedClasspathSegment>>();
+    ENTRIES = new WeakHashMap<ResolvedClasspathEntry, WeakReference<ResolvedClasspathEntry>>();
+  }
+
+  /** the entries of this segment */
+  private ResolvedClasspathEntry[] _entries;
+
+  /** the hash code of this segment */
+  private int                      _hashCode;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link ResolvedClasspathSegment}.
+   * </p>
+   * 
+   * @param entries
+   *          the entries of this segment
+   */
+  private ResolvedClasspathSegment(ResolvedClasspathEntry[] entries) {
+    this._entries = entries;
+    this._hashCode = Arrays.hashCode(entries);
+  }
+
+  /**
+   * <p>
+   * Returns the entries of this segment. The returned array must not be modified.
+   * </p>
+   * 
+   * @return the entries of this segment.
+   */
+  public ResolvedClasspathEntry[] getEntries() {
+    return this._entries;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int hashCode() {
+    return this._hashCode;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (obj == null || getClass() != obj.getClass()) {
+      return false;
+    }
+    ResolvedClasspathSegment other = (ResolvedClasspathSegment) obj;
+    return (this._hashCode == other._hashCode) && Arrays.equals(this._entries, other._entries);
+  }
+
+  /**
+   * <p>
+   * Returns the shared segment that contains the given entries.
+   * </p>
+   * 
+   * @param entries
+   *          the entries of the segment
+   * @return the shared segment that contains the given entries.
+   */
+  public static synchronized ResolvedClasspathSegment intern(List<ResolvedClasspathEntry> entries) {
+    ResolvedClasspathSegment segment = new ResolvedClasspathSegment(entries.toArray(new ResolvedClasspathEntry[entries
+        .size()]));
+    ResolvedClasspathSegment result = get(SEGMENTS, segment);
+    if (result == null) {
+      // share equal entries of different segments as well
+      for (int i = 0; i < segment._entries.length; i++) {
+        segment._entries[i] = internEntry(segment._entries[i]);
+      }
+      SEGMENTS.put(segment, new WeakReference<ResolvedClasspathSegment>(segment));
+      result = segment;
+    }
+    return result;
+  }
+
+  /**
+   * <p>
+   * Returns the shared entry that is equal to the given entry.
+   * </p>
+   * 
+   * @param entry
+   *          the entry
+   * @return the shared entry that is equal to the given entry.
+   */
+  public static synchronized ResolvedClasspathEntry internEntry(ResolvedClasspathEntry entry) {
+    ResolvedClasspathEntry result = get(ENTRIES, entry);
+    if (result == null) {
+      ENTRIES.put(entry, new WeakReference<ResolvedClasspathEntry>(entry));
+      result = entry;
+    }
+    return result;
+  }
+
+  /**
+   * <p>
+   * Returns the interned object that is equal to the given key or <code>null</code>.
+   * </p>
+   */
+  private static <T> T get(Map<T, WeakReference<T>> interned, T key) {
+    WeakReference<T> reference = interned.get(key);
+    return reference != null ? reference.get() : null;
+  }
+
+} /* ENDCLASS */
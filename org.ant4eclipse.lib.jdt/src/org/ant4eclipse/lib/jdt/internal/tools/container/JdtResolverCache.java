@@ -1,66 +1,500 @@
 package org.ant4eclipse.lib.jdt.internal.tools.container;
 
-import java.util.Hashtable;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import org.ant4eclipse.lib.core.logging.A4ELogging;
 import org.ant4eclipse.lib.core.service.ServiceRegistryAccess;
+import org.ant4eclipse.lib.jdt.model.ContainerTypes;
+import org.ant4eclipse.lib.jdt.model.jre.JavaRuntime;
+import org.ant4eclipse.lib.jdt.model.jre.JavaRuntimeRegistry;
+import org.ant4eclipse.lib.jdt.model.project.JavaProjectRole;
+import org.ant4eclipse.lib.jdt.model.project.RawClasspathEntry;
 import org.ant4eclipse.lib.jdt.tools.ResolvedClasspath;
+import org.ant4eclipse.lib.jdt.tools.classpathelements.ClassPathContainer;
+import org.ant4eclipse.lib.jdt.tools.classpathelements.ClassPathElementsRegistry;
+import org.ant4eclipse.lib.jdt.tools.classpathelements.ClassPathVariable;
+import org.ant4eclipse.lib.jdt.tools.container.JdtClasspathContainerArgument;
 import org.ant4eclipse.lib.platform.model.resource.EclipseProject;
+import org.ant4eclipse.lib.platform.model.resource.Workspace;
 
 /**
  * <p>
+ * Caches resolved class paths. Each cached class path records the inputs that have been read while it has been
+ * resolved:
+ * <ul>
+ * <li>the class path entries of all (transitively) visited projects (the content of their <code>.classpath</code>
+ * files) and the locations of their source, library and output folders (which depend on the linked resources of their
+ * <code>.project</code> files),</li>
+ * <li>the class path containers (e.g. the user libraries) and class path variables that are referenced by these
+ * entries,</li>
+ * <li>the java runtime of the JRE container of the root project.</li>
+ * </ul>
+ * A cached class path is only returned if all of it's inputs are unchanged. As the projects are re-read if the
+ * workspace is refreshed, a changed project is detected by comparing the new project with the project that has been
+ * used to resolve the class path. A changed project invalidates the class paths of exactly the projects that depend on
+ * it.
  * </p>
- * 
+ * <p>
+ * Class paths that contain other class path containers (e.g. the required plug-ins of a plug-in project) depend on
+ * inputs that can't be checked and are not cached.
+ * </p>
+ *
  * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
  */
 public class JdtResolverCache {
 
-  /** the class path cache */
-  private static final Map<String, ResolvedClasspath> _classpathCache = new Hashtable<String, ResolvedClasspath>();
+  /** the cached class paths per key */
+  private Map<String, CacheEntry> _entries    = new HashMap<String, CacheEntry>();
+
+  /** the keys of the cached class paths per folder of a project that has been visited while resolving them */
+  private Map<File, Set<String>>  _dependents = new HashMap<File, Set<String>>();
 
   /**
    * <p>
+   * Returns the cached class path for the given key if all inputs of the class path are unchanged.
    * </p>
-   * 
+   *
    * @param key
-   * @return
+   *          the key as returned by {@link #getCacheKey(EclipseProject, boolean, boolean, List)}
+   * @param project
+   *          the project that should be resolved
+   * @return the cached class path or <code>null</code> if the class path isn't cached or is out of date.
    */
-  public ResolvedClasspath getResolvedClasspath(String key) {
-    return _classpathCache.get(key);
+  public synchronized ResolvedClasspath getResolvedClasspath(String key, EclipseProject project) {
+    CacheEntry entry = this._entries.get(key);
+    if (entry == null) {
+      return null;
+    }
+
+    // check the inputs
+    Workspace workspace = project.getWorkspace();
+    for (ProjectInput input : entry._projects) {
+      if (!input.isValid(workspace)) {
+        A4ELogging.debug("JdtResolverCache: project '%s' has changed.", input._name);
+        invalidate(input._folder);
+        return null;
+      }
+    }
+    for (Input input : entry._inputs) {
+      if (!input.isValid()) {
+        A4ELogging.debug("JdtResolverCache: %s has changed.", input);
+        remove(key);
+        return null;
+      }
+    }
+
+    return entry._classpath;
   }
 
   /**
    * <p>
+   * Stores the given resolved class path.
    * </p>
-   * 
+   *
    * @param key
+   *          the key as returned by {@link #getCacheKey(EclipseProject, boolean, boolean, List)}
+   * @param project
+   *          the resolved project
    * @param classpath
+   *          the resolved class path
+   * @param visitedProjects
+   *          all projects that have been visited while resolving the class path
    */
-  public void storeResolvedClasspath(String key, ResolvedClasspath classpath) {
-    _classpathCache.put(key, classpath);
+  public synchronized void storeResolvedClasspath(String key, EclipseProject project, ResolvedClasspath classpath,
+      List<EclipseProject> visitedProjects) {
+
+    ClassPathElementsRegistry elementsRegistry = ServiceRegistryAccess.instance().getService(
+        ClassPathElementsRegistry.class);
+
+    List<ProjectInput> projects = new ArrayList<ProjectInput>(visitedProjects.size());
+    List<Input> inputs = new ArrayList<Input>();
+    for (EclipseProject visitedProject : visitedProjects) {
+      if (!visitedProject.hasRole(JavaProjectRole.class)) {
+        // the project has been resolved by a class path container
+        return;
+      }
+      ProjectInput projectInput = new ProjectInput(visitedProject);
+      for (RawClasspathEntry entry : projectInput._entries) {
+        String path = entry.getPath();
+        if (entry.getEntryKind() == RawClasspathEntry.CPE_CONTAINER) {
+          if (path.startsWith(ContainerTypes.JRE_CONTAINER)) {
+            if (visitedProject == project) {
+              inputs.add(new JreInput(path));
+            }
+          } else if (elementsRegistry.hasClassPathContainer(path)) {
+            inputs.add(new ContainerInput(path));
+          } else {
+            // the container might depend on any input
+            return;
+          }
+        } else if (entry.getEntryKind() == RawClasspathEntry.CPE_VARIABLE) {
+          int separatorIndex = path.indexOf('/');
+          inputs.add(new VariableInput(separatorIndex != -1 ? path.substring(0, separatorIndex) : path));
+        }
+      }
+      projects.add(projectInput);
+    }
+
+    remove(key);
+    this._entries.put(key, new CacheEntry(classpath, projects, inputs));
+    for (ProjectInput projectInput : projects) {
+      Set<String> keys = this._dependents.get(projectInput._folder);
+      if (keys == null) {
+        keys = new HashSet<String>();
+        this._dependents.put(projectInput._folder, keys);
+      }
+      keys.add(key);
+    }
   }
 
   /**
    * <p>
+   * Removes the class paths of all projects that depend on the given project (including the project itself).
    * </p>
-   * 
+   *
    * @param project
+   *          the changed project
+   */
+  public synchronized void invalidate(EclipseProject project) {
+    invalidate(project.getFolder());
+  }
+
+  /**
+   * <p>
+   * Removes all cached class paths.
+   * </p>
+   */
+  public synchronized void clear() {
+    this._entries.clear();
+    this._dependents.clear();
+  }
+
+  /**
+   * <p>
+   * Removes the class paths of all projects that depend on the project in the given folder.
+   * </p>
+   */
+  private void invalidate(File folder) {
+    Set<String> keys = this._dependents.get(folder);
+    if (keys != null) {
+      for (String key : keys.toArray(new String[keys.size()])) {
+        remove(key);
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Removes the class path with the given key.
+   * </p>
+   */
+  private void remove(String key) {
+    CacheEntry entry = this._entries.remove(key);
+    if (entry != null) {
+      for (ProjectInput input : entry._projects) {
+        Set<String> keys = this._dependents.get(input._folder);
+        keys.remove(key);
+        if (keys.isEmpty()) {
+          this._dependents.remove(input._folder);
+        }
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the key of a class path.
+   * </p>
+   *
+   * @param project
+   *          the resolved project
    * @param resolveRelative
+   *          indicates if the class path is resolved relative to the workspace or not.
    * @param runtimeClasspath
-   * @return
+   *          indicates if the class path is a runtime class path or not
+   * @param classpathContainerArguments
+   *          the class path container arguments (might be <code>null</code>)
+   * @return the key of the class path
    */
-  public static String getCacheKey(EclipseProject project, boolean resolveRelative, boolean runtimeClasspath) {
-    // TODO include classpathContainerArguments in key
-    return project.getSpecifiedName() + "." + resolveRelative + "." + runtimeClasspath;
+  public static String getCacheKey(EclipseProject project, boolean resolveRelative, boolean runtimeClasspath,
+      List<JdtClasspathContainerArgument> classpathContainerArguments) {
+    StringBuilder result = new StringBuilder();
+    result.append(project.getFolder().getPath()).append('|').append(resolveRelative).append('|').append(
+        runtimeClasspath);
+    if (classpathContainerArguments != null) {
+      for (JdtClasspathContainerArgument argument : classpathContainerArguments) {
+        result.append('|').append(argument.getKey()).append('=').append(argument.getValue());
+      }
+    }
+    return result.toString();
   }
 
   /**
    * <p>
+   * Returns the registered {@link JdtResolverCache}.
    * </p>
-   * 
-   * @return
+   *
+   * @return the registered {@link JdtResolverCache}.
    */
   public static JdtResolverCache getInstance() {
     return ServiceRegistryAccess.instance().getService(JdtResolverCache.class);
   }
+
+  /**
+   * <p>
+   * A cached class path together with it's inputs.
+   * </p>
+   */
+  private static final class CacheEntry {
+
+    /** the resolved class path */
+    private ResolvedClasspath  _classpath;
+
+    /** the visited projects */
+    private List<ProjectInput> _projects;
+
+    /** the other inputs */
+    private List<Input>        _inputs;
+
+    public CacheEntry(ResolvedClasspath classpath, List<ProjectInput> projects, List<Input> inputs) {
+      this._classpath = classpath;
+      this._projects = projects;
+      this._inputs = inputs;
+    }
+
+  } /* ENDCLASS */
+
+  /**
+   * <p>
+   * An input of a class path that doesn't belong to a project.
+   * </p>
+   */
+  private abstract static class Input {
+
+    /**
+     * <p>
+     * Returns <code>true</code> if the input is unchanged.
+     * </p>
+     */
+    public abstract boolean isValid();
+
+  } /* ENDCLASS */
+
+  /**
+   * <p>
+   * A project that has been visited while resolving a class path.
+   * </p>
+   */
+  private static final class ProjectInput {
+
+    /** the name of the project */
+    private String              _name;
+
+    /** the folder of the project */
+    private File                _folder;
+
+    /** the project which has been visited (or an unchanged successor) */
+    private EclipseProject      _project;
+
+    /** the class path entries of the project */
+    private RawClasspathEntry[] _entries;
+
+    /** the locations of the source, library and output folders of the project */
+    private File[]              _locations;
+
+    public ProjectInput(EclipseProject project) {
+      this._name = project.getSpecifiedName();
+      this._folder = project.getFolder();
+      this._project = project;
+      this._entries = project.getRole(JavaProjectRole.class).getRawClasspathEntries();
+      this._locations = getLocations(project, this._entries);
+    }
+
+    /**
+     * <p>
+     * Returns <code>true</code> if the project in the given workspace is unchanged.
+     * </p>
+     */
+    public boolean isValid(Workspace workspace) {
+      if (!workspace.hasProject(this._name)) {
+        return false;
+      }
+      EclipseProject project = workspace.getProject(this._name);
+      if (project == this._project) {
+        return true;
+      }
+
+      // the workspace has been refreshed
+      if (!this._folder.equals(project.getFolder()) || !project.hasRole(JavaProjectRole.class)) {
+        return false;
+      }
+      RawClasspathEntry[] entries = project.getRole(JavaProjectRole.class).getRawClasspathEntries();
+      if (!Arrays.equals(this._entries, entries) || !Arrays.equals(this._locations, getLocations(project, entries))) {
+        return false;
+      }
+      this._project = project;
+      return true;
+    }
+
+    /**
+     * <p>
+     * Returns the locations of the project relative source, library and output folders.
+     * </p>
+     */
+    private static File[] getLocations(EclipseProject project, RawClasspathEntry[] entries) {
+      List<String> paths = new ArrayList<String>();
+      for (RawClasspathEntry entry : entries) {
+        int kind = entry.getEntryKind();
+        if ((kind == RawClasspathEntry.CPE_SOURCE) || (kind == RawClasspathEntry.CPE_LIBRARY)
+            || (kind == RawClasspathEntry.CPE_OUTPUT)) {
+          paths.add(entry.getPath());
+        }
+        if (entry.hasOutputLocation()) {
+          paths.add(entry.getOutputLocation());
+        }
+      }
+      File[] result = new File[paths.size()];
+      for (int i = 0; i < result.length; i++) {
+        String path = paths.get(i);
+        if (!path.startsWith("/")) {
+          try {
+            result[i] = project.getChild(path);
+          } catch (RuntimeException ex) {
+            // a linked resource doesn't exist
+            result[i] = new File(path);
+          }
+        }
+      }
+      return result;
+    }
+
+  } /* ENDCLASS */
+
+  /**
+   * <p>
+   * A class path container of the {@link ClassPathElementsRegistry} (e.g. a user library).
+   * </p>
+   */
+  private static final class ContainerInput extends Input {
+
+    /** the name of the container */
+    private String _name;
+
+    /** the entries of the container */
+    private File[] _pathEntries;
+
+    public ContainerInput(String name) {
+      this._name = name;
+      this._pathEntries = getContainer(name).getPathEntries();
+    }
+
+    @Override
+    public boolean isValid() {
+      ClassPathContainer container = getContainer(this._name);
+      return (container != null) && Arrays.equals(this._pathEntries, container.getPathEntries());
+    }
+
+    private static ClassPathContainer getContainer(String name) {
+      return ServiceRegistryAccess.instance().getService(ClassPathElementsRegistry.class).getClassPathContainer(name);
+    }
+
+    @Override
+    public String toString() {
+      return "class path container '" + this._name + "'";
+    }
+
+  } /* ENDCLASS */
+
+  /**
+   * <p>
+   * A class path variable of the {@link ClassPathElementsRegistry}.
+   * </p>
+   */
+  private static final class VariableInput extends Input {
+
+    /** the name of the variable */
+    private String _name;
+
+    /** the path of the variable */
+    private File   _path;
+
+    public VariableInput(String name) {
+      this._name = name;
+      this._path = getPath(name);
+    }
+
+    @Override
+    public boolean isValid() {
+      File path = getPath(this._name);
+      return this._path == null ? path == null : this._path.equals(path);
+    }
+
+    private static File getPath(String name) {
+      ClassPathVariable variable = ServiceRegistryAccess.instance().getService(ClassPathElementsRegistry.class)
+          .getClassPathVariable(name);
+      return variable != null ? variable.getPath() : null;
+    }
+
+    @Override
+    public String toString() {
+      return "class path variable '" + this._name + "'";
+    }
+
+  } /* ENDCLASS */
+
+  /**
+   * <p>
+   * The java runtime of a JRE container (looked up the same way as by the {@link JreContainerResolver}).
+   * </p>
+   */
+  private static final class JreInput extends Input {
+
+    /** the path of the container */
+    private String _path;
+
+    /** the location of the java runtime */
+    private File   _location;
+
+    /** the libraries of the java runtime */
+    private File[] _libraries;
+
+    public JreInput(String path) {
+      this._path = path;
+      JavaRuntime javaRuntime = getJavaRuntime(path);
+      this._location = javaRuntime.getLocation();
+      this._libraries = javaRuntime.getLibraries();
+    }
+
+    @Override
+    public boolean isValid() {
+      JavaRuntime javaRuntime = getJavaRuntime(this._path);
+      return this._location.equals(javaRuntime.getLocation()) && Arrays.equals(this._libraries, javaRuntime.getLibraries());
+    }
+
+    private static JavaRuntime getJavaRuntime(String path) {
+      JavaRuntimeRegistry javaRuntimeRegistry = ServiceRegistryAccess.instance().getService(JavaRuntimeRegistry.class);
+      String containerPath = path.replace('%', ' ');
+      if (containerPath.startsWith(ContainerTypes.VMTYPE_PREFIX)) {
+        String key = containerPath.substring(ContainerTypes.VMTYPE_PREFIX.length());
+        if (javaRuntimeRegistry.hasJavaRuntime(key)) {
+          return javaRuntimeRegistry.getJavaRuntime(key);
+        }
+      }
+      return javaRuntimeRegistry.getDefaultJavaRuntime();
+    }
+
+    @Override
+    public String toString() {
+      return "java runtime '" + this._path + "'";
+    }
+
+  } /* ENDCLASS */
+
 }
@@ -11,6 +11,7 @@
  **********************************************************************/
 package org.ant4eclipse.lib.jdt.tools;
 
+import java.util.LinkedList;
 import java.util.List;
 
 import org.ant4eclipse.lib.core.Assure;
@@ -39,8 +40,9 @@ import org.ant4eclipse.lib.platform.model.resource.EclipseProject;
  */
 public class JdtResolver {
 
-  /** system property that enables the Jdt resolver cache */
-  private static final boolean ENABLE_CACHE = Boolean.getBoolean("ant4eclipse.enableJdtResolverCache");
+  /** system property that disables the Jdt resolver cache (if set to <code>false</code>) */
+  private static final boolean ENABLE_CACHE = !"false".equalsIgnoreCase(System
+                                                .getProperty("ant4eclipse.enableJdtResolverCache"));
 
   /**
    * <p>
@@ -60,23 +62,27 @@ public class JdtResolver {
   public static final ResolvedClasspath resolveProjectClasspath(EclipseProject project, boolean resolveRelative,
       boolean isRuntimeClasspath, List<JdtClasspathContainerArgument> classpathContainerArguments) {
 
+    Assure.notNull("project", project);
+
     //
     if (ENABLE_CACHE) {
 
       // determine the key for the cached classpath
-      String cacheKey = JdtResolverCache.getCacheKey(project, resolveRelative, isRuntimeClasspath);
+      String cacheKey = JdtResolverCache.getCacheKey(project, resolveRelative, isRuntimeClasspath,
+          classpathContainerArguments);
 
-      // try to get ResolvedClasspath from the cache
-      ResolvedClasspath resolvedClasspath = JdtResolverCache.getInstance().getResolvedClasspath(cacheKey);
+      // try to get ResolvedClasspath from the cache (returns null if the class path or one of it's inputs has changed)
+      ResolvedClasspath resolvedClasspath = JdtResolverCache.getInstance().getResolvedClasspath(cacheKey, project);
 
       if (resolvedClasspath == null) {
 
         // Classpath has not been resolved yet -> resolve it now
+        List<EclipseProject> visitedProjects = new LinkedList<EclipseProject>();
         resolvedClasspath = doResolveProjectClasspath(project, resolveRelative, isRuntimeClasspath,
-            classpathContainerArguments);
+            classpathContainerArguments, visitedProjects);
 
         // add the resolved classpath to the cache
-        JdtResolverCache.getInstance().storeResolvedClasspath(cacheKey, resolvedClasspath);
+        JdtResolverCache.getInstance().storeResolvedClasspath(cacheKey, project, resolvedClasspath, visitedProjects);
       }
 
       // return the classpath
@@ -85,7 +91,8 @@ public class JdtResolver {
     } else {
 
       // cache is disabled, always re-resolve classpath
-      return doResolveProjectClasspath(project, resolveRelative, isRuntimeClasspath, classpathContainerArguments);
+      return doResolveProjectClasspath(project, resolveRelative, isRuntimeClasspath, classpathContainerArguments,
+          null);
     }
   }
 
@@ -97,10 +104,13 @@ public class JdtResolver {
    * @param resolveRelative
    * @param isRuntimeClasspath
    * @param classpathContainerArguments
+   * @param visitedProjects
+   *          receives all projects that have been visited while resolving the class path (might be <code>null</code>)
    * @return
    */
   private static final ResolvedClasspath doResolveProjectClasspath(EclipseProject project, boolean resolveRelative,
-      boolean isRuntimeClasspath, List<JdtClasspathContainerArgument> classpathContainerArguments) {
+      boolean isRuntimeClasspath, List<JdtClasspathContainerArgument> classpathContainerArguments,
+      List<EclipseProject> visitedProjects) {
 
     Assure.notNull("project", project);
 
@@ -129,6 +139,11 @@ public class JdtResolver {
     // stop performance logging
     PerformanceLogging.stop(JdtResolver.class, "doResolveProjectClasspath");
 
+    // remember the visited projects
+    if (visitedProjects != null) {
+      visitedProjects.addAll(executor.getReferencedProjects());
+    }
+
     // return the ResolvedClasspath
     return resolvedClasspath;
   }
@@ -412,6 +412,46 @@ public class ResolvedClasspathEntry {
       return result.toString();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+      int prime = 31;
+      int result = 1;
+      result = prime * result + (this._excludeAll ? 1231 : 1237);
+      result = prime * result + this._publicPackages.hashCode();
+      result = prime * result + this._privatePackages.hashCode();
+      return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (obj == null) {
+        return false;
+      }
+      if (getClass() != obj.getClass()) {
+        return false;
+      }
+      AccessRestrictions other = (AccessRestrictions) obj;
+      if (this._excludeAll != other._excludeAll) {
+        return false;
+      }
+      if (!this._publicPackages.equals(other._publicPackages)) {
+        return false;
+      }
+      if (!this._privatePackages.equals(other._privatePackages)) {
+        return false;
+      }
+      return true;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -141,4 +141,12 @@ public interface ClasspathResolverContext {
    *          the entry to add.
    */
   void setBootClasspathEntry(ResolvedClasspathEntry resolvedClasspathEntry);
+
+  /**
+   * <p>
+   * Completes the current segment of the resolved class path, so the entries that are added afterwards belong to a new
+   * segment. Segments of different class paths that contain the same entries are shared.
+   * </p>
+   */
+  void closeSegment();
 }
\ No newline at end of file
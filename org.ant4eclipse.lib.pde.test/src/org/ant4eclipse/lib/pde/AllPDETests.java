@@ -11,6 +11,8 @@
  **********************************************************************/
 package org.ant4eclipse.lib.pde;
 
+import org.ant4eclipse.lib.pde.internal.tools.BinaryBundleAndFeatureSetTest;
+import org.ant4eclipse.lib.pde.internal.tools.TargetPlatformImplTest;
 import org.ant4eclipse.lib.pde.model.buildproperties.BuildPropertiesParserTest;
 import org.ant4eclipse.lib.pde.model.launcher.SelectedLaunchConfigurationBundleParserTest;
 import org.ant4eclipse.lib.pde.model.launcher.SimpleConfiguratorBundlesTest;
@@ -19,6 +21,6 @@ import org.junit.runners.Suite;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses({ SelectedLaunchConfigurationBundleParserTest.class, SimpleConfiguratorBundlesTest.class,
-    BuildPropertiesParserTest.class })
+    BuildPropertiesParserTest.class, BinaryBundleAndFeatureSetTest.class, TargetPlatformImplTest.class })
 public class AllPDETests {
 } /* ENDCLASS */
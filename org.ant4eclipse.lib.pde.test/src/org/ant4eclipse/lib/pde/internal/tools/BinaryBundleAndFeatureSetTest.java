@@ -0,0 +1,103 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.pde.internal.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.testframework.BundleManifest;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.ant4eclipse.testframework.TestDirectory;
+import org.junit.Test;
+import org.osgi.framework.Version;
+
+public class BinaryBundleAndFeatureSetTest extends ConfigurableAnt4EclipseTestCase {
+
+  private TestDirectory _testDirectory;
+
+  @Override
+  public void setup() {
+    super.setup();
+
+    this._testDirectory = new TestDirectory();
+    this._testDirectory.createSubDirectory("plugins");
+    this._testDirectory.createSubDirectory("features");
+  }
+
+  @Override
+  public void dispose() {
+    this._testDirectory.dispose();
+
+    super.dispose();
+  }
+
+  @Test
+  public void bundleIndex() {
+    createBundle("a", "1.0.0");
+    createBundle("a", "2.0.0");
+    createBundle("a", "1.5.0");
+    createBundle("b", "1.0.0");
+
+    BinaryBundleAndFeatureSet bundleSet = new BinaryBundleAndFeatureSet(this._testDirectory.getRootDir());
+    assertEquals(4, bundleSet.getAllBundleDescriptions().size());
+    assertEquals(new Version("2.0.0"), bundleSet.getBundleDescription("a").getVersion());
+    assertEquals(new Version("1.0.0"), bundleSet.getBundleDescription("b").getVersion());
+    assertNull(bundleSet.getBundleDescription("c"));
+    assertTrue(bundleSet.containsBundle("a"));
+    assertFalse(bundleSet.containsBundle("c"));
+
+    // the index is rebuilt on a refresh
+    assertTrue(Utilities.delete(new File(this._testDirectory.getRootDir(), "plugins/a_2.0.0")));
+    bundleSet.refresh();
+    assertEquals(3, bundleSet.getAllBundleDescriptions().size());
+    assertEquals(new Version("1.5.0"), bundleSet.getBundleDescription("a").getVersion());
+  }
+
+  @Test
+  public void featureIndex() {
+    createFeature("f", "1.0.0");
+    createFeature("f", "1.1.0");
+    createFeature("g", "1.0.0");
+
+    BinaryBundleAndFeatureSet bundleSet = new BinaryBundleAndFeatureSet(this._testDirectory.getRootDir());
+    assertEquals(new Version("1.1.0"), bundleSet.getFeatureDescription("f").getFeatureManifest().getVersion());
+    assertEquals(new Version("1.0.0"), bundleSet.getFeatureDescription("f", new Version("1.0.0")).getFeatureManifest()
+        .getVersion());
+    assertEquals(new Version("1.0.0"), bundleSet.getFeatureDescription("g").getFeatureManifest().getVersion());
+    assertNull(bundleSet.getFeatureDescription("f", new Version("2.0.0")));
+    assertNull(bundleSet.getFeatureDescription("h"));
+
+    // the index is rebuilt on a refresh
+    assertTrue(Utilities.delete(new File(this._testDirectory.getRootDir(), "features/f_1.1.0")));
+    bundleSet.refresh();
+    assertEquals(new Version("1.0.0"), bundleSet.getFeatureDescription("f").getFeatureManifest().getVersion());
+  }
+
+  private void createBundle(String symbolicName, String version) {
+    String directory = "plugins/" + symbolicName + "_" + version;
+    this._testDirectory.createSubDirectory(directory + "/META-INF");
+    new BundleManifest(symbolicName).withBundleVersion(version).write(
+        new File(this._testDirectory.getRootDir(), directory + "/META-INF/MANIFEST.MF"));
+  }
+
+  private void createFeature(String id, String version) {
+    String directory = "features/" + id + "_" + version;
+    this._testDirectory.createSubDirectory(directory);
+    this._testDirectory.createFile(directory + "/feature.xml", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+        + "<feature id=\"" + id + "\" label=\"" + id + "\" version=\"" + version + "\">\n</feature>\n");
+  }
+}
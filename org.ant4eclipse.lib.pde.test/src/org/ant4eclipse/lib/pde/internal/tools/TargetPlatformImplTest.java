@@ -0,0 +1,140 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.pde.internal.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.lib.pde.tools.PlatformConfiguration;
+import org.ant4eclipse.testframework.BundleManifest;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.ant4eclipse.testframework.TestDirectory;
+import org.eclipse.osgi.service.resolver.BundleDescription;
+import org.junit.Test;
+import org.osgi.framework.Version;
+
+public class TargetPlatformImplTest extends ConfigurableAnt4EclipseTestCase {
+
+  private static final Version VERSION = new Version("1.0.0");
+
+  private TestDirectory        _testDirectory;
+
+  private File                 _platform;
+
+  private String               _cacheDirProperty;
+
+  @Override
+  public void setup() {
+    super.setup();
+
+    this._testDirectory = new TestDirectory();
+    this._cacheDirProperty = System.getProperty(Utilities.PROP_A4ECACHEDIR);
+    System.setProperty(Utilities.PROP_A4ECACHEDIR, this._testDirectory.createSubDirectory("cache").getAbsolutePath());
+
+    this._platform = this._testDirectory.createSubDirectory("platform");
+    this._testDirectory.createSubDirectory("platform/plugins");
+    createBundle(new BundleManifest("a").withBundleVersion("1.0.0").withExportPackage("a"));
+    createBundle(new BundleManifest("b").withBundleVersion("1.0.0").withImportPackage("a"));
+    createBundle(new BundleManifest("c").withBundleVersion("1.0.0").withImportPackage("x"));
+  }
+
+  @Override
+  public void dispose() {
+    if (this._cacheDirProperty == null) {
+      System.clearProperty(Utilities.PROP_A4ECACHEDIR);
+    } else {
+      System.setProperty(Utilities.PROP_A4ECACHEDIR, this._cacheDirProperty);
+    }
+    this._testDirectory.dispose();
+
+    super.dispose();
+  }
+
+  @Test
+  public void cachedState() {
+    TargetPlatformImpl targetPlatform = createTargetPlatform();
+    assertFalse(targetPlatform.isStateLoaded());
+    assertResolved(targetPlatform);
+
+    // an unchanged target platform uses the stored state
+    targetPlatform = createTargetPlatform();
+    assertTrue(targetPlatform.isStateLoaded());
+    assertResolved(targetPlatform);
+    targetPlatform.refresh();
+    assertTrue(targetPlatform.isStateLoaded());
+    assertResolved(targetPlatform);
+  }
+
+  @Test
+  public void changedBundle() {
+    createTargetPlatform();
+
+    createBundle(new BundleManifest("a").withBundleVersion("1.0.0").withExportPackage("a,x"));
+    TargetPlatformImpl targetPlatform = createTargetPlatform();
+    assertFalse(targetPlatform.isStateLoaded());
+    assertTrue(targetPlatform.getResolvedBundle("c", VERSION).isResolved());
+    assertEquals(0, targetPlatform.getBundlesWithResolverErrors().length);
+
+    assertTrue(createTargetPlatform().isStateLoaded());
+  }
+
+  @Test
+  public void addedBundle() {
+    createTargetPlatform();
+
+    createBundle(new BundleManifest("d").withBundleVersion("1.0.0").withImportPackage("a"));
+    TargetPlatformImpl targetPlatform = createTargetPlatform();
+    assertFalse(targetPlatform.isStateLoaded());
+    assertTrue(targetPlatform.getResolvedBundle("d", VERSION).isResolved());
+  }
+
+  @Test
+  public void disabledCache() {
+    System.setProperty(Utilities.PROP_A4ECACHEDIR, Utilities.CACHEDIR_NONE);
+    createTargetPlatform();
+
+    TargetPlatformImpl targetPlatform = createTargetPlatform();
+    assertFalse(targetPlatform.isStateLoaded());
+    assertResolved(targetPlatform);
+  }
+
+  private void assertResolved(TargetPlatformImpl targetPlatform) {
+    BundleDescription a = targetPlatform.getResolvedBundle("a", VERSION);
+    assertTrue(a.isResolved());
+    assertNotNull(a.getUserObject());
+    assertTrue(targetPlatform.getResolvedBundle("b", VERSION).isResolved());
+    assertNull(targetPlatform.getResolvedBundle("b", new Version("2.0.0")));
+
+    // the resolver errors are available for a stored state as well
+    BundleDescription[] bundlesWithErrors = targetPlatform.getBundlesWithResolverErrors();
+    assertEquals(1, bundlesWithErrors.length);
+    assertEquals("c", bundlesWithErrors[0].getSymbolicName());
+  }
+
+  private TargetPlatformImpl createTargetPlatform() {
+    return new TargetPlatformImpl(null, new BundleAndFeatureSet[] { new BinaryBundleAndFeatureSet(this._platform) },
+        new PlatformConfiguration(), new File[] { this._platform });
+  }
+
+  private void createBundle(BundleManifest manifest) {
+    String symbolicName = manifest.getManifest().getMainAttributes().getValue("Bundle-SymbolicName");
+    String directory = "platform/plugins/" + symbolicName + "/META-INF";
+    this._testDirectory.createSubDirectory(directory);
+    manifest.write(new File(this._testDirectory.getRootDir(), directory + "/MANIFEST.MF"));
+  }
+}
@@ -17,6 +17,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.Iterator;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.jar.Attributes;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
@@ -37,7 +38,7 @@ public class BundleDescriptionLoader {
 
   /** - */
   // TODO: ueberarbeiten..
-  private static long              COUNTER  = 1l;
+  private static final AtomicLong  COUNTER  = new AtomicLong(1l);
 
   /**
    * <p>
@@ -65,7 +66,7 @@ public class BundleDescriptionLoader {
   private static BundleDescription createBundleDescription(Manifest manifest, String path, Object source)
       throws BundleException {
 
-    long counter = isSystemBundle(manifest) ? 0 : COUNTER++;
+    long counter = isSystemBundle(manifest) ? 0 : COUNTER.getAndIncrement();
 
     Properties manifestProperties = convertManifest(manifest);
     BundleDescription bundleDescription = _factory.createBundleDescription(null, manifestProperties, path, counter);
@@ -11,9 +11,10 @@
  **********************************************************************/
 package org.ant4eclipse.lib.pde.internal.tools;
 
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.ant4eclipse.lib.core.Assure;
 import org.ant4eclipse.lib.core.logging.A4ELogging;
@@ -27,6 +28,11 @@ import org.osgi.framework.Version;
  * <p>
  * Abstract base implementation for all {@link BundleAndFeatureSet BundleAndFeatureSets}.
  * </p>
+ * <p>
+ * The bundles are indexed by their symbolic name and the features by their id. There is no index for the bundle ids:
+ * the ids of the bundle descriptions are only meaningful within the resolved state of a target platform, which
+ * already provides a lookup by id (see <code>State.getBundle(long)</code>).
+ * </p>
  * 
  * @author Nils Hartmann (nils@nilshartmann.net)
  * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
@@ -34,16 +40,22 @@ import org.osgi.framework.Version;
 public abstract class AbstractBundleAndFeatureSet implements BundleAndFeatureSet {
 
   /** the list that contains all the bundle descriptions */
-  private List<BundleDescription>  _bundleDescriptionList;
+  private List<BundleDescription>           _bundleDescriptionList;
 
   /** the list that contains all the feature descriptions */
-  private List<FeatureDescription> _featureDescriptionList;
+  private List<FeatureDescription>          _featureDescriptionList;
+
+  /** the bundle descriptions per symbolic name (sorted by version, highest version first) */
+  private Map<String, BundleDescription[]>  _bundleDescriptionIndex;
+
+  /** the feature descriptions per id (sorted by version, highest version first) */
+  private Map<String, FeatureDescription[]> _featureDescriptionIndex;
 
   /** indicates whether or not the platform is initialized */
-  private boolean                  _isInitialised = false;
+  private boolean                           _isInitialised = false;
 
   /** a description of this BundleAndFeatureSet */
-  private String                   _description;
+  private String                            _description;
 
   /**
    * <p>
@@ -60,10 +72,14 @@ public abstract class AbstractBundleAndFeatureSet implements BundleAndFeatureSet
     this._description = description;
 
     // create the bundle description list
-    this._bundleDescriptionList = new LinkedList<BundleDescription>();
+    this._bundleDescriptionList = new ArrayList<BundleDescription>();
 
     // create the feature description list
-    this._featureDescriptionList = new LinkedList<FeatureDescription>();
+    this._featureDescriptionList = new ArrayList<FeatureDescription>();
+
+    // create the indices
+    this._bundleDescriptionIndex = new HashMap<String, BundleDescription[]>();
+    this._featureDescriptionIndex = new HashMap<String, FeatureDescription[]>();
   }
 
   /**
@@ -100,13 +116,17 @@ public abstract class AbstractBundleAndFeatureSet implements BundleAndFeatureSet
     // initialize if necessary
     initialize();
 
-    // iterate over feature list
-    for (FeatureDescription featureDescription : this._featureDescriptionList) {
+    FeatureDescription[] featureDescriptions = this._featureDescriptionIndex.get(featureId);
+    if (featureDescriptions == null) {
+      return null;
+    }
+
+    // iterate over the features with the given id
+    for (FeatureDescription featureDescription : featureDescriptions) {
 
       // return if match
-      if (featureDescription.getFeatureManifest().getId().equals(featureId)
-          && PdeBuildHelper.resolveVersion(featureDescription.getFeatureManifest().getVersion(),
-              PdeBuildHelper.getResolvedContextQualifier()).equals(version)) {
+      if (PdeBuildHelper.resolveVersion(featureDescription.getFeatureManifest().getVersion(),
+          PdeBuildHelper.getResolvedContextQualifier()).equals(version)) {
 
         return featureDescription;
       }
@@ -125,30 +145,9 @@ public abstract class AbstractBundleAndFeatureSet implements BundleAndFeatureSet
     // initialize if necessary
     initialize();
 
-    // result
-    FeatureDescription result = null;
-
-    // iterate over feature descriptions
-    for (FeatureDescription featureDescription : this._featureDescriptionList) {
-
-      // get the feature manifest
-      FeatureManifest featureManifest = featureDescription.getFeatureManifest();
-
-      // if match -> set as result
-      if (featureManifest.getId().equals(featureId)) {
-        if (result == null) {
-          result = featureDescription;
-        } else {
-          // the current feature description has a higher version, so use this one
-          if (result.getFeatureManifest().getVersion().compareTo(featureDescription.getFeatureManifest().getVersion()) < 0) {
-            result = featureDescription;
-          }
-        }
-      }
-    }
-
-    // return result
-    return result;
+    // the feature with the highest version comes first
+    FeatureDescription[] featureDescriptions = this._featureDescriptionIndex.get(featureId);
+    return featureDescriptions != null ? featureDescriptions[0] : null;
   }
 
   /**
@@ -160,27 +159,9 @@ public abstract class AbstractBundleAndFeatureSet implements BundleAndFeatureSet
     // initialize if necessary
     initialize();
 
-    // result
-    BundleDescription result = null;
-
-    for (BundleDescription bundleDescription : this._bundleDescriptionList) {
-
-      // if match -> set as result
-      if (bundleDescription.getSymbolicName().equals(bundleid)) {
-        if (result == null) {
-          result = bundleDescription;
-        } else {
-          // the current feature description has a higher version, so use this one
-          if (result.getVersion().compareTo(bundleDescription.getVersion()) < 0) {
-            result = bundleDescription;
-          }
-        }
-      }
-    }
-
-    // return result
-    return result;
-
+    // the bundle with the highest version comes first
+    BundleDescription[] bundleDescriptions = this._bundleDescriptionIndex.get(bundleid);
+    return bundleDescriptions != null ? bundleDescriptions[0] : null;
   }
 
   /**
@@ -203,19 +184,10 @@ public abstract class AbstractBundleAndFeatureSet implements BundleAndFeatureSet
     // initialize if necessary
     initialize();
 
-    Iterator<BundleDescription> iterator = this._bundleDescriptionList.iterator();
-
-    while (iterator.hasNext()) {
-      BundleDescription description = iterator.next();
-      if (symbolicName.equals(description.getSymbolicName())
-      /*
-       * TODO || "system.bundle".equals(symbolicName) && description.isSystemBundle()
-       */) {
-        return true;
-      }
-    }
-
-    return false;
+    /*
+     * TODO || "system.bundle".equals(symbolicName) && description.isSystemBundle()
+     */
+    return this._bundleDescriptionIndex.containsKey(symbolicName);
   }
 
   /**
@@ -229,6 +201,24 @@ public abstract class AbstractBundleAndFeatureSet implements BundleAndFeatureSet
   protected final void addBundleDescription(BundleDescription bundleDescription) {
     Assure.notNull("bundleDescription", bundleDescription);
     this._bundleDescriptionList.add(bundleDescription);
+
+    // insert the description behind all descriptions with a higher or the same version
+    BundleDescription[] descriptions = this._bundleDescriptionIndex.get(bundleDescription.getSymbolicName());
+    if (descriptions == null) {
+      descriptions = new BundleDescription[] { bundleDescription };
+    } else {
+      int index = 0;
+      while ((index < descriptions.length)
+          && (descriptions[index].getVersion().compareTo(bundleDescription.getVersion()) >= 0)) {
+        index++;
+      }
+      BundleDescription[] newDescriptions = new BundleDescription[descriptions.length + 1];
+      System.arraycopy(descriptions, 0, newDescriptions, 0, index);
+      newDescriptions[index] = bundleDescription;
+      System.arraycopy(descriptions, index, newDescriptions, index + 1, descriptions.length - index);
+      descriptions = newDescriptions;
+    }
+    this._bundleDescriptionIndex.put(bundleDescription.getSymbolicName(), descriptions);
   }
 
   /**
@@ -242,6 +232,25 @@ public abstract class AbstractBundleAndFeatureSet implements BundleAndFeatureSet
   protected final void addFeaturesDescription(FeatureDescription featureDescription) {
     Assure.notNull("featureDescription", featureDescription);
     this._featureDescriptionList.add(featureDescription);
+
+    // insert the description behind all descriptions with a higher or the same version
+    FeatureManifest featureManifest = featureDescription.getFeatureManifest();
+    FeatureDescription[] descriptions = this._featureDescriptionIndex.get(featureManifest.getId());
+    if (descriptions == null) {
+      descriptions = new FeatureDescription[] { featureDescription };
+    } else {
+      int index = 0;
+      while ((index < descriptions.length)
+          && (descriptions[index].getFeatureManifest().getVersion().compareTo(featureManifest.getVersion()) >= 0)) {
+        index++;
+      }
+      FeatureDescription[] newDescriptions = new FeatureDescription[descriptions.length + 1];
+      System.arraycopy(descriptions, 0, newDescriptions, 0, index);
+      newDescriptions[index] = featureDescription;
+      System.arraycopy(descriptions, index, newDescriptions, index + 1, descriptions.length - index);
+      descriptions = newDescriptions;
+    }
+    this._featureDescriptionIndex.put(featureManifest.getId(), descriptions);
   }
 
   /**
@@ -262,9 +271,11 @@ public abstract class AbstractBundleAndFeatureSet implements BundleAndFeatureSet
 
     // clear list of bundles...
     this._bundleDescriptionList.clear();
+    this._bundleDescriptionIndex.clear();
 
     // clear list of features...
-    this._bundleDescriptionList.clear();
+    this._featureDescriptionList.clear();
+    this._featureDescriptionIndex.clear();
 
     // read all bundles and features...
     readBundlesAndFeatures();
@@ -27,6 +27,7 @@ import org.ant4eclipse.lib.core.logging.A4ELogging;
 import org.ant4eclipse.lib.core.osgi.BundleLayoutResolver;
 import org.ant4eclipse.lib.core.osgi.ExplodedBundleLayoutResolver;
 import org.ant4eclipse.lib.core.osgi.JaredBundleLayoutResolver;
+import org.ant4eclipse.lib.core.util.JarExpansionCache;
 import org.ant4eclipse.lib.jdt.tools.ResolvedClasspathEntry;
 import org.ant4eclipse.lib.jdt.tools.ResolvedClasspathEntry.AccessRestrictions;
 import org.ant4eclipse.lib.pde.PdeExceptionCode;
@@ -250,8 +251,12 @@ public class BundleDependenciesResolver {
     else if (location.isDirectory()) {
       return new ExplodedBundleLayoutResolver(location);
     }
-    // jar -> JaredBundleLayoutResolver
+    // jar -> JaredBundleLayoutResolver (using the persistent expansion cache if available)
     else {
+      JarExpansionCache expansionCache = JarExpansionCache.getDefault();
+      if (expansionCache != null) {
+        return new JaredBundleLayoutResolver(location, expansionCache);
+      }
       return new JaredBundleLayoutResolver(location, ExpansionDirectory.getExpansionDir());
     }
   }
@@ -11,8 +11,19 @@
  **********************************************************************/
 package org.ant4eclipse.lib.pde.internal.tools;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -40,6 +51,8 @@ import org.ant4eclipse.lib.pde.tools.ResolvedFeature;
 import org.ant4eclipse.lib.pde.tools.TargetPlatform;
 import org.eclipse.osgi.framework.internal.core.FrameworkProperties;
 import org.eclipse.osgi.service.resolver.BundleDescription;
+import org.eclipse.osgi.service.resolver.ExportPackageDescription;
+import org.eclipse.osgi.service.resolver.Resolver;
 import org.eclipse.osgi.service.resolver.ResolverError;
 import org.eclipse.osgi.service.resolver.State;
 import org.eclipse.osgi.service.resolver.StateHelper;
@@ -61,6 +74,12 @@ import org.osgi.framework.Version;
  */
 public final class TargetPlatformImpl implements TargetPlatform {
 
+  /** the name of the cache directory for the resolved states */
+  private static final String       STATE_CACHE     = "target-platform-state";
+
+  /** the name of the file that contains the resolver errors of a stored state */
+  private static final String       RESOLVER_ERRORS = "resolver.errors";
+
   /** the bundle set that contains the plug-in projects */
   private BundleAndFeatureSet       _pluginProjectSet;
 
@@ -73,6 +92,9 @@ public final class TargetPlatformImpl implements TargetPlatform {
   /** the state object */
   private State                     _state;
 
+  /** indicates whether the state has been loaded from the state cache */
+  private boolean                   _stateLoaded;
+
   /** - */
   private File[]                    _targetplatformLocations;
 
@@ -220,7 +242,7 @@ public final class TargetPlatformImpl implements TargetPlatform {
   private List<BundleDescription> getAllBundleDescriptions(boolean preferProjects) {
 
     // step 1: create the result list
-    List<BundleDescription> result = new LinkedList<BundleDescription>();
+    List<BundleDescription> result = new ArrayList<BundleDescription>();
 
     // step 2: add plug-in projects from the plug-in projects list to the result
     if (this._pluginProjectSet != null) {
@@ -592,10 +614,25 @@ public final class TargetPlatformImpl implements TargetPlatform {
     // TODO
     FrameworkProperties.setProperty("osgi.resolver.usesMode", "ignore");
 
+    List<BundleDescription> allBundleDescriptions = getAllBundleDescriptions(this._configuration.isPreferProjects());
+    Properties platformProperties = this._configuration.getConfigurationProperties();
+
+    // an unchanged target platform doesn't need to be resolved again
+    File stateDirectory = getStateDirectory(allBundleDescriptions, platformProperties);
+    this._stateLoaded = false;
+    if (stateDirectory != null) {
+      State state = loadState(stateDirectory, allBundleDescriptions);
+      if (state != null) {
+        A4ELogging.debug("Loaded resolved state from '%s'.", stateDirectory);
+        this._stateLoaded = true;
+        return state;
+      }
+    }
+
     // step 1: create new state
     State state = StateObjectFactory.defaultFactory.createState(true);
 
-    for (BundleDescription bundleDescription : getAllBundleDescriptions(this._configuration.isPreferProjects())) {
+    for (BundleDescription bundleDescription : allBundleDescriptions) {
       BundleDescription copy = StateObjectFactory.defaultFactory.createBundleDescription(bundleDescription);
       copy.setUserObject(bundleDescription.getUserObject());
       if (!state.addBundle(copy)) {
@@ -608,7 +645,6 @@ public final class TargetPlatformImpl implements TargetPlatform {
     }
 
     // set the platform properties
-    Properties platformProperties = this._configuration.getConfigurationProperties();
     if (A4ELogging.isDebuggingEnabled()) {
       A4ELogging.debug(Utilities.toString("Initializing TargetPlatform with properties: ", platformProperties));
     }
@@ -617,6 +653,10 @@ public final class TargetPlatformImpl implements TargetPlatform {
     // resolve the state
     state.resolve();
 
+    if (stateDirectory != null) {
+      saveState(stateDirectory, state);
+    }
+
     // log errors if any
     BundleDescription[] bundleDescriptions = state.getBundles();
     // boolean allStatesResolved = true;
@@ -631,6 +671,263 @@ public final class TargetPlatformImpl implements TargetPlatform {
     return state;
   }
 
+  /**
+   * <p>
+   * Returns the directory that contains the resolved state for the given bundles and platform properties. The name of
+   * the directory is a fingerprint of the bundles (their locations, their manifests and the time stamps of the manifests) and the
+   * platform properties, so a changed target platform doesn't use the state of an older one.
+   * </p>
+   * 
+   * @param bundleDescriptions
+   *          the bundles of the state.
+   * @param platformProperties
+   *          the platform properties of the state.
+   * @return the state directory or <code>null</code> if the state can't be cached.
+   */
+  private File getStateDirectory(List<BundleDescription> bundleDescriptions, Properties platformProperties) {
+
+    File cacheDir = Utilities.getCacheDir(STATE_CACHE);
+    if (cacheDir == null) {
+      return null;
+    }
+
+    StringBuffer buffer = new StringBuffer();
+    for (Object key : new TreeSet<Object>(platformProperties.keySet())) {
+      buffer.append(key).append('=').append(platformProperties.get(key)).append('\n');
+    }
+    for (BundleDescription bundleDescription : bundleDescriptions) {
+      if (bundleDescription.getLocation() == null) {
+        // the cached state can't be associated with the bundles
+        return null;
+      }
+      File location = new File(bundleDescription.getLocation());
+      File stampFile = location.isDirectory() ? new File(location, "META-INF/MANIFEST.MF") : location;
+      buffer.append(bundleDescription.getLocation()).append('|');
+      buffer.append(stampFile.lastModified()).append('|').append(stampFile.length()).append('|');
+      buffer.append(bundleDescription.getSymbolicName()).append('|').append(bundleDescription.getVersion()).append('|');
+      buffer.append(bundleDescription.isSingleton()).append('|').append(bundleDescription.getPlatformFilter()).append('|');
+      buffer.append(bundleDescription.getHost()).append('|');
+      buffer.append(Arrays.asList(bundleDescription.getRequiredBundles())).append('|');
+      buffer.append(Arrays.asList(bundleDescription.getImportPackages())).append('|');
+      for (ExportPackageDescription exportPackage : bundleDescription.getExportPackages()) {
+        buffer.append(exportPackage.getName()).append(';').append(exportPackage.getVersion()).append(',');
+      }
+      buffer.append('|').append(Arrays.asList(bundleDescription.getExecutionEnvironments())).append('\n');
+    }
+
+    return new File(cacheDir, Utilities.sha1(buffer.toString()));
+  }
+
+  /**
+   * <p>
+   * Loads a resolved state from the given directory and attaches the bundle sources of the supplied descriptions to it's
+   * bundles.
+   * </p>
+   * <p>
+   * The resolver errors are not part of a stored state, so they are read from a separate file of the state directory
+   * (see {@link #writeResolverErrors(File, State)}).
+   * </p>
+   * 
+   * @param stateDirectory
+   *          the state directory.
+   * @param bundleDescriptions
+   *          the bundles of the state.
+   * @return the state or <code>null</code> if no usable state is available.
+   */
+  private State loadState(File stateDirectory, List<BundleDescription> bundleDescriptions) {
+
+    if (!stateDirectory.isDirectory()) {
+      return null;
+    }
+
+    // parts of the state are loaded lazily, which is safe as a published state directory is never changed
+    State state = null;
+    try {
+      state = StateObjectFactory.defaultFactory.readState(stateDirectory);
+    } catch (IOException ex) {
+      A4ELogging.warn("Could not read resolved state '%s': %s", stateDirectory, ex.getMessage());
+    }
+    if ((state == null) || (state.getBundles().length != bundleDescriptions.size())) {
+      return null;
+    }
+
+    // the bundle sources are not stored, so they have to be taken from the original descriptions
+    Map<String, BundleDescription> locations = new HashMap<String, BundleDescription>();
+    for (BundleDescription bundleDescription : bundleDescriptions) {
+      locations.put(bundleDescription.getLocation(), bundleDescription);
+    }
+    for (BundleDescription bundleDescription : state.getBundles()) {
+      BundleDescription original = locations.get(bundleDescription.getLocation());
+      if (original == null) {
+        return null;
+      }
+      bundleDescription.setUserObject(original.getUserObject());
+    }
+
+    // the resolver errors are not part of a stored state either and can only be added while the state is resolving
+    ResolverErrorRestorer restorer = new ResolverErrorRestorer();
+    if (!readResolverErrors(new File(stateDirectory, RESOLVER_ERRORS), state, restorer)) {
+      return null;
+    }
+    state.setResolver(restorer);
+    state.resolve(new BundleDescription[0]);
+    state.setResolver(null);
+    return state;
+  }
+
+  /**
+   * <p>
+   * Writes the resolver errors of the given state to the given file.
+   * </p>
+   * 
+   * @param file
+   *          the file that will contain the resolver errors.
+   * @param state
+   *          the resolved state.
+   * @throws IOException
+   *           if the file couldn't be written.
+   */
+  private void writeResolverErrors(File file, State state) throws IOException {
+    DataOutputStream output = null;
+    try {
+      output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+      for (BundleDescription bundleDescription : state.getBundles()) {
+        for (ResolverError error : state.getResolverErrors(bundleDescription)) {
+          output.writeBoolean(true);
+          output.writeUTF(bundleDescription.getLocation());
+          output.writeInt(error.getType());
+          output.writeUTF(error.getData() != null ? error.getData() : "");
+          output.writeInt(indexOf(getConstraints(bundleDescription), error.getUnsatisfiedConstraint()));
+        }
+      }
+      output.writeBoolean(false);
+      output.close();
+      output = null;
+    } finally {
+      Utilities.close((Closeable) output);
+    }
+  }
+
+  /**
+   * <p>
+   * Reads the resolver errors of a stored state from the given file and passes them to the given restorer.
+   * </p>
+   * 
+   * @param file
+   *          the file that contains the resolver errors.
+   * @param state
+   *          the loaded state.
+   * @param restorer
+   *          the restorer that adds the resolver errors to the state.
+   * @return <code>true</code> if the resolver errors could be read.
+   */
+  private boolean readResolverErrors(File file, State state, ResolverErrorRestorer restorer) {
+    DataInputStream input = null;
+    try {
+      input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      boolean result = true;
+      while (result && input.readBoolean()) {
+        BundleDescription bundleDescription = state.getBundleByLocation(input.readUTF());
+        int type = input.readInt();
+        String data = input.readUTF();
+        int constraint = input.readInt();
+        List<VersionConstraint> constraints = bundleDescription != null ? getConstraints(bundleDescription) : null;
+        // the stored errors must match the bundles of the state
+        result = (constraints != null) && (constraint < constraints.size());
+        if (result) {
+          restorer.add(bundleDescription, type, data.length() > 0 ? data : null, constraint >= 0 ? constraints
+              .get(constraint) : null);
+        }
+      }
+      return result;
+    } catch (IOException ex) {
+      A4ELogging.warn("Could not read resolver errors '%s': %s", file, ex.getMessage());
+      return false;
+    } finally {
+      Utilities.close((Closeable) input);
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the constraints of the given bundle in the order that is used to identify an unsatisfied constraint of a
+   * stored resolver error.
+   * </p>
+   */
+  private static List<VersionConstraint> getConstraints(BundleDescription bundleDescription) {
+    List<VersionConstraint> result = new ArrayList<VersionConstraint>();
+    if (bundleDescription.getHost() != null) {
+      result.add(bundleDescription.getHost());
+    }
+    result.addAll(Arrays.asList(bundleDescription.getRequiredBundles()));
+    result.addAll(Arrays.asList(bundleDescription.getImportPackages()));
+    if (bundleDescription.getGenericRequires() != null) {
+      result.addAll(Arrays.asList(bundleDescription.getGenericRequires()));
+    }
+    return result;
+  }
+
+  /**
+   * <p>
+   * Returns the index of the given constraint (compared by identity) or <code>-1</code>.
+   * </p>
+   */
+  private static int indexOf(List<VersionConstraint> constraints, VersionConstraint constraint) {
+    for (int i = 0; i < constraints.size(); i++) {
+      if (constraints.get(i) == constraint) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * <p>
+   * Stores the given resolved state.
+   * </p>
+   * <p>
+   * Parallel builds may store the same state at the same time, so the state is written to a temporary directory which
+   * is renamed afterwards. If the state directory already exists, it contains the same state and is kept, so a
+   * published state directory is never changed.
+   * </p>
+   * 
+   * @param stateDirectory
+   *          the state directory.
+   * @param state
+   *          the resolved state.
+   */
+  private void saveState(File stateDirectory, State state) {
+    File tempDirectory = null;
+    try {
+      tempDirectory = File.createTempFile("state", ".tmp", stateDirectory.getParentFile());
+      if (!tempDirectory.delete() || !tempDirectory.mkdir()) {
+        throw new IOException("Could not create the directory '" + tempDirectory + "'");
+      }
+      StateObjectFactory.defaultFactory.writeState(state, tempDirectory);
+      writeResolverErrors(new File(tempDirectory, RESOLVER_ERRORS), state);
+      if (tempDirectory.renameTo(stateDirectory)) {
+        tempDirectory = null;
+      }
+    } catch (IOException ex) {
+      A4ELogging.warn("Could not write resolved state '%s': %s", stateDirectory, ex.getMessage());
+    } finally {
+      if (tempDirectory != null) {
+        Utilities.delete(tempDirectory);
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Returns <code>true</code> if the current state has been loaded from the state cache instead of being resolved.
+   * </p>
+   * 
+   * @return <code>true</code> if the current state has been loaded from the state cache.
+   */
+  boolean isStateLoaded() {
+    return this._stateLoaded;
+  }
+
   /**
    * Returns <code>true</code> if the current target configuration matches a given system specification.
    * 
@@ -931,4 +1228,115 @@ public final class TargetPlatformImpl implements TargetPlatform {
     }
     return buffer.toString();
   }
+
+  /**
+   * <p>
+   * A {@link Resolver} that doesn't resolve any bundles but adds the stored resolver errors to a loaded state.
+   * </p>
+   */
+  private static class ResolverErrorRestorer implements Resolver {
+
+    /** the bundles of the resolver errors */
+    private List<BundleDescription> _bundleDescriptions = new ArrayList<BundleDescription>();
+
+    /** the types of the resolver errors */
+    private List<Integer>           _types              = new ArrayList<Integer>();
+
+    /** the data of the resolver errors */
+    private List<String>            _data               = new ArrayList<String>();
+
+    /** the unsatisfied constraints of the resolver errors */
+    private List<VersionConstraint> _constraints        = new ArrayList<VersionConstraint>();
+
+    /** the state */
+    private State                   _state;
+
+    /**
+     * <p>
+     * Adds a resolver error that will be restored.
+     * </p>
+     */
+    public void add(BundleDescription bundleDescription, int type, String data, VersionConstraint constraint) {
+      this._bundleDescriptions.add(bundleDescription);
+      this._types.add(Integer.valueOf(type));
+      this._data.add(data);
+      this._constraints.add(constraint);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("rawtypes")
+    public void resolve(BundleDescription[] discard, Dictionary[] platformProperties) {
+      for (int i = 0; i < this._bundleDescriptions.size(); i++) {
+        this._state.addResolverError(this._bundleDescriptions.get(i), this._types.get(i).intValue(), this._data.get(i),
+            this._constraints.get(i));
+      }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void flush() {
+      // nothing to do
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public State getState() {
+      return this._state;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void setState(State value) {
+      this._state = value;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void bundleAdded(BundleDescription bundle) {
+      // nothing to do
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void bundleRemoved(BundleDescription bundle, boolean pending) {
+      // nothing to do
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void bundleUpdated(BundleDescription newDescription, BundleDescription existingDescription, boolean pending) {
+      // nothing to do
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public ExportPackageDescription resolveDynamicImport(BundleDescription importingBundle, String requestedPackage) {
+      return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("rawtypes")
+    public void setSelectionPolicy(Comparator selectionPolicy) {
+      // nothing to do
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("rawtypes")
+    public Comparator getSelectionPolicy() {
+      return null;
+    }
+  }
 }
\ No newline at end of file
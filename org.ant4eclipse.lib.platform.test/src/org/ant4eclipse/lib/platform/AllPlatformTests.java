@@ -13,6 +13,7 @@ package org.ant4eclipse.lib.platform;
 
 import org.ant4eclipse.lib.platform.internal.model.launcher.LaunchConfigurationReaderImplTest;
 import org.ant4eclipse.lib.platform.internal.model.resource.variable.PropertyParserTest;
+import org.ant4eclipse.lib.platform.internal.model.resource.workspaceregistry.WorkspaceRegistryImplTest;
 import org.ant4eclipse.lib.platform.model.resource.role.ProjectRoleIdentifierRegistryTest;
 import org.ant4eclipse.lib.platform.model.team.cvssupport.CvsRootTest;
 import org.ant4eclipse.lib.platform.model.team.projectset.internal.ProjectSetFileParserImplTest;
@@ -21,6 +22,6 @@ import org.junit.runners.Suite;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses( { LaunchConfigurationReaderImplTest.class, ProjectRoleIdentifierRegistryTest.class,
-    CvsRootTest.class, ProjectSetFileParserImplTest.class, PropertyParserTest.class })
+    CvsRootTest.class, ProjectSetFileParserImplTest.class, PropertyParserTest.class, WorkspaceRegistryImplTest.class })
 public class AllPlatformTests {
 } /* ENDCLASS */
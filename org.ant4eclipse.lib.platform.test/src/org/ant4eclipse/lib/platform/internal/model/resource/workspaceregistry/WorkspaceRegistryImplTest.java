@@ -0,0 +1,124 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.platform.internal.model.resource.workspaceregistry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
+import org.ant4eclipse.lib.core.exception.ExceptionCode;
+import org.ant4eclipse.lib.core.service.ServiceRegistryAccess;
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.lib.platform.model.resource.EclipseProject;
+import org.ant4eclipse.lib.platform.model.resource.Workspace;
+import org.ant4eclipse.lib.platform.model.resource.workspaceregistry.DefaultEclipseWorkspaceDefinition;
+import org.ant4eclipse.lib.platform.model.resource.workspaceregistry.WorkspaceRegistry;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.ant4eclipse.testframework.EclipseProjectBuilder;
+import org.ant4eclipse.testframework.TestDirectory;
+import org.junit.Test;
+
+public class WorkspaceRegistryImplTest extends ConfigurableAnt4EclipseTestCase {
+
+  private static final int PROJECTS = 50;
+
+  private TestDirectory    _testWorkspace;
+
+  private String           _threads;
+
+  private String           _cacheDir;
+
+  @Override
+  public void setup() {
+    super.setup();
+
+    // the projects have to be parsed for each registration
+    this._threads = System.getProperty(WorkspaceRegistryImpl.PROP_THREADS);
+    this._cacheDir = System.getProperty(Utilities.PROP_A4ECACHEDIR);
+    System.setProperty(Utilities.PROP_A4ECACHEDIR, Utilities.CACHEDIR_NONE);
+
+    this._testWorkspace = new TestDirectory();
+    for (int i = 0; i < PROJECTS; i++) {
+      EclipseProjectBuilder builder = new EclipseProjectBuilder("project" + i);
+      builder.withNature("nature" + (i % 3));
+      builder.withBuilder("builder" + i);
+      if (i > 0) {
+        builder.withProjectReference("project" + (i - 1));
+      }
+      builder.createIn(this._testWorkspace.getRootDir());
+    }
+  }
+
+  @Override
+  public void dispose() {
+    this._testWorkspace.dispose();
+    restore(WorkspaceRegistryImpl.PROP_THREADS, this._threads);
+    restore(Utilities.PROP_A4ECACHEDIR, this._cacheDir);
+
+    super.dispose();
+  }
+
+  @Test
+  public void parallelRegistration() {
+    Workspace sequential = registerWorkspace("sequential", 1);
+    Workspace parallel = registerWorkspace("parallel", 8);
+
+    assertEquals(PROJECTS, sequential.getAllProjects().length);
+    assertEquals(PROJECTS, parallel.getAllProjects().length);
+    for (EclipseProject expected : sequential.getAllProjects()) {
+      EclipseProject project = parallel.getProject(expected.getSpecifiedName());
+      assertNotNull(project);
+      assertEquals(expected.getFolder(), project.getFolder());
+      assertEquals(Arrays.asList(expected.getNatures()), Arrays.asList(project.getNatures()));
+      assertEquals(Arrays.asList(expected.getBuildCommands()), Arrays.asList(project.getBuildCommands()));
+      assertEquals(Arrays.asList(expected.getReferencedProjects()), Arrays.asList(project.getReferencedProjects()));
+    }
+  }
+
+  @Test
+  public void brokenProjectDescription() {
+    this._testWorkspace.createSubDirectory("broken");
+    this._testWorkspace.createFile("broken/.project", "<projectDescription><name>broken</name>");
+
+    ExceptionCode expected = getExceptionCode("sequential", 1);
+    assertNotNull(expected);
+    assertEquals(expected, getExceptionCode("parallel", 8));
+  }
+
+  private ExceptionCode getExceptionCode(String id, int threads) {
+    try {
+      registerWorkspace(id, threads);
+      fail();
+      return null;
+    } catch (Ant4EclipseException ex) {
+      return ex.getExceptionCode();
+    }
+  }
+
+  private Workspace registerWorkspace(String id, int threads) {
+    System.setProperty(WorkspaceRegistryImpl.PROP_THREADS, String.valueOf(threads));
+    WorkspaceRegistry workspaceRegistry = ServiceRegistryAccess.instance().getService(WorkspaceRegistry.class);
+    return workspaceRegistry.registerWorkspace(id, new DefaultEclipseWorkspaceDefinition(this._testWorkspace
+        .getRootDir()));
+  }
+
+  private void restore(String key, String value) {
+    if (value == null) {
+      System.clearProperty(key);
+    } else {
+      System.setProperty(key, value);
+    }
+  }
+}
@@ -86,6 +86,8 @@ public class CvsRootTest {
     Assert.assertNull(cvsRoot.getEncodedPassword());
     Assert.assertNull(cvsRoot.getHost());
     Assert.assertEquals("/cvsroot", cvsRoot.getRepository());
+    Assert.assertEquals(":local:/cvsroot", cvsRoot.getResolvedRoot("user", null).toString());
+    Assert.assertEquals(":local:/cvsroot", new CvsRoot(":local:/cvsroot").toString());
   }
 
 } /* ENDCLASS */
@@ -16,9 +16,20 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.ant4eclipse.lib.core.Assure;
+import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
 import org.ant4eclipse.lib.core.logging.A4ELogging;
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.lib.core.xquery.XQueryCache;
+import org.ant4eclipse.lib.platform.PlatformExceptionCode;
 import org.ant4eclipse.lib.platform.internal.model.resource.WorkspaceImpl;
 import org.ant4eclipse.lib.platform.model.resource.EclipseProject;
 import org.ant4eclipse.lib.platform.model.resource.Workspace;
@@ -34,6 +45,18 @@ import org.ant4eclipse.lib.platform.model.resource.workspaceregistry.WorkspaceRe
  */
 public class WorkspaceRegistryImpl implements WorkspaceRegistry {
 
+  /**
+   * System-Property that specifies the number of threads used to read the projects of a workspace (defaults to the
+   * number of available processors). A value of <code>1</code> reads the projects sequentially.
+   */
+  public static final String                           PROP_THREADS   = "ant4eclipse.workspaceRegistry.threads";
+
+  /** used to create unique thread names */
+  private static final AtomicInteger                   POOL_COUNTER   = new AtomicInteger();
+
+  /** the name of the cache directory that contains the workspace snapshots */
+  private static final String                          SNAPSHOT_CACHE = "workspace-snapshot";
+
   /** The factory used to build projects */
   private ProjectFactory                               _projectFactory;
 
@@ -120,11 +143,12 @@ public class WorkspaceRegistryImpl implements WorkspaceRegistry {
           Integer.valueOf(projectFolders.length));
     }
 
+    // the snapshot contains the parsed project descriptions of the previous build
+    XQueryCache snapshot = loadSnapshot(id);
+
     // read the projects and add them to the workspace
-    List<EclipseProject> projects = new ArrayList<EclipseProject>();
-    for (File projectFolder : projectFolders) {
-      EclipseProject eclipseProject = this._projectFactory.readProjectFromWorkspace(workspace, projectFolder);
-      projects.add(eclipseProject);
+    List<EclipseProject> projects = readProjects(id, workspace, projectFolders, snapshot);
+    for (EclipseProject eclipseProject : projects) {
       workspace.registerEclipseProject(eclipseProject);
     }
 
@@ -132,6 +156,12 @@ public class WorkspaceRegistryImpl implements WorkspaceRegistry {
       this._projectFactory.postProcessRoleSetup(project);
     }
 
+    if (snapshot != null) {
+      A4ELogging.debug("WorkspaceRegistry.registerWorkspace: parsed %d descriptor files.", Integer.valueOf(snapshot
+          .getMisses()));
+      snapshot.save();
+    }
+
     // add the workspace to the registry
     this._registry.put(id, new WorkspaceDefinitionAndWorkspace(workspaceDefinition, workspace));
 
@@ -139,6 +169,83 @@ public class WorkspaceRegistryImpl implements WorkspaceRegistry {
     return workspace;
   }
 
+  /**
+   * <p>
+   * Reads the projects from the given folders. The projects are read concurrently (using at most the number of threads
+   * specified by {@link #PROP_THREADS}) but they are returned in the order of the folders.
+   * </p>
+   */
+  private List<EclipseProject> readProjects(String id, final WorkspaceImpl workspace, File[] projectFolders,
+      final XQueryCache snapshot) {
+    List<EclipseProject> result = new ArrayList<EclipseProject>(projectFolders.length);
+    int threads = Math.min(Integer.getInteger(PROP_THREADS, Runtime.getRuntime().availableProcessors()).intValue(),
+        projectFolders.length);
+    if (threads <= 1) {
+      if (snapshot != null) {
+        snapshot.activate();
+      }
+      try {
+        for (File projectFolder : projectFolders) {
+          result.add(this._projectFactory.readProjectFromWorkspace(workspace, projectFolder));
+        }
+      } finally {
+        XQueryCache.deactivate();
+      }
+      return result;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new ReaderThreadFactory());
+    try {
+      List<Future<EclipseProject>> futures = new ArrayList<Future<EclipseProject>>(projectFolders.length);
+      for (final File projectFolder : projectFolders) {
+        futures.add(executor.submit(new Callable<EclipseProject>() {
+          public EclipseProject call() {
+            if (snapshot != null) {
+              snapshot.activate();
+            }
+            try {
+              return WorkspaceRegistryImpl.this._projectFactory.readProjectFromWorkspace(workspace, projectFolder);
+            } finally {
+              XQueryCache.deactivate();
+            }
+          }
+        }));
+      }
+      for (Future<EclipseProject> future : futures) {
+        result.add(future.get());
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new Ant4EclipseException(ex, PlatformExceptionCode.WORKSPACE_REGISTRATION_INTERRUPTED, id);
+    } catch (ExecutionException ex) {
+      Throwable cause = ex.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new RuntimeException(cause);
+    } finally {
+      executor.shutdownNow();
+    }
+    return result;
+  }
+
+  /**
+   * <p>
+   * Loads the snapshot of the workspace with the given id.
+   * </p>
+   *
+   * @return the snapshot or <code>null</code> if persistent caches are disabled.
+   */
+  private XQueryCache loadSnapshot(String id) {
+    File cacheDir = Utilities.getCacheDir(SNAPSHOT_CACHE);
+    if (cacheDir == null) {
+      return null;
+    }
+    return XQueryCache.load(new File(cacheDir, Utilities.sha1(id)));
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -163,6 +270,34 @@ public class WorkspaceRegistryImpl implements WorkspaceRegistry {
     return (this._registry != null) && (this._projectFactory != null);
   }
 
+  /**
+   * <p>
+   * Creates named daemon threads for the reading of the projects.
+   * </p>
+   */
+  private static class ReaderThreadFactory implements ThreadFactory {
+
+    /** the number of the pool */
+    private int           _pool;
+
+    /** the number of the next thread */
+    private AtomicInteger _thread;
+
+    public ReaderThreadFactory() {
+      this._pool = POOL_COUNTER.incrementAndGet();
+      this._thread = new AtomicInteger();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "A4E-workspace-" + this._pool + "-" + this._thread.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
   final class WorkspaceDefinitionAndWorkspace {
     private final WorkspaceDefinition _workspaceDefinition;
 
@@ -161,6 +161,12 @@ public final class CvsRoot implements Cloneable {
     buffy.append(this._connectionType);
     buffy.append(":");
 
+    // a local repository doesn't have a host (the user is ignored)
+    if (this._host == null) {
+      buffy.append(this._repository);
+      return buffy.toString();
+    }
+
     if (this._user != null) {
       buffy.append(this._user);
 
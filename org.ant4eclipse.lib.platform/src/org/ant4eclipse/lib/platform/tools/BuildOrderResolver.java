@@ -46,6 +46,45 @@ public class BuildOrderResolver {
   public static final List<EclipseProject> resolveBuildOrder(Workspace workspace, String[] projectNames,
       String[] referenceTypes, List<Object> additionalElements) {
 
+    // create the dependency graph
+    DependencyGraph<EclipseProject> dependencyGraph = resolveDependencyGraph(workspace, projectNames, referenceTypes,
+        additionalElements);
+
+    // calculate the order
+    List<EclipseProject> orderProjects = dependencyGraph.calculateOrder();
+
+    // filter result - only the requested projects should be listed
+    List<EclipseProject> result = new LinkedList<EclipseProject>();
+    List<String> names = Arrays.asList(projectNames);
+    for (EclipseProject eclipseProject : orderProjects) {
+      if (names.contains(eclipseProject.getSpecifiedName())) {
+        result.add(eclipseProject);
+      }
+    }
+
+    // return the result
+    return result;
+  }
+
+  /**
+   * <p>
+   * Resolves the dependency graph of the projects with the given names. The graph contains the given projects and all
+   * the projects they reference.
+   * </p>
+   * 
+   * @param workspace
+   *          the workspace
+   * @param projectNames
+   *          an array with the names of all projects that should be added to the graph.
+   * @param referenceTypes
+   *          the reference types (may be <code>null</code>)
+   * @param additionalElements
+   *          the additional elements passed to the {@link ReferencedProjectsResolverService}
+   * @return the dependency graph of the projects with the given names.
+   */
+  public static final DependencyGraph<EclipseProject> resolveDependencyGraph(Workspace workspace,
+      String[] projectNames, String[] referenceTypes, List<Object> additionalElements) {
+
     // retrieve all eclipse projects from the workspace
     EclipseProject[] eclipseProjects = workspace.getProjects(projectNames, true);
 
@@ -84,19 +123,6 @@ public class BuildOrderResolver {
       }
     }
 
-    // calculate the order
-    List<EclipseProject> orderProjects = dependencyGraph.calculateOrder();
-
-    // filter result - only the requested projects should be listed
-    List<EclipseProject> result = new LinkedList<EclipseProject>();
-    List<String> names = Arrays.asList(projectNames);
-    for (EclipseProject eclipseProject : orderProjects) {
-      if (names.contains(eclipseProject.getSpecifiedName())) {
-        result.add(eclipseProject);
-      }
-    }
-
-    // return the result
-    return result;
+    return dependencyGraph;
   }
 }
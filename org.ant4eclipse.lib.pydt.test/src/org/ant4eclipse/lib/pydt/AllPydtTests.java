@@ -11,10 +11,11 @@
  **********************************************************************/
 package org.ant4eclipse.lib.pydt;
 
+import org.ant4eclipse.lib.pydt.internal.model.pyre.PythonRuntimeRegistryImplTest;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
 @RunWith(Suite.class)
-@Suite.SuiteClasses({})
+@Suite.SuiteClasses( { PythonRuntimeRegistryImplTest.class })
 public class AllPydtTests {
 } /* ENDCLASS */
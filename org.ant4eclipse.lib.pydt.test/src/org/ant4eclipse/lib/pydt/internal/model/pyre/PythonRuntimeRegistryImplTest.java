@@ -0,0 +1,188 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.pydt.internal.model.pyre;
+
+import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.lib.pydt.PydtExceptionCode;
+import org.ant4eclipse.lib.pydt.model.pyre.PythonRuntime;
+import org.ant4eclipse.lib.pydt.model.pyre.PythonRuntimeRegistry;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+/**
+ * <p>
+ * Tests the persistent cache of the {@link PythonRuntimeRegistryImpl} using a fake interpreter (a shell script which
+ * prints the output of the lister script and counts it's invocations). The tests are skipped on windows.
+ * </p>
+ * 
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class PythonRuntimeRegistryImplTest extends ConfigurableAnt4EclipseTestCase {
+
+  private File   _tempdir;
+
+  private File   _location;
+
+  private File   _libdir;
+
+  private File   _sitepackages;
+
+  private String _cachedir;
+
+  @Before
+  public void setupInterpreter() throws Exception {
+    this._tempdir = Utilities.createTempDir();
+    this._cachedir = System.getProperty(Utilities.PROP_A4ECACHEDIR);
+    System.setProperty(Utilities.PROP_A4ECACHEDIR, new File(this._tempdir, "cache").getAbsolutePath());
+    this._location = new File(this._tempdir, "python");
+    this._libdir = new File(this._location, "lib");
+    this._sitepackages = new File(this._libdir, "site-packages");
+    Utilities.mkdirs(this._sitepackages);
+    this._sitepackages.setLastModified(1000000000000L);
+    writeOutput("2.6.4_final");
+    File interpreter = new File(this._location, "python");
+    Utilities.writeFile(interpreter, "#!/bin/sh\necho >> \"$0.count\"\ncat \"$0.out\"\n", "UTF-8");
+    Assert.assertEquals(0, new ProcessBuilder("chmod", "+x", interpreter.getAbsolutePath()).start().waitFor());
+  }
+
+  @After
+  public void cleanupInterpreter() {
+    if (this._cachedir == null) {
+      System.clearProperty(Utilities.PROP_A4ECACHEDIR);
+    } else {
+      System.setProperty(Utilities.PROP_A4ECACHEDIR, this._cachedir);
+    }
+    Utilities.delete(this._tempdir);
+  }
+
+  @Test
+  public void cachedProbe() {
+    if (isWindows()) {
+      return;
+    }
+    PythonRuntime runtime = register(PythonRuntimeRegistry.PROBE_CACHED);
+    Assert.assertEquals(1, getInvocations());
+    Assert.assertEquals(2, runtime.getLibraries().length);
+    Assert.assertEquals(this._libdir, runtime.getLibraries()[0]);
+    Assert.assertEquals(this._sitepackages, runtime.getLibraries()[1]);
+
+    // the second build uses the cached probe
+    runtime = register(PythonRuntimeRegistry.PROBE_CACHED);
+    Assert.assertEquals(1, getInvocations());
+    Assert.assertEquals(4, runtime.getVersion().getMicro());
+    Assert.assertEquals(2, runtime.getLibraries().length);
+
+    // installing a package modifies the site-packages directory
+    writeOutput("2.6.5_final");
+    this._sitepackages.setLastModified(1100000000000L);
+    runtime = register(PythonRuntimeRegistry.PROBE_CACHED);
+    Assert.assertEquals(2, getInvocations());
+    Assert.assertEquals(5, runtime.getVersion().getMicro());
+  }
+
+  @Test
+  public void alwaysProbe() {
+    if (isWindows()) {
+      return;
+    }
+    register(PythonRuntimeRegistry.PROBE_CACHED);
+    register(PythonRuntimeRegistry.PROBE_ALWAYS);
+    Assert.assertEquals(2, getInvocations());
+  }
+
+  @Test
+  public void neverProbe() {
+    if (isWindows()) {
+      return;
+    }
+    try {
+      register(PythonRuntimeRegistry.PROBE_NEVER);
+      Assert.fail();
+    } catch (Ant4EclipseException ex) {
+      Assert.assertEquals(PydtExceptionCode.PYTHON_RUNTIME_NOT_PROBED, ex.getExceptionCode());
+    }
+    Assert.assertEquals(0, getInvocations());
+
+    // a stale probe is used as well
+    register(PythonRuntimeRegistry.PROBE_CACHED);
+    writeOutput("2.6.5_final");
+    this._sitepackages.setLastModified(1100000000000L);
+    PythonRuntime runtime = register(PythonRuntimeRegistry.PROBE_NEVER);
+    Assert.assertEquals(1, getInvocations());
+    Assert.assertEquals(4, runtime.getVersion().getMicro());
+  }
+
+  @Test
+  public void backgroundProbe() {
+    if (isWindows()) {
+      return;
+    }
+    register(PythonRuntimeRegistry.PROBE_BACKGROUND);
+    Assert.assertEquals(1, getInvocations());
+
+    // the stale probe is used while the interpreter is launched in the background
+    writeOutput("2.6.5_final");
+    this._sitepackages.setLastModified(1100000000000L);
+    PythonRuntime runtime = register(PythonRuntimeRegistry.PROBE_BACKGROUND);
+    Assert.assertEquals(4, runtime.getVersion().getMicro());
+    Assert.assertEquals(2, getInvocations());
+
+    // the refreshed probe is used by the next build
+    runtime = register(PythonRuntimeRegistry.PROBE_CACHED);
+    Assert.assertEquals(5, runtime.getVersion().getMicro());
+    Assert.assertEquals(2, getInvocations());
+  }
+
+  /**
+   * <p>
+   * Registers the fake interpreter using a new registry (which simulates a new build).
+   * </p>
+   */
+  private PythonRuntime register(String probe) {
+    PythonRuntimeRegistryImpl registry = new PythonRuntimeRegistryImpl();
+    registry.initialize();
+    try {
+      registry.registerRuntime("python", this._location, true, probe);
+      return registry.getRuntime("python");
+    } finally {
+      // waits for the background probes
+      registry.dispose();
+    }
+  }
+
+  private void writeOutput(String version) {
+    StringBuffer buffer = new StringBuffer();
+    buffer.append("ANT4ECLIPSE-BEGIN\n");
+    buffer.append(version).append("\n");
+    buffer.append("[").append(new File(this._location, "python26.zip").getAbsolutePath()).append("]\n");
+    buffer.append("[").append(this._libdir.getAbsolutePath()).append("]\n");
+    buffer.append("[").append(this._sitepackages.getAbsolutePath()).append("]\n");
+    buffer.append("ANT4ECLIPSE-END\n");
+    Utilities.writeFile(new File(this._location, "python.out"), buffer.toString(), "UTF-8");
+  }
+
+  private int getInvocations() {
+    File counter = new File(this._location, "python.count");
+    return counter.isFile() ? (int) counter.length() : 0;
+  }
+
+  private boolean isWindows() {
+    return File.separatorChar == '\\';
+  }
+
+} /* ENDCLASS */
@@ -61,6 +61,9 @@ public class PydtExceptionCode extends ExceptionCode {
   @NLSMessage("The python properties file 'python.properties' lacks executable definitions for key '%s' !")
   public static PydtExceptionCode MISSINGEXECUTABLES;
 
+  @NLSMessage("The python interpreter '%s' has not been probed yet but the probe policy is '%s' !")
+  public static PydtExceptionCode PYTHON_RUNTIME_NOT_PROBED;
+
   static {
     NLS.initialize(PydtExceptionCode.class);
   }
@@ -0,0 +1,482 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.pydt.internal.model.pyre;
+
+import org.ant4eclipse.lib.core.Assure;
+import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
+import org.ant4eclipse.lib.core.logging.A4ELogging;
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.lib.pydt.PydtExceptionCode;
+import org.ant4eclipse.lib.pydt.model.pyre.PythonRuntimeRegistry;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Caches the output of the python lister script which has to be executed by each python interpreter in order to
+ * determine the version and the <code>sys.path</code> of the interpreter. The results are stored persistently, so the
+ * interpreter is only launched if the python installation has been changed.
+ * </p>
+ * <p>
+ * An entry is identified by the canonical path of the interpreter and validated by the size and modification time of
+ * the interpreter and by the modification times of the <code>site-packages</code> (and <code>dist-packages</code>)
+ * directories on the <code>sys.path</code>, so installing or removing a package invalidates the entry. The entries are
+ * located in the <code>python-probe</code> subdirectory of the ant4eclipse cache directory (see
+ * {@link Utilities#getCacheDir(String)}). The usage of the entries is controlled by the probe policies of the
+ * {@link PythonRuntimeRegistry}.
+ * </p>
+ * 
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+final class PythonRuntimeProbeCache {
+
+  /** the magic number of all cache files */
+  private static final int         MAGIC           = 0x41345050;
+
+  /** the version of the cache file format */
+  private static final int         VERSION         = 1;
+
+  private static final String      MARKER_BEGIN    = "ANT4ECLIPSE-BEGIN";
+
+  private static final String      MARKER_END      = "ANT4ECLIPSE-END";
+
+  /** the names of the directories which are used to detect installed packages */
+  private static final Set<String> PACKAGE_DIRS    = new HashSet<String>();
+
+  static {
+    PACKAGE_DIRS.add("site-packages");
+    PACKAGE_DIRS.add("dist-packages");
+  }
+
+  /** the python lister script */
+  private File                     _pythonlister;
+
+  /** the directory of the python lister script which is always part of the <code>sys.path</code> */
+  private File                     _listerdir;
+
+  /** the cache directory (<code>null</code> if the persistent cache is disabled) */
+  private File                     _cacheDirectory;
+
+  /** the up-to-date results of this build (key: canonical path of the interpreter) */
+  private Map<String, ProbeResult> _results;
+
+  /** the interpreters which are currently probed in the background */
+  private Set<String>              _refreshing;
+
+  /** the executor for the background probes (created on demand) */
+  private ExecutorService          _refresher;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link PythonRuntimeProbeCache}.
+   * </p>
+   * 
+   * @param pythonlister
+   *          The python lister script. Not <code>null</code>.
+   * @param listerdir
+   *          The canonical directory of the python lister script. Not <code>null</code>.
+   */
+  PythonRuntimeProbeCache(File pythonlister, File listerdir) {
+    Assure.notNull("pythonlister", pythonlister);
+    Assure.notNull("listerdir", listerdir);
+    this._pythonlister = pythonlister;
+    this._listerdir = listerdir;
+    this._cacheDirectory = Utilities.getCacheDir("python-probe");
+    this._results = new HashMap<String, ProbeResult>();
+    this._refreshing = new HashSet<String>();
+  }
+
+  /**
+   * <p>
+   * Returns the output of the python lister script for the supplied interpreter according to the supplied probe policy.
+   * The first element is the version of the interpreter while the remaining elements are the entries of the
+   * <code>sys.path</code> (except for the directory of the lister script).
+   * </p>
+   * 
+   * @param interpreter
+   *          The python interpreter. Not <code>null</code>.
+   * @param policy
+   *          One of the <code>PROBE_*</code> constants of the {@link PythonRuntimeRegistry}. Not <code>null</code>.
+   * 
+   * @return The output of the python lister script or <code>null</code> if the interpreter produced invalid output.
+   */
+  public synchronized String[] getProbeResult(File interpreter, String policy) {
+    Assure.isFile("interpreter", interpreter);
+    Assure.notNull("policy", policy);
+
+    interpreter = Utilities.getCanonicalFile(interpreter);
+
+    // step 1: use the result of this build or the cached result
+    ProbeResult cached = this._results.get(interpreter.getPath());
+    if (cached != null) {
+      // this result has been created or validated during this build
+      return cached._values;
+    }
+    cached = read(interpreter);
+    if (cached != null) {
+      boolean valid = cached.isValid(interpreter);
+      if (PythonRuntimeRegistry.PROBE_NEVER.equals(policy)) {
+        if (!valid) {
+          A4ELogging.warn("The cached probe of the python interpreter '%s' is stale but probing is disabled.",
+              interpreter);
+        }
+        return cached._values;
+      }
+      if (valid && !PythonRuntimeRegistry.PROBE_ALWAYS.equals(policy)) {
+        A4ELogging.debug("Using the cached probe of the python interpreter '%s'.", interpreter);
+        this._results.put(interpreter.getPath(), cached);
+        return cached._values;
+      }
+      if (!valid && PythonRuntimeRegistry.PROBE_BACKGROUND.equals(policy)) {
+        A4ELogging.debug("Using the stale probe of the python interpreter '%s' while refreshing it.", interpreter);
+        refresh(interpreter);
+        return cached._values;
+      }
+    } else if (PythonRuntimeRegistry.PROBE_NEVER.equals(policy)) {
+      throw new Ant4EclipseException(PydtExceptionCode.PYTHON_RUNTIME_NOT_PROBED, interpreter, policy);
+    }
+
+    // step 2: probe the python interpreter
+    ProbeResult current = probe(interpreter);
+    if (current == null) {
+      return null;
+    }
+    this._results.put(interpreter.getPath(), current);
+    write(current);
+    return current._values;
+  }
+
+  /**
+   * <p>
+   * Waits until all background probes have been finished.
+   * </p>
+   */
+  public void dispose() {
+    ExecutorService refresher = null;
+    synchronized (this) {
+      refresher = this._refresher;
+      this._refresher = null;
+    }
+    if (refresher != null) {
+      refresher.shutdown();
+      try {
+        while (!refresher.awaitTermination(1, TimeUnit.SECONDS)) {
+          // wait until the pending probes have been stored
+        }
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        refresher.shutdownNow();
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Probes the supplied interpreter in the background and stores the result in the cache. The result is used by the
+   * registrations which follow the completion of the probe.
+   * </p>
+   */
+  private void refresh(final File interpreter) {
+    if (!this._refreshing.add(interpreter.getPath())) {
+      // already scheduled
+      return;
+    }
+    if (this._refresher == null) {
+      this._refresher = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "A4E-python-probe");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+    this._refresher.execute(new Runnable() {
+      public void run() {
+        try {
+          ProbeResult current = probe(interpreter);
+          if (current != null) {
+            synchronized (PythonRuntimeProbeCache.this) {
+              PythonRuntimeProbeCache.this._results.put(interpreter.getPath(), current);
+            }
+            write(current);
+          }
+        } catch (RuntimeException ex) {
+          A4ELogging.warn("Could not refresh the probe of the python interpreter '%s': %s", interpreter, ex
+              .getMessage());
+        } finally {
+          synchronized (PythonRuntimeProbeCache.this) {
+            PythonRuntimeProbeCache.this._refreshing.remove(interpreter.getPath());
+          }
+        }
+      }
+    });
+  }
+
+  /**
+   * <p>
+   * Launches the python lister script using the supplied interpreter.
+   * </p>
+   * 
+   * @return The result or <code>null</code> if the interpreter produced invalid output.
+   */
+  private ProbeResult probe(File interpreter) {
+    ProbeResult result = new ProbeResult(interpreter);
+    StringBuffer output = new StringBuffer();
+    StringBuffer error = new StringBuffer();
+    Utilities.execute(interpreter, output, error, this._pythonlister.getAbsolutePath());
+    result._values = parseOutput(output.toString());
+    if (result._values == null) {
+      A4ELogging.debug("The executable '%s' produced invalid output.\nOutput:\n%sError:\n%s", interpreter, output,
+          error);
+      return null;
+    }
+    List<String> directories = new ArrayList<String>();
+    for (int i = 1; i < result._values.length; i++) {
+      if (PACKAGE_DIRS.contains(new File(result._values[i]).getName())) {
+        directories.add(result._values[i]);
+      }
+    }
+    result._directories = directories.toArray(new String[directories.size()]);
+    result._directoriesLastModified = new long[result._directories.length];
+    for (int i = 0; i < result._directories.length; i++) {
+      result._directoriesLastModified[i] = new File(result._directories[i]).lastModified();
+    }
+    return result;
+  }
+
+  /**
+   * <p>
+   * Parses the output of the python lister script.
+   * </p>
+   * 
+   * @return The version followed by the entries of the <code>sys.path</code> or <code>null</code> in case of a
+   *         failure.
+   */
+  private String[] parseOutput(String content) {
+    List<String> list = new ArrayList<String>();
+    boolean collect = false;
+    BufferedReader reader = new BufferedReader(new StringReader(content));
+    try {
+      String line = reader.readLine();
+      while (line != null) {
+        line = line.trim();
+        if (MARKER_BEGIN.equals(line)) {
+          collect = true;
+        } else if (MARKER_END.equals(line)) {
+          collect = false;
+        } else if (collect) {
+          if (list.isEmpty()) {
+            // the first line provides the versioning information
+            list.add(line);
+          } else {
+            // the brackets are just a security precaution just for the case that a path
+            // starts or ends with whitespace characters
+            int open = line.indexOf('[');
+            int close = line.lastIndexOf(']');
+            line = line.substring(open + 1, close);
+            if (!isListerDir(line)) {
+              list.add(line);
+            }
+          }
+        }
+        line = reader.readLine();
+      }
+    } catch (IOException ex) {
+      A4ELogging.debug("Failed to read the output. Cause: %s", ex.getMessage());
+      return null;
+    }
+    // there must be at least the version information
+    return list.isEmpty() ? null : list.toArray(new String[list.size()]);
+  }
+
+  /**
+   * <p>
+   * Returns <code>true</code> if the supplied path denotes the directory of the lister script. This directory changes
+   * from build to build, so it must not be stored in the cache.
+   * </p>
+   */
+  private boolean isListerDir(String path) {
+    File file = new File(path);
+    return file.exists() && this._listerdir.equals(Utilities.getCanonicalFile(file));
+  }
+
+  /**
+   * <p>
+   * Reads the cached result for the supplied interpreter.
+   * </p>
+   * 
+   * @return The cached result or <code>null</code>.
+   */
+  private ProbeResult read(File interpreter) {
+    if (this._cacheDirectory == null) {
+      return null;
+    }
+    File cacheFile = getCacheFile(interpreter);
+    if (!cacheFile.isFile()) {
+      return null;
+    }
+    DataInputStream input = null;
+    try {
+      input = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+      if ((input.readInt() != MAGIC) || (input.readInt() != VERSION) || !input.readUTF().equals(interpreter.getPath())) {
+        return null;
+      }
+      ProbeResult result = new ProbeResult();
+      result._interpreter = interpreter.getPath();
+      result._interpreterLength = input.readLong();
+      result._interpreterLastModified = input.readLong();
+      result._directories = new String[input.readInt()];
+      result._directoriesLastModified = new long[result._directories.length];
+      for (int i = 0; i < result._directories.length; i++) {
+        result._directories[i] = input.readUTF();
+        result._directoriesLastModified[i] = input.readLong();
+      }
+      result._values = new String[input.readInt()];
+      for (int i = 0; i < result._values.length; i++) {
+        result._values[i] = input.readUTF();
+      }
+      return result;
+    } catch (IOException ex) {
+      A4ELogging.debug("Could not read cached python interpreter probe '%s': %s", cacheFile, ex.getMessage());
+      return null;
+    } finally {
+      Utilities.close((Closeable) input);
+    }
+  }
+
+  /**
+   * <p>
+   * Stores the supplied result in the cache.
+   * </p>
+   */
+  private void write(ProbeResult result) {
+    if (this._cacheDirectory == null) {
+      return;
+    }
+    File cacheFile = getCacheFile(new File(result._interpreter));
+    DataOutputStream output = null;
+    File tempFile = null;
+    try {
+      tempFile = File.createTempFile("probe", ".tmp", this._cacheDirectory);
+      output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+      output.writeInt(MAGIC);
+      output.writeInt(VERSION);
+      output.writeUTF(result._interpreter);
+      output.writeLong(result._interpreterLength);
+      output.writeLong(result._interpreterLastModified);
+      output.writeInt(result._directories.length);
+      for (int i = 0; i < result._directories.length; i++) {
+        output.writeUTF(result._directories[i]);
+        output.writeLong(result._directoriesLastModified[i]);
+      }
+      output.writeInt(result._values.length);
+      for (String value : result._values) {
+        output.writeUTF(value);
+      }
+      output.close();
+      output = null;
+      Utilities.replaceFile(tempFile, cacheFile);
+      tempFile = null;
+    } catch (IOException ex) {
+      A4ELogging.debug("Could not write cached python interpreter probe '%s': %s", cacheFile, ex.getMessage());
+    } finally {
+      Utilities.close((Closeable) output);
+      if (tempFile != null) {
+        tempFile.delete();
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the cache file for the supplied interpreter.
+   * </p>
+   */
+  private File getCacheFile(File interpreter) {
+    return new File(this._cacheDirectory, Utilities.sha1(interpreter.getPath()) + ".probe");
+  }
+
+  /**
+   * <p>
+   * The output of the python lister script together with the state of the probed python installation.
+   * </p>
+   */
+  private static class ProbeResult {
+
+    /** the canonical path of the interpreter */
+    private String   _interpreter;
+
+    /** - */
+    private long     _interpreterLength;
+
+    /** - */
+    private long     _interpreterLastModified;
+
+    /** the package directories on the <code>sys.path</code> */
+    private String[] _directories;
+
+    /** - */
+    private long[]   _directoriesLastModified;
+
+    /** the output of the python lister script */
+    private String[] _values;
+
+    public ProbeResult() {
+      super();
+    }
+
+    public ProbeResult(File interpreter) {
+      this._interpreter = interpreter.getPath();
+      this._interpreterLength = interpreter.length();
+      this._interpreterLastModified = interpreter.lastModified();
+    }
+
+    /**
+     * <p>
+     * Returns <code>true</code> if this result has been created for the current state of the python installation.
+     * </p>
+     */
+    public boolean isValid(File interpreter) {
+      if ((this._interpreterLength != interpreter.length())
+          || (this._interpreterLastModified != interpreter.lastModified())) {
+        return false;
+      }
+      for (int i = 0; i < this._directories.length; i++) {
+        if (this._directoriesLastModified[i] != new File(this._directories[i]).lastModified()) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+} /* ENDCLASS */
@@ -23,10 +23,7 @@ import org.ant4eclipse.lib.pydt.model.PythonInterpreter;
 import org.ant4eclipse.lib.pydt.model.pyre.PythonRuntime;
 import org.ant4eclipse.lib.pydt.model.pyre.PythonRuntimeRegistry;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.IOException;
-import java.io.StringReader;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -43,17 +40,11 @@ public class PythonRuntimeRegistryImpl implements PythonRuntimeRegistry, Lifecyc
 
   private static final String        PROP_INTERPRETER         = "interpreter.";
 
-  private static final String        MSG_FAILEDTOREADOUTPUT   = "Failed to read the output. Cause: %s";
-
-  private static final String        MSG_INVALIDOUTPUT        = "The executable '%s' produced invalid output.\nOutput:\n%sError:\n%s";
-
   private static final String        MSG_REGISTEREDRUNTIME    = "Registered runtime with id '%s' for the location '%s'.";
 
   private static final String        MSG_REPEATEDREGISTRATION = "A python runtime with the id '%s' and the location '%s' has been registered multiple times !";
 
-  private static final String        MARKER_BEGIN             = "ANT4ECLIPSE-BEGIN";
-
-  private static final String        MARKER_END               = "ANT4ECLIPSE-END";
+  private static final String        MSG_INVALIDPROBEPOLICY   = "The probe policy '%s' is not supported !";
 
   private static final String        NAME_SITEPACKAGES        = "site-packages";
 
@@ -69,6 +60,8 @@ public class PythonRuntimeRegistryImpl implements PythonRuntimeRegistry, Lifecyc
 
   private PythonInterpreter[]        _interpreters            = null;
 
+  private PythonRuntimeProbeCache    _probecache              = null;
+
   private boolean                    _initialised             = false;
 
   /**
@@ -89,6 +82,19 @@ public class PythonRuntimeRegistryImpl implements PythonRuntimeRegistry, Lifecyc
     return null;
   }
 
+  /**
+   * Returns <code>true</code> if the supplied value is one of the supported probe policies.
+   * 
+   * @param probe
+   *          The probe policy. Maybe <code>null</code>.
+   * 
+   * @return <code>true</code> <=> The probe policy is supported.
+   */
+  private boolean isProbePolicy(String probe) {
+    return PROBE_CACHED.equals(probe) || PROBE_BACKGROUND.equals(probe) || PROBE_ALWAYS.equals(probe)
+        || PROBE_NEVER.equals(probe);
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -101,9 +107,17 @@ public class PythonRuntimeRegistryImpl implements PythonRuntimeRegistry, Lifecyc
    * {@inheritDoc}
    */
   public void registerRuntime(String id, File location, boolean sitepackages) {
+    registerRuntime(id, location, sitepackages, PROBE_CACHED);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public void registerRuntime(String id, File location, boolean sitepackages, String probe) {
 
     Assure.nonEmpty("id", id);
     Assure.notNull("location", location);
+    Assure.assertTrue(isProbePolicy(probe), String.format(MSG_INVALIDPROBEPOLICY, probe));
 
     location = Utilities.getCanonicalFile(location);
 
@@ -130,15 +144,12 @@ public class PythonRuntimeRegistryImpl implements PythonRuntimeRegistry, Lifecyc
     }
     File interpreter = python.lookup(location);
 
-    // launch the python lister script to access the python path
-    StringBuffer output = new StringBuffer();
-    StringBuffer error = new StringBuffer();
-    Utilities.execute(interpreter, output, error, this._pythonlister.getAbsolutePath());
-
-    String[] extraction = extractOutput(output.toString(), sitepackages);
+    // launch the python lister script to access the python path (unless the result is cached)
+    String[] extraction = this._probecache.getProbeResult(interpreter, probe);
+    if (extraction != null) {
+      extraction = filterOutput(extraction, sitepackages);
+    }
     if (extraction == null) {
-      // returncode is 0
-      A4ELogging.debug(MSG_INVALIDOUTPUT, interpreter, output, error);
       throw new Ant4EclipseException(PydtExceptionCode.UNSUPPORTEDRUNTIME, id, location);
     }
 
@@ -156,55 +167,29 @@ public class PythonRuntimeRegistryImpl implements PythonRuntimeRegistry, Lifecyc
   }
 
   /**
-   * This function parses the output and returns the output as a list of strings.
+   * This function removes the hidden directories from the output of the python lister script.
    * 
-   * @param content
-   *          The output that has to be parsed. Neither <code>null</code> nor empty.
+   * @param output
+   *          The version followed by the entries of the python path. Not <code>null</code>.
    * @param sitepackages
    *          <code>true</code> <=> Enable support for site packages on the runtime.
    * 
    * @return A list of strings containing the runtime information or <code>null</code> in case of a failure.
    */
-  private String[] extractOutput(String content, boolean sitepackages) {
+  private String[] filterOutput(String[] output, boolean sitepackages) {
     List<String> list = new ArrayList<String>();
-    boolean collect = false;
-    boolean first = true;
-    BufferedReader reader = new BufferedReader(new StringReader(content));
-    try {
-      String line = reader.readLine();
-      while (line != null) {
-        line = line.trim();
-        if (MARKER_BEGIN.equals(line)) {
-          collect = true;
-        } else if (MARKER_END.equals(line)) {
-          collect = true;
-        } else if (collect) {
-          if (first) {
-            // the first line provides the versioning information
-            list.add(line);
-            first = false;
-          } else {
-            // the brackets are just a security precaution just for the case that a path
-            // starts or ends with whitespace characters
-            int open = line.indexOf('[');
-            int close = line.lastIndexOf(']');
-            line = line.substring(open + 1, close);
-            if (!isHiddenDir(line, sitepackages)) {
-              list.add(line);
-            }
-          }
-        }
-        line = reader.readLine();
-      }
-      if (list.size() < 2) {
-        // there must be at least the version information and one directory
-        return null;
-      } else {
-        return list.toArray(new String[list.size()]);
+    // the first line provides the versioning information
+    list.add(output[0]);
+    for (int i = 1; i < output.length; i++) {
+      if (!isHiddenDir(output[i], sitepackages)) {
+        list.add(output[i]);
       }
-    } catch (IOException ex) {
-      A4ELogging.debug(MSG_FAILEDTOREADOUTPUT, ex.getMessage());
+    }
+    if (list.size() < 2) {
+      // there must be at least the version information and one directory
       return null;
+    } else {
+      return list.toArray(new String[list.size()]);
     }
   }
 
@@ -220,11 +205,8 @@ public class PythonRuntimeRegistryImpl implements PythonRuntimeRegistry, Lifecyc
    * 
    * @return <code>true</code> <=> The supplied path is not a valid part of the runtime and shall be hidden for that
    *         reason.
-   * 
-   * @throws IOException
-   *           Path calculation failed for some reason.
    */
-  private boolean isHiddenDir(String dir, boolean sitepackages) throws IOException {
+  private boolean isHiddenDir(String dir, boolean sitepackages) {
     File file = new File(dir);
     if (!file.exists()) {
       // this directory does not exist (f.e. __classpath__ symbols provided by jython)
@@ -233,7 +215,7 @@ public class PythonRuntimeRegistryImpl implements PythonRuntimeRegistry, Lifecyc
     if ((!sitepackages) && NAME_SITEPACKAGES.equals(file.getName())) {
       return true;
     }
-    file = file.getCanonicalFile();
+    file = Utilities.getCanonicalFile(file);
     return this._listerdir.equals(file) || this._currentdir.equals(file);
   }
 
@@ -279,6 +261,8 @@ public class PythonRuntimeRegistryImpl implements PythonRuntimeRegistry, Lifecyc
    * {@inheritDoc}
    */
   public void dispose() {
+    // wait for the background probes before the lister script is deleted
+    this._probecache.dispose();
     this._runtimes.clear();
     Utilities.delete(this._pythonlister);
     this._defaultid = null;
@@ -286,6 +270,7 @@ public class PythonRuntimeRegistryImpl implements PythonRuntimeRegistry, Lifecyc
     this._listerdir = null;
     this._currentdir = null;
     this._interpreters = null;
+    this._probecache = null;
     this._initialised = false;
   }
 
@@ -303,6 +288,7 @@ public class PythonRuntimeRegistryImpl implements PythonRuntimeRegistry, Lifecyc
     this._currentdir = new File(".");
     this._listerdir = Utilities.getCanonicalFile(this._listerdir);
     this._currentdir = Utilities.getCanonicalFile(this._currentdir);
+    this._probecache = new PythonRuntimeProbeCache(this._pythonlister, this._listerdir);
 
     // load the python interpreter configurations
     URL cfgurl = getClass().getResource("/org/ant4eclipse/lib/pydt/python.properties");
@@ -23,6 +23,18 @@ import java.io.File;
  */
 public interface PythonRuntimeRegistry {
 
+  /** the interpreter is launched if the cache doesn't contain an up-to-date description (default) */
+  String PROBE_CACHED     = "cached";
+
+  /** a stale description is used while the interpreter is launched in the background in order to refresh it */
+  String PROBE_BACKGROUND = "background";
+
+  /** the interpreter is always launched (the description is cached anyway) */
+  String PROBE_ALWAYS     = "always";
+
+  /** the interpreter is never launched, so the cached description is used even if it's stale */
+  String PROBE_NEVER      = "never";
+
   /**
    * Registers a Python runtime that is specified using the given location with this registry.
    * 
@@ -35,6 +47,22 @@ public interface PythonRuntimeRegistry {
    */
   void registerRuntime(String id, File location, boolean sitepackages);
 
+  /**
+   * Registers a Python runtime that is specified using the given location with this registry. The description of the
+   * runtime (version and python path) is determined by launching the interpreter or taken from the persistent cache
+   * according to the supplied probe policy.
+   * 
+   * @param id
+   *          The id of the python runtime. Neither <code>null</code> nor empty.
+   * @param location
+   *          The location of the runtime installation. Not <code>null</code> and must be a directory.
+   * @param sitepackages
+   *          <code>true</code> <=> Enable support for site packages on the runtime.
+   * @param probe
+   *          One of {@link #PROBE_CACHED}, {@link #PROBE_BACKGROUND}, {@link #PROBE_ALWAYS} or {@link #PROBE_NEVER}.
+   */
+  void registerRuntime(String id, File location, boolean sitepackages, String probe);
+
   /**
    * Sets the ID for the {@link PythonRuntime} that has to be used by default. If there's no runtime with the supplied
    * id an exception will be caused.